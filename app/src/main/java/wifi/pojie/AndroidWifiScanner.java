@@ -0,0 +1,111 @@
+package wifi.pojie;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link WifiScanCache} 的扫描实现，按设置的扫描方式使用 WifiManager 或 cmd wifi 命令
+ * <p>
+ * 使用 WifiManager 时在应用级 Context 上常驻监听扫描结果广播，其他应用触发的扫描结果也会进入缓存，不消耗扫描次数。
+ */
+public class AndroidWifiScanner implements WifiScanCache.Scanner {
+    private static final String TAG = "AndroidWifiScanner";
+    private static AndroidWifiScanner instance;
+
+    private final Context context;
+    private final WifiManager wifiManager;
+    private final SettingsManager settingsManager;
+    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor();
+
+    private AndroidWifiScanner(Context context) {
+        this.context = context.getApplicationContext();
+        this.wifiManager = (WifiManager) this.context.getSystemService(Context.WIFI_SERVICE);
+        this.settingsManager = SettingsManager.getInstance(this.context);
+        this.context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (settingsManager.getInt(SettingsManager.KEY_SCAN_MODE) == 0) {
+                    loadSystemResults();
+                }
+            }
+        }, new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+    }
+
+    /**
+     * 创建扫描实现并设置到 {@link WifiScanCache}，重复调用不会重复创建
+     */
+    public static synchronized AndroidWifiScanner install(Context context) {
+        if (instance == null) {
+            instance = new AndroidWifiScanner(context);
+            WifiScanCache.getInstance().setScanner(instance);
+        }
+        return instance;
+    }
+
+    @Override
+    public boolean startScan() {
+        int scanMode = settingsManager.getInt(SettingsManager.KEY_SCAN_MODE);
+        if (scanMode == 0) {
+            if (!hasLocationPermission()) {
+                return false;
+            }
+            return wifiManager.startScan();
+        } else if (scanMode == 1) {
+            int runType = settingsManager.getInt(SettingsManager.KEY_SCAN_MODE_CMD);
+            commandExecutor.execute(() -> {
+                WifiSelectionDialog.runCommand("cmd wifi start-scan", runType);
+                String result = WifiSelectionDialog.runCommand("cmd wifi list-scan-results", runType);
+                WifiScanCache.getInstance().onScanResults(parseScanResults(result), System.currentTimeMillis());
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取系统已有的扫描结果，不发起新的扫描
+     */
+    public void loadSystemResults() {
+        if (!hasLocationPermission()) {
+            return;
+        }
+        try {
+            List<ScanResult> scanResults = wifiManager.getScanResults();
+            List<ScanResultModel.Observation> observations = new ArrayList<>(scanResults.size());
+            for (ScanResult scanResult : scanResults) {
+                observations.add(new ScanResultModel.Observation(scanResult.SSID, scanResult.BSSID, scanResult.level));
+            }
+            WifiScanCache.getInstance().onScanResults(observations, System.currentTimeMillis());
+        } catch (SecurityException e) {
+            Log.e(TAG, "Error reading scan results", e);
+        }
+    }
+
+    private boolean hasLocationPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static List<ScanResultModel.Observation> parseScanResults(String result) {
+        List<CmdWifiParser.ScanRecord> records = CmdWifiParser.parseScanResults(result);
+        List<ScanResultModel.Observation> observations = new ArrayList<>(records.size());
+        for (CmdWifiParser.ScanRecord record : records) {
+            observations.add(new ScanResultModel.Observation(record.ssid, record.bssid, record.rssi));
+        }
+        return observations;
+    }
+}
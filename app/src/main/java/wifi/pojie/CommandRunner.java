@@ -1,6 +1,9 @@
 package wifi.pojie;
 
+import android.util.Log;
+
 import java.io.BufferedReader;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -79,6 +82,45 @@ public class CommandRunner {
         };
     }
 
+    /**
+     * 执行命令并把标准输出原样交给 onStream 读取，用于二进制输出（如 logcat -B）
+     *
+     * @param command  命令文本
+     * @param isRoot   是否以 Root 模式执行
+     * @param onStream 在后台线程读取标准输出，返回时结束进程
+     * @return 停止执行的函数
+     */
+    public static Runnable executeCommandStream(String command, boolean isRoot, Consumer<InputStream> onStream) {
+        AtomicBoolean isCancelled = new AtomicBoolean(false);
+        Process[] processHolder = new Process[1];
+
+        Thread outputThread = new Thread(() -> {
+            Process process = null;
+            try {
+                if (isRoot) {
+                    process = Runtime.getRuntime().exec(new String[]{"su", "-c", command});
+                } else {
+                    process = Runtime.getRuntime().exec(command);
+                }
+                processHolder[0] = process;
+                if (isCancelled.get()) return;
+                onStream.accept(process.getInputStream());
+            } catch (Exception e) {
+                if (!isCancelled.get()) Log.e("CommandRunner", "Error executing command: " + command, e);
+            } finally {
+                if (process != null) process.destroy();
+            }
+        });
+
+        outputThread.start();
+
+        return () -> {
+            isCancelled.set(true);
+            if (processHolder[0] != null) processHolder[0].destroy();
+            outputThread.interrupt();
+        };
+    }
+
     /**
      * 同步执行命令，等待全部执行完毕后返回输出结果
      *
@@ -3,124 +3,127 @@ package wifi.pojie;
 import android.content.Context;
 import android.util.Log;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
 
 public class ConnectWIfiListener {
-    private final int listenType;
-    public Consumer<String> onEvent;
-    private final int failSign;
-    private final int failSignTimeout;
-    private final int failSignCount;
+    private static final String[] LOG_TAGS = {"WifiService", "wpa_supplicant", "DhcpClient"};
+    private static final String WPA_SOCKETS_VENDOR = "/data/vendor/wifi/wpa/sockets";
+    private static final String WPA_SOCKETS_LEGACY = "/data/misc/wifi/sockets";
+    // 交互模式的 wpa_cli 会 ATTACH 到控制接口并输出事件，Android 8 之后控制接口在 vendor 分区。
+    // 交互模式连不上时不会退出而是一直重试，所以先用 ping 探测哪个目录能连上，再在这个目录启动交互模式；
+    // 都连不上时输出的提示由 WpaCtrlClient 当作错误。
+    // 命令里不用 shell 变量：root 方式外面还有一层 shell 会先展开双引号里的变量
+    private static final String WPA_CLI_COMMAND = "sh -c \""
+            + "if " + wpaCli(WPA_SOCKETS_VENDOR) + " ping 2>/dev/null | grep -q PONG; then exec " + wpaCli(WPA_SOCKETS_VENDOR) + ";"
+            + " elif " + wpaCli(WPA_SOCKETS_LEGACY) + " ping 2>/dev/null | grep -q PONG; then exec " + wpaCli(WPA_SOCKETS_LEGACY) + ";"
+            + " else echo Could not connect to wpa_supplicant; fi\"";
 
-    private int handshakeCount = 0;
+    private final int listenType;
+    // 由发出连接请求的线程设置，在引擎线程读取
+    public volatile Consumer<String> onEvent;
 
-    private android.os.Handler handshakeTimeoutHandler;
-    private Runnable handshakeTimeoutRunnable;
+    private final EngineThread engine;
+    private final TraceRecorder recorder;
+    private LogcatFailureDetector detector;
 
     private Runnable stopLogcatRunnable;
     private WifiStateReceiver wifiStateReceiver;
-    private boolean isDestroyed = false;
-
-    public ConnectWIfiListener(Context context, int listenType, int listenCmdMode, Map<String, ?> config) {
+    private volatile boolean isDestroyed = false;
+    private volatile String error;
+
+    /**
+     * 所有事件都转到引擎线程处理，onEvent 在引擎线程调用
+     *
+     * @param recorder 录制收到的事件，不录制时为 null
+     */
+    public ConnectWIfiListener(Context context, EngineThread engine, int listenType, int listenCmdMode, RunConfig config, TraceRecorder recorder) {
         this.listenType = listenType;
+        this.engine = engine;
+        this.recorder = recorder;
 
-        this.failSign = (int) config.get("failSign");
-        this.failSignTimeout = (int) config.get("failSignTimeout");
-        this.failSignCount = (int) config.get("failSignCount");
+        Consumer<String> onResult = data -> {
+            if (isDestroyed) return;
+            Log.d("ConnectWifiListener", "结果：" + data);
+            if (this.onEvent != null) {
+                this.onEvent.accept(data);
+            }
+        };
 
         if (listenType == 0) {
             //0:BroadcastReceiver
-
-            wifiStateReceiver = new WifiStateReceiver(context, failSign == 1 ? failSignTimeout : -1, data -> {
-                if (isDestroyed) return;
-                if (this.onEvent != null) {
-                    this.onEvent.accept(data);
-                }
-            });
+            wifiStateReceiver = new WifiStateReceiver(context, engine,
+                    config.failSign == RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT ? config.failSignTimeout : -1, recorder, onResult);
         } else if (listenType == 1) {
             //1:logcat
-            handshakeTimeoutHandler = new android.os.Handler(android.os.Looper.getMainLooper());
-            handshakeTimeoutRunnable = () -> {
-                if (isDestroyed) return;
-                Log.d("ConnectWifiListener", "握手超时");
-                if (failSign == 1 && this.onEvent != null) {
-                    this.onEvent.accept("handshake_timeout");
-                }
-            };
+            detector = new LogcatFailureDetector(engine, config.failSign, config.failSignTimeout, config.failSignCount, onResult);
 
             runCommandSync("logcat -c", listenCmdMode);
-            stopLogcatRunnable = runCommand(
-                    "logcat -s \"WifiService:D\" \"wpa_supplicant:D\" \"DhcpClient:D\"", listenCmdMode,
-                    (line) -> {
-                        if (isDestroyed) return;
-                        Log.d("ConnectWifiListener", "收到：" + line);
-
-                        // --- 连接失败事件 ---
-                        if (Pattern.matches(".*WPA: 4-Way Handshake failed - pre-shared key may be incorrect.*", line)) {
-                            Log.d("ConnectWifiListener", "连接失败");
-                            if (handshakeTimeoutHandler != null) {
-                                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                            }
-                            handshakeCount = 0;
-
-                            // failSign == 0 时，这是它的主要回调事件
-                            if (failSign == 0 && this.onEvent != null) {
-                                this.onEvent.accept("auth_fail");
-                            }
-                        }
-
-                        // --- 连接成功事件 ---
-                        else if (Pattern.matches(".*Received packet: .* ACK: your new IP .*(?:[0-9]{1,3}\\.){3}[0-9]{1,3}.*", line)) {
-                            Log.d("ConnectWifiListener", "连接成功");
-                            if (handshakeTimeoutHandler != null) {
-                                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                            }
-                            handshakeCount = 0;
-
-                            // 成功事件对所有模式都有效
-                            if (this.onEvent != null) {
-                                this.onEvent.accept("success");
-                            }
-                        }
-
-                        // --- 握手事件 ---
-                        else if (Pattern.matches(".*?:\\s+WPA:\\s+Sending\\s+EAPOL-Key\\s+2/4.*", line)) {
-                            Log.d("ConnectWifiListener", "握手中, 次数: " + (handshakeCount + 1));
-
-                            // 模式1：处理超时
-                            if (failSign == 1 && handshakeCount == 0) {
-                                // 仅在模式1且首次握手时，设置超时
-                                if (handshakeTimeoutHandler != null) {
-                                    Log.d("ConnectWifiListener", "设置握手超时任务: " + failSignTimeout + "ms");
-                                    handshakeTimeoutHandler.postDelayed(handshakeTimeoutRunnable, failSignTimeout);
-                                }
-                            }
-                            // 模式2：处理次数超限 (在计数增加后判断)
-                            if (failSign == 2 && handshakeCount == failSignCount) {
-                                Log.d("ConnectWifiListener", "握手次数超过最大值: " + failSignCount);
-                                if (this.onEvent != null) {
-                                    this.onEvent.accept("handshake_maximum");
-                                }
-                            }
-
-                            handshakeCount++;
-
-                        }
-
-                        //握手成功
-                        else if (Pattern.matches(".*?:\\s+WPA:\\s+Sending\\s+EAPOL-Key\\s+3/4.*", line) || Pattern.matches(".*?:\\s+WPA:\\s+Sending\\s+EAPOL-Key\\s+4/4.*", line)) {
-                            if (handshakeTimeoutHandler != null) {
-                                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                            }
-                        }
-                    },
-                    null
-            );
+            // 读取二进制格式，标签和优先级在字节上过滤，只有需要的日志才解码成字符串
+            stopLogcatRunnable = runCommandStream("logcat -B", listenCmdMode, this::readBinaryLog);
+        } else if (listenType == 2) {
+            //2:wpa_supplicant 控制接口
+            detector = new LogcatFailureDetector(engine, config.failSign, config.failSignTimeout, config.failSignCount, onResult);
+            stopLogcatRunnable = runCommandStream(WPA_CLI_COMMAND, listenCmdMode, this::readSupplicantEvents);
         }
     }
 
+    private static String wpaCli(String socketDir) {
+        return "wpa_cli -p " + socketDir + " -i wlan0";
+    }
+
+    private void readSupplicantEvents(InputStream in) {
+        WpaCtrlClient client = new WpaCtrlClient(in, null);
+        try {
+            SupplicantEvent event;
+            while (!isDestroyed && (event = client.nextEvent()) != null) {
+                SupplicantEvent received = event;
+                if (recorder != null) recorder.record(EventTrace.SUPPLICANT, event.toString());
+                engine.post(() -> handleSupplicantEvent(received));
+            }
+            if (!isDestroyed) error = "wpa_cli 已退出";
+        } catch (IOException e) {
+            if (!isDestroyed) error = "读取 wpa_supplicant 事件失败: " + e.getMessage();
+        }
+        if (error != null) Log.e("ConnectWifiListener", error);
+    }
+
+    /**
+     * 监听已经失效（wpa_cli 连不上 supplicant 或已退出），之后不会再收到结果
+     *
+     * @return 正常时返回 null
+     */
+    public String getError() {
+        return error;
+    }
+
+    private void handleSupplicantEvent(SupplicantEvent event) {
+        if (isDestroyed) return;
+        Log.d("ConnectWifiListener", "收到：" + event);
+        detector.onSupplicantEvent(event);
+    }
+
+    private void readBinaryLog(InputStream in) {
+        BinaryLogcatReader reader = new BinaryLogcatReader(in, BinaryLogcatReader.PRIORITY_DEBUG, LOG_TAGS);
+        try {
+            while (!isDestroyed && reader.next()) {
+                String message = reader.getMessage();
+                if (recorder != null) recorder.record(EventTrace.LOGCAT, message);
+                engine.post(() -> handleLogLine(message));
+            }
+        } catch (IOException e) {
+            if (!isDestroyed) Log.e("ConnectWifiListener", "读取日志失败", e);
+        }
+        Log.d("ConnectWifiListener", "日志读取结束，共 " + reader.getReadCount() + " 条，处理 " + reader.getMatchedCount() + " 条");
+    }
+
+    private void handleLogLine(String line) {
+        if (isDestroyed) return;
+        Log.d("ConnectWifiListener", "收到：" + line);
+        detector.onLogLine(line);
+    }
+
     public static void runCommandSync(String command, int type) {
         if (type == 0) {
             CommandRunner.executeCommandSync(command, true);
@@ -129,6 +132,15 @@ public class ConnectWIfiListener {
         }
     }
 
+    public static Runnable runCommandStream(String command, int type, Consumer<InputStream> onStream) {
+        if (type == 0) {
+            return CommandRunner.executeCommandStream(command, true, onStream);
+        } else if (type == 1) {
+            return ShizukuHelper.executeCommandStream(command, onStream);
+        }
+        return null;
+    }
+
     public static Runnable runCommand(String command, int type,
                                       Consumer<String> onOutputReceived,
                                       Consumer<String> onCommandFinished) {
@@ -144,8 +156,9 @@ public class ConnectWIfiListener {
     public void destroy() {
         if (listenType == 0) {
             wifiStateReceiver.destroy();
-        } else if (listenType == 1) {
+        } else if (listenType == 1 || listenType == 2) {
             stopLogcatRunnable.run();
+            detector.cancel();
         }
         isDestroyed = true;
     }
@@ -4,7 +4,6 @@ import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
-import android.net.Network;
 import android.net.NetworkCapabilities;
 import android.net.NetworkRequest;
 import android.net.wifi.WifiConfiguration;
@@ -13,98 +12,145 @@ import android.net.wifi.WifiNetworkSpecifier;
 import android.os.Build;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-public class ConnectWifi {
+public class ConnectWifi implements WifiBackend {
     private static final String TAG = "ConnectWifi";
 
     private final ConnectWIfiListener connectWIfiListener;
     public final WifiManager wifiManager;
     ConnectivityManager connectivityManager;
 
-    private final ScheduledExecutorService scheduler;
-    private ScheduledFuture<?> timeoutTask;
+    private final EngineThread engine;
+    private volatile Runnable timeoutTask;
+    private NetworkRequestManager networkRequestManager;
+    private TraceRecorder recorder;
     private volatile boolean isDestroyed = false;
-    private long startTime;
+    // 连接线程写，引擎线程读
+    private volatile long startTime;
     private final int connectType;
     private final int listenType;
+    private final int listenCmdMode;
     private final int manageMode;
-    Map<String, ?> settings;
+    private final int manageCmdMode;
 
     private final Context context;
 
-    public ConnectWifi(Context context, Map<String, ?> settings, Map<String, ?> config) {
-        this.settings = settings;
-        this.connectType = (int) this.settings.get(SettingsManager.KEY_CONNECT_MODE);
-        this.manageMode = (int) this.settings.get(SettingsManager.KEY_MANAGE_MODE);
-        this.listenType = (int) this.settings.get(SettingsManager.KEY_READ_MODE);
+    /**
+     * @param engine 接收连接事件和运行超时计时的线程，连接结果在这个线程回调
+     */
+    public ConnectWifi(Context context, EngineThread engine, EngineSettings settings, RunConfig config) {
+        this.connectType = settings.connectMode;
+        this.manageMode = settings.manageMode;
+        this.manageCmdMode = settings.manageModeCmd;
+        this.listenType = settings.readMode;
+        this.listenCmdMode = settings.readModeCmd;
         this.context = context;
 
         this.wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        if (connectType == 1)
+        this.engine = engine;
+        if (connectType == 1) {
             this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            this.networkRequestManager = new NetworkRequestManager(connectivityManager, engine.getHandler());
+        }
+
+        if (settings.recordTrace) {
+            this.recorder = TraceRecorder.open(context, config.ssid);
+            if (recorder != null) {
+                Log.i(TAG, "录制事件轨迹: " + recorder.getFile());
+                recorder.record(EventTrace.CONFIG, "readMode=" + listenType + " connectMode=" + connectType
+                        + " failSign=" + config.failSign + " failSignTimeout=" + config.failSignTimeout
+                        + " failSignCount=" + config.failSignCount + " timeout=" + config.timeoutMillis);
+            }
+        }
 
-        this.connectWIfiListener = new ConnectWIfiListener(context, this.listenType, (int) this.settings.get(SettingsManager.KEY_READ_MODE_CMD),config);
+        this.connectWIfiListener = new ConnectWIfiListener(context, engine, this.listenType, this.listenCmdMode, config, recorder);
     }
 
     private void clearListener() {
         connectWIfiListener.onEvent = null;
     }
 
+    @Override
     public void connect(String ssid, String password, int timeout, Consumer<String> onConnectionResult) {
         if (isDestroyed) {
             return;
         }
+        String listenError = connectWIfiListener.getError();
+        if (listenError != null) {
+            throw new IllegalStateException(listenError);
+        }
         clearListener();
 
-        runConnect(ssid, password);
+        if (recorder != null) recorder.record(EventTrace.ATTEMPT, password);
 
+        // 先装好结果处理和超时再发出请求：API29 的 onUnavailable 可能在 request 返回前就到达引擎线程
         startTime = System.currentTimeMillis();
 
         this.connectWIfiListener.onEvent = data -> {
-            if (System.currentTimeMillis() - startTime < 3000 && Objects.equals(data, "auth_fail"))
+            if (System.currentTimeMillis() - startTime < STALE_AUTH_FAIL_MILLIS && Objects.equals(data, "auth_fail"))
                 return;
 
             if (timeoutTask != null) {
-                timeoutTask.cancel(false);
+                engine.cancel(timeoutTask);
             }
-            onConnectionResult.accept(data);
+            releaseNetworkRequest();
+            if (recorder != null) recorder.record(EventTrace.RESULT, data);
+            // 先清除再回调：回调里会开始下一次尝试并装上新的处理
             clearListener();
+            onConnectionResult.accept(data);
         };
 
-        if (timeoutTask != null && !timeoutTask.isDone()) {
-            timeoutTask.cancel(false);
+        if (timeoutTask != null) {
+            engine.cancel(timeoutTask);
         }
 
-        timeoutTask = scheduler.schedule(() -> {
+        timeoutTask = () -> {
             if (isDestroyed) return;
-            onConnectionResult.accept("timeout");
+            releaseNetworkRequest();
+            if (recorder != null) recorder.record(EventTrace.RESULT, "timeout");
             clearListener();
+            onConnectionResult.accept("timeout");
+        };
+        engine.postDelayed(timeoutTask, timeout);
 
-        }, timeout, TimeUnit.MILLISECONDS);
+        try {
+            runConnect(ssid, password, timeout);
+        } catch (RuntimeException e) {
+            // 请求没有发出，不会有结果
+            engine.cancel(timeoutTask);
+            clearListener();
+            throw e;
+        }
+        // 命令方式发出请求可能要一段时间，遗留事件的过滤时间从请求发出后算起
+        startTime = System.currentTimeMillis();
 
     }
 
     public boolean wifiIsEnabled() {
         if (listenType == 0)
             return wifiManager.getWifiState() == WifiManager.WIFI_STATE_ENABLED;
-        else if (listenType == 1)
-            return !runCommand("cmd wifi status", (int) settings.get(SettingsManager.KEY_READ_MODE_CMD)).startsWith("Wifi is disabled");
+        else if (listenType == 1 || listenType == 2)
+            return !runCommand("cmd wifi status", listenCmdMode).startsWith("Wifi is disabled");
         return false;
     }
 
-    private void runConnect(String ssid, String password) {
+    private void releaseNetworkRequest() {
+        if (networkRequestManager != null) networkRequestManager.release();
+    }
+
+    /**
+     * API29 连接方式的网络请求统计，其他连接方式返回 null
+     */
+    public String getNetworkRequestSummary() {
+        return networkRequestManager != null ? networkRequestManager.summary() : null;
+    }
+
+    private void runConnect(String ssid, String password, int timeout) {
         if (connectType == 0) {
             //0:API28
             WifiConfiguration wifiConfig = new WifiConfiguration();
@@ -135,18 +181,11 @@ public class ConnectWifi {
                         .setNetworkSpecifier(networkSpecifier)
                         .build();
 
-                ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
-
-                    @Override
-                    public void onAvailable(@NonNull Network network) {
-                        super.onAvailable(network);
-                        connectivityManager.unregisterNetworkCallback(this);
-                        if (connectWIfiListener.onEvent != null)
-                            connectWIfiListener.onEvent.accept("success");
-                    }
-                };
-
-                connectivityManager.requestNetwork(networkRequest, networkCallback);
+                // 上一次尝试的请求在这里注销，onUnavailable 作为失败结果立即返回
+                networkRequestManager.request(networkRequest, timeout, result -> {
+                    if (connectWIfiListener.onEvent != null)
+                        connectWIfiListener.onEvent.accept(result);
+                });
             } else throw new RuntimeException("系统不支持，请使用API28模式");
         } else if (connectType == 2) {
             //2:命令行
@@ -168,16 +207,18 @@ public class ConnectWifi {
         return "";
     }
 
+    @Override
     public void forgetWifiName(String ssid) {
         if (manageMode == 0) {
             Log.d(TAG,"使用wifiManager忘记网络"+ssid);
             if (wifiManager.removeNetwork(getWifiId(ssid))) wifiManager.saveConfiguration();
         } else if (manageMode == 2) {
-            runCommand("cmd wifi forget-network " + getWifiId(ssid), (int) settings.get(SettingsManager.KEY_MANAGE_MODE_CMD));
+            runCommand("cmd wifi forget-network " + getWifiId(ssid), manageCmdMode);
         }
     }
 
 
+    @Override
     public int getWifiId(String ssid) {
         if (manageMode == 0) {
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
@@ -191,24 +232,20 @@ public class ConnectWifi {
                 }
             }
         } else if (manageMode == 1) {
-            String result = runCommand("cmd wifi list-networks", (int) settings.get(SettingsManager.KEY_MANAGE_MODE_CMD));
-            String[] lines = result.split("\n");
-
-            for (int i = 1; i < lines.length; i++) {
-                String name = lines[i].substring(13, 46).split(" ")[0];
-                int id = Integer.parseInt(lines[i].substring(0, 13).split(" ")[0]);
-                if (Objects.equals(name, ssid)) {
-                    return id;
-                }
-            }
+            return CmdWifiParser.findNetworkId(runCommand("cmd wifi list-networks", manageCmdMode), ssid);
         }
         return -1;
     }
 
+    @Override
     public void destroy() {
         isDestroyed = true;
         connectWIfiListener.destroy();
-        if (timeoutTask != null) timeoutTask.cancel(false);
-        if (scheduler != null && !scheduler.isShutdown()) scheduler.shutdown();
+        if (timeoutTask != null) engine.cancel(timeoutTask);
+        if (networkRequestManager != null) {
+            networkRequestManager.release();
+            Log.i(TAG, "网络请求: " + networkRequestManager.summary());
+        }
+        if (recorder != null) recorder.close();
     }
 }
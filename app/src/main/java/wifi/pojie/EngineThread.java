@@ -0,0 +1,92 @@
+package wifi.pojie;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+/**
+ * 破解引擎专用的事件线程，接收 WiFi 状态广播、处理日志事件和运行所有超时计时
+ * <p>
+ * 不使用主线程，界面卡顿（日志越来越长、画中画刷新）时也不会推迟失败判定。
+ * 这个线程上执行的所有消息都会记录从应当执行到实际执行的延迟，见 {@link #getLatency()}：
+ * 包括计时任务、转发到这里的事件，以及系统直接投递到 {@link #getHandler()} 的广播和网络回调。
+ * 广播的延迟从系统把广播放入本线程的消息队列算起，不包括系统进程分发广播的时间。
+ */
+public class EngineThread implements EngineTimer {
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final LatencyStats latency = new LatencyStats();
+
+    public EngineThread() {
+        thread = new HandlerThread("WifiPojieEngine", Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        handler = new LatencyHandler(thread.getLooper());
+    }
+
+    /**
+     * 用于 registerReceiver 的 Handler
+     */
+    public Handler getHandler() {
+        return handler;
+    }
+
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 把在其他线程发生的事件转到引擎线程处理
+     */
+    public void post(Runnable event) {
+        handler.post(event);
+    }
+
+    /**
+     * 延迟执行计时任务，可以用同一个 task 调用 {@link #cancel} 取消
+     */
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        handler.postAtTime(task, task, SystemClock.uptimeMillis() + delayMillis);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacksAndMessages(task);
+    }
+
+    /**
+     * 事件和计时任务的处理延迟
+     */
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    /**
+     * 结束线程，尚未执行的事件和计时任务丢弃
+     */
+    public void quit() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    /**
+     * 消息的 when 是入队时间（立即执行的消息）或到期时间（延迟消息），分发时与当前时间相减即为延迟
+     */
+    private class LatencyHandler extends Handler {
+        LatencyHandler(Looper looper) {
+            super(looper);
+        }
+
+        @Override
+        public void dispatchMessage(Message msg) {
+            long when = msg.getWhen();
+            if (when > 0) {
+                latency.record(SystemClock.uptimeMillis() - when);
+            }
+            super.dispatchMessage(msg);
+        }
+    }
+}
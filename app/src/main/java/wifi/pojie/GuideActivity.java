@@ -42,7 +42,7 @@ public class GuideActivity extends AppCompatActivity implements ManagerProvider
         getWindow().setNavigationBarColor(getColor(R.color.light_grey));
 
         pm = new PermissionManager(this);
-        settingsManager = new SettingsManager(this);
+        settingsManager = SettingsManager.getInstance(this);
 
         titleView = findViewById(R.id.title);
 
@@ -52,7 +52,7 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         setTheme(R.style.App_Theme);
         super.onCreate(savedInstanceState);
-        SettingsManager settingsManager = new SettingsManager(this);
+        SettingsManager settingsManager = SettingsManager.getInstance(this);
         if (settingsManager.getBoolean(SettingsManager.KEY_SHOW_GUIDE)) {
             Intent intent = new Intent(this, GuideActivity.class);
             startActivity(intent);
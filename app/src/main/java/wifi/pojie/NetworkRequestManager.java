@@ -0,0 +1,126 @@
+package wifi.pojie;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.function.Consumer;
+
+/**
+ * 管理 API29 连接方式的 NetworkCallback，同一时间只保留一个网络请求
+ * <p>
+ * 系统限制每个应用同时存在的网络请求数量，之前只在 onAvailable 中注销回调，每次失败或超时的尝试都会留下一个请求，
+ * 积累到上限后 requestNetwork 抛出异常，任务中断。这里发起新请求前、超时、失败和销毁时都会注销上一个回调，
+ * 并把 onUnavailable 作为失败结果立即返回，不用等到尝试超时。
+ */
+public class NetworkRequestManager {
+    private static final String TAG = "NetworkRequestManager";
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private ConnectivityManager.NetworkCallback current;
+
+    private int requestCount;
+    private int releaseCount;
+    private int releaseFailureCount;
+
+    /**
+     * @param handler 回调所在的线程
+     */
+    public NetworkRequestManager(ConnectivityManager connectivityManager, Handler handler) {
+        this.connectivityManager = connectivityManager;
+        this.handler = handler;
+    }
+
+    /**
+     * 注销上一个请求后发起新的请求
+     *
+     * @param timeoutMillis 超过这个时间没有可用网络时系统回调 onUnavailable
+     * @param onResult      "success" 或 "unavailable"，每个请求最多回调一次
+     */
+    public synchronized void request(NetworkRequest networkRequest, int timeoutMillis, Consumer<String> onResult) {
+        release();
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                super.onAvailable(network);
+                finish(this, "success", onResult);
+            }
+
+            @Override
+            public void onUnavailable() {
+                super.onUnavailable();
+                finish(this, "unavailable", onResult);
+            }
+        };
+        current = callback;
+        requestCount++;
+        connectivityManager.requestNetwork(networkRequest, callback, handler, timeoutMillis);
+    }
+
+    private void finish(ConnectivityManager.NetworkCallback callback, String result, Consumer<String> onResult) {
+        synchronized (this) {
+            // 已经被新的请求替换或已注销，结果作废
+            if (callback != current) {
+                return;
+            }
+            release();
+        }
+        onResult.accept(result);
+    }
+
+    /**
+     * 注销当前的请求，没有请求时什么也不做
+     */
+    public synchronized void release() {
+        if (current == null) {
+            return;
+        }
+        ConnectivityManager.NetworkCallback callback = current;
+        current = null;
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+            releaseCount++;
+        } catch (IllegalArgumentException e) {
+            // 回调已经被系统注销
+            releaseFailureCount++;
+            Log.w(TAG, "注销网络回调失败", e);
+        }
+    }
+
+    /**
+     * 已发起的请求数
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * 成功注销的请求数
+     */
+    public synchronized int getReleaseCount() {
+        return releaseCount;
+    }
+
+    /**
+     * 注销时系统报告回调不存在的次数
+     */
+    public synchronized int getReleaseFailureCount() {
+        return releaseFailureCount;
+    }
+
+    /**
+     * 尚未注销的请求数，正常情况下不超过1
+     */
+    public synchronized int getOutstandingCount() {
+        return requestCount - releaseCount - releaseFailureCount;
+    }
+
+    public synchronized String summary() {
+        return "请求" + requestCount + "次 注销" + releaseCount + "次 注销失败" + releaseFailureCount + "次 未注销" + getOutstandingCount();
+    }
+}
@@ -2,9 +2,13 @@ package wifi.pojie;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ListView;
@@ -14,90 +18,130 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.ContextCompat;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 密码本编辑界面
+ * <p>
+ * 编辑模式下密码列表由 {@link PagedPasswordSource} 按页读取，不会把整个密码本读入内存；
+ * 本次编辑的新增和删除单独记录，保存时追加到编辑日志。
+ * 打开期间密码本不在后台合并；密码本仍被其他操作改写时，数据源会重建索引，本次按行号记录的删除作废。
  */
 public class PasswordBookEditActivity extends AppCompatActivity {
     private static final String TAG = "PasswordBookEditActivity";
-    
+
     private PasswordManager passwordManager;
     private EditText passwordBookNameEdt;
     private Spinner categorySpinner;
     private ListView passwordsListView;
     private List<String> categories;
-    private List<String> passwords;
+    // 分页数据源，创建模式下为null
+    private PagedPasswordSource source;
+    // 已保存但未合并的编辑
+    private Map<Long, String> pendingDeletedLines = Collections.emptyMap();
+    private List<String> pendingAdded = Collections.emptyList();
+    // 本次删除的原密码本行号（有序）
+    private final List<Integer> deletedLines = new ArrayList<>();
+    // 本次新增和删除的密码，保存时只追加到编辑日志
+    private final List<String> addedPasswords = new ArrayList<>();
+    private final List<PasswordBookEditLog.Deletion> removedPasswords = new ArrayList<>();
+    // 搜索结果，行号为-1表示新增的密码
+    private boolean searchMode = false;
+    private final List<Integer> searchLineIndexes = new ArrayList<>();
+    private final List<String> searchResults = new ArrayList<>();
     private String currentCategory;
     private String passwordBookId;
     private String mode;
     private PasswordsAdapter adapter;
-    
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_password_book_edit);
-        
+
         // 初始化工具栏
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
-        
+
         // 初始化PasswordManager
         passwordManager = new PasswordManager(this);
-        
+
         // 获取Intent参数
         Intent intent = getIntent();
         mode = intent.getStringExtra("mode");
         passwordBookId = intent.getStringExtra("id");
-        
+
         // 设置标题
         if (mode.equals("create")) {
             getSupportActionBar().setTitle("创建密码本");
         } else {
             getSupportActionBar().setTitle("编辑密码本");
         }
-        
+
         // 初始化视图
         passwordBookNameEdt = findViewById(R.id.password_book_name_edt);
         categorySpinner = findViewById(R.id.category_spinner);
         passwordsListView = findViewById(R.id.passwords_list);
+        EditText searchEdt = findViewById(R.id.search_edt);
         Button saveBtn = findViewById(R.id.save_btn);
         Button importBtn = findViewById(R.id.import_btn);
         Button exportBtn = findViewById(R.id.export_btn);
         FloatingActionButton fabAddPassword = findViewById(R.id.fab_add_password);
-        
+
+        // 初始化密码列表适配器
+        adapter = new PasswordsAdapter();
+        passwordsListView.setAdapter(adapter);
+
         // 加载分类列表
         loadCategories();
-        
+
         // 加载密码本数据
         if (mode.equals("edit")) {
             loadPasswordBookData();
-        } else {
-            // 创建模式下，初始化为空密码列表
-            passwords = new ArrayList<>();
         }
-        
+
         // 设置分类选择器
         categorySpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 currentCategory = categories.get(position);
             }
-            
+
             @Override
             public void onNothingSelected(AdapterView<?> parent) {
                 currentCategory = PasswordManager.DEFAULT_CATEGORY;
             }
         });
-        
+
+        // 输入时增量搜索
+        searchEdt.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s.toString().trim());
+            }
+        });
+
         // 保存按钮点击事件
         saveBtn.setOnClickListener(v -> savePasswordBook());
-        
+
         // 导入按钮点击事件
         importBtn.setOnClickListener(v -> {
             // 启动文件选择器，导入密码
@@ -106,39 +150,35 @@ public class PasswordBookEditActivity extends AppCompatActivity {
             fileIntent.addCategory(Intent.CATEGORY_OPENABLE);
             startActivityForResult(Intent.createChooser(fileIntent, "选择密码文件"), 1);
         });
-        
+
         // 导出按钮点击事件
         exportBtn.setOnClickListener(v -> {
-            if (passwords.isEmpty()) {
+            if (getPasswordCount() == 0) {
                 Toast.makeText(this, "密码本为空，无法导出", Toast.LENGTH_SHORT).show();
                 return;
             }
             // 这里只实现基本的导出提示，实际导出功能在后面的任务中实现
             Toast.makeText(this, "导出功能开发中...", Toast.LENGTH_SHORT).show();
         });
-        
+
         // 添加密码悬浮按钮点击事件
         fabAddPassword.setOnClickListener(v -> {
             // 这里可以跳转到密码生成界面，或者直接添加一个空密码
             Intent intent1 = new Intent(PasswordBookEditActivity.this, PasswordGeneratorActivity.class);
             startActivityForResult(intent1, 2);
         });
-        
-        // 初始化密码列表适配器
-        adapter = new PasswordsAdapter(passwords);
-        passwordsListView.setAdapter(adapter);
     }
-    
+
     /**
      * 加载分类列表
      */
     private void loadCategories() {
         categories = passwordManager.getCategories();
-        ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this, 
+        ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this,
                 android.R.layout.simple_spinner_item, categories);
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(categoryAdapter);
-        
+
         // 设置默认分类
         int defaultIndex = categories.indexOf(PasswordManager.DEFAULT_CATEGORY);
         if (defaultIndex != -1) {
@@ -146,110 +186,356 @@ public class PasswordBookEditActivity extends AppCompatActivity {
             currentCategory = PasswordManager.DEFAULT_CATEGORY;
         }
     }
-    
+
     /**
-     * 加载密码本数据
+     * 加载密码本数据，密码列表在后台分页读取
      */
     private void loadPasswordBookData() {
-        PasswordManager.PasswordBook passwordBook = passwordManager.getPasswordBook(passwordBookId);
+        PasswordManager.PasswordBook passwordBook = passwordManager.getPasswordBookById(passwordBookId);
         if (passwordBook != null) {
             passwordBookNameEdt.setText(passwordBook.getName());
             currentCategory = passwordBook.getCategory();
-            
+
             // 设置分类选择器
             int categoryIndex = categories.indexOf(currentCategory);
             if (categoryIndex != -1) {
                 categorySpinner.setSelection(categoryIndex);
             }
-            
-            // 加载密码列表
-            passwords = passwordManager.readPasswords(passwordBookId);
+
+            // 未合并的编辑叠加显示
+            PasswordBookEditLog.Overlay overlay = passwordManager.readPendingEdits(passwordBook);
+            pendingDeletedLines = overlay.getDeletedLines();
+            pendingAdded = overlay.getAdded();
+
+            passwordManager.beginEditing(passwordBookId);
+            source = new PagedPasswordSource(new File(passwordBook.getFilePath()), ContextCompat.getMainExecutor(this));
+            source.open(adapter);
+        }
+    }
+
+    /**
+     * 搜索密码，结果边搜索边显示
+     */
+    private void search(String query) {
+        searchLineIndexes.clear();
+        searchResults.clear();
+        if (query.isEmpty()) {
+            searchMode = false;
+            if (source != null) {
+                source.cancelSearch();
+            }
+            adapter.notifyDataSetChanged();
+            return;
+        }
+
+        searchMode = true;
+        for (String password : pendingAdded) {
+            if (password.contains(query)) {
+                searchLineIndexes.add(-1);
+                searchResults.add(password);
+            }
+        }
+        for (String password : addedPasswords) {
+            if (password.contains(query)) {
+                searchLineIndexes.add(-1);
+                searchResults.add(password);
+            }
+        }
+        adapter.notifyDataSetChanged();
+
+        if (source != null) {
+            source.search(query, new PagedPasswordSource.SearchListener() {
+                @Override
+                public void onMatches(List<Integer> lineIndexes, List<String> lines) {
+                    for (int i = 0; i < lineIndexes.size(); i++) {
+                        int line = lineIndexes.get(i);
+                        String password = lines.get(i);
+                        if (Collections.binarySearch(deletedLines, line) < 0 && !isPendingDeleted(line, password)) {
+                            searchLineIndexes.add(line);
+                            searchResults.add(password);
+                        }
+                    }
+                    adapter.notifyDataSetChanged();
+                }
+
+                @Override
+                public void onSearchFinished(int total) {
+                    Log.d(TAG, "搜索完成，匹配" + total + "项");
+                }
+
+                @Override
+                public void onError(IOException e) {
+                    Log.e(TAG, "搜索密码本失败", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 原密码本中的这一行是否已保存删除、等待合并
+     */
+    private boolean isPendingDeleted(int baseLine, String password) {
+        return baseLine >= 0 && password.equals(pendingDeletedLines.get((long) baseLine));
+    }
+
+    /**
+     * 当前显示的密码总数（不含搜索过滤）
+     */
+    private int getPasswordCount() {
+        int baseCount = source != null ? source.getLineCount() - deletedLines.size() : 0;
+        return baseCount + pendingAdded.size() + addedPasswords.size();
+    }
+
+    /**
+     * 把列表位置换算为原密码本行号，跳过本次已删除的行
+     */
+    private int toBaseLine(int position) {
+        int line = position;
+        while (true) {
+            int deletedUpTo = countDeletedUpTo(line);
+            int candidate = position + deletedUpTo;
+            if (candidate == line && Collections.binarySearch(deletedLines, line) < 0) {
+                return line;
+            }
+            line = Math.max(candidate, line + 1);
         }
     }
-    
+
+    /**
+     * 行号不大于 line 的已删除行数
+     */
+    private int countDeletedUpTo(int line) {
+        int index = Collections.binarySearch(deletedLines, line);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * 删除列表中的一项
+     *
+     * @param baseLine 原密码本行号，-1 表示新增的密码
+     */
+    private void deletePassword(int baseLine, String password) {
+        if (baseLine >= 0) {
+            int index = Collections.binarySearch(deletedLines, baseLine);
+            if (index < 0) {
+                deletedLines.add(-index - 1, baseLine);
+            }
+            removedPasswords.add(new PasswordBookEditLog.Deletion(baseLine, password));
+        } else if (!addedPasswords.remove(password)) {
+            // 已保存的新增，需要记录删除
+            pendingAdded.remove(password);
+            removedPasswords.add(new PasswordBookEditLog.Deletion(-1, password));
+        }
+
+        if (searchMode) {
+            for (int i = 0; i < searchResults.size(); i++) {
+                if (searchLineIndexes.get(i) == baseLine && searchResults.get(i).equals(password)) {
+                    searchResults.remove(i);
+                    searchLineIndexes.remove(i);
+                    break;
+                }
+            }
+        }
+        adapter.notifyDataSetChanged();
+        Toast.makeText(this, "密码已删除", Toast.LENGTH_SHORT).show();
+    }
+
     /**
      * 保存密码本
      */
     private void savePasswordBook() {
         String name = passwordBookNameEdt.getText().toString().trim();
-        
+
         if (name.isEmpty()) {
             Toast.makeText(this, "密码本名称不能为空", Toast.LENGTH_SHORT).show();
             return;
         }
-        
+
         if (currentCategory == null) {
             currentCategory = PasswordManager.DEFAULT_CATEGORY;
         }
-        
+
         if (mode.equals("create")) {
             // 创建新密码本
-            passwordManager.createPasswordBook(name, currentCategory, passwords);
+            passwordManager.createPasswordBook(name, currentCategory, addedPasswords);
             Toast.makeText(this, "密码本创建成功", Toast.LENGTH_SHORT).show();
         } else {
-            // 更新密码本
-            passwordManager.updatePasswordBook(passwordBookId, name, currentCategory, passwords);
+            // 更新密码本，内容只追加增量编辑，不重写整个文件
+            PasswordManager.PasswordBook passwordBook = passwordManager.getPasswordBookById(passwordBookId);
+            if (passwordBook != null && !name.equals(passwordBook.getName())
+                    && !passwordManager.renamePasswordBook(passwordBookId, name)) {
+                Toast.makeText(this, "密码本名称已存在", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (passwordBook != null && !currentCategory.equals(passwordBook.getCategory())) {
+                passwordManager.changePasswordBookCategory(passwordBookId, currentCategory);
+            }
+            if (!passwordManager.appendPasswordBookEdits(passwordBookId, addedPasswords, removedPasswords)) {
+                Toast.makeText(this, "密码本保存失败", Toast.LENGTH_SHORT).show();
+                return;
+            }
             Toast.makeText(this, "密码本更新成功", Toast.LENGTH_SHORT).show();
         }
-        
+
         setResult(RESULT_OK);
         finish();
     }
-    
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        
+
         if (requestCode == 2 && resultCode == RESULT_OK) {
             // 从密码生成界面返回，添加生成的密码
             String generatedPassword = data.getStringExtra("password");
             if (generatedPassword != null && !generatedPassword.isEmpty()) {
-                passwords.add(generatedPassword);
+                addedPasswords.add(generatedPassword);
                 adapter.notifyDataSetChanged();
-                Toast.makeText(this, "密码已添加", Toast.LENGTH_SHORT).show();
+                // 提示已经包含该密码的密码本
+                List<PasswordManager.PasswordBook> books = passwordManager.findPasswordBooksContaining(generatedPassword);
+                if (books.isEmpty()) {
+                    Toast.makeText(this, "密码已添加", Toast.LENGTH_SHORT).show();
+                } else {
+                    StringBuilder names = new StringBuilder();
+                    for (PasswordManager.PasswordBook book : books) {
+                        if (names.length() > 0) {
+                            names.append("、");
+                        }
+                        names.append(book.getName());
+                    }
+                    Toast.makeText(this, "密码已添加，以下密码本中已存在该密码: " + names, Toast.LENGTH_LONG).show();
+                }
             }
         }
         // 文件导入处理暂时省略
     }
-    
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (source != null) {
+            source.close();
+            passwordManager.endEditing(passwordBookId);
+        }
+    }
+
     /**
-     * 密码列表适配器
+     * 密码列表适配器，依次显示原密码本、已保存的新增、本次新增
      */
-    private class PasswordsAdapter extends ArrayAdapter<String> {
-        
-        public PasswordsAdapter(List<String> passwords) {
-            super(PasswordBookEditActivity.this, 0, passwords);
+    private class PasswordsAdapter extends BaseAdapter implements PagedPasswordSource.Listener {
+
+        @Override
+        public int getCount() {
+            return searchMode ? searchResults.size() : getPasswordCount();
         }
-        
+
+        @Override
+        public String getItem(int position) {
+            if (searchMode) {
+                return searchResults.get(position);
+            }
+            int baseCount = source != null ? source.getLineCount() - deletedLines.size() : 0;
+            if (position < baseCount) {
+                return source.getLine(toBaseLine(position), this);
+            }
+            position -= baseCount;
+            if (position < pendingAdded.size()) {
+                return pendingAdded.get(position);
+            }
+            return addedPasswords.get(position - pendingAdded.size());
+        }
+
+        /**
+         * 列表位置对应的原密码本行号，-1 表示新增的密码
+         */
+        private int getBaseLine(int position) {
+            if (searchMode) {
+                return searchLineIndexes.get(position);
+            }
+            int baseCount = source != null ? source.getLineCount() - deletedLines.size() : 0;
+            return position < baseCount ? toBaseLine(position) : -1;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
         @Override
         public View getView(int position, View convertView, android.view.ViewGroup parent) {
             String password = getItem(position);
-            
+            int baseLine = getBaseLine(position);
+
             if (convertView == null) {
-                convertView = android.view.LayoutInflater.from(getContext())
+                convertView = android.view.LayoutInflater.from(PasswordBookEditActivity.this)
                         .inflate(R.layout.item_password, parent, false);
             }
-            
+
             // 设置密码文本
             TextView passwordTv = convertView.findViewById(R.id.password_tv);
             Button deleteBtn = convertView.findViewById(R.id.delete_password_btn);
-            
-            passwordTv.setText(password);
-            
-            // 删除按钮点击事件
-            deleteBtn.setOnClickListener(v -> {
-                passwords.remove(position);
-                notifyDataSetChanged();
-                Toast.makeText(getContext(), "密码已删除", Toast.LENGTH_SHORT).show();
-            });
-            
+
+            if (password == null) {
+                // 所在页还在后台加载
+                passwordTv.setText("加载中…");
+                deleteBtn.setVisibility(View.INVISIBLE);
+                deleteBtn.setOnClickListener(null);
+            } else if (isPendingDeleted(baseLine, password)) {
+                // 已保存的删除，合并前仍在原文件中
+                passwordTv.setText(password + "（已删除）");
+                deleteBtn.setVisibility(View.INVISIBLE);
+                deleteBtn.setOnClickListener(null);
+            } else {
+                passwordTv.setText(password);
+                deleteBtn.setVisibility(View.VISIBLE);
+                // 删除按钮点击事件
+                deleteBtn.setOnClickListener(v -> deletePassword(baseLine, password));
+            }
+
             return convertView;
         }
+
+        @Override
+        public void onIndexProgress(int lineCount, boolean finished) {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onPageLoaded(int firstLine, int count) {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onFileChanged() {
+            // 密码本已被改写，重新读取未合并的编辑，按旧行号记录的删除不再对应原来的密码
+            PasswordManager.PasswordBook passwordBook = passwordManager.getPasswordBookById(passwordBookId);
+            if (passwordBook != null) {
+                PasswordBookEditLog.Overlay overlay = passwordManager.readPendingEdits(passwordBook);
+                pendingDeletedLines = overlay.getDeletedLines();
+                pendingAdded = overlay.getAdded();
+            }
+            boolean discarded = !deletedLines.isEmpty();
+            deletedLines.clear();
+            removedPasswords.removeIf(deletion -> deletion.line >= 0);
+            if (searchMode) {
+                search(((EditText) findViewById(R.id.search_edt)).getText().toString().trim());
+            }
+            notifyDataSetChanged();
+            Toast.makeText(PasswordBookEditActivity.this,
+                    discarded ? "密码本已被修改，已重新加载，本次删除的密码需要重新删除" : "密码本已被修改，已重新加载",
+                    Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onError(IOException e) {
+            Log.e(TAG, "读取密码本失败", e);
+            Toast.makeText(PasswordBookEditActivity.this, "读取密码本失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
     }
-    
+
     @Override
     public boolean onSupportNavigateUp() {
         finish();
         return true;
     }
-}
\ No newline at end of file
+}
@@ -14,6 +14,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
@@ -99,6 +100,60 @@ public class PasswordBookManagerActivity extends AppCompatActivity {
             intent.putExtra("id", passwordBook.getId());
             startActivityForResult(intent, 1);
         });
+        
+        // 长按密码本分析强度分布
+        passwordBookListView.setOnItemLongClickListener((parent, view, position, id) -> {
+            analyzePasswordBook(passwordBookList.get(position));
+            return true;
+        });
+    }
+    
+    /**
+     * 在后台分析密码本，完成后显示强度分布、长度分布和无效 WPA 口令数量
+     */
+    private void analyzePasswordBook(PasswordManager.PasswordBook passwordBook) {
+        Toast.makeText(this, "正在分析 " + passwordBook.getName(), Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            long start = System.currentTimeMillis();
+            PasswordBookAnalyzer.Report report = passwordManager.analyzePasswordBook(passwordBook.getId());
+            long elapsed = System.currentTimeMillis() - start;
+            runOnUiThread(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                if (report == null) {
+                    Toast.makeText(this, "分析失败", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new MaterialAlertDialogBuilder(this)
+                        .setTitle(passwordBook.getName())
+                        .setMessage(formatReport(report, elapsed))
+                        .setPositiveButton("确定", null)
+                        .show();
+            });
+        }).start();
+    }
+    
+    private String formatReport(PasswordBookAnalyzer.Report report, long elapsed) {
+        PasswordGenerator passwordGenerator = new PasswordGenerator();
+        StringBuilder sb = new StringBuilder();
+        sb.append("密码数量: ").append(report.getTotal()).append('\n');
+        sb.append("无效 WPA 口令: ").append(report.getInvalidWpaCount()).append('\n');
+        sb.append("\n强度分布:\n");
+        for (int strength = 1; strength <= 5; strength++) {
+            sb.append(passwordGenerator.getPasswordStrengthDescription(strength)).append(": ")
+                    .append(report.getStrengthCount(strength)).append('\n');
+        }
+        sb.append("\n长度分布:\n");
+        for (int length = 1; length <= PasswordBookAnalyzer.Report.MAX_LENGTH; length++) {
+            long count = report.getLengthCount(length);
+            if (count > 0) {
+                sb.append(length == PasswordBookAnalyzer.Report.MAX_LENGTH ? length + "+" : String.valueOf(length))
+                        .append(": ").append(count).append('\n');
+            }
+        }
+        sb.append("\n耗时: ").append(elapsed).append("ms");
+        return sb.toString();
     }
     
     @Override
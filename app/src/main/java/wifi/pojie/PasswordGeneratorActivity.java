@@ -182,7 +182,7 @@ public class PasswordGeneratorActivity extends AppCompatActivity {
         generatedPasswordTv.setText(password);
         
         // 显示密码强度
-        int strength = passwordGenerator.getPasswordStrength(password);
+        int strength = passwordGenerator.evaluatePasswordStrength(password);
         String strengthText = "强度: ";
         switch (strength) {
             case 1:
@@ -9,22 +9,20 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -35,11 +33,23 @@ public class PasswordManager {
     private static final String PREFS_NAME = "password_manager";
     private static final String KEY_PASSWORD_BOOKS = "password_books";
     private static final String KEY_CATEGORIES = "categories";
-    private static final String DEFAULT_CATEGORY = "默认分类";
+    public static final String DEFAULT_CATEGORY = "默认分类";
+
+    // 编辑日志按文件路径共享，后台合并在单线程中依次执行
+    private static final Map<String, PasswordBookEditLog> editLogs = new ConcurrentHashMap<>();
+    private static final ExecutorService compactExecutor = Executors.newSingleThreadExecutor();
+    // 在编辑界面中打开的密码本，界面按行号记录删除，打开期间不在后台合并
+    private static final Set<String> editingBooks = ConcurrentHashMap.newKeySet();
+    // 全部密码本共用一个密码索引和块存储
+    private static PasswordBookIndex passwordIndex;
+    private static ChunkStore chunkStore;
+    // 分块转存、索引和块清理每个进程只做一次
+    private static boolean maintenanceScheduled = false;
 
     private final SharedPreferences prefs;
     private final Context context;
     private final File passwordBooksDir;
+    private long sortMemoryBudget = ExternalSorter.DEFAULT_MEMORY_BUDGET;
 
     public PasswordManager(Context context) {
         this.context = context.getApplicationContext();
@@ -54,6 +64,14 @@ public class PasswordManager {
         
         // 初始化默认分类
         initDefaultCategory();
+
+        // 转存尚未分块的密码本，为还没有索引的密码本建立索引
+        synchronized (PasswordManager.class) {
+            if (!maintenanceScheduled) {
+                maintenanceScheduled = true;
+                maintainPasswordBooks();
+            }
+        }
     }
 
     /**
@@ -240,7 +258,15 @@ public class PasswordManager {
             return false;
         }
         
-        // 创建密码本对象
+        addPasswordBook(existingBooks, name, category, passwordBookFile, passwords.size());
+        return true;
+    }
+
+    /**
+     * 创建密码本对象，添加到列表并保存
+     */
+    private void addPasswordBook(List<PasswordBook> existingBooks, String name, String category,
+                                 File passwordBookFile, int passwordCount) {
         PasswordBook passwordBook = new PasswordBook();
         passwordBook.setId(System.currentTimeMillis() + "");
         passwordBook.setName(name);
@@ -248,12 +274,11 @@ public class PasswordManager {
         passwordBook.setFilePath(passwordBookFile.getAbsolutePath());
         passwordBook.setCreateTime(System.currentTimeMillis());
         passwordBook.setUpdateTime(System.currentTimeMillis());
-        passwordBook.setPasswordCount(passwords.size());
-        
-        // 添加到列表并保存
+        passwordBook.setPasswordCount(passwordCount);
+
         existingBooks.add(passwordBook);
         savePasswordBooks(existingBooks);
-        return true;
+        onPasswordBookContentChanged(passwordBook.getId());
     }
 
     /**
@@ -286,12 +311,23 @@ public class PasswordManager {
             return false;
         }
         
-        // 写入新内容
+        // 先写入临时文件再替换，写入中途崩溃不会截断原密码本
         File passwordBookFile = new File(passwordBook.getFilePath());
-        if (!writePasswordsToFile(passwordBookFile, passwords)) {
+        File tmpFile = new File(passwordBookFile.getPath() + ".new");
+        if (!writePasswordsToFile(tmpFile, passwords)) {
+            tmpFile.delete();
+            return false;
+        }
+        try {
+            getEditLog(passwordBookFile).replaceBook(tmpFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error replacing password book file: " + passwordBookFile.getAbsolutePath(), e);
+            tmpFile.delete();
             return false;
         }
         
+        onPasswordBookContentChanged(id);
+        
         // 更新密码本信息
         passwordBook.setPasswordCount(passwords.size());
         passwordBook.setUpdateTime(System.currentTimeMillis());
@@ -305,11 +341,16 @@ public class PasswordManager {
         List<PasswordBook> existingBooks = getAllPasswordBooks();
         for (int i = 0; i < existingBooks.size(); i++) {
             if (id.equals(existingBooks.get(i).getId())) {
-                // 删除文件
+                // 删除文件，释放不再被引用的块
                 File passwordBookFile = new File(existingBooks.get(i).getFilePath());
-                if (passwordBookFile.exists()) {
-                    passwordBookFile.delete();
+                try {
+                    getChunkStore().deleteBook(passwordBookFile);
+                } catch (IOException e) {
+                    Log.e(TAG, "Error releasing password book chunks: " + passwordBookFile.getAbsolutePath(), e);
                 }
+                PasswordBookEditLog.deleteLogFiles(passwordBookFile);
+                editLogs.remove(passwordBookFile.getAbsolutePath());
+                getPasswordIndex().removeBook(id);
                 
                 // 从列表中移除并保存
                 existingBooks.remove(i);
@@ -361,32 +402,436 @@ public class PasswordManager {
         return updatePasswordBook(passwordBook);
     }
 
+    /**
+     * 增量编辑密码本：只向编辑日志追加记录，不重写密码本文件，日志过长时在后台合并
+     *
+     * @param added   新增的密码，追加到末尾
+     * @param removed 删除的密码，每条删除一处出现
+     */
+    public boolean appendPasswordBookEdits(String id, List<String> added, List<PasswordBookEditLog.Deletion> removed) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return false;
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return true;
+        }
+
+        PasswordBookEditLog editLog = getEditLog(new File(passwordBook.getFilePath()));
+        try {
+            editLog.append(added, removed);
+            List<String> removedPasswords = new ArrayList<>(removed.size());
+            for (PasswordBookEditLog.Deletion deletion : removed) {
+                removedPasswords.add(deletion.password);
+            }
+            getPasswordIndex().applyEdits(id, added, removedPasswords);
+            if (editLog.needsCompaction()) {
+                scheduleCompaction(id);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending edits to password book: " + id, e);
+            return false;
+        }
+
+        // 密码本在编辑期间被合并过时删除的密码可能已不存在，数量在合并时校正
+        passwordBook.setPasswordCount(Math.max(0, passwordBook.getPasswordCount() + added.size() - removed.size()));
+        return updatePasswordBook(passwordBook);
+    }
+
+    /**
+     * 密码本在编辑界面中打开，关闭前推迟后台合并，避免界面中的行号失效
+     */
+    public void beginEditing(String id) {
+        editingBooks.add(id);
+    }
+
+    /**
+     * 编辑界面关闭，补做打开期间推迟的合并
+     */
+    public void endEditing(String id) {
+        editingBooks.remove(id);
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return;
+        }
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        try {
+            if (PasswordBookEditLog.hasPendingEdits(passwordBookFile) && getEditLog(passwordBookFile).needsCompaction()) {
+                scheduleCompaction(id);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error checking edit log: " + id, e);
+        }
+    }
+
+    /**
+     * 在后台合并编辑日志，执行时密码本正在编辑界面中打开则跳过，关闭时再合并
+     */
+    private void scheduleCompaction(String id) {
+        compactExecutor.execute(() -> {
+            if (!editingBooks.contains(id)) {
+                compactPasswordBook(id);
+            }
+        });
+    }
+
+    /**
+     * 把密码本的编辑日志合并回密码本文件，并校正密码数量
+     */
+    public boolean compactPasswordBook(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return false;
+        }
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        if (!PasswordBookEditLog.hasPendingEdits(passwordBookFile)) {
+            return true;
+        }
+        try {
+            long count = getEditLog(passwordBookFile).compact();
+            if (count >= 0) {
+                // 合并期间密码本信息可能已被修改，重新读取
+                passwordBook = getPasswordBookById(id);
+                if (passwordBook == null) {
+                    return false;
+                }
+                passwordBook.setPasswordCount((int) Math.min(Integer.MAX_VALUE, count));
+                // 合并后的内容重新分块，并重建索引把增量编辑并入索引文件
+                onPasswordBookContentChanged(id);
+                return updatePasswordBook(passwordBook);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting password book: " + id, e);
+            return false;
+        }
+    }
+
+    /**
+     * 读取密码本未合并的编辑，读取失败时返回空的编辑
+     */
+    public PasswordBookEditLog.Overlay readPendingEdits(PasswordBook passwordBook) {
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        if (PasswordBookEditLog.hasPendingEdits(passwordBookFile)) {
+            try {
+                return getEditLog(passwordBookFile).readOverlay();
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading edit log: " + passwordBookFile.getAbsolutePath(), e);
+            }
+        }
+        return new PasswordBookEditLog.Overlay();
+    }
+
+    /**
+     * 获取密码本文件对应的编辑日志，首次获取时恢复中断的合并
+     */
+    private static PasswordBookEditLog getEditLog(File passwordBookFile) {
+        return editLogs.computeIfAbsent(passwordBookFile.getAbsolutePath(), path -> {
+            PasswordBookEditLog editLog = new PasswordBookEditLog(passwordBookFile);
+            try {
+                editLog.recover();
+            } catch (IOException e) {
+                Log.e(TAG, "Error recovering edit log: " + path, e);
+            }
+            return editLog;
+        });
+    }
+
+    /**
+     * 查询包含该密码的密码本（包括未合并的编辑），索引尚未建立完成的密码本不会出现在结果中
+     */
+    public List<PasswordBook> findPasswordBooksContaining(String password) {
+        List<PasswordBook> result = new ArrayList<>();
+        if (password == null || password.trim().isEmpty()) {
+            return result;
+        }
+        try {
+            List<String> ids = getPasswordIndex().findBooks(password.trim());
+            if (ids.isEmpty()) {
+                return result;
+            }
+            for (PasswordBook book : getAllPasswordBooks()) {
+                if (ids.contains(book.getId())) {
+                    result.add(book);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error querying password index", e);
+        }
+        return result;
+    }
+
+    /**
+     * 是否有任一密码本包含该密码
+     */
+    public boolean isPasswordInLibrary(String password) {
+        if (password == null || password.trim().isEmpty()) {
+            return false;
+        }
+        try {
+            return getPasswordIndex().contains(password.trim());
+        } catch (IOException e) {
+            Log.e(TAG, "Error querying password index", e);
+            return false;
+        }
+    }
+
+    private PasswordBookIndex getPasswordIndex() {
+        synchronized (PasswordManager.class) {
+            if (passwordIndex == null) {
+                passwordIndex = new PasswordBookIndex(new File(passwordBooksDir, "index"),
+                        new File(context.getCacheDir(), "index"), sortMemoryBudget);
+            }
+            return passwordIndex;
+        }
+    }
+
+    private ChunkStore getChunkStore() {
+        synchronized (PasswordManager.class) {
+            if (chunkStore == null) {
+                chunkStore = new ChunkStore(passwordBooksDir);
+            }
+            return chunkStore;
+        }
+    }
+
+    /**
+     * 密码本内容整体改变后，在后台转为分块存储并重建索引
+     */
+    private void onPasswordBookContentChanged(String id) {
+        compactExecutor.execute(() -> {
+            storePasswordBook(id);
+            indexPasswordBook(id);
+        });
+    }
+
+    private void storePasswordBook(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return;
+        }
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        try {
+            getEditLog(passwordBookFile).withBookLocked(() -> getChunkStore().storeBook(passwordBookFile));
+            // 转存期间密码本可能已被删除
+            if (getPasswordBookById(id) == null) {
+                getChunkStore().deleteBook(passwordBookFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error storing password book chunks: " + id, e);
+        }
+    }
+
+    private void indexPasswordBook(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return;
+        }
+        PasswordBookIndex index = getPasswordIndex();
+        try {
+            index.indexBook(id, getEditLog(new File(passwordBook.getFilePath()))::forEachPassword);
+            // 建立索引期间密码本可能已被删除
+            if (getPasswordBookById(id) == null) {
+                index.removeBook(id);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error indexing password book: " + id, e);
+        }
+    }
+
+    private void maintainPasswordBooks() {
+        compactExecutor.execute(() -> {
+            PasswordBookIndex index = getPasswordIndex();
+            for (PasswordBook book : getAllPasswordBooks()) {
+                if (new File(book.getFilePath()).exists()) {
+                    storePasswordBook(book.getId());
+                }
+                try {
+                    if (!index.isIndexed(book.getId())) {
+                        indexPasswordBook(book.getId());
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Error checking password index: " + book.getId(), e);
+                }
+            }
+            // 删除上次运行释放的块和崩溃遗留的块
+            try {
+                getChunkStore().gc();
+            } catch (IOException e) {
+                Log.e(TAG, "Error collecting unused chunks", e);
+            }
+        });
+    }
+
+    /**
+     * 设置集合运算使用的内存预算（字节）
+     */
+    public void setSortMemoryBudget(long sortMemoryBudget) {
+        this.sortMemoryBudget = sortMemoryBudget;
+    }
+
+    /**
+     * 合并多个密码本（并集）为新密码本，重复的密码只保留第一次出现
+     */
+    public boolean unionPasswordBooks(List<String> ids, String name, String category) {
+        List<File> inputs = getPasswordBookFiles(ids);
+        if (inputs == null) {
+            return false;
+        }
+        return createPasswordBookFromOperation(name, category, (ops, output) -> ops.union(inputs, output));
+    }
+
+    /**
+     * 求多个密码本的交集为新密码本，顺序与第一个密码本一致
+     */
+    public boolean intersectPasswordBooks(List<String> ids, String name, String category) {
+        List<File> inputs = getPasswordBookFiles(ids);
+        if (inputs == null || inputs.isEmpty()) {
+            return false;
+        }
+        return createPasswordBookFromOperation(name, category,
+                (ops, output) -> ops.intersection(inputs.get(0), inputs.subList(1, inputs.size()), output));
+    }
+
+    /**
+     * 求差集为新密码本：保留 baseId 中不在 excludeIds 任何密码本中的密码
+     */
+    public boolean differencePasswordBooks(String baseId, List<String> excludeIds, String name, String category) {
+        PasswordBook base = getPasswordBookById(baseId);
+        List<File> excludes = getPasswordBookFiles(excludeIds);
+        if (base == null || excludes == null || !compactPasswordBook(baseId)) {
+            return false;
+        }
+        File baseFile = new File(base.getFilePath());
+        return createPasswordBookFromOperation(name, category,
+                (ops, output) -> ops.difference(baseFile, excludes, output));
+    }
+
+    /**
+     * 密码本去重，保留每个密码第一次出现的位置
+     */
+    public boolean deduplicatePasswordBook(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null || !compactPasswordBook(id)) {
+            return false;
+        }
+
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        File output = new File(passwordBooksDir, System.currentTimeMillis() + ".dedup");
+        try {
+            long count = newSetOperations().deduplicate(passwordBookFile, output);
+            getEditLog(passwordBookFile).replaceBook(output);
+            onPasswordBookContentChanged(id);
+            passwordBook.setPasswordCount((int) Math.min(Integer.MAX_VALUE, count));
+            return updatePasswordBook(passwordBook);
+        } catch (IOException e) {
+            Log.e(TAG, "Error deduplicating password book: " + id, e);
+            output.delete();
+            return false;
+        }
+    }
+
+    /**
+     * 批量生成随机密码并保存为新密码本，密码直接写入文件，不在内存中保存
+     */
+    public boolean generatePasswordBook(String name, String category, long count, int minLength, int maxLength,
+                                        boolean includeLowercase, boolean includeUppercase,
+                                        boolean includeDigits, boolean includeSpecial) {
+        BulkPasswordGenerator generator;
+        try {
+            generator = new BulkPasswordGenerator(minLength, maxLength, includeLowercase, includeUppercase,
+                    includeDigits, includeSpecial);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid password generation options", e);
+            return false;
+        }
+        return createPasswordBookFromOperation(name, category, (ops, output) -> generator.generate(output, count, 0));
+    }
+
+    /**
+     * 分析密码本的强度分布、长度分布和无效 WPA 口令数量，包含未合并的编辑，出错时返回null
+     */
+    public PasswordBookAnalyzer.Report analyzePasswordBook(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null) {
+            return null;
+        }
+        try {
+            return new PasswordBookAnalyzer(0).analyze(getEditLog(new File(passwordBook.getFilePath()))::forEachPassword);
+        } catch (IOException e) {
+            Log.e(TAG, "Error analyzing password book: " + id, e);
+            return null;
+        }
+    }
+
+    private PasswordSetOperations newSetOperations() {
+        return new PasswordSetOperations(new File(context.getCacheDir(), "sort"), sortMemoryBudget);
+    }
+
+    /**
+     * 获取密码本对应的文件，任一密码本不存在时返回null
+     */
+    private List<File> getPasswordBookFiles(List<String> ids) {
+        if (ids == null) {
+            return null;
+        }
+        List<File> files = new ArrayList<>();
+        for (String id : ids) {
+            PasswordBook book = getPasswordBookById(id);
+            if (book == null || !compactPasswordBook(id)) {
+                return null;
+            }
+            files.add(new File(book.getFilePath()));
+        }
+        return files;
+    }
+
+    /**
+     * 执行集合运算（或其他直接写入文件的生成过程）并把结果保存为新密码本
+     */
+    private boolean createPasswordBookFromOperation(String name, String category, SetOperation operation) {
+        if (name == null || name.trim().isEmpty() || category == null) {
+            return false;
+        }
+
+        List<PasswordBook> existingBooks = getAllPasswordBooks();
+        for (PasswordBook book : existingBooks) {
+            if (name.equals(book.getName())) {
+                return false; // 名称已存在
+            }
+        }
+
+        File passwordBookFile = new File(passwordBooksDir, System.currentTimeMillis() + ".txt");
+        try {
+            long count = operation.run(newSetOperations(), passwordBookFile);
+            addPasswordBook(existingBooks, name, category, passwordBookFile, (int) Math.min(Integer.MAX_VALUE, count));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error running set operation for password book: " + name, e);
+            passwordBookFile.delete();
+            return false;
+        }
+    }
+
+    private interface SetOperation {
+        long run(PasswordSetOperations ops, File output) throws IOException;
+    }
+
     /**
      * 从文件中读取密码列表
      */
     public List<String> readPasswordsFromFile(String filePath) {
         List<String> passwords = new ArrayList<>();
         File file = new File(filePath);
-        if (!file.exists()) {
+        if (!ChunkStore.exists(file)) {
             return passwords;
         }
         
-        try (FileInputStream fis = new FileInputStream(file);
-             InputStreamReader isr = new InputStreamReader(fis, StandardCharsets.UTF_8)) {
-            StringBuilder sb = new StringBuilder();
-            char[] buffer = new char[1024];
-            int len;
-            while ((len = isr.read(buffer)) != -1) {
-                sb.append(buffer, 0, len);
-            }
-            
-            String content = sb.toString();
-            String[] lines = content.split("\\n");
-            for (String line : lines) {
-                String password = line.trim();
-                if (!password.isEmpty()) {
-                    passwords.add(password);
-                }
+        try (InputStream fis = ChunkStore.openBook(file)) {
+            passwords = PasswordCodec.readTxt(fis);
+            // 叠加未合并的编辑日志
+            if (PasswordBookEditLog.hasPendingEdits(file)) {
+                getEditLog(file).applyTo(passwords);
             }
         } catch (IOException e) {
             Log.e(TAG, "Error reading passwords from file: " + filePath, e);
@@ -395,16 +840,37 @@ public class PasswordManager {
         return passwords;
     }
 
+    /**
+     * 把密码本作为字典按页读取，不把整个密码本读入内存，可以再用 {@link RuleDictionary} 等组合
+     * <p>
+     * 字典按行号读取，未合并的编辑先合并回密码本文件。需要扫描整个文件建立行索引，不要在主线程调用。
+     */
+    public DictionarySource openDictionary(String id) {
+        PasswordBook passwordBook = getPasswordBookById(id);
+        if (passwordBook == null || !compactPasswordBook(id)) {
+            return DictionarySource.of(new String[0]);
+        }
+        File passwordBookFile = new File(passwordBook.getFilePath());
+        if (!ChunkStore.exists(passwordBookFile)) {
+            return DictionarySource.of(new String[0]);
+        }
+        // 只同步读取，不会启动后台线程，不需要关闭
+        PagedPasswordSource source = new PagedPasswordSource(passwordBookFile, Runnable::run);
+        try {
+            source.openBlocking();
+        } catch (IOException e) {
+            Log.e(TAG, "Error indexing password book: " + id, e);
+            return DictionarySource.of(new String[0]);
+        }
+        return source.asDictionary();
+    }
+
     /**
      * 将密码列表写入文件
      */
     private boolean writePasswordsToFile(File file, List<String> passwords) {
-        try (FileOutputStream fos = new FileOutputStream(file);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
-            for (String password : passwords) {
-                osw.write(password);
-                osw.write("\n");
-            }
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            PasswordCodec.writeTxt(fos, passwords);
             return true;
         } catch (IOException e) {
             Log.e(TAG, "Error writing passwords to file: " + file.getAbsolutePath(), e);
@@ -424,21 +890,10 @@ public class PasswordManager {
      * 从CSV文件导入密码本
      */
     public boolean importFromCsv(File file, String name, String category) {
-        List<String> passwords = new ArrayList<>();
+        List<String> passwords;
         
-        try (FileInputStream fis = new FileInputStream(file);
-             InputStreamReader isr = new InputStreamReader(fis, StandardCharsets.UTF_8);
-             BufferedReader br = new BufferedReader(isr)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    String password = parts[0].trim();
-                    if (!password.isEmpty()) {
-                        passwords.add(password);
-                    }
-                }
-            }
+        try (FileInputStream fis = new FileInputStream(file)) {
+            passwords = PasswordCodec.readCsv(fis);
         } catch (IOException e) {
             Log.e(TAG, "Error reading CSV file: " + file.getAbsolutePath(), e);
             return false;
@@ -451,39 +906,9 @@ public class PasswordManager {
      * 从ZIP文件导入密码本（批量）
      */
     public boolean importFromZip(File zipFile) {
-        try (FileInputStream fis = new FileInputStream(zipFile);
-             ZipInputStream zis = new ZipInputStream(fis, StandardCharsets.UTF_8)) {
-            
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (!entry.isDirectory()) {
-                    String fileName = entry.getName();
-                    // 从文件名中提取密码本名称（去除扩展名）
-                    String name = fileName.substring(0, fileName.lastIndexOf('.'));
-                    
-                    // 读取密码内容
-                    StringBuilder sb = new StringBuilder();
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        sb.append(new String(buffer, 0, len, StandardCharsets.UTF_8));
-                    }
-                    
-                    // 解析密码列表
-                    List<String> passwords = new ArrayList<>();
-                    String[] lines = sb.toString().split("\\n");
-                    for (String line : lines) {
-                        String password = line.trim();
-                        if (!password.isEmpty()) {
-                            passwords.add(password);
-                        }
-                    }
-                    
-                    // 创建密码本（使用默认分类）
-                    createPasswordBook(name, DEFAULT_CATEGORY, passwords);
-                }
-                zis.closeEntry();
-            }
+        try (FileInputStream fis = new FileInputStream(zipFile)) {
+            // 创建密码本（使用默认分类）
+            PasswordCodec.readZip(fis, (name, passwords) -> createPasswordBook(name, DEFAULT_CATEGORY, passwords));
             return true;
         } catch (IOException e) {
             Log.e(TAG, "Error importing from ZIP file: " + zipFile.getAbsolutePath(), e);
@@ -505,20 +930,8 @@ public class PasswordManager {
     public boolean exportToCsv(PasswordBook passwordBook, File outputFile) {
         List<String> passwords = readPasswordsFromFile(passwordBook.getFilePath());
         
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-            
-            // 写入CSV头
-            bw.write("password");
-            bw.newLine();
-            
-            // 写入密码数据
-            for (String password : passwords) {
-                bw.write(password);
-                bw.newLine();
-            }
-            
+        try (FileOutputStream fos = new FileOutputStream(outputFile)) {
+            PasswordCodec.writeCsv(fos, passwords);
             return true;
         } catch (IOException e) {
             Log.e(TAG, "Error exporting to CSV file: " + outputFile.getAbsolutePath(), e);
@@ -536,20 +949,7 @@ public class PasswordManager {
              ZipOutputStream zos = new ZipOutputStream(fos, StandardCharsets.UTF_8)) {
             
             for (PasswordBook book : allBooks) {
-                List<String> passwords = readPasswordsFromFile(book.getFilePath());
-                
-                // 创建ZIP条目
-                String entryName = book.getName() + ".txt";
-                ZipEntry entry = new ZipEntry(entryName);
-                zos.putNextEntry(entry);
-                
-                // 写入密码内容
-                for (String password : passwords) {
-                    zos.write(password.getBytes(StandardCharsets.UTF_8));
-                    zos.write("\n".getBytes(StandardCharsets.UTF_8));
-                }
-                
-                zos.closeEntry();
+                PasswordCodec.writeZipEntry(zos, book.getName(), readPasswordsFromFile(book.getFilePath()));
             }
             
             return true;
@@ -567,20 +967,7 @@ public class PasswordManager {
              ZipOutputStream zos = new ZipOutputStream(fos, StandardCharsets.UTF_8)) {
             
             for (PasswordBook book : passwordBooks) {
-                List<String> passwords = readPasswordsFromFile(book.getFilePath());
-                
-                // 创建ZIP条目
-                String entryName = book.getName() + ".txt";
-                ZipEntry entry = new ZipEntry(entryName);
-                zos.putNextEntry(entry);
-                
-                // 写入密码内容
-                for (String password : passwords) {
-                    zos.write(password.getBytes(StandardCharsets.UTF_8));
-                    zos.write("\n".getBytes(StandardCharsets.UTF_8));
-                }
-                
-                zos.closeEntry();
+                PasswordCodec.writeZipEntry(zos, book.getName(), readPasswordsFromFile(book.getFilePath()));
             }
             
             return true;
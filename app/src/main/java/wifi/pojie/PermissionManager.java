@@ -54,7 +54,7 @@ public class PermissionManager {
     public PermissionManager(AppCompatActivity activity) {
         this.activity = activity;
 
-        settingsManager = new SettingsManager(activity);
+        settingsManager = SettingsManager.getInstance(activity);
         // 初始化位置权限请求启动器
         locationPermissionLauncher = activity.registerForActivityResult(
                 new ActivityResultContracts.RequestMultiplePermissions(),
@@ -384,11 +384,11 @@ public class PermissionManager {
 
         // --- 3. 检查 Root/Shizuku 权限 ---
         // 只有当至少有一个命令行模式被激活时，才检查这两种权限
-        boolean cmdModeActive = (readMode == 1) || (scanMode == 1) || (turnonMode == 1) || (connectMode == 2) || (manageMode == 1);
+        boolean cmdModeActive = (readMode == 1 || readMode == 2) || (scanMode == 1) || (turnonMode == 1) || (connectMode == 2) || (manageMode == 1);
 
         if (cmdModeActive) {
             // 检查是否需要Root权限
-            boolean rootNeeded = (readMode == 1 && readModeCmd == 0) ||
+            boolean rootNeeded = ((readMode == 1 || readMode == 2) && readModeCmd == 0) ||
                     (scanMode == 1 && scanModeCmd == 0) ||
                     (turnonMode == 1 && turnonModeCmd == 0) ||
                     (connectMode == 2 && connectModeCmd == 0) ||
@@ -401,7 +401,7 @@ public class PermissionManager {
             }
 
             // 检查是否需要Shizuku权限
-            boolean shizukuNeeded = (readMode == 1 && readModeCmd == 1) ||
+            boolean shizukuNeeded = ((readMode == 1 || readMode == 2) && readModeCmd == 1) ||
                     (scanMode == 1 && scanModeCmd == 1) ||
                     (turnonMode == 1 && turnonModeCmd == 1) ||
                     (connectMode == 2 && connectModeCmd == 1) ||
@@ -49,14 +49,12 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.gson.Gson;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -86,6 +84,9 @@ public class PojieActivity extends Fragment {
 
     private volatile boolean isRunning = false;
     private String[] dictionary = new String[]{}; // 默认词典
+    private String mask = null; // 掩码，设置后代替词典文件
+    private String datePattern = null; // 日期模式，设置后代替词典文件
+    private String rules = null; // 变换规则，应用到词典或掩码的每一项
     private WifiPojieService wifiPojieService;
     private boolean isServiceBound = false;
     private SettingsManager settingsManager;
@@ -169,7 +170,7 @@ public class PojieActivity extends Fragment {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        settingsManager = new SettingsManager(requireContext());
+        settingsManager = SettingsManager.getInstance(requireContext());
     }
 
     @Override
@@ -188,13 +189,15 @@ public class PojieActivity extends Fragment {
                             if (uri != null && getActivity() != null) {
                                 try {
                                     dictionary = readDictionaryFromFile(uri);
+                                    mask = null;
+                                    datePattern = null;
                                     t.cancel();
                                     Toast.makeText(getActivity(), "加载完毕，共" + dictionary.length + "项", Toast.LENGTH_SHORT).show();
 
                                     // 获取文件名并设置到按钮上
                                     String fileName = getFileNameFromUri(uri);
                                     if (fileName != null) {
-                                        getActivity().runOnUiThread(() -> dictionarySelect.setText(fileName));
+                                        getActivity().runOnUiThread(() -> updateDictionaryLabel(fileName));
                                     }
                                 } catch (IOException e) {
                                     Log.e(TAG, "读取字典文件失败", e);
@@ -314,6 +317,7 @@ public class PojieActivity extends Fragment {
         executeButton = view.findViewById(R.id.startbtn);
         wifiSsid = view.findViewById(R.id.wifi_ssid);
         tryTime = view.findViewById(R.id.try_time);
+        tryTime.setText(String.valueOf(settingsManager.getInt(SettingsManager.KEY_LAST_TRY_TIME)));
         dictionarySelect = view.findViewById(R.id.dictionary_select);
         startLine = view.findViewById(R.id.start_line);
         progressText = view.findViewById(R.id.progress_text);
@@ -333,7 +337,7 @@ public class PojieActivity extends Fragment {
         horizontalScrollView = (HorizontalScrollView) commandOutput.getParent();
 
         failSign.listener = selectedId -> {
-            if (settingsManager.getInt(SettingsManager.KEY_READ_MODE) == 0 && selectedId == 2) {
+            if (settingsManager.getInt(SettingsManager.KEY_READ_MODE) != 1 && selectedId == 2) {
                 failSign.setSelectedId(0);
                 new MaterialAlertDialogBuilder(requireActivity())
                         .setTitle("切换模式")
@@ -417,11 +421,33 @@ public class PojieActivity extends Fragment {
                     alert("wifi名称为空，请先选择wifi","缺失参数");
                     return;
                 }
-                if(dictionary.length==0){
+                if(dictionary.length==0 && mask==null && datePattern==null){
                     alert("字典为空，请先选择字典文件","缺失参数");
                     return;
                 }
+                RunConfig runConfig;
+                try {
+                    runConfig = new RunConfig.Builder(ssid)
+                            .setDictionary(dictionary)
+                            .setMask(mask)
+                            .setDatePattern(datePattern)
+                            .setRules(rules)
+                            .setTimeoutMillis(Integer.parseInt(tryTime.getText().toString()))
+                            .setStartLine(Integer.parseInt(startLine.getText().toString()))
+                            .setFailSign(failSign.getSelectedId(),
+                                    Integer.parseInt(failTimeoutInput.getText().toString()),
+                                    Integer.parseInt(failCountInput.getText().toString()))
+                            .build();
+                } catch (NumberFormatException e) {
+                    alert("请输入有效的数字", "参数无效");
+                    return;
+                } catch (IllegalArgumentException e) {
+                    alert(e.getMessage(), "参数无效");
+                    return;
+                }
 
+                // 模式测速使用同样的超时时间
+                settingsManager.setInt(SettingsManager.KEY_LAST_TRY_TIME, runConfig.timeoutMillis);
                 clearLog();
 
                 List<String> missingPermissions = ((MainActivity) requireActivity()).getMissingPermissionsSummary();
@@ -465,24 +491,9 @@ public class PojieActivity extends Fragment {
 
                 // 启动前台服务执行WiFi破解任务
                 if (getActivity() != null) {
-                    Map<String, Object> config = new HashMap<>();
-
-                    config.put("ssid", ssid);
-                    config.put("dictionary", dictionary);
-                    config.put("timeoutMillis", Integer.parseInt(tryTime.getText().toString()));
-                    config.put("startLine", Integer.parseInt(startLine.getText().toString()));
-                    config.put("failSign", failSign.getSelectedId());
-                    config.put("failSignTimeout",Integer.parseInt(failTimeoutInput.getText().toString()));
-                    config.put("failSignCount",Integer.parseInt(failCountInput.getText().toString()));
-
-
-                    Gson gson = new Gson();
-                    String jsonConfig = gson.toJson(config);
-                    String jsonSettings = gson.toJson(settingsManager.getAllSettings());
-
                     Intent serviceIntent = new Intent(getActivity(), WifiPojieService.class);
-                    serviceIntent.putExtra("config", jsonConfig);
-                    serviceIntent.putExtra("settings", jsonSettings);
+                    serviceIntent.putExtra(WifiPojieService.EXTRA_CONFIG, runConfig.toBytes());
+                    serviceIntent.putExtra(WifiPojieService.EXTRA_SETTINGS, settingsManager.getEngineSettings().toBytes());
 
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                         getActivity().startForegroundService(serviceIntent);
@@ -501,6 +512,12 @@ public class PojieActivity extends Fragment {
             filePickerLauncher.launch(Intent.createChooser(intent, "选择字典文件"));
         });
 
+        // 长按选择其他字典来源
+        dictionarySelect.setOnLongClickListener(v -> {
+            showDictionarySourceDialog();
+            return true;
+        });
+
         assert getView() != null;
         Button copyBtn = getView().findViewById(R.id.copybtn);
         Button clearBtn = getView().findViewById(R.id.clearbtn);
@@ -552,6 +569,176 @@ public class PojieActivity extends Fragment {
         }
     }
 
+    /**
+     * 选择字典来源：掩码、密码本，或设置变换规则
+     */
+    private void showDictionarySourceDialog() {
+        String[] items = {"使用掩码", "使用日期模式", "从密码本选择", rules == null ? "设置变换规则" : "修改变换规则", "清除变换规则"};
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("字典来源")
+                .setItems(items, (dialog, which) -> {
+                    if (which == 0) {
+                        showMaskDialog();
+                    } else if (which == 1) {
+                        showDatePatternDialog();
+                    } else if (which == 2) {
+                        showPasswordBookDialog();
+                    } else if (which == 3) {
+                        showRulesDialog();
+                    } else {
+                        rules = null;
+                        updateDictionaryLabel(null);
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * 从密码本管理中选择密码本作为字典
+     */
+    private void showPasswordBookDialog() {
+        PasswordManager passwordManager = new PasswordManager(requireContext());
+        List<PasswordManager.PasswordBook> books = passwordManager.getAllPasswordBooks();
+        if (books.isEmpty()) {
+            alert("还没有密码本，请先在密码本管理中创建", "没有密码本");
+            return;
+        }
+        String[] names = new String[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            names[i] = books.get(i).getName() + "（" + books.get(i).getPasswordCount() + "）";
+        }
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("选择密码本")
+                .setItems(names, (dialog, which) -> {
+                    PasswordManager.PasswordBook book = books.get(which);
+                    Toast loading = Toast.makeText(getActivity(), "正在加载", Toast.LENGTH_SHORT);
+                    loading.show();
+                    // 密码本可能很大，在后台读取
+                    new Thread(() -> {
+                        String[] passwords = passwordManager.readPasswordsFromFile(book.getFilePath()).toArray(new String[0]);
+                        if (getActivity() == null) {
+                            return;
+                        }
+                        getActivity().runOnUiThread(() -> {
+                            if (!isAdded()) {
+                                return;
+                            }
+                            dictionary = passwords;
+                            mask = null;
+                            datePattern = null;
+                            updateDictionaryLabel(book.getName());
+                            loading.cancel();
+                            Toast.makeText(getActivity(), "加载完毕，共" + dictionary.length + "项", Toast.LENGTH_SHORT).show();
+                        });
+                    }).start();
+                })
+                .show();
+    }
+
+    /**
+     * 输入变换规则，每行一条
+     */
+    private void showRulesDialog() {
+        EditText input = new EditText(requireContext());
+        input.setHint("例如\n:\nc\n$1 $2 $3\nsa@ so0");
+        input.setMinLines(4);
+        if (rules != null) {
+            input.setText(rules);
+        }
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("变换规则")
+                .setMessage(": 不变 l 小写 u 大写 c 首字母大写 t 大小写互换 TN 第N位互换\n$X 追加 ^X 前插 sXY 替换 d 重复 r 反转 'N 截断 [ ] 删除首尾")
+                .setView(input)
+                .setPositiveButton("确定", (dialog, which) -> {
+                    String text = input.getText().toString();
+                    try {
+                        int count = PasswordRules.parse(text).size();
+                        rules = text;
+                        updateDictionaryLabel(null);
+                        Toast.makeText(getActivity(), "共" + count + "条规则", Toast.LENGTH_SHORT).show();
+                    } catch (IllegalArgumentException e) {
+                        alert(e.getMessage(), "规则无效");
+                    }
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    /**
+     * 更新字典按钮上的文字，name 为 null 时保留原来的字典名称
+     */
+    private void updateDictionaryLabel(String name) {
+        String label = name != null ? name : dictionarySelect.getText().toString().replaceAll(" \\+ 规则$", "");
+        dictionarySelect.setText(rules != null ? label + " + 规则" : label);
+    }
+
+    /**
+     * 输入日期模式，例如 19800101-20251231:yyyyMMdd,ddMMyyyy,yyMMdd
+     */
+    private void showDatePatternDialog() {
+        EditText input = new EditText(requireContext());
+        input.setHint("例如 19800101-20251231:yyyyMMdd,ddMMyyyy,yyMMdd");
+        input.setText(datePattern != null ? datePattern : "19800101-20251231:yyyyMMdd,ddMMyyyy,yyMMdd");
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("使用日期模式")
+                .setMessage("起始日期-结束日期:格式1,格式2\nyyyy/yy 年 MM/M 月 dd/d 日 # 任意数字，单引号内为原样文字，无效日期和重复的密码自动跳过")
+                .setView(input)
+                .setPositiveButton("确定", (dialog, which) -> {
+                    String text = input.getText().toString().trim();
+                    try {
+                        long size = DatePatternEnumerator.parse(text).size();
+                        if (size > Integer.MAX_VALUE) {
+                            alert("候选密码数量 " + size + " 过多，请缩小范围", "日期模式无效");
+                            return;
+                        }
+                        datePattern = text;
+                        mask = null;
+                        updateDictionaryLabel("日期模式");
+                        Toast.makeText(getActivity(), "共" + size + "项", Toast.LENGTH_SHORT).show();
+                    } catch (IllegalArgumentException e) {
+                        alert(e.getMessage(), "日期模式无效");
+                    }
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    /**
+     * 输入掩码，例如 ?d{8} 表示所有8位数字
+     */
+    private void showMaskDialog() {
+        EditText input = new EditText(requireContext());
+        input.setHint("例如 ?d{8}、abc?d{4}、?l{6,8}");
+        if (mask != null) {
+            input.setText(mask);
+        }
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("使用掩码")
+                .setMessage("?l 小写字母 ?u 大写字母 ?d 数字 ?s 特殊字符 ?a 全部\n[abc] 自定义字符集 {n} {m,n} 重复次数")
+                .setView(input)
+                .setPositiveButton("确定", (dialog, which) -> {
+                    String text = input.getText().toString().trim();
+                    if (text.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        long size = new MaskEnumerator(text).size();
+                        if (size > Integer.MAX_VALUE) {
+                            alert("候选密码数量 " + size + " 过多，请缩小范围", "掩码无效");
+                            return;
+                        }
+                        mask = text;
+                        datePattern = null;
+                        updateDictionaryLabel("掩码: " + text);
+                        Toast.makeText(getActivity(), "共" + size + "项", Toast.LENGTH_SHORT).show();
+                    } catch (IllegalArgumentException e) {
+                        alert(e.getMessage(), "掩码无效");
+                    }
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
     /**
      * 从Uri读取文本文件并按行分割成字符串数组
      *
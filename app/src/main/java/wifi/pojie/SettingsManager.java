@@ -7,9 +7,17 @@ import android.util.Log;
 
 import org.xmlpull.v1.XmlPullParser;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 设置项读写，进程内单例
+ * <p>
+ * 默认值只在创建时从 settings_items.xml 解析一次；全部设置保存在不可变的快照中，
+ * 读取时直接访问当前快照，不加锁也不复制 SharedPreferences 的内容。
+ * 写入时立即替换快照，其他途径（例如 clear）修改的设置通过 OnSharedPreferenceChangeListener 同步。
+ */
 public class SettingsManager {
     private static final String PREFS_NAME = "settings";
     private static final String TAG = "SettingsManager";
@@ -24,6 +32,7 @@ public class SettingsManager {
     public static final String KEY_MANAGE_MODE = "manage_mode";
     public static final String KEY_MANAGE_MODE_CMD = "manage_mode_cmd";
     public static final String KEY_SHOW_NOTIFICATION = "show_notification";
+    public static final String KEY_RECORD_TRACE = "record_trace";
     public static final String KEY_SHOW_GUIDE = "show_guide";
     public static final String KEY_KEEP_SCREEN_ON = "keep_screen_on";
     // 新增配置键
@@ -35,15 +44,37 @@ public class SettingsManager {
     public static final String KEY_LAST_FAIL_TIMEOUT = "last_fail_timeout";
     public static final String KEY_LAST_FAIL_COUNT = "last_fail_count";
 
+    private static volatile SettingsManager instance;
+
     private final SharedPreferences prefs;
     private final Context context;
     private final Map<String, String> defaultValues = new HashMap<>();
     private final Map<String, String> defaultTypes = new HashMap<>(); // New map to store types
+    // SharedPreferences 只保存监听器的弱引用，需要由单例持有
+    private final SharedPreferences.OnSharedPreferenceChangeListener changeListener;
+    private volatile Map<String, Object> snapshot = Collections.emptyMap();
 
-    public SettingsManager(Context context) {
+    private SettingsManager(Context context) {
         this.context = context.getApplicationContext();
         this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         loadDefaultValues();
+        reloadSnapshot();
+        this.changeListener = (sharedPreferences, key) -> onPreferenceChanged(key);
+        prefs.registerOnSharedPreferenceChangeListener(changeListener);
+    }
+
+    public static SettingsManager getInstance(Context context) {
+        SettingsManager result = instance;
+        if (result == null) {
+            synchronized (SettingsManager.class) {
+                result = instance;
+                if (result == null) {
+                    result = new SettingsManager(context);
+                    instance = result;
+                }
+            }
+        }
+        return result;
     }
 
     private void loadDefaultValues() {
@@ -66,55 +97,113 @@ public class SettingsManager {
         }
     }
 
-    public int getInt(String key) {
-        if (prefs.contains(key)) {
-            // Check if the stored value is actually an Integer
-            Object storedValue = prefs.getAll().get(key);
-            if (storedValue instanceof Integer) {
-                return prefs.getInt(key, 0);
-            } else if (storedValue instanceof Boolean) {
-                // If it's a Boolean, it's an old, incorrect type. Remove it.
-                prefs.edit().remove(key).apply();
-                Log.w(TAG, "Removed old Boolean value for key: " + key + ". Falling back to default.");
+    /**
+     * 从 SharedPreferences 重建快照，缺失或类型错误的设置项写入默认值
+     */
+    private synchronized void reloadSnapshot() {
+        Map<String, Object> values = new HashMap<>(prefs.getAll());
+        SharedPreferences.Editor editor = null;
+        for (Map.Entry<String, String> entry : defaultTypes.entrySet()) {
+            String key = entry.getKey();
+            Object storedValue = values.get(key);
+            Object defaultValue;
+            if ("int".equals(entry.getValue())) {
+                if (storedValue instanceof Integer) {
+                    continue;
+                }
+                defaultValue = parseIntDefault(key);
+            } else if ("switch".equals(entry.getValue())) {
+                if (storedValue instanceof Boolean) {
+                    continue;
+                }
+                defaultValue = "true".equalsIgnoreCase(defaultValues.get(key));
+            } else {
+                continue;
+            }
+            if (storedValue != null) {
+                // 旧版本保存了错误的类型
+                Log.w(TAG, "Replaced value of wrong type for key: " + key + ". Falling back to default.");
             }
+            if (editor == null) {
+                editor = prefs.edit();
+            }
+            if (defaultValue instanceof Integer) {
+                editor.putInt(key, (Integer) defaultValue);
+            } else {
+                editor.putBoolean(key, (Boolean) defaultValue);
+            }
+            values.put(key, defaultValue);
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+        snapshot = Collections.unmodifiableMap(values);
+    }
+
+    private void onPreferenceChanged(String key) {
+        if (key == null) {
+            // clear() 之后 key 为 null
+            reloadSnapshot();
+            return;
+        }
+        Object value = prefs.getAll().get(key);
+        if (value == null && defaultTypes.containsKey(key)) {
+            reloadSnapshot();
+            return;
+        }
+        if (value == null ? snapshot.containsKey(key) : !value.equals(snapshot.get(key))) {
+            updateSnapshot(key, value);
+        }
+    }
+
+    /**
+     * 替换快照中的一项，value 为 null 表示移除
+     */
+    private synchronized void updateSnapshot(String key, Object value) {
+        Map<String, Object> values = new HashMap<>(snapshot);
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.put(key, value);
         }
-        // If key not found, or if old Boolean value was removed, use default logic
+        snapshot = Collections.unmodifiableMap(values);
+    }
+
+    private int parseIntDefault(String key) {
         String defaultValueStr = defaultValues.get(key);
-        int defaultValue = 0;
         if (defaultValueStr != null) {
             try {
-                defaultValue = Integer.parseInt(defaultValueStr);
+                return Integer.parseInt(defaultValueStr);
             } catch (NumberFormatException e) {
                 Log.e(TAG, "Invalid default value for key: " + key, e);
             }
         }
-        setInt(key, defaultValue);
-        return defaultValue;
+        return 0;
+    }
+
+    public int getInt(String key) {
+        Object value = snapshot.get(key);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        return parseIntDefault(key);
     }
 
     public void setInt(String key, int value) {
+        updateSnapshot(key, value);
         prefs.edit().putInt(key, value).apply();
     }
 
     public boolean getBoolean(String key) {
-        if (prefs.contains(key)) {
-            // Check if the stored value is actually a Boolean
-            Object storedValue = prefs.getAll().get(key);
-            if (storedValue instanceof Boolean) {
-                return prefs.getBoolean(key, false);
-            } else if (storedValue instanceof Integer) {
-                // If it's an Integer, it's an old, incorrect type. Remove it.
-                prefs.edit().remove(key).apply();
-                Log.w(TAG, "Removed old Integer value for key: " + key + ". Falling back to default.");
-            }
+        Object value = snapshot.get(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
         }
-        String defaultValueStr = defaultValues.get(key);
-        boolean defaultValue = "true".equalsIgnoreCase(defaultValueStr);
-        setBoolean(key, defaultValue);
-        return defaultValue;
+        return "true".equalsIgnoreCase(defaultValues.get(key));
     }
 
     public void setBoolean(String key, boolean value) {
+        updateSnapshot(key, value);
         prefs.edit().putBoolean(key, value).apply();
     }
 
@@ -124,21 +213,16 @@ public class SettingsManager {
     }
 
     public String getString(String key, String defaultValue) {
-        if (prefs.contains(key)) {
-            Object storedValue = prefs.getAll().get(key);
-            if (storedValue instanceof String) {
-                return prefs.getString(key, defaultValue);
-            }
+        Object value = snapshot.get(key);
+        if (value instanceof String) {
+            return (String) value;
         }
         String defaultValueStr = defaultValues.get(key);
-        if (defaultValueStr != null) {
-            setString(key, defaultValueStr);
-            return defaultValueStr;
-        }
-        return defaultValue;
+        return defaultValueStr != null ? defaultValueStr : defaultValue;
     }
 
     public void setString(String key, String value) {
+        updateSnapshot(key, value);
         prefs.edit().putString(key, value).apply();
     }
 
@@ -148,18 +232,14 @@ public class SettingsManager {
     }
 
     public float getFloat(String key, float defaultValue) {
-        if (prefs.contains(key)) {
-            Object storedValue = prefs.getAll().get(key);
-            if (storedValue instanceof Float) {
-                return prefs.getFloat(key, defaultValue);
-            }
+        Object value = snapshot.get(key);
+        if (value instanceof Float) {
+            return (Float) value;
         }
         String defaultValueStr = defaultValues.get(key);
         if (defaultValueStr != null) {
             try {
-                float value = Float.parseFloat(defaultValueStr);
-                setFloat(key, value);
-                return value;
+                return Float.parseFloat(defaultValueStr);
             } catch (NumberFormatException e) {
                 Log.e(TAG, "Invalid default value for key: " + key, e);
             }
@@ -168,6 +248,7 @@ public class SettingsManager {
     }
 
     public void setFloat(String key, float value) {
+        updateSnapshot(key, value);
         prefs.edit().putFloat(key, value).apply();
     }
 
@@ -177,18 +258,14 @@ public class SettingsManager {
     }
 
     public long getLong(String key, long defaultValue) {
-        if (prefs.contains(key)) {
-            Object storedValue = prefs.getAll().get(key);
-            if (storedValue instanceof Long) {
-                return prefs.getLong(key, defaultValue);
-            }
+        Object value = snapshot.get(key);
+        if (value instanceof Long) {
+            return (Long) value;
         }
         String defaultValueStr = defaultValues.get(key);
         if (defaultValueStr != null) {
             try {
-                long value = Long.parseLong(defaultValueStr);
-                setLong(key, value);
-                return value;
+                return Long.parseLong(defaultValueStr);
             } catch (NumberFormatException e) {
                 Log.e(TAG, "Invalid default value for key: " + key, e);
             }
@@ -197,30 +274,47 @@ public class SettingsManager {
     }
 
     public void setLong(String key, long value) {
+        updateSnapshot(key, value);
         prefs.edit().putLong(key, value).apply();
     }
 
     // 清除所有配置
     public void clearAll() {
         prefs.edit().clear().apply();
+        reloadSnapshot();
     }
 
     // 移除特定配置
     public void remove(String key) {
         prefs.edit().remove(key).apply();
+        if (defaultTypes.containsKey(key)) {
+            reloadSnapshot();
+        } else {
+            updateSnapshot(key, null);
+        }
     }
 
+    /**
+     * 破解引擎使用的工作模式设置
+     */
+    public EngineSettings getEngineSettings() {
+        return new EngineSettings(
+                getInt(KEY_READ_MODE),
+                getInt(KEY_READ_MODE_CMD),
+                getInt(KEY_TURNON_MODE),
+                getInt(KEY_TURNON_MODE_CMD),
+                getInt(KEY_CONNECT_MODE),
+                getInt(KEY_CONNECT_MODE_CMD),
+                getInt(KEY_MANAGE_MODE),
+                getInt(KEY_MANAGE_MODE_CMD),
+                getBoolean(KEY_SHOW_NOTIFICATION),
+                getBoolean(KEY_RECORD_TRACE));
+    }
+
+    /**
+     * 当前全部设置的不可变快照，包含所有设置项的默认值
+     */
     public Map<String, ?> getAllSettings() {
-        // Ensure all defaults are populated before returning
-        for (Map.Entry<String, String> entry : defaultTypes.entrySet()) {
-            String key = entry.getKey();
-            String type = entry.getValue();
-            if ("int".equals(type)) {
-                getInt(key); // This will populate SharedPreferences if the key is missing or type is incorrect
-            } else if ("switch".equals(type)) {
-                getBoolean(key); // This will populate SharedPreferences if the key is missing or type is incorrect
-            }
-        }
-        return prefs.getAll();
+        return snapshot;
     }
 }
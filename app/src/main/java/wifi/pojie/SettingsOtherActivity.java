@@ -39,7 +39,7 @@ public class SettingsOtherActivity extends AppCompatActivity {
             window.getDecorView().setSystemUiVisibility(flags);
         }
 
-        settingsManager = new SettingsManager(this);
+        settingsManager = SettingsManager.getInstance(this);
         LinearLayout container = findViewById(R.id.settings_container);
         LayoutInflater inflater = LayoutInflater.from(this);
         try {
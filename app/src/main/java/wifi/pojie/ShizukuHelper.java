@@ -207,6 +207,49 @@ public class ShizukuHelper {
         };
     }
     
+    /**
+     * 执行命令并把标准输出原样交给 onStream 读取，用于二进制输出（如 logcat -B）
+     * @param command 命令文本
+     * @param onStream 在后台线程读取标准输出，返回时结束进程
+     * @return 停止执行的函数
+     */
+    public static Runnable executeCommandStream(String command, Consumer<InputStream> onStream) {
+        AtomicBoolean isCancelled = new AtomicBoolean(false);
+        Process[] processHolder = new Process[1];
+
+        Thread outputThread = new Thread(() -> {
+            Process process = null;
+            try {
+                Method newProcessMethod = Shizuku.class.getDeclaredMethod("newProcess", String[].class, String[].class, String.class);
+                newProcessMethod.setAccessible(true);
+                process = (Process) newProcessMethod.invoke(null, parseCommand(command), null, "/");
+                processHolder[0] = process;
+                if (isCancelled.get() || process == null) {
+                    return;
+                }
+                onStream.accept(process.getInputStream());
+            } catch (Exception e) {
+                if (!isCancelled.get()) {
+                    Log.e(TAG, "Error executing command", e);
+                }
+            } finally {
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+        });
+
+        outputThread.start();
+
+        return () -> {
+            isCancelled.set(true);
+            if (processHolder[0] != null) {
+                processHolder[0].destroy();
+            }
+            outputThread.interrupt();
+        };
+    }
+
     /**
      * 同步执行命令，等待全部执行完毕后返回输出结果
      * @param command 命令文本
@@ -0,0 +1,99 @@
+package wifi.pojie;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 把运行过程中的 supplicant 状态、广播、相关 logcat 日志和每次尝试的结果录制为事件轨迹，格式见 {@link EventTrace}
+ * <p>
+ * 文件保存在 files/traces 目录，只保留最近 {@link #MAX_FILES} 个。时间使用 SystemClock.elapsedRealtime()，
+ * 可以在不同线程调用，写入失败后停止录制。
+ */
+public class TraceRecorder {
+    private static final String TAG = "TraceRecorder";
+    private static final String DIR_NAME = "traces";
+    private static final String SUFFIX = ".wptr";
+    private static final int MAX_FILES = 10;
+
+    private final File file;
+    private EventTrace.Writer writer;
+
+    private TraceRecorder(File file, EventTrace.Writer writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    public static File getTraceDir(Context context) {
+        return new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    /**
+     * 创建新的轨迹文件，并删除超出数量的旧文件
+     *
+     * @return 无法创建时返回 null
+     */
+    public static TraceRecorder open(Context context, String ssid) {
+        File dir = getTraceDir(context);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "无法创建目录 " + dir);
+            return null;
+        }
+        deleteOldFiles(dir);
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, time + "-" + ssid.replaceAll("[^A-Za-z0-9_.-]", "_") + SUFFIX);
+        try {
+            return new TraceRecorder(file, new EventTrace.Writer(new FileOutputStream(file), SystemClock.elapsedRealtime()));
+        } catch (IOException e) {
+            Log.e(TAG, "无法创建轨迹文件", e);
+            return null;
+        }
+    }
+
+    private static void deleteOldFiles(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null || files.length < MAX_FILES) return;
+        // 文件名以时间开头，按名称排序即按时间排序；为新文件留出一个位置
+        Arrays.sort(files);
+        for (int i = 0; i <= files.length - MAX_FILES; i++) {
+            if (!files[i].delete()) Log.w(TAG, "无法删除旧轨迹 " + files[i]);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param type {@link EventTrace} 中的记录类型
+     */
+    public synchronized void record(int type, String text) {
+        if (writer == null) return;
+        try {
+            writer.write(type, SystemClock.elapsedRealtime(), text);
+            // 每次尝试结束时写到文件，进程被杀时最多丢失最后一次尝试
+            if (type == EventTrace.RESULT) writer.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "写入轨迹失败，停止录制", e);
+            close();
+        }
+    }
+
+    public synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭轨迹文件失败", e);
+        }
+        writer = null;
+    }
+}
@@ -2,65 +2,106 @@ package wifi.pojie;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
-import android.content.Context;
 import android.content.Intent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
 
-public class WifiListAdapter extends ArrayAdapter<WifiSelectionDialog.WifiInfo> {
+/**
+ * wifi列表适配器，新列表在后台线程与旧列表比较，只更新变化的条目，不会重置滚动位置
+ */
+public class WifiListAdapter extends RecyclerView.Adapter<WifiListAdapter.ViewHolder> {
 
-    public WifiListAdapter(@NonNull Context context, @NonNull List<WifiSelectionDialog.WifiInfo> objects) {
-        super(context, 0, objects);
+    private static final DiffUtil.ItemCallback<WifiSelectionDialog.WifiInfo> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<WifiSelectionDialog.WifiInfo>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull WifiSelectionDialog.WifiInfo oldItem,
+                                               @NonNull WifiSelectionDialog.WifiInfo newItem) {
+                    return oldItem.name.equals(newItem.name);
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull WifiSelectionDialog.WifiInfo oldItem,
+                                                  @NonNull WifiSelectionDialog.WifiInfo newItem) {
+                    return oldItem.equals(newItem);
+                }
+            };
+
+    private final Activity activity;
+    private final AsyncListDiffer<WifiSelectionDialog.WifiInfo> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+
+    public WifiListAdapter(@NonNull Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * 提交新的列表，比较完成后在主线程更新
+     */
+    public void submitList(List<WifiSelectionDialog.WifiInfo> wifiInfoList) {
+        differ.submitList(wifiInfoList);
     }
 
-    @SuppressLint("SetTextI18n")
     @NonNull
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item_wifi, parent, false);
-        }
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_wifi, parent, false);
+        return new ViewHolder(view);
+    }
 
-        WifiSelectionDialog.WifiInfo currentWifi = getItem(position);
+    @SuppressLint("SetTextI18n")
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        WifiSelectionDialog.WifiInfo currentWifi = differ.getCurrentList().get(position);
 
-        TextView wifiNameTextView = listItemView.findViewById(R.id.text_wifi_name);
-        assert currentWifi != null;
         if (currentWifi.isSaved) {
-            wifiNameTextView.setText("【已保存】" + currentWifi.name);
+            holder.wifiNameTextView.setText("【已保存】" + currentWifi.name);
         } else {
-            wifiNameTextView.setText(currentWifi.name);
+            holder.wifiNameTextView.setText(currentWifi.name);
         }
+        long age = Math.max(0, System.currentTimeMillis() - currentWifi.lastSeenMillis) / 1000;
+        holder.wifiInfoTextView.setText("信号强度: " + currentWifi.rssi + "dBm  " + formatAge(age));
 
-
-        TextView wifiInfoTextView = listItemView.findViewById(R.id.text_wifi_info);
-        wifiInfoTextView.setText("信号强度: " + currentWifi.rssi + "dBm");
-
-        Button selectNetworkButton = listItemView.findViewById(R.id.button_select_network);
-        selectNetworkButton.setOnClickListener(v -> {
+        holder.selectNetworkButton.setOnClickListener(v -> {
             Intent resultIntent = new Intent();
             resultIntent.putExtra("wifi_name", currentWifi.name);
-            setResultAndFinish(Activity.RESULT_OK, resultIntent);
+            activity.setResult(Activity.RESULT_OK, resultIntent);
+            activity.finish();
         });
+    }
 
-        return listItemView;
+    private static String formatAge(long seconds) {
+        if (seconds < 1) {
+            return "刚刚";
+        } else if (seconds < 60) {
+            return seconds + "秒前";
+        }
+        return seconds / 60 + "分钟前";
     }
 
-    private void setResultAndFinish(int resultCode, Intent data) {
-        if (getContext() instanceof Activity) {
-            ((Activity) getContext()).setResult(resultCode, data);
-            ((Activity) getContext()).finish();
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView wifiNameTextView;
+        final TextView wifiInfoTextView;
+        final Button selectNetworkButton;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            wifiNameTextView = itemView.findViewById(R.id.text_wifi_name);
+            wifiInfoTextView = itemView.findViewById(R.id.text_wifi_info);
+            selectNetworkButton = itemView.findViewById(R.id.button_select_network);
         }
     }
 }
-
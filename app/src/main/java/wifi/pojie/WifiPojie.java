@@ -5,35 +5,38 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.File;
-import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 public class WifiPojie {
 
     private final String ssid;
-    private final String[] dictionary;
+    private final DictionarySource dictionary;
+    private final int dictionarySize;
     private final int timeoutMillis;
     private final Consumer<String> logOutputFunction;
     private final TriConsumer<Integer, Integer, String> progressFunction;
     private final Runnable endFunc;
 
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final EngineThread engine = new EngineThread();
     private ConnectWifi connectWifi;
+    private AttemptLoop loop;
     private boolean isDestroyed = false;
     private int currentTryIndex;
     private final Context context;
     private final SharedPreferences progressPrefs;
-    private static final String PREFS_PROGRESS = "wifi_pojie_progress";
-    private static final String KEY_PROGRESS_PREFIX = "progress_";
+    // 字典指纹，断点进度按 (SSID, 指纹) 保存
+    private final String fingerprint;
+    static final String PREFS_PROGRESS = "wifi_pojie_progress";
+    /**
+     * 每个 SSID 一条记录，格式见 {@link Checkpoints}
+     */
+    static final String KEY_CHECKPOINT_PREFIX = "checkpoint_";
+    /**
+     * 旧版本只按 SSID 保存的进度，不知道对应哪个字典
+     */
+    static final String KEY_LEGACY_PROGRESS_PREFIX = "progress_";
 
     /**
      * 构造函数
@@ -45,29 +48,44 @@ public class WifiPojie {
      * @param endFunc           任务结束时执行的函数
      */
     public WifiPojie(Context context,
-                     Map<String, ?> config,
-                     Map<String, ?> settings,
+                     RunConfig config,
+                     EngineSettings settings,
                      Consumer<String> logOutputFunction,
                      TriConsumer<Integer, Integer, String> progressFunction,
                      Runnable endFunc) throws ExecutionException, InterruptedException {
 
 
         this.context = context;
-        this.ssid = (String) config.get("ssid");
-        this.dictionary = (String[]) config.get("dictionary");
-        this.timeoutMillis = (int) config.get("timeoutMillis");
+        this.ssid = config.ssid;
+        this.timeoutMillis = config.timeoutMillis;
         this.logOutputFunction = logOutputFunction;
         this.progressFunction = progressFunction;
         this.endFunc = endFunc;
         this.progressPrefs = context.getSharedPreferences(PREFS_PROGRESS, Context.MODE_PRIVATE);
-        
-        // 检查是否有保存的进度
+
+        DictionarySource source;
+        try {
+            source = config.createDictionary();
+        } catch (IllegalArgumentException e) {
+            logOutputFunction.accept("E: 字典无效: " + e.getMessage());
+            source = DictionarySource.of(new String[0]);
+        }
+        this.dictionary = source;
+        this.dictionarySize = (int) Math.min(Integer.MAX_VALUE, dictionary.size());
+        this.fingerprint = config.getFingerprintHex();
+
+        if (progressPrefs.contains(KEY_LEGACY_PROGRESS_PREFIX + ssid)) {
+            progressPrefs.edit().remove(KEY_LEGACY_PROGRESS_PREFIX + ssid).apply();
+            logOutputFunction.accept("旧版本保存的进度没有记录字典，无法确认是否对应当前字典，已忽略");
+        }
+
+        // 检查当前字典是否有保存的进度，字典内容改变后指纹不同，不会恢复到错误的位置
         int savedProgress = getSavedProgress();
         if (savedProgress >= 0) {
             this.currentTryIndex = savedProgress;
-            logOutputFunction.accept("恢复进度：从第 " + (currentTryIndex + 1) + " 行开始尝试");
+            logOutputFunction.accept("恢复进度：字典指纹 " + fingerprint + "，从第 " + (currentTryIndex + 1) + " 行开始尝试");
         } else {
-            this.currentTryIndex = (int) config.get("startLine") - 1;
+            this.currentTryIndex = config.startLine - 1;
         }
 
         // 在后台线程启动破解过程
@@ -81,20 +99,18 @@ public class WifiPojie {
         logOutputFunction.accept("wifi密码暴力破解工具v2 for Android");
 
         try {
-            connectWifi = new ConnectWifi(context, settings, config);
+            connectWifi = new ConnectWifi(context, engine, settings, config);
 
             if (!connectWifi.wifiIsEnabled()) {
                 logOutputFunction.accept("wifi已关闭，正在打开wifi...");
 
-                int turnonMode = (int) settings.get(SettingsManager.KEY_TURNON_MODE);
-
-                if (turnonMode == 0) {
+                if (settings.turnonMode == 0) {
                     connectWifi.wifiManager.setWifiEnabled(true);
                     logOutputFunction.accept("请在打开WiFi后重新点击开始运行");
                     destroy(false);
                     return;
-                } else if (turnonMode == 1)
-                    ConnectWifi.runCommand("cmd wifi set-wifi-enabled enabled", (int) settings.get(SettingsManager.KEY_TURNON_MODE_CMD));
+                } else if (settings.turnonMode == 1)
+                    ConnectWifi.runCommand("cmd wifi set-wifi-enabled enabled", settings.turnonModeCmd);
             }
 
             int netId = connectWifi.getWifiId(ssid);
@@ -104,66 +120,77 @@ public class WifiPojie {
             }
 
 
-            assert dictionary != null;
-            logOutputFunction.accept("开始运行 SSID:" + ssid + " 密码总数:" + dictionary.length + "\n");
+            if (dictionary.size() > Integer.MAX_VALUE) {
+                logOutputFunction.accept("E: 密码总数 " + dictionary.size() + " 超出上限 " + Integer.MAX_VALUE);
+                destroy(false);
+                return;
+            }
+            logOutputFunction.accept("开始运行 SSID:" + ssid + " 密码总数:" + dictionarySize + "\n");
 
-            executorService.submit(this::startCrackingProcess);
+            loop = new AttemptLoop(connectWifi, dictionary, ssid, timeoutMillis, new LoopListener());
+            loop.start(currentTryIndex);
         } catch (RuntimeException e) {
             logOutputFunction.accept("E: " + e);
             destroy(false);
         }
     }
 
-    @SuppressLint("DefaultLocale")
-    private void startCrackingProcess() {
-        // 检查是否已被销毁
-        if (isDestroyed || currentTryIndex >= dictionary.length) {
-            if (currentTryIndex >= dictionary.length) {
-                logOutputFunction.accept("所有密码尝试完毕，连接失败！");
-            }
-            destroy(true);
-            return;
-        }
-
-        try {
+    /**
+     * 把尝试循环的进度和结果输出到界面并保存
+     */
+    private class LoopListener implements AttemptLoop.Listener {
+        @SuppressLint("DefaultLocale")
+        @Override
+        public void onAttempt(int index, String password) {
             // 更新进度
             if (progressFunction != null) {
                 progressFunction.accept(
-                        currentTryIndex + 1,
-                        dictionary.length,
-                        String.format("%.1f", ((double) currentTryIndex * 100 / dictionary.length)) + "% [" + (currentTryIndex + 1) + "/" + dictionary.length + "] 正在尝试：" + dictionary[currentTryIndex]
+                        index + 1,
+                        dictionarySize,
+                        String.format("%.1f", ((double) index * 100 / dictionarySize)) + "% [" + (index + 1) + "/" + dictionarySize + "] 正在尝试：" + password
                 );
             }
 
             // 记录尝试
-            logAttempt(ssid, currentTryIndex + 1, null);
+            logAttempt(ssid, index + 1, null);
+        }
 
-            // 尝试连接
-            connectWifi.connect(String.valueOf(ssid), dictionary[currentTryIndex], timeoutMillis, (result) -> {
-                // 确保回调在非销毁状态下执行
-                if (isDestroyed) {
-                    return;
-                }
-                logOutputFunction.accept(
-                        "密码:" + dictionary[currentTryIndex] +
-                                " 结果:" + result
-                );
+        @Override
+        public void onResult(int index, String password, String result) {
+            // 确保回调在非销毁状态下执行
+            if (isDestroyed) {
+                return;
+            }
+            logOutputFunction.accept(
+                    "密码:" + password +
+                            " 结果:" + result
+            );
+        }
 
-                if (Objects.equals(result, "success")) {
-                    // 成功连接
-                    logOutputFunction.accept("成功连接到WiFi网络: " + ssid + " 密码: " + dictionary[currentTryIndex]);
-                    logAttempt(ssid, currentTryIndex + 1, dictionary[currentTryIndex]);
-                    clearSavedProgress(); // 清理保存的进度
-                    destroy(false);
-                } else {
-                    connectWifi.forgetWifiName(ssid);
-                    currentTryIndex++;
-                    saveProgress(); // 保存当前进度
-                    executorService.submit(this::startCrackingProcess);
-                }
-            });
-        } catch (Exception e) {
-            logOutputFunction.accept("E: " + e.getMessage());
+        @Override
+        public void onAdvance(int nextIndex) {
+            currentTryIndex = nextIndex;
+            saveProgress(); // 保存当前进度
+        }
+
+        @Override
+        public void onFinished(String password) {
+            if (password == null) {
+                logOutputFunction.accept("所有密码尝试完毕，连接失败！");
+                clearSavedProgress();
+                destroy(true);
+                return;
+            }
+            // 成功连接
+            logOutputFunction.accept("成功连接到WiFi网络: " + ssid + " 密码: " + password);
+            logAttempt(ssid, currentTryIndex + 1, password);
+            clearSavedProgress(); // 清理保存的进度
+            destroy(false);
+        }
+
+        @Override
+        public void onError(String message) {
+            logOutputFunction.accept("E: " + message);
             destroy(false);
         }
     }
@@ -180,49 +207,9 @@ public class WifiPojie {
         SharedPreferences sharedPreferences = context.getSharedPreferences("wifi_attempts", Context.MODE_PRIVATE);
         SharedPreferences.Editor editor = sharedPreferences.edit();
 
-        // 获取现有记录
+        // 读取现有记录，更新后保存
         String existingData = sharedPreferences.getString("attempts", "[]");
-        JSONArray attemptsArray;
-        try {
-            attemptsArray = new JSONArray(existingData);
-        } catch (JSONException e) {
-            Log.e("WifiPojie", "解析现有记录时出错", e);
-            attemptsArray = new JSONArray();
-        }
-
-        boolean found = false;
-        for (int i = 0; i < attemptsArray.length(); i++) {
-            try {
-                JSONObject obj = attemptsArray.getJSONObject(i);
-                if (obj.getString("ssid").equals(ssid)) {
-                    // 已存在该ssid，尝试次数+1
-                    int oldCount = obj.optInt("attemptCount", 0);
-                    obj.put("attemptCount", oldCount + 1);
-                    // 如果本次密码正确，更新密码
-                    if (correctPassword != null && !"N/A".equals(correctPassword)) {
-                        obj.put("correctPassword", correctPassword);
-                    }
-                    found = true;
-                    break;
-                }
-            } catch (JSONException e) {
-                Log.e("WifiPojie", "遍历记录时出错", e);
-            }
-        }
-        if (!found) {
-            // 新建记录
-            JSONObject attemptObject = new JSONObject();
-            try {
-                attemptObject.put("ssid", ssid);
-                attemptObject.put("attemptCount", 1);
-                attemptObject.put("correctPassword", correctPassword != null ? correctPassword : "N/A");
-                attemptsArray.put(attemptObject);
-            } catch (JSONException e) {
-                Log.e("WifiPojie", "创建新记录对象时出错", e);
-            }
-        }
-        // 保存更新后的记录
-        editor.putString("attempts", attemptsArray.toString());
+        editor.putString("attempts", AttemptHistory.record(existingData, ssid, correctPassword));
         editor.apply();
         Log.i("WifiPojie", "记录已保存: SSID=" + ssid + ", 尝试次数=" + attemptCount + ", 密码=" + (correctPassword != null ? correctPassword : "N/A"));
     }
@@ -238,8 +225,12 @@ public class WifiPojie {
             logOutputFunction.accept(e.toString());
         }
         isDestroyed = true;
+        if (loop != null) loop.stop();
         if (connectWifi != null) connectWifi.destroy();
-        executorService.shutdownNow();
+        if (logOutputFunction != null && engine.getLatency().getCount() > 0) {
+            logOutputFunction.accept("事件处理延迟: " + engine.getLatency().summary());
+        }
+        engine.quit();
         if (logOutputFunction != null) {
             logOutputFunction.accept("==运行结束==");
         }
@@ -250,58 +241,40 @@ public class WifiPojie {
     }
     
     /**
-     * 保存当前进度
+     * 保存当前字典的进度
      */
     private void saveProgress() {
         if (isDestroyed) return;
-        
-        SharedPreferences.Editor editor = progressPrefs.edit();
-        String key = KEY_PROGRESS_PREFIX + ssid;
-        
-        // 保存进度信息
-        JSONObject progressInfo = new JSONObject();
-        try {
-            progressInfo.put("currentTryIndex", currentTryIndex);
-            progressInfo.put("totalPasswords", dictionary.length);
-            progressInfo.put("lastUpdateTime", System.currentTimeMillis());
-            editor.putString(key, progressInfo.toString());
-            editor.apply();
-        } catch (JSONException e) {
-            Log.e("WifiPojie", "保存进度失败: " + e.getMessage());
-        }
+
+        String key = KEY_CHECKPOINT_PREFIX + ssid;
+        String checkpoints = Checkpoints.put(progressPrefs.getString(key, null), fingerprint,
+                currentTryIndex, dictionarySize, System.currentTimeMillis());
+        progressPrefs.edit().putString(key, checkpoints).apply();
     }
-    
+
     /**
-     * 获取保存的进度
+     * 获取当前字典保存的进度
      * @return 保存的进度索引，-1表示没有保存的进度
      */
     public int getSavedProgress() {
-        String key = KEY_PROGRESS_PREFIX + ssid;
-        String progressJson = progressPrefs.getString(key, null);
-        
-        if (progressJson == null) {
-            return -1;
-        }
-        
-        try {
-            JSONObject progressInfo = new JSONObject(progressJson);
-            return progressInfo.getInt("currentTryIndex");
-        } catch (JSONException e) {
-            Log.e("WifiPojie", "读取进度失败: " + e.getMessage());
-            return -1;
-        }
+        return Checkpoints.find(progressPrefs.getString(KEY_CHECKPOINT_PREFIX + ssid, null), fingerprint, dictionarySize);
     }
-    
+
     /**
-     * 清理保存的进度
+     * 清理当前字典保存的进度，同一 SSID 其他字典的进度保留
      */
     public void clearSavedProgress() {
+        String key = KEY_CHECKPOINT_PREFIX + ssid;
+        String checkpoints = Checkpoints.remove(progressPrefs.getString(key, null), fingerprint);
         SharedPreferences.Editor editor = progressPrefs.edit();
-        String key = KEY_PROGRESS_PREFIX + ssid;
-        editor.remove(key);
+        if (checkpoints == null) {
+            editor.remove(key);
+        } else {
+            editor.putString(key, checkpoints);
+        }
         editor.apply();
     }
-    
+
     /**
      * 检查是否有保存的进度
      * @return 是否有保存的进度
@@ -311,7 +284,7 @@ public class WifiPojie {
     }
 
     public void shutdownExecutorService() {
-        executorService.shutdownNow();
+        if (loop != null) loop.stop();
     }
 
     @FunctionalInterface
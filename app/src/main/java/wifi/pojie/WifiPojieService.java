@@ -9,10 +9,7 @@ import android.os.Build;
 import android.os.IBinder;
 import android.util.Log;
 
-import com.google.gson.Gson;
-
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 
 public class WifiPojieService extends Service {
@@ -27,10 +24,13 @@ public class WifiPojieService extends Service {
     public static final String EXTRA_PROGRESS = "progress";
     public static final String EXTRA_TOTAL = "total";
     public static final String EXTRA_PROGRESS_TEXT = "progress_text";
+    public static final String EXTRA_CONFIG = "config";
+    public static final String EXTRA_SETTINGS = "settings";
 
     private final IBinder binder = new LocalBinder();
     private WifiPojie wifiPojie;
-    private boolean isRunning = false;
+    // 服务和界面在同一进程，模式测速开始前检查
+    private static volatile boolean isRunning = false;
 
     private boolean showNotification = false;
 
@@ -40,37 +40,19 @@ public class WifiPojieService extends Service {
         }
     }
 
+    /**
+     * 是否有破解任务正在运行
+     */
+    public static boolean isRunning() {
+        return isRunning;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "WifiPojieService created");
     }
 
-    private Map<String, Object> parseConfig(String jsonConfig) {
-        if (jsonConfig == null) {
-            return new HashMap<>();
-        }
-        Gson gson = new Gson();
-        java.lang.reflect.Type type = new com.google.gson.reflect.TypeToken<HashMap<String, Object>>() {
-        }.getType();
-        Map<String, Object> config = gson.fromJson(jsonConfig, type);
-        if (config.containsKey("dictionary")) {
-            Object dictionaryObj = config.get("dictionary");
-            if (dictionaryObj instanceof java.util.ArrayList) {
-                java.util.ArrayList<?> dictionaryList = (java.util.ArrayList<?>) dictionaryObj;
-                String[] dictionaryArray = dictionaryList.toArray(new String[0]);
-                config.put("dictionary", dictionaryArray);
-            }
-        }
-        for (Map.Entry<String, Object> entry : config.entrySet()) {
-            if (entry.getValue() instanceof Double) {
-                entry.setValue(((Double) entry.getValue()).intValue());
-            }
-        }
-        return config;
-    }
-
-
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "WifiPojieService started");
@@ -78,13 +60,19 @@ public class WifiPojieService extends Service {
         if (showNotification) showForegroundNotification();
 
         if (intent != null) {
-            String jsonConfig = intent.getStringExtra("config");
-            String jsonSettings = intent.getStringExtra("settings");
-
-            Map<String, Object> config = parseConfig(jsonConfig);
-            Map<String, Object> settings = parseConfig(jsonSettings);
-
-            startWifiPojie(config, settings);
+            byte[] configData = intent.getByteArrayExtra(EXTRA_CONFIG);
+            byte[] settingsData = intent.getByteArrayExtra(EXTRA_SETTINGS);
+            if (configData == null || settingsData == null) {
+                Log.e(TAG, "Missing run config or settings");
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+            try {
+                startWifiPojie(RunConfig.fromBytes(configData), EngineSettings.fromBytes(settingsData));
+            } catch (IOException e) {
+                Log.e(TAG, "Invalid run config or settings", e);
+                stopSelf();
+            }
         }
 
         return START_NOT_STICKY;
@@ -96,12 +84,12 @@ public class WifiPojieService extends Service {
         return binder;
     }
 
-    private void startWifiPojie(Map<String, Object> config, Map<String, Object> settings) {
+    private void startWifiPojie(RunConfig config, EngineSettings settings) {
         if (isRunning) {
             Log.w(TAG, "WifiPojie is already running");
             return;
         }
-        showNotification = (boolean) settings.get(SettingsManager.KEY_SHOW_NOTIFICATION);
+        showNotification = settings.showNotification;
 
         isRunning = true;
         try {
@@ -226,24 +214,25 @@ public class WifiPojieService extends Service {
     }
 
     /**
-     * 检查是否有保存的进度
+     * 检查是否有保存的进度，任意一个字典的进度都算
      * @param ssid WiFi名称
      * @return 是否有保存的进度
      */
     public boolean hasSavedProgress(String ssid) {
-        android.content.SharedPreferences progressPrefs = getSharedPreferences("wifi_pojie_progress", MODE_PRIVATE);
-        String key = "progress_" + ssid;
-        return progressPrefs.contains(key);
+        android.content.SharedPreferences progressPrefs = getSharedPreferences(WifiPojie.PREFS_PROGRESS, MODE_PRIVATE);
+        return progressPrefs.contains(WifiPojie.KEY_CHECKPOINT_PREFIX + ssid);
     }
     
     /**
-     * 清理指定SSID的保存进度
+     * 清理指定SSID所有字典的保存进度
      * @param ssid WiFi名称
      */
     public void clearSavedProgress(String ssid) {
-        android.content.SharedPreferences progressPrefs = getSharedPreferences("wifi_pojie_progress", MODE_PRIVATE);
-        String key = "progress_" + ssid;
-        progressPrefs.edit().remove(key).apply();
+        android.content.SharedPreferences progressPrefs = getSharedPreferences(WifiPojie.PREFS_PROGRESS, MODE_PRIVATE);
+        progressPrefs.edit()
+                .remove(WifiPojie.KEY_CHECKPOINT_PREFIX + ssid)
+                .remove(WifiPojie.KEY_LEGACY_PROGRESS_PREFIX + ssid)
+                .apply();
     }
 
     @Override
@@ -1,89 +1,80 @@
 package wifi.pojie;
 
 import android.Manifest;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
-import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
-import android.os.Handler;
-import android.util.Log;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WifiSelectionDialog extends AppCompatActivity {
     private static final String TAG = "WifiSelectionDialog";
+    /**
+     * 打开界面时缓存的结果超过这个时间才发起扫描
+     */
+    private static final long MAX_CACHE_AGE_MILLIS = 30 * 1000;
     private WifiListAdapter adapter;
-    private List<WifiInfo> wifiInfoList;
-    private Handler handler;
-    private Runnable addWifiRunnable;
+    private final WifiScanCache scanCache = WifiScanCache.getInstance();
+    // 已保存的网络只在打开和下拉刷新时读取，不在每次扫描结果到达时读取
+    private volatile Set<String> savedNetworks = Collections.emptySet();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
     private SwipeRefreshLayout swipeRefreshLayout;
 
     private SettingsManager settingsManager;
     private WifiManager wifiManager;
-    private WifiScanReceiver wifiScanReceiver;
-
-    String result;
+    private final WifiScanCache.Listener scanListener = networks -> {
+        publishNetworks();
+        finishRefreshing();
+    };
 
     private static final int REQUEST_CODE_FINE_LOCATION = 1001;
 
     public static class WifiInfo {
-        String name;
-        int rssi;
-        boolean isSaved;
+        final String name;
+        final int rssi;
+        final boolean isSaved;
+        final long lastSeenMillis;
 
-        public WifiInfo(String name, int rssi, boolean isSaved) {
+        public WifiInfo(String name, int rssi, boolean isSaved, long lastSeenMillis) {
             this.name = name;
             this.rssi = rssi;
             this.isSaved = isSaved;
+            this.lastSeenMillis = lastSeenMillis;
         }
-    }
 
-    private class WifiScanReceiver extends BroadcastReceiver {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            boolean success = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, false);
-            if (!success) {
-                Toast.makeText(context, "刷新失败", Toast.LENGTH_SHORT).show();
-            }
-            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                Toast.makeText(context, "定位被拒绝", Toast.LENGTH_SHORT).show();
-                finish();
-                return;
-            }
-            List<ScanResult> scanResults = wifiManager.getScanResults();
-            wifiInfoList.clear();
-            List<String> savedNetworks = getSavedNetworks();
-            for (ScanResult scanResult : scanResults) {
-                String name = scanResult.SSID;
-                int rssi = scanResult.level;
-                boolean isSaved = savedNetworks.contains(name);
-                if (!name.isEmpty()) {
-                    wifiInfoList.add(new WifiInfo(name, rssi, isSaved));
-                }
-            }
-            wifiInfoList.sort((wifi1, wifi2) -> Integer.compare(wifi2.rssi, wifi1.rssi));
-            runOnUiThread(() -> {
-                adapter.notifyDataSetChanged();
-                swipeRefreshLayout.setRefreshing(false);
-            });
-            runOnUiThread(() -> swipeRefreshLayout.setRefreshing(false));
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WifiInfo)) return false;
+            WifiInfo wifiInfo = (WifiInfo) o;
+            return rssi == wifiInfo.rssi && isSaved == wifiInfo.isSaved
+                    && lastSeenMillis == wifiInfo.lastSeenMillis && name.equals(wifiInfo.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, rssi, isSaved, lastSeenMillis);
         }
     }
 
@@ -100,38 +91,33 @@ public class WifiSelectionDialog extends AppCompatActivity {
             params.height = getResources().getDisplayMetrics().heightPixels * 3 / 4;
             window.setAttributes(params);
         }
-        settingsManager = new SettingsManager(this);
+        settingsManager = SettingsManager.getInstance(this);
         wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        AndroidWifiScanner scanner = AndroidWifiScanner.install(this);
 
-        int scanMode = settingsManager.getInt(SettingsManager.KEY_SCAN_MODE);
-        if (scanMode == 0) {
-            wifiScanReceiver = new WifiScanReceiver();
-            registerReceiver(wifiScanReceiver, new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
-        }
         initViews();
-        setupWifiList();
+        scanCache.addListener(scanListener);
+        // 先显示缓存的结果，缓存为空时读取系统已有的扫描结果
+        publishNetworks();
+        if (scanCache.getLastUpdateMillis() == 0 && settingsManager.getInt(SettingsManager.KEY_SCAN_MODE) == 0) {
+            worker.execute(scanner::loadSystemResults);
+        }
+        loadSavedNetworks();
+        if (scanCache.getAgeMillis(System.currentTimeMillis()) > MAX_CACHE_AGE_MILLIS && checkLocationPermission()) {
+            swipeRefreshLayout.setRefreshing(true);
+            requestScan();
+        }
     }
 
     private void initViews() {
         swipeRefreshLayout = findViewById(R.id.swipe_refresh_layout);
-        ListView wifiListView = findViewById(R.id.wifi_list);
-        wifiInfoList = new ArrayList<>();
-        adapter = new WifiListAdapter(this, wifiInfoList);
+        RecyclerView wifiListView = findViewById(R.id.wifi_list);
+        wifiListView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new WifiListAdapter(this);
         wifiListView.setAdapter(adapter);
 
         swipeRefreshLayout.setOnRefreshListener(this::refreshWifiList);
 
-        wifiListView.setOnScrollListener(new android.widget.AbsListView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(android.widget.AbsListView view, int scrollState) {
-            }
-
-            @Override
-            public void onScroll(android.widget.AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
-                swipeRefreshLayout.setEnabled(firstVisibleItem == 0);
-            }
-        });
-
         Button cancelButton = findViewById(R.id.button_cancel);
         cancelButton.setOnClickListener(v -> {
             setResult(RESULT_CANCELED);
@@ -140,21 +126,67 @@ public class WifiSelectionDialog extends AppCompatActivity {
 
     }
 
-    private void setupWifiList() {
-        swipeRefreshLayout.setRefreshing(true);
-        handler = new Handler();
-        addWifiRunnable = this::loadWifiListData;
-        handler.post(addWifiRunnable);
+    private void refreshWifiList() {
+        loadSavedNetworks();
+        if (!checkLocationPermission()) {
+            return;
+        }
+        requestScan();
+    }
+
+    private void requestScan() {
+        long wait = scanCache.requestScan(System.currentTimeMillis());
+        if (wait != 0) {
+            // 扫描次数受限时先显示缓存的结果，预算恢复后自动扫描
+            swipeRefreshLayout.setRefreshing(false);
+            if (wait > 0) {
+                Toast.makeText(this, "扫描过于频繁，" + (wait + 999) / 1000 + "秒后自动刷新", Toast.LENGTH_SHORT).show();
+            }
+        }
     }
 
-    private void refreshWifiList() {
-        handler = new Handler();
-        addWifiRunnable = this::loadWifiListData;
-        handler.post(addWifiRunnable);
+    private void loadSavedNetworks() {
+        worker.execute(() -> {
+            savedNetworks = getSavedNetworks();
+            // 已保存状态可能变化，先用现有的扫描结果刷新一次
+            publishNetworks();
+        });
+    }
+
+    /**
+     * 扫描方式为 WifiManager 时检查定位权限，没有权限时申请
+     */
+    private boolean checkLocationPermission() {
+        if (settingsManager.getInt(SettingsManager.KEY_SCAN_MODE) == 0
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
+                    REQUEST_CODE_FINE_LOCATION);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 把缓存的扫描结果和已保存网络合成列表提交给适配器，比较在后台线程进行
+     */
+    private void publishNetworks() {
+        Set<String> saved = savedNetworks;
+        List<ScanResultModel.Network> networks = scanCache.getNetworks();
+        List<WifiInfo> wifiInfoList = new ArrayList<>(networks.size());
+        for (ScanResultModel.Network network : networks) {
+            wifiInfoList.add(new WifiInfo(network.ssid, network.rssi, saved.contains(network.ssid), network.lastSeenMillis));
+        }
+        runOnUiThread(() -> adapter.submitList(wifiInfoList));
+    }
+
+    private void finishRefreshing() {
+        runOnUiThread(() -> swipeRefreshLayout.setRefreshing(false));
     }
 
-    private List<String> getSavedNetworks() {
-        List<String> savedNetworks = new ArrayList<>();
+    private Set<String> getSavedNetworks() {
+        Set<String> savedNetworks = new HashSet<>();
         int manageMode = settingsManager.getInt(SettingsManager.KEY_MANAGE_MODE);
         if (manageMode == 0) {
             if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
@@ -171,84 +203,21 @@ public class WifiSelectionDialog extends AppCompatActivity {
             }
         } else if (manageMode == 1) {
             String result = runCommand("cmd wifi list-networks", settingsManager.getInt(SettingsManager.KEY_MANAGE_MODE_CMD));
-            String[] lines = result.split("\n");
-            for (int i = 1; i < lines.length; i++) {
-                try {
-                    String name = lines[i].substring(13, 46).split(" ")[0];
-                    savedNetworks.add(name);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error parsing saved network: " + lines[i], e);
-                }
+            for (CmdWifiParser.SavedNetwork network : CmdWifiParser.parseNetworks(result)) {
+                savedNetworks.add(network.ssid);
             }
         }
         return savedNetworks;
     }
 
-    private void loadWifiListData() {
-        int scanMode = settingsManager.getInt(SettingsManager.KEY_SCAN_MODE);
-        if (scanMode == 0) {
-            if (wifiManager != null) {
-                if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
-                        != PackageManager.PERMISSION_GRANTED) {
-                    ActivityCompat.requestPermissions(this,
-                            new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
-                            REQUEST_CODE_FINE_LOCATION);
-                } else {
-                    wifiManager.startScan();
-                }
-            }
-        } else if (scanMode == 1) {
-            int runType = settingsManager.getInt(SettingsManager.KEY_SCAN_MODE_CMD);
-            runCommand("cmd wifi start-scan", runType);
-            result = runCommand("cmd wifi list-scan-results", runType);
-            String[] lines = result.split("\n");
-
-            // 清空并重新填充列表
-            wifiInfoList.clear();
-            List<String> savedNetworks = getSavedNetworks();
-
-            for (int i = 1; i < lines.length; i++) {
-                try {
-                    String fullSubstring = lines[i].substring(64, 99);
-                    int bracketIndex = fullSubstring.indexOf('[');
-                    String name;
-                    if (bracketIndex != -1) {
-                        name = fullSubstring.substring(0, bracketIndex).trim();
-                    } else {
-                        name = fullSubstring.split(" ")[0].trim();
-                    }
-                    Log.d(TAG, lines[i]);
-                    Log.d(TAG, "name: " + name + ", rssi: " + lines[i].substring(38, 53).trim());
-                    int rssi = Integer.parseInt(lines[i].substring(38, 53).trim());
-                    boolean isSaved = savedNetworks.contains(name);
-                    if (name.isEmpty()) continue;
-                    wifiInfoList.add(new WifiInfo(name, rssi, isSaved));
-                } catch (RuntimeException ignored) {
-                }
-            }
-            // 按RSSI从大到小排序
-            wifiInfoList.sort((wifi1, wifi2) -> Integer.compare(wifi2.rssi, wifi1.rssi));
-
-            runOnUiThread(() -> {
-                adapter.notifyDataSetChanged();
-                swipeRefreshLayout.setRefreshing(false);
-            });
-        } else {
-            runOnUiThread(() -> {
-                swipeRefreshLayout.setRefreshing(false);
-            });
-        }
-    }
-
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == REQUEST_CODE_FINE_LOCATION) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 // 权限已授予，重新开始扫描
-                if (wifiManager != null) {
-                    wifiManager.startScan();
-                }
+                swipeRefreshLayout.setRefreshing(true);
+                requestScan();
             } else {
                 // 权限被拒绝，停止刷新动画
                 runOnUiThread(() -> {
@@ -270,12 +239,8 @@ public class WifiSelectionDialog extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (handler != null && addWifiRunnable != null) {
-            handler.removeCallbacks(addWifiRunnable);
-        }
-        if (wifiScanReceiver != null) {
-            unregisterReceiver(wifiScanReceiver);
-        }
+        scanCache.removeListener(scanListener);
+        worker.shutdownNow();
     }
 }
 
@@ -4,40 +4,38 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.NetworkInfo;
 import android.net.wifi.SupplicantState;
 import android.net.wifi.WifiManager;
-import android.os.Handler; // 导入 Handler
-import android.os.Looper; // 导入 Looper
 import android.util.Log;
 
 import java.util.function.Consumer;
 
 public class WifiStateReceiver extends BroadcastReceiver {
-    private final Consumer<String> onResult;
     private final Context context;
-    private final int handshakeTimeout;
-
-    private final Handler handshakeTimeoutHandler;
-    private final Runnable handshakeTimeoutRunnable;
-    private boolean isDestroyed = false; // 添加一个销毁状态标志
-
-    public WifiStateReceiver(Context context, int handshakeTimeout, Consumer<String> onResult) {
-        this.onResult = onResult;
+    private final TraceRecorder recorder;
+    private final BroadcastFailureDetector detector;
+    private volatile boolean isDestroyed = false; // 添加一个销毁状态标志
+
+    /**
+     * 广播和握手超时都在引擎线程处理，onResult 也在引擎线程调用
+     *
+     * @param recorder 录制收到的广播，不录制时为 null
+     */
+    public WifiStateReceiver(Context context, EngineThread engine, int handshakeTimeout, TraceRecorder recorder, Consumer<String> onResult) {
         this.context = context;
-        this.handshakeTimeout = handshakeTimeout;
-
-        this.handshakeTimeoutHandler = new Handler(Looper.getMainLooper());
-        this.handshakeTimeoutRunnable = () -> {
+        this.recorder = recorder;
+        this.detector = new BroadcastFailureDetector(engine, handshakeTimeout, result -> {
             if (!isDestroyed) {
-                addLog("握手超时");
-                onResult.accept("handshake_timeout");
+                addLog("结果: " + result);
+                onResult.accept(result);
             }
-        };
+        });
 
         IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction(WifiManager.SUPPLICANT_STATE_CHANGED_ACTION);
         intentFilter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
-        context.registerReceiver(this, intentFilter);
+        context.registerReceiver(this, intentFilter, null, engine.getHandler());
     }
 
     public void destroy() {
@@ -48,7 +46,7 @@ public class WifiStateReceiver extends BroadcastReceiver {
             } catch (Exception e) {
                 Log.w("WifiStateReceiver", "接收器注销时出错", e);
             }
-            handshakeTimeoutHandler.removeCallbacksAndMessages(null);
+            detector.cancel();
         }
     }
 
@@ -61,41 +59,25 @@ public class WifiStateReceiver extends BroadcastReceiver {
         if (WifiManager.SUPPLICANT_STATE_CHANGED_ACTION.equals(action)) {
             SupplicantState newState = intent.getParcelableExtra(WifiManager.EXTRA_NEW_STATE);
             int error = intent.getIntExtra(WifiManager.EXTRA_SUPPLICANT_ERROR, -1);
+            if (newState == null) return;
 
-            String stateText;
-            if (SupplicantState.DISCONNECTED.equals(newState) && error == WifiManager.ERROR_AUTHENTICATING) {
-                stateText = "认证失败 (密码错误) ❌";
-                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                onResult.accept("auth_fail");
-            } else {
-                assert newState != null;
-                stateText = newState.toString();
-            }
-
-            if (handshakeTimeout > 0 && stateText.equals("FOUR_WAY_HANDSHAKE")) {
-                addLog("四次握手开始，设置超时: " + handshakeTimeout + "ms");
-                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                handshakeTimeoutHandler.postDelayed(handshakeTimeoutRunnable, handshakeTimeout);
+            boolean authError = error == WifiManager.ERROR_AUTHENTICATING;
+            addLog("Supplicant 状态: " + newState + (authError ? " (认证失败)" : ""));
+            if (recorder != null) {
+                recorder.record(EventTrace.SUPPLICANT_STATE, newState.name() + (authError ? EventTrace.AUTH_ERROR_SUFFIX : ""));
             }
-
-            addLog("Supplicant 状态: " + stateText);
-
+            detector.onSupplicantState(newState.name(), authError);
         }
 
         // 2. 处理网络连接状态变化（最终结果）
         else if (WifiManager.NETWORK_STATE_CHANGED_ACTION.equals(action)) {
-            android.net.NetworkInfo networkInfo = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
+            NetworkInfo networkInfo = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
+            if (networkInfo == null) return;
 
-            assert networkInfo != null;
-            if (networkInfo.isConnected()) {
-                addLog("网络连接状态: 已连接 (成功) ✅");
-                handshakeTimeoutHandler.removeCallbacks(handshakeTimeoutRunnable);
-                onResult.accept("success");
-            } else if (networkInfo.getState() == android.net.NetworkInfo.State.DISCONNECTED) {
-                addLog("网络连接状态: 已断开 ⛔");
-            } else {
-                addLog("网络连接状态: " + networkInfo.getState().toString() + "...");
-            }
+            NetworkInfo.State state = networkInfo.getState();
+            addLog("网络连接状态: " + state);
+            if (recorder != null) recorder.record(EventTrace.NETWORK_STATE, state.name());
+            detector.onNetworkState(state.name());
         }
     }
 
@@ -15,7 +15,7 @@ public class WorkmodeActivity extends AppCompatActivity implements ManagerProvid
         setContentView(R.layout.activity_workmode);
 
         pm = new PermissionManager(this);
-        settingsManager = new SettingsManager(this);
+        settingsManager = SettingsManager.getInstance(this);
         
         ImageButton backButton = findViewById(R.id.back_button);
         if (backButton != null) {
@@ -1,19 +1,33 @@
 package wifi.pojie;
 
+import android.content.Context;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import View.SegmentedButtonGroup;
 
 public class WorkmodePageFragment extends Fragment {
 
     private static final int REQUEST_CODE_PERMISSION = 1001;
+    /**
+     * 测速时每个组合的尝试次数，每次尝试的超时时间与上次运行时填写的一致
+     */
+    private static final int CALIBRATION_ATTEMPTS = 5;
 
     SegmentedButtonGroup readModeGroup;
     SegmentedButtonGroup readModeCmdGroup;
@@ -46,9 +60,12 @@ public class WorkmodePageFragment extends Fragment {
     Button manageModeCmdButton;
     Button batteryButton;
     Button notificationButton;
+    Button calibrateButton;
 
     private SettingsManager settingsManager;
     private PermissionManager pm;
+    private ModeCalibration calibration;
+    private EngineThread calibrationEngine;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -93,14 +110,17 @@ public class WorkmodePageFragment extends Fragment {
         manageModeCmdButton = view.findViewById(R.id.manage_mode_cmd_button);
         batteryButton = view.findViewById(R.id.battery_button);
         notificationButton = view.findViewById(R.id.notification_button);
+        calibrateButton = view.findViewById(R.id.calibrate_button);
 
         readModeGroup.listener = selectedId -> {
             readModeApiContainer.setVisibility(selectedId == 0 ? View.VISIBLE : View.GONE);
-            readModeCmdContainer.setVisibility(selectedId == 1 ? View.VISIBLE : View.GONE);
+            // 控制接口模式也通过 Root/Shizuku 执行 wpa_cli
+            readModeCmdContainer.setVisibility(selectedId == 1 || selectedId == 2 ? View.VISIBLE : View.GONE);
             settingsManager.setInt(SettingsManager.KEY_READ_MODE, selectedId);
         };
         readModeGroup.addOption("系统API", 0);
         readModeGroup.addOption("命令行", 1);
+        readModeGroup.addOption("控制接口", 2);
         readModeGroup.setSelectedId(settingsManager.getInt(SettingsManager.KEY_READ_MODE));
 
         readModeCmdGroup.listener = selectedId -> {
@@ -215,12 +235,166 @@ public class WorkmodePageFragment extends Fragment {
         });
         batteryButton.setOnClickListener(v -> pm.requestToIgnoreBatteryOptimizations(this::onRequestCallback));
         notificationButton.setOnClickListener(v -> pm.requestNotificationPermission(this::onRequestCallback));
+        calibrateButton.setOnClickListener(v -> showCalibrationDialog());
 
         refreshStatus();
 
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        stopCalibration();
+        super.onDestroyView();
+    }
+
+    /**
+     * 输入测试热点的名称后开始测速
+     */
+    private void showCalibrationDialog() {
+        EditText input = new EditText(requireContext());
+        input.setHint("测试热点名称");
+        input.setSingleLine(true);
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("模式测速")
+                .setMessage("请先打开WiFi并使用自己的测试热点。每种组合会用" + CALIBRATION_ATTEMPTS
+                        + "个随机的错误密码连接，测速期间WiFi会断开")
+                .setView(input)
+                .setPositiveButton("开始", (dialog, which) -> {
+                    String ssid = input.getText().toString().trim();
+                    if (ssid.isEmpty()) {
+                        Toast.makeText(getActivity(), "wifi名称为空", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    startCalibration(ssid);
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    /**
+     * 当前系统和权限下能测试的组合，命令行优先使用 Root
+     */
+    private List<ModeCalibration.Candidate> buildCandidates() {
+        int cmdMode = pm.checkRootStatus() == 1 ? 0 : pm.getShizukuStatus() == 1 ? 1 : -1;
+        List<Integer> connectModes = new ArrayList<>();
+        connectModes.add(0);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) connectModes.add(1);
+        if (cmdMode >= 0) connectModes.add(2);
+        int[] readModes = cmdMode >= 0 ? new int[]{0, 1, 2} : new int[]{0};
+
+        List<ModeCalibration.Candidate> candidates = new ArrayList<>();
+        for (int connectMode : connectModes) {
+            for (int readMode : readModes) {
+                candidates.add(new ModeCalibration.Candidate(connectMode, readMode, Math.max(cmdMode, 0)));
+            }
+        }
+        return candidates;
+    }
+
+    private void startCalibration(String ssid) {
+        if (calibration != null) return;
+        // 测速会断开WiFi并忘记网络，和破解任务同时运行会互相干扰
+        if (WifiPojieService.isRunning()) {
+            Toast.makeText(getActivity(), "破解任务正在运行，请先停止", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<ModeCalibration.Candidate> candidates = buildCandidates();
+        int timeoutMillis = settingsManager.getInt(SettingsManager.KEY_LAST_TRY_TIME);
+        // 按标准模式判定失败，其他工作模式保持当前设置
+        RunConfig config = new RunConfig.Builder(ssid).setTimeoutMillis(timeoutMillis).build();
+        EngineSettings current = settingsManager.getEngineSettings();
+        Context context = requireContext().getApplicationContext();
+        EngineThread engine = new EngineThread();
+        calibrationEngine = engine;
+
+        // 在测速线程和引擎线程追加
+        StringBuffer log = new StringBuffer();
+        AlertDialog progressDialog = new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("模式测速")
+                .setMessage("准备中...")
+                .setCancelable(false)
+                .setNegativeButton("停止", (dialog, which) -> stopCalibration())
+                .show();
+
+        calibration = new ModeCalibration(candidate -> new ConnectWifi(context, engine, new EngineSettings(
+                candidate.readMode, candidate.cmdMode, current.turnonMode, current.turnonModeCmd,
+                candidate.connectMode, candidate.cmdMode, current.manageMode, current.manageModeCmd,
+                false, false), config),
+                candidates, ssid, CALIBRATION_ATTEMPTS, timeoutMillis, new ModeCalibration.Listener() {
+            @Override
+            public void onCandidateStart(int index, ModeCalibration.Candidate candidate) {
+                log.append(log.length() == 0 ? "" : "\n").append("(").append(index + 1).append("/")
+                        .append(candidates.size()).append(") ").append(candidate.getName()).append("：");
+                showProgress(progressDialog, log.toString());
+            }
+
+            @Override
+            public void onAttemptResult(ModeCalibration.Candidate candidate, String result, long millis) {
+                log.append(" ").append(millis).append("ms");
+                if (!ModeCalibration.isFailureSignal(result)) log.append("(").append(result).append(")");
+                showProgress(progressDialog, log.toString());
+            }
+
+            @Override
+            public void onFinished(List<ModeCalibration.Result> results, ModeCalibration.Result best) {
+                engine.quit();
+                if (getActivity() == null) return;
+                requireActivity().runOnUiThread(() -> {
+                    calibration = null;
+                    calibrationEngine = null;
+                    progressDialog.dismiss();
+                    if (isAdded()) showCalibrationResult(results, best);
+                });
+            }
+        });
+        calibration.start();
+    }
+
+    private void showProgress(AlertDialog dialog, String text) {
+        if (getActivity() == null) return;
+        requireActivity().runOnUiThread(() -> dialog.setMessage(text));
+    }
+
+    private void stopCalibration() {
+        if (calibration != null) {
+            calibration.stop();
+            calibration = null;
+        }
+        if (calibrationEngine != null) {
+            calibrationEngine.quit();
+            calibrationEngine = null;
+        }
+    }
+
+    private void showCalibrationResult(List<ModeCalibration.Result> results, ModeCalibration.Result best) {
+        StringBuilder message = new StringBuilder();
+        for (ModeCalibration.Result result : results) {
+            message.append(result.summary()).append("\n");
+        }
+        message.append("\n").append(best != null ? "推荐：" + best.candidate.getName() : "没有每次都能判定失败的组合");
+
+        MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("测速结果")
+                .setMessage(message.toString())
+                .setNegativeButton("关闭", null);
+        if (best != null) {
+            builder.setPositiveButton("应用推荐", (dialog, which) -> applyCandidate(best.candidate));
+        }
+        builder.show();
+    }
+
+    /**
+     * 通过选项按钮切换，监听器会保存设置并更新界面
+     */
+    private void applyCandidate(ModeCalibration.Candidate candidate) {
+        connectModeGroup.setSelectedId(candidate.connectMode);
+        readModeGroup.setSelectedId(candidate.readMode);
+        if (candidate.connectMode == 2) connectModeCmdGroup.setSelectedId(candidate.cmdMode);
+        if (candidate.readMode == 1 || candidate.readMode == 2) readModeCmdGroup.setSelectedId(candidate.cmdMode);
+        Toast.makeText(getActivity(), "已应用：" + candidate.getName(), Toast.LENGTH_SHORT).show();
+    }
+
     private void onRequestCallback(boolean v) {
         requireActivity().runOnUiThread(this::refreshStatus);
     }
@@ -0,0 +1,51 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WifiPojie.logAttempt 每次尝试都要做的记录更新：解析全部记录、修改一项、重新序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AttemptHistoryBenchmark {
+
+    /**
+     * 记录中已有的 SSID 数
+     */
+    @Param({"10", "1000"})
+    public int networks;
+
+    private String history;
+
+    @Setup
+    public void setup() {
+        String json = "[]";
+        for (int i = 0; i < networks; i++) {
+            json = AttemptHistory.record(json, "WiFi-" + i, i % 3 == 0 ? "password" + i : null);
+        }
+        history = json;
+    }
+
+    /**
+     * 正在破解的 SSID 排在最后，需要遍历全部记录
+     */
+    @Benchmark
+    public String recordExisting() {
+        return AttemptHistory.record(history, "WiFi-" + (networks - 1), null);
+    }
+
+    @Benchmark
+    public String recordNew() {
+        return AttemptHistory.record(history, "New WiFi", null);
+    }
+}
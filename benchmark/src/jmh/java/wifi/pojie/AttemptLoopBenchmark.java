@@ -0,0 +1,90 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 尝试循环的引擎开销：后端立即回调结果，耗时只取决于引擎本身（线程切换、字典读取、回调）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AttemptLoopBenchmark {
+    private static final int COUNT = 100_000;
+
+    private final MaskEnumerator dictionary = new MaskEnumerator("?d{8}");
+    // 正确密码放在最后，跑完整个字典
+    private final String correctPassword = dictionary.get(COUNT - 1);
+
+    @Benchmark
+    public int fullDictionary() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        String[] found = new String[1];
+        AttemptLoop loop = new AttemptLoop(new WifiBackend() {
+            @Override
+            public void connect(String ssid, String password, int timeout, Consumer<String> onResult) {
+                onResult.accept(password.equals(correctPassword) ? "success" : "auth_fail");
+            }
+
+            @Override
+            public void forgetWifiName(String ssid) {
+            }
+
+            @Override
+            public int getWifiId(String ssid) {
+                return -1;
+            }
+
+            @Override
+            public void destroy() {
+            }
+        }, new DictionarySource() {
+            @Override
+            public long size() {
+                return COUNT;
+            }
+
+            @Override
+            public String get(long index) {
+                return dictionary.get(index);
+            }
+        }, "Benchmark", 15000, new AttemptLoop.Listener() {
+            @Override
+            public void onAttempt(int index, String password) {
+            }
+
+            @Override
+            public void onResult(int index, String password, String result) {
+            }
+
+            @Override
+            public void onAdvance(int nextIndex) {
+            }
+
+            @Override
+            public void onFinished(String password) {
+                found[0] = password;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String message) {
+                done.countDown();
+            }
+        });
+        loop.start(0);
+        done.await();
+        if (!correctPassword.equals(found[0])) {
+            throw new IllegalStateException("没有找到正确密码");
+        }
+        return loop.getAttemptCount();
+    }
+}
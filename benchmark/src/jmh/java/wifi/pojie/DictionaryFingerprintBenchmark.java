@@ -0,0 +1,49 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字典指纹：服务端反序列化运行参数时边读边计算指纹，与只反序列化对比，以及单独计算 xxHash64 的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DictionaryFingerprintBenchmark {
+
+    @Param({"1000000"})
+    public int passwords;
+
+    private String[] dictionary;
+    private byte[] configBytes;
+
+    @Setup
+    public void setup() {
+        dictionary = Fixtures.passwords(passwords).toArray(new String[0]);
+        configBytes = new RunConfig.Builder("Guest WiFi").setTimeoutMillis(8000).setDictionary(dictionary).build().toBytes();
+    }
+
+    @Benchmark
+    public long fromBytesWithFingerprint() throws IOException {
+        return RunConfig.fromBytes(configBytes).fingerprint;
+    }
+
+    @Benchmark
+    public long xxHashPasswords() {
+        XxHash64 hash = new XxHash64();
+        for (String password : dictionary) {
+            hash.updateUtf8(password);
+            hash.update((byte) '\n');
+        }
+        return hash.getValue();
+    }
+}
@@ -0,0 +1,73 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字典文件的逐行扫描：PagedPasswordSource 建立分页行索引，PasswordCodec.readTxt 整个读入内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DictionaryScanBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int lines;
+
+    private File wordlist;
+
+    @Setup
+    public void setup() throws IOException {
+        wordlist = Fixtures.wordlist(lines);
+    }
+
+    @Benchmark
+    public int pagedIndex() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        try (PagedPasswordSource source = new PagedPasswordSource(wordlist, Runnable::run)) {
+            source.open(new PagedPasswordSource.Listener() {
+                @Override
+                public void onIndexProgress(int lineCount, boolean finished) {
+                    if (finished) {
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void onPageLoaded(int firstLine, int count) {
+                }
+
+                @Override
+                public void onFileChanged() {
+                }
+
+                @Override
+                public void onError(IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            done.await();
+            return source.getLineCount();
+        }
+    }
+
+    @Benchmark
+    public int readAll() throws IOException {
+        try (InputStream in = new FileInputStream(wordlist)) {
+            return PasswordCodec.readTxt(in).size();
+        }
+    }
+}
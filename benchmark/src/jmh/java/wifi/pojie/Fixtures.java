@@ -0,0 +1,98 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准使用的样例数据，按固定种子生成，每次运行内容相同
+ */
+final class Fixtures {
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "wifipojie-jmh");
+
+    private Fixtures() {
+    }
+
+    /**
+     * 类似真实字典的密码：8-12位，混合纯数字、小写字母+数字和全字符集
+     */
+    static List<String> passwords(int count) {
+        return passwords(count, new Random(count));
+    }
+
+    private static List<String> passwords(int count, Random random) {
+        List<String> passwords = new ArrayList<>(count);
+        char[] digits = "0123456789".toCharArray();
+        char[] lowerDigits = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+        char[] all = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*".toCharArray();
+        char[] buffer = new char[12];
+        for (int i = 0; i < count; i++) {
+            int length = 8 + random.nextInt(5);
+            int kind = random.nextInt(10);
+            char[] charset = kind < 5 ? digits : kind < 9 ? lowerDigits : all;
+            for (int j = 0; j < length; j++) {
+                buffer[j] = charset[random.nextInt(charset.length)];
+            }
+            passwords.add(new String(buffer, 0, length));
+        }
+        return passwords;
+    }
+
+    /**
+     * count 行的字典文件，生成一次后保留在临时目录，之后的运行直接复用
+     */
+    static File wordlist(int count) throws IOException {
+        File file = new File(DIR, "words-" + count + ".txt");
+        if (file.exists()) {
+            return file;
+        }
+        if (!DIR.isDirectory() && !DIR.mkdirs()) {
+            throw new IOException("无法创建目录 " + DIR);
+        }
+        File temp = new File(DIR, file.getName() + ".tmp");
+        Random random = new Random(count);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), 1 << 16)) {
+            // 分批生成，千万行时不需要把全部密码放在内存中
+            int batch = 100_000;
+            for (int done = 0; done < count; done += batch) {
+                for (String password : passwords(Math.min(batch, count - done), random)) {
+                    writer.write(password);
+                    writer.write('\n');
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("无法重命名 " + temp);
+        }
+        return file;
+    }
+
+    /**
+     * 资源 logcat/connect_attempts.log：12 次密码错误后一次成功连接时 wpa_supplicant、DhcpClient 输出的日志内容，
+     * 中间穿插扫描、信号变化等无关日志
+     */
+    static List<String> logcatTrace() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("logcat/connect_attempts.log")) {
+            if (in == null) {
+                throw new IOException("缺少资源 logcat/connect_attempts.log");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,55 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 ConnectWIfiListener 的方式对一段连接过程的日志逐行分类，每次操作处理整段日志
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LogcatClassifierBenchmark {
+
+    private String[] lines;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> trace = Fixtures.logcatTrace();
+        lines = trace.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public int classifyTrace() {
+        int events = 0;
+        for (String line : lines) {
+            if (LogcatClassifier.classify(line) != LogcatClassifier.NONE) {
+                events++;
+            }
+        }
+        return events;
+    }
+
+    @Benchmark
+    public int parseSupplicantEvents() {
+        SupplicantResultTracker tracker = new SupplicantResultTracker();
+        int results = 0;
+        for (String line : lines) {
+            // 控制接口模式收到的是 <级别>内容 格式
+            SupplicantEvent event = SupplicantEvent.parse("<2>" + line);
+            if (event != null && tracker.onEvent(event) != null) {
+                results++;
+            }
+        }
+        return results;
+    }
+}
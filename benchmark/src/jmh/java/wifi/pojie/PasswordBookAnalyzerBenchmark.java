@@ -0,0 +1,47 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码本强度分析：逐个评估强度，统计长度分布和无效 WPA 口令
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordBookAnalyzerBenchmark {
+    private static final int COUNT = 1_000_000;
+
+    /**
+     * 分析线程数，0 表示 CPU 核心数
+     */
+    @Param({"1", "0"})
+    public int threads;
+
+    private PasswordBookIndex.PasswordSource source;
+
+    @Setup
+    public void setup() {
+        List<String> passwords = Fixtures.passwords(COUNT);
+        source = handler -> {
+            for (String password : passwords) {
+                handler.accept(password);
+            }
+        };
+    }
+
+    @Benchmark
+    public PasswordBookAnalyzer.Report analyze() throws IOException {
+        return new PasswordBookAnalyzer(threads).analyze(source);
+    }
+}
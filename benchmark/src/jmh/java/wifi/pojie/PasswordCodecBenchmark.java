@@ -0,0 +1,105 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 密码本导入导出格式的编解码，数据在内存中，不包含磁盘读写
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordCodecBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int count;
+
+    private List<String> passwords;
+    private byte[] txt;
+    private byte[] csv;
+    private byte[] zip;
+
+    @Setup
+    public void setup() throws IOException {
+        passwords = Fixtures.passwords(count);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PasswordCodec.writeTxt(out, passwords);
+        txt = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        PasswordCodec.writeCsv(out, passwords);
+        csv = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            PasswordCodec.writeZipEntry(zos, "fixture", passwords);
+        }
+        zip = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<String> readTxt() throws IOException {
+        return PasswordCodec.readTxt(new ByteArrayInputStream(txt));
+    }
+
+    @Benchmark
+    public List<String> readCsv() throws IOException {
+        return PasswordCodec.readCsv(new ByteArrayInputStream(csv));
+    }
+
+    @Benchmark
+    public void readZip(Blackhole blackhole) throws IOException {
+        PasswordCodec.readZip(new ByteArrayInputStream(zip), (name, list) -> blackhole.consume(list));
+    }
+
+    @Benchmark
+    public void writeTxt(Blackhole blackhole) throws IOException {
+        PasswordCodec.writeTxt(new DiscardOutputStream(blackhole), passwords);
+    }
+
+    @Benchmark
+    public void writeCsv(Blackhole blackhole) throws IOException {
+        PasswordCodec.writeCsv(new DiscardOutputStream(blackhole), passwords);
+    }
+
+    @Benchmark
+    public void writeZip(Blackhole blackhole) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(new DiscardOutputStream(blackhole))) {
+            PasswordCodec.writeZipEntry(zos, "fixture", passwords);
+        }
+    }
+
+    /**
+     * 只计数的输出流，避免测到 ByteArrayOutputStream 的扩容
+     */
+    private static final class DiscardOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        DiscardOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(len);
+        }
+    }
+}
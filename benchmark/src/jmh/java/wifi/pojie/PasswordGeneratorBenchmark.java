@@ -0,0 +1,73 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码批量生成和强度评估
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordGeneratorBenchmark {
+    private static final int COUNT = 100_000;
+
+    private final PasswordGenerator generator = new PasswordGenerator();
+    private List<String> passwords;
+    private File output;
+
+    @Setup
+    public void setup() throws IOException {
+        passwords = Fixtures.passwords(COUNT);
+        output = File.createTempFile("bulk", ".txt");
+    }
+
+    @TearDown
+    public void tearDown() {
+        output.delete();
+    }
+
+    @Benchmark
+    public List<String> generateList() {
+        return generator.generatePasswordList(COUNT, 8, 12, true, true, true, false);
+    }
+
+    /**
+     * 生成到文件的路径，单线程，输出丢弃
+     */
+    @Benchmark
+    public long generateStream() throws IOException {
+        return new BulkPasswordGenerator(8, 12, true, true, true, false)
+                .generate(OutputStream.nullOutputStream(), COUNT, 1);
+    }
+
+    /**
+     * 生成到文件，线程数为 CPU 核心数
+     */
+    @Benchmark
+    public long generateFileParallel() throws IOException {
+        return new BulkPasswordGenerator(8, 12, true, true, true, false)
+                .generate(output, COUNT, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public int evaluateStrength() {
+        int sum = 0;
+        for (String password : passwords) {
+            sum += generator.evaluatePasswordStrength(password);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,54 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 变换规则展开字典：每个候选按序号解码出单词和规则，再应用规则
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordRulesBenchmark {
+    private static final int WORDS = 100_000;
+    private static final String RULES = ":\n"
+            + "c\n"
+            + "u\n"
+            + "$1 $2 $3\n"
+            + "c $2 $0 $2 $4\n"
+            + "sa@ se3 si1 so0\n"
+            + "d\n"
+            + "^! r '8\n";
+
+    private RuleDictionary dictionary;
+
+    @Setup
+    public void setup() {
+        dictionary = new RuleDictionary(DictionarySource.of(Fixtures.passwords(WORDS).toArray(new String[0])),
+                PasswordRules.parse(RULES));
+    }
+
+    /**
+     * 按顺序读取全部 {@code WORDS * 8} 个候选
+     */
+    @Benchmark
+    public long expandAll() {
+        long checksum = 0;
+        for (long i = 0; i < dictionary.size(); i++) {
+            checksum += dictionary.get(i).length();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public PasswordRules parse() {
+        return PasswordRules.parse(RULES);
+    }
+}
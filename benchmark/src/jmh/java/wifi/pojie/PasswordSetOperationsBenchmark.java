@@ -0,0 +1,110 @@
+package wifi.pojie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码本集合运算：外部排序加归并，内存预算远小于输入
+ * <p>
+ * 两个输入都是8位数字，取值范围一半重叠，且各自含有重复项。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordSetOperationsBenchmark {
+
+    @Param({"1000000"})
+    public int lines;
+
+    /**
+     * 排序内存预算，MB
+     */
+    @Param({"32"})
+    public int budgetMb;
+
+    private File dir;
+    private File a;
+    private File b;
+    private File out;
+    private PasswordSetOperations operations;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("setops").toFile();
+        a = new File(dir, "a.txt");
+        b = new File(dir, "b.txt");
+        out = new File(dir, "out.txt");
+        writeDigits(a, lines, 0, 42);
+        writeDigits(b, lines, lines / 2, 43);
+        operations = new PasswordSetOperations(new File(dir, "tmp"), (long) budgetMb << 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public long deduplicate() throws IOException {
+        return operations.deduplicate(a, out);
+    }
+
+    @Benchmark
+    public long union() throws IOException {
+        return operations.union(Arrays.asList(a, b), out);
+    }
+
+    @Benchmark
+    public long intersection() throws IOException {
+        return operations.intersection(a, Collections.singletonList(b), out);
+    }
+
+    @Benchmark
+    public long difference() throws IOException {
+        return operations.difference(a, Collections.singletonList(b), out);
+    }
+
+    private static void writeDigits(File file, int lines, int offset, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            for (int i = 0; i < lines; i++) {
+                String s = Integer.toString((offset + random.nextInt(lines)) % 100_000_000);
+                for (int pad = s.length(); pad < 8; pad++) {
+                    writer.write('0');
+                }
+                writer.write(s);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
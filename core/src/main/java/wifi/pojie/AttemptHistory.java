@@ -0,0 +1,63 @@
+package wifi.pojie;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 尝试记录的存储格式：JSON 数组，每个 SSID 一个对象 {ssid, attemptCount, correctPassword}，没有找到密码时 correctPassword 为 "N/A"
+ * <p>
+ * org.json 在 Android 上由系统提供，core 模块只在编译时依赖。
+ */
+public final class AttemptHistory {
+    public static final String NO_PASSWORD = "N/A";
+
+    private AttemptHistory() {
+    }
+
+    /**
+     * 记录一次尝试：已存在该 SSID 时尝试次数+1，本次密码正确时更新密码；不存在时新建
+     *
+     * @param json            现有记录，无法解析时视为空记录
+     * @param correctPassword 本次连接成功的密码，失败时为 null
+     * @return 更新后的记录
+     */
+    public static String record(String json, String ssid, String correctPassword) {
+        JSONArray attemptsArray;
+        try {
+            attemptsArray = new JSONArray(json);
+        } catch (JSONException e) {
+            attemptsArray = new JSONArray();
+        }
+
+        boolean found = false;
+        for (int i = 0; i < attemptsArray.length(); i++) {
+            JSONObject obj = attemptsArray.optJSONObject(i);
+            if (obj == null || !ssid.equals(obj.optString("ssid", null))) {
+                continue;
+            }
+            try {
+                obj.put("attemptCount", obj.optInt("attemptCount", 0) + 1);
+                if (correctPassword != null && !NO_PASSWORD.equals(correctPassword)) {
+                    obj.put("correctPassword", correctPassword);
+                }
+            } catch (JSONException e) {
+                // key 非空、值为基本类型时不会抛出
+            }
+            found = true;
+            break;
+        }
+        if (!found) {
+            JSONObject attemptObject = new JSONObject();
+            try {
+                attemptObject.put("ssid", ssid);
+                attemptObject.put("attemptCount", 1);
+                attemptObject.put("correctPassword", correctPassword != null ? correctPassword : NO_PASSWORD);
+            } catch (JSONException e) {
+                // 同上
+            }
+            attemptsArray.put(attemptObject);
+        }
+        return attemptsArray.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package wifi.pojie;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 逐个尝试字典中密码的主循环：连接 → 等待结果 → 失败则忘记网络并尝试下一个
+ * <p>
+ * 只依赖 {@link WifiBackend} 和 {@link DictionarySource}，不涉及 Android，进度保存和界面输出由 {@link Listener} 处理。
+ * 连接请求和忘记网络在循环自己的工作线程执行，结果回调所在的线程由后端决定，回调中只把下一步提交到工作线程。
+ */
+public class AttemptLoop {
+
+    public interface Listener {
+        /**
+         * 即将尝试第 index 个密码（从0开始）
+         */
+        void onAttempt(int index, String password);
+
+        void onResult(int index, String password, String result);
+
+        /**
+         * 失败的网络已忘记，下一个要尝试的序号变为 nextIndex
+         */
+        void onAdvance(int nextIndex);
+
+        /**
+         * 循环结束
+         *
+         * @param password 连接成功的密码，所有密码尝试完毕时为 null
+         */
+        void onFinished(String password);
+
+        /**
+         * 连接或忘记网络出错，循环已停止
+         */
+        void onError(String message);
+    }
+
+    private final WifiBackend backend;
+    private final DictionarySource dictionary;
+    private final int size;
+    private final String ssid;
+    private final int timeoutMillis;
+    private final Listener listener;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private volatile boolean isStopped = false;
+    private volatile int currentIndex;
+    private volatile int attemptCount = 0;
+
+    public AttemptLoop(WifiBackend backend, DictionarySource dictionary, String ssid, int timeoutMillis, Listener listener) {
+        this.backend = backend;
+        this.dictionary = dictionary;
+        this.size = (int) Math.min(Integer.MAX_VALUE, dictionary.size());
+        this.ssid = ssid;
+        this.timeoutMillis = timeoutMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * 从第 startIndex 个密码开始，在工作线程中运行
+     */
+    public void start(int startIndex) {
+        currentIndex = startIndex;
+        submit(this::next);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executorService.submit(task);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+    }
+
+    private void next() {
+        if (isStopped) {
+            return;
+        }
+        int index = currentIndex;
+        if (index >= size) {
+            stop();
+            listener.onFinished(null);
+            return;
+        }
+        try {
+            String password = dictionary.get(index);
+            listener.onAttempt(index, password);
+            attemptCount++;
+            backend.connect(ssid, password, timeoutMillis, result -> onResult(index, password, result));
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void onResult(int index, String password, String result) {
+        if (isStopped) {
+            return;
+        }
+        listener.onResult(index, password, result);
+        if ("success".equals(result)) {
+            stop();
+            listener.onFinished(password);
+            return;
+        }
+        // 忘记网络可能要执行命令，放到工作线程，不阻塞后端的事件处理
+        submit(() -> {
+            if (isStopped) {
+                return;
+            }
+            try {
+                backend.forgetWifiName(ssid);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            currentIndex = index + 1;
+            listener.onAdvance(index + 1);
+            next();
+        });
+    }
+
+    private void fail(RuntimeException e) {
+        if (isStopped) {
+            return;
+        }
+        stop();
+        listener.onError(e.getMessage());
+    }
+
+    /**
+     * 停止循环，之后到达的结果全部忽略。不会销毁后端
+     */
+    public void stop() {
+        isStopped = true;
+        executorService.shutdownNow();
+    }
+
+    public boolean isStopped() {
+        return isStopped;
+    }
+
+    /**
+     * 下一个要尝试（或正在尝试）的密码序号
+     */
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    /**
+     * 已发出的连接请求数
+     */
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+}
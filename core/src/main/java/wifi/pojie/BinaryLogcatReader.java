@@ -0,0 +1,228 @@
+package wifi.pojie;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 读取 logcat -B 输出的二进制日志（liblog 的 logger_entry 结构）
+ * <p>
+ * 每条日志是一个头部加上负载：头部的前两个 uint16 是负载长度和头部长度（小端，v1 格式头部长度字段为0，实际为20字节），
+ * 随后是 pid、tid、sec、nsec；负载是1字节优先级、以0结尾的标签和以0结尾的消息。
+ * 优先级和标签直接在字节上比较，不需要的日志不会解码；需要的日志也只在调用 {@link #getMessage()} 时才解码消息。
+ * <p>
+ * 用法与迭代器类似：{@link #next()} 返回 true 后通过 getXxx 读取当前日志，再次调用 next 后之前的内容失效。
+ */
+public class BinaryLogcatReader {
+    public static final int PRIORITY_VERBOSE = 2;
+    public static final int PRIORITY_DEBUG = 3;
+    public static final int PRIORITY_INFO = 4;
+    public static final int PRIORITY_WARN = 5;
+    public static final int PRIORITY_ERROR = 6;
+
+    private static final int V1_HEADER_SIZE = 20;
+    private static final int MAX_HEADER_SIZE = 64;
+
+    private final InputStream in;
+    private final int minPriority;
+    private final String[] tags;
+    private final byte[][] tagBytes;
+    private final byte[] header = new byte[MAX_HEADER_SIZE];
+    private final byte[] payload = new byte[0xFFFF];
+
+    private int priority;
+    private int pid;
+    private int tid;
+    private long sec;
+    private long nsec;
+    private int tagIndex;
+    private int tagLength;
+    private int messageOffset;
+    private int messageLength;
+    private String message;
+
+    private long readCount;
+    private long matchedCount;
+
+    /**
+     * @param minPriority 最低优先级，如 {@link #PRIORITY_DEBUG}
+     * @param tags        需要的标签，为空时不按标签过滤
+     */
+    public BinaryLogcatReader(InputStream in, int minPriority, String... tags) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 16 * 1024);
+        this.minPriority = minPriority;
+        this.tags = tags;
+        this.tagBytes = new byte[tags.length][];
+        for (int i = 0; i < tags.length; i++) {
+            tagBytes[i] = tags[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 读到下一条符合条件的日志
+     *
+     * @return 流结束时返回 false
+     * @throws EOFException 日志在中间被截断
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (!readFully(header, 0, 4, true)) {
+                return false;
+            }
+            int length = readUInt16(header, 0);
+            int headerSize = readUInt16(header, 2);
+            if (headerSize == 0) {
+                headerSize = V1_HEADER_SIZE;
+            }
+            if (headerSize < V1_HEADER_SIZE || headerSize > MAX_HEADER_SIZE) {
+                throw new IOException("无效的日志头部长度: " + headerSize);
+            }
+            readFully(header, 4, headerSize - 4, false);
+            readFully(payload, 0, length, false);
+            readCount++;
+            if (accept(length)) {
+                pid = readInt32(header, 4);
+                tid = readInt32(header, 8);
+                sec = readInt32(header, 12) & 0xFFFFFFFFL;
+                nsec = readInt32(header, 16) & 0xFFFFFFFFL;
+                message = null;
+                matchedCount++;
+                return true;
+            }
+        }
+    }
+
+    private boolean accept(int length) {
+        if (length < 2) {
+            return false;
+        }
+        priority = payload[0];
+        if (priority < minPriority) {
+            return false;
+        }
+        int tagEnd = indexOfZero(1, length);
+        tagLength = tagEnd - 1;
+        tagIndex = -1;
+        if (tags.length > 0) {
+            for (int i = 0; i < tagBytes.length; i++) {
+                if (regionEquals(tagBytes[i], 1, tagLength)) {
+                    tagIndex = i;
+                    break;
+                }
+            }
+            if (tagIndex < 0) {
+                return false;
+            }
+        }
+        messageOffset = Math.min(tagEnd + 1, length);
+        int messageEnd = indexOfZero(messageOffset, length);
+        while (messageEnd > messageOffset && (payload[messageEnd - 1] == '\n' || payload[messageEnd - 1] == '\r')) {
+            messageEnd--;
+        }
+        messageLength = messageEnd - messageOffset;
+        return true;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public int getTid() {
+        return tid;
+    }
+
+    /**
+     * 日志的时间（自1970年起的毫秒数）
+     */
+    public long getTimeMillis() {
+        return sec * 1000 + nsec / 1000000;
+    }
+
+    /**
+     * 指定了标签时直接返回构造时传入的字符串，不解码
+     */
+    public String getTag() {
+        if (tagIndex >= 0) {
+            return tags[tagIndex];
+        }
+        return new String(payload, 1, tagLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 消息内容，去掉末尾的换行，第一次调用时解码
+     */
+    public String getMessage() {
+        if (message == null) {
+            message = new String(payload, messageOffset, messageLength, StandardCharsets.UTF_8);
+        }
+        return message;
+    }
+
+    /**
+     * 已读取的日志总数，包括被过滤掉的
+     */
+    public long getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * 符合条件的日志数
+     */
+    public long getMatchedCount() {
+        return matchedCount;
+    }
+
+    private int indexOfZero(int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (payload[i] == 0) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private boolean regionEquals(byte[] expected, int offset, int length) {
+        if (expected.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (payload[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param allowEof 为 true 时在第一个字节之前遇到流结束返回 false，否则抛出 EOFException
+     */
+    private boolean readFully(byte[] buffer, int offset, int length, boolean allowEof) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, offset + read, length - read);
+            if (n < 0) {
+                if (allowEof && read == 0) {
+                    return false;
+                }
+                throw new EOFException("日志被截断");
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static int readUInt16(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt32(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8
+                | (buffer[offset + 2] & 0xFF) << 16 | (buffer[offset + 3] & 0xFF) << 24;
+    }
+}
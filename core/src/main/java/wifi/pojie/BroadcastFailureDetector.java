@@ -0,0 +1,54 @@
+package wifi.pojie;
+
+import java.util.function.Consumer;
+
+/**
+ * 从 SUPPLICANT_STATE_CHANGED 和 NETWORK_STATE_CHANGED 广播判断一次连接尝试的结果
+ * <p>
+ * 状态使用 SupplicantState 和 NetworkInfo.State 的枚举名称。认证失败报告 "auth_fail"，
+ * 设置了握手超时时四次握手开始后超时报告 "handshake_timeout"，网络连接成功报告 "success"。
+ */
+public class BroadcastFailureDetector {
+    public static final String STATE_FOUR_WAY_HANDSHAKE = "FOUR_WAY_HANDSHAKE";
+    public static final String STATE_DISCONNECTED = "DISCONNECTED";
+    public static final String STATE_CONNECTED = "CONNECTED";
+
+    private final EngineTimer timer;
+    private final int handshakeTimeout;
+    private final Consumer<String> onResult;
+    private final Runnable handshakeTimeoutTask;
+
+    /**
+     * @param handshakeTimeout 握手超时毫秒数，不大于0时不计时
+     */
+    public BroadcastFailureDetector(EngineTimer timer, int handshakeTimeout, Consumer<String> onResult) {
+        this.timer = timer;
+        this.handshakeTimeout = handshakeTimeout;
+        this.onResult = onResult;
+        this.handshakeTimeoutTask = () -> onResult.accept("handshake_timeout");
+    }
+
+    /**
+     * @param authError 广播带有 ERROR_AUTHENTICATING
+     */
+    public void onSupplicantState(String state, boolean authError) {
+        if (STATE_DISCONNECTED.equals(state) && authError) {
+            timer.cancel(handshakeTimeoutTask);
+            onResult.accept("auth_fail");
+        } else if (handshakeTimeout > 0 && STATE_FOUR_WAY_HANDSHAKE.equals(state)) {
+            timer.cancel(handshakeTimeoutTask);
+            timer.postDelayed(handshakeTimeoutTask, handshakeTimeout);
+        }
+    }
+
+    public void onNetworkState(String state) {
+        if (STATE_CONNECTED.equals(state)) {
+            timer.cancel(handshakeTimeoutTask);
+            onResult.accept("success");
+        }
+    }
+
+    public void cancel() {
+        timer.cancel(handshakeTimeoutTask);
+    }
+}
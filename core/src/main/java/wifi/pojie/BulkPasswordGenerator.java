@@ -0,0 +1,253 @@
+package wifi.pojie;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 批量生成随机密码并直接写入密码本文件，规则与 {@link PasswordGenerator#generatePassword} 相同
+ * <p>
+ * 每个工作线程使用独立的 SecureRandom，并批量读取随机字节，生成过程复用 char 缓冲区，在基本类型数组上原地洗牌。
+ * 生成结果写入固定数量的循环使用的字节块，由调用线程按完成顺序写出，内存占用与生成数量无关。
+ * 工作线程出错时把手上的块标记为失败交给调用线程，调用线程停止写出并抛出异常。
+ */
+public class BulkPasswordGenerator {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int RANDOM_BUFFER = 4096;
+
+    private final int minLength;
+    private final int maxLength;
+    // 每种选中字符类型的字符集，以及它们的并集
+    private final char[][] requiredSets;
+    private final char[] charset;
+
+    public BulkPasswordGenerator(int minLength, int maxLength, boolean includeLowercase, boolean includeUppercase,
+                                 boolean includeDigits, boolean includeSpecial) {
+        if (minLength <= 0 || maxLength < minLength) {
+            throw new IllegalArgumentException("密码长度范围无效");
+        }
+        List<char[]> sets = new ArrayList<>();
+        if (includeLowercase) sets.add(PasswordGenerator.LOWERCASE_LETTERS.toCharArray());
+        if (includeUppercase) sets.add(PasswordGenerator.UPPERCASE_LETTERS.toCharArray());
+        if (includeDigits) sets.add(PasswordGenerator.DIGITS.toCharArray());
+        if (includeSpecial) sets.add(PasswordGenerator.SPECIAL_CHARACTERS.toCharArray());
+        if (sets.isEmpty()) {
+            throw new IllegalArgumentException("至少需要选择一种字符类型");
+        }
+        if (maxLength >= BLOCK_SIZE) {
+            throw new IllegalArgumentException("密码长度过长");
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.requiredSets = sets.toArray(new char[0][]);
+
+        StringBuilder all = new StringBuilder();
+        for (char[] set : requiredSets) {
+            all.append(set);
+        }
+        this.charset = all.toString().toCharArray();
+    }
+
+    /**
+     * 生成密码写入文件
+     *
+     * @return 写入的密码数量
+     */
+    public long generate(File output, long count, int threads) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), BLOCK_SIZE)) {
+            long written = generate(out, count, threads);
+            out.flush();
+            return written;
+        }
+    }
+
+    /**
+     * 生成密码写入输出流，每行一个
+     *
+     * @param threads 工作线程数，小于1时使用CPU核心数
+     * @return 写入的密码数量
+     */
+    public long generate(OutputStream out, long count, int threads) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        if (threads < 1) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        threads = (int) Math.max(1, Math.min(threads, count / 1024 + 1));
+
+        BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(threads * 2);
+        BlockingQueue<Block> fullBlocks = new ArrayBlockingQueue<>(threads * 2);
+        for (int i = 0; i < threads * 2; i++) {
+            freeBlocks.add(new Block());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                long share = count / threads + (i < count % threads ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    runWorker(share, freeBlocks, fullBlocks);
+                    return null;
+                }));
+            }
+
+            long passwords = 0;
+            int finished = 0;
+            while (finished < threads) {
+                Block block = fullBlocks.take();
+                if (block.error != null) {
+                    throw new IOException("密码生成失败", block.error);
+                }
+                if (block.last) {
+                    finished++;
+                }
+                out.write(block.data, 0, block.length);
+                passwords += block.count;
+                block.reset();
+                freeBlocks.put(block);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return passwords;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("密码生成被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("密码生成失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runWorker(long count, BlockingQueue<Block> freeBlocks, BlockingQueue<Block> fullBlocks)
+            throws InterruptedException {
+        Block block = freeBlocks.take();
+        try {
+            RandomSource random = new RandomSource(new SecureRandom());
+            char[] password = new char[maxLength];
+            for (long i = 0; i < count; i++) {
+                if (block.length + maxLength + 1 > block.data.length) {
+                    fullBlocks.put(block);
+                    block = freeBlocks.take();
+                }
+                int length = minLength + random.nextInt(maxLength - minLength + 1);
+                fill(password, length, random);
+                byte[] data = block.data;
+                int offset = block.length;
+                for (int j = 0; j < length; j++) {
+                    // 字符集全部是ASCII，直接写入字节
+                    data[offset + j] = (byte) password[j];
+                }
+                data[offset + length] = '\n';
+                block.length = offset + length + 1;
+                block.count++;
+            }
+        } catch (RuntimeException | Error e) {
+            // 不交出块的话调用线程会一直等待
+            block.reset();
+            block.error = e;
+            fullBlocks.put(block);
+            throw e;
+        }
+        block.last = true;
+        fullBlocks.put(block);
+    }
+
+    /**
+     * 生成一个密码写入 buffer 的前 length 个字符：每种选中类型至少一个字符，其余从全部字符中选取，最后洗牌
+     */
+    void fill(char[] buffer, int length, Random random) {
+        int pos = 0;
+        for (char[] set : requiredSets) {
+            if (pos == length) {
+                break;
+            }
+            buffer[pos++] = set[random.nextInt(set.length)];
+        }
+        while (pos < length) {
+            buffer[pos++] = charset[random.nextInt(charset.length)];
+        }
+        PasswordGenerator.shuffle(buffer, length, random);
+    }
+
+    private static class Block {
+        final byte[] data = new byte[BLOCK_SIZE];
+        int length;
+        long count;
+        boolean last;
+        Throwable error;
+
+        void reset() {
+            length = 0;
+            count = 0;
+            last = false;
+            error = null;
+        }
+    }
+
+    /**
+     * 批量读取 SecureRandom 的随机字节，按拒绝采样得到无偏的随机数
+     */
+    static class RandomSource extends Random {
+        private static final long serialVersionUID = 1L;
+
+        private final SecureRandom secureRandom;
+        private final byte[] buffer = new byte[RANDOM_BUFFER];
+        private int position = RANDOM_BUFFER;
+
+        RandomSource(SecureRandom secureRandom) {
+            this.secureRandom = secureRandom;
+        }
+
+        private int nextByte() {
+            if (position == buffer.length) {
+                secureRandom.nextBytes(buffer);
+                position = 0;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            if (bound <= 0) {
+                throw new IllegalArgumentException("bound must be positive");
+            }
+            if (bound <= 256) {
+                int limit = 256 - 256 % bound;
+                int value;
+                do {
+                    value = nextByte();
+                } while (value >= limit);
+                return value % bound;
+            }
+            int limit = Integer.MAX_VALUE - Integer.MAX_VALUE % bound;
+            int value;
+            do {
+                value = ((nextByte() << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte()) & Integer.MAX_VALUE;
+            } while (value >= limit);
+            return value % bound;
+        }
+
+        @Override
+        protected int next(int bits) {
+            int value = (nextByte() << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte();
+            return value >>> (32 - bits);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package wifi.pojie;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * 断点进度的存储格式：每个 SSID 一个 JSON 对象，键为字典指纹（{@link RunConfig#getFingerprintHex()}），
+ * 值为 {currentTryIndex, totalPasswords, lastUpdateTime}
+ * <p>
+ * 同一个 SSID 可以同时保存多个字典的进度，超过 {@link #MAX_CHECKPOINTS} 个时删除最久没有更新的。
+ * 恢复时只比较指纹和密码总数，不需要重新读取字典。
+ */
+public final class Checkpoints {
+    public static final int MAX_CHECKPOINTS = 8;
+
+    private Checkpoints() {
+    }
+
+    private static JSONObject parse(String json) {
+        if (json == null) {
+            return new JSONObject();
+        }
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * @return 该字典保存的下一个尝试序号；没有保存、密码总数不一致或序号超出范围时返回 -1
+     */
+    public static int find(String json, String fingerprint, int totalPasswords) {
+        JSONObject checkpoint = parse(json).optJSONObject(fingerprint);
+        if (checkpoint == null || checkpoint.optInt("totalPasswords", -1) != totalPasswords) {
+            return -1;
+        }
+        int index = checkpoint.optInt("currentTryIndex", -1);
+        return index >= 0 && index < totalPasswords ? index : -1;
+    }
+
+    /**
+     * 保存或更新该字典的进度
+     *
+     * @param json 现有记录，无法解析时视为空记录
+     * @return 更新后的记录
+     */
+    public static String put(String json, String fingerprint, int currentTryIndex, int totalPasswords, long now) {
+        JSONObject checkpoints = parse(json);
+        try {
+            JSONObject checkpoint = new JSONObject();
+            checkpoint.put("currentTryIndex", currentTryIndex);
+            checkpoint.put("totalPasswords", totalPasswords);
+            checkpoint.put("lastUpdateTime", now);
+            checkpoints.put(fingerprint, checkpoint);
+
+            while (checkpoints.length() > MAX_CHECKPOINTS) {
+                String oldest = null;
+                long oldestTime = Long.MAX_VALUE;
+                for (Iterator<String> keys = checkpoints.keys(); keys.hasNext(); ) {
+                    String key = keys.next();
+                    JSONObject value = checkpoints.optJSONObject(key);
+                    long time = value != null ? value.optLong("lastUpdateTime", 0) : 0;
+                    if (!key.equals(fingerprint) && time < oldestTime) {
+                        oldest = key;
+                        oldestTime = time;
+                    }
+                }
+                checkpoints.remove(oldest);
+            }
+        } catch (JSONException e) {
+            // key 非空、值为基本类型时不会抛出
+        }
+        return checkpoints.toString();
+    }
+
+    /**
+     * 删除该字典的进度
+     *
+     * @return 更新后的记录，没有剩余进度时返回 null
+     */
+    public static String remove(String json, String fingerprint) {
+        JSONObject checkpoints = parse(json);
+        checkpoints.remove(fingerprint);
+        return checkpoints.length() == 0 ? null : checkpoints.toString();
+    }
+}
@@ -0,0 +1,449 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按内容寻址的密码本分块存储
+ * <p>
+ * 密码本文件按内容切分为块（Gear 滚动哈希，块边界对齐到行尾），每个块以 SHA-256 命名只存一份，
+ * 密码本本身只保留一个清单文件（密码本路径 + .chunks），每行为"哈希 长度"。
+ * 相同或部分重叠的密码本共享块，重复导入几乎不占额外空间。
+ * <p>
+ * 密码本路径上存在普通文件时以普通文件为准（刚写入或刚合并过的内容），调用 {@link #storeBook} 后转为分块存储。
+ * 读取统一通过 {@link #openBook}，两种形式对调用方透明。
+ * 块的引用计数由所有清单统计得出。引用计数归零的块不立即删除，之前打开的读取流可能还在读取；
+ * {@link #gc()} 删除没有引用的块，但跳过本实例释放的块，这些块在下次进程启动后的维护中删除。
+ */
+public class ChunkStore {
+    public static final String MANIFEST_SUFFIX = ".chunks";
+    private static final String CHUNK_DIR = "chunks";
+
+    private static final int MIN_CHUNK = 16 * 1024;
+    private static final int MAX_CHUNK = 256 * 1024;
+    // 高16位为0时切分，平均块大小约 64KB
+    private static final long CUT_MASK = 0xFFFF000000000000L;
+    private static final int IO_BUFFER = 64 * 1024;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // 固定种子，保证不同设备、不同版本切分结果一致
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final File booksDir;
+    private final File chunkDir;
+    // 块哈希 -> 引用次数，首次使用时由所有清单统计
+    private Map<String, Integer> refCounts;
+    // 本实例中引用计数归零的块，可能仍有读取流在读取
+    private final Set<String> released = new HashSet<>();
+
+    public ChunkStore(File booksDir) {
+        this.booksDir = booksDir;
+        this.chunkDir = new File(booksDir, CHUNK_DIR);
+        if (!chunkDir.exists()) {
+            chunkDir.mkdirs();
+        }
+    }
+
+    /**
+     * 密码本是否存在（普通文件或分块存储）
+     */
+    public static boolean exists(File bookFile) {
+        return bookFile.exists() || manifestOf(bookFile).exists();
+    }
+
+    /**
+     * 打开密码本内容，普通文件和分块存储的读取结果完全相同
+     */
+    public static InputStream openBook(File bookFile) throws IOException {
+        if (bookFile.exists()) {
+            return new FileInputStream(bookFile);
+        }
+        File manifest = manifestOf(bookFile);
+        if (!manifest.exists()) {
+            throw new FileNotFoundException(bookFile.getPath());
+        }
+        return new ChunkedInputStream(new File(bookFile.getParentFile(), CHUNK_DIR), readManifest(manifest));
+    }
+
+    /**
+     * 密码本内容的版本：内容长度和最后修改时间。转为分块存储不改变版本，内容被改写后版本不同
+     *
+     * @return 密码本不存在时返回 null
+     */
+    public static String getVersion(File bookFile) throws IOException {
+        if (bookFile.exists()) {
+            return bookFile.length() + ":" + bookFile.lastModified();
+        }
+        File manifest = manifestOf(bookFile);
+        if (!manifest.exists()) {
+            return null;
+        }
+        long length = 0;
+        for (ChunkRef ref : readManifest(manifest)) {
+            length += ref.length;
+        }
+        return length + ":" + manifest.lastModified();
+    }
+
+    /**
+     * 把密码本普通文件切分存入块存储，写入清单后删除普通文件，释放旧清单引用的块
+     * <p>
+     * 调用方需保证切分期间没有其他线程改写该密码本文件
+     *
+     * @return 新写入的块字节数，普通文件不存在时返回-1
+     */
+    public synchronized long storeBook(File bookFile) throws IOException {
+        if (!bookFile.exists()) {
+            return -1;
+        }
+        loadRefCounts();
+        long lastModified = bookFile.lastModified();
+        List<ChunkRef> chunks = new ArrayList<>();
+        long written = 0;
+        MessageDigest digest = newDigest();
+        byte[] chunk = new byte[MAX_CHUNK];
+        int chunkLength = 0;
+        long hash = 0;
+        boolean cutPending = false;
+
+        try (InputStream in = new FileInputStream(bookFile)) {
+            byte[] buffer = new byte[IO_BUFFER];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    byte b = buffer[i];
+                    chunk[chunkLength++] = b;
+                    hash = (hash << 1) + GEAR[b & 0xFF];
+                    if (chunkLength >= MIN_CHUNK && (hash & CUT_MASK) == 0) {
+                        cutPending = true;
+                    }
+                    // 满足切分条件后在下一个行尾切分；超过最大长度时强制切分
+                    if ((cutPending && b == '\n') || chunkLength == MAX_CHUNK) {
+                        written += writeChunk(digest, chunk, chunkLength, chunks);
+                        chunkLength = 0;
+                        hash = 0;
+                        cutPending = false;
+                    }
+                }
+            }
+        }
+        if (chunkLength > 0) {
+            written += writeChunk(digest, chunk, chunkLength, chunks);
+        }
+
+        File manifest = manifestOf(bookFile);
+        List<ChunkRef> previous = manifest.exists() ? readManifest(manifest) : new ArrayList<>();
+        File tmp = new File(manifest.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            for (ChunkRef ref : chunks) {
+                writer.write(ref.hash);
+                writer.write(' ');
+                writer.write(Integer.toString(ref.length));
+                writer.write('\n');
+            }
+            writer.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(manifest) && !(manifest.delete() && tmp.renameTo(manifest))) {
+            tmp.delete();
+            throw new IOException("无法写入密码本清单: " + manifest);
+        }
+        for (ChunkRef ref : chunks) {
+            refCounts.merge(ref.hash, 1, Integer::sum);
+        }
+        // 清单沿用普通文件的修改时间，内容没变，版本也不变
+        manifest.setLastModified(lastModified);
+        bookFile.delete();
+        release(previous);
+        return written;
+    }
+
+    /**
+     * 删除密码本（普通文件和清单），释放引用的块
+     */
+    public synchronized void deleteBook(File bookFile) throws IOException {
+        bookFile.delete();
+        File manifest = manifestOf(bookFile);
+        if (!manifest.exists()) {
+            return;
+        }
+        loadRefCounts();
+        List<ChunkRef> chunks = readManifest(manifest);
+        manifest.delete();
+        release(chunks);
+    }
+
+    /**
+     * 删除没有任何清单引用、也不是本实例释放的块
+     *
+     * @return 删除的块数量
+     */
+    public synchronized int gc() throws IOException {
+        refCounts = null;
+        loadRefCounts();
+        int removed = 0;
+        File[] dirs = chunkDir.listFiles();
+        if (dirs == null) {
+            return 0;
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (!refCounts.containsKey(name) && !released.contains(name) && file.delete()) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 块存储实际占用的字节数
+     */
+    public long getStoredBytes() {
+        long total = 0;
+        File[] dirs = chunkDir.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        total += file.length();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private long writeChunk(MessageDigest digest, byte[] data, int length, List<ChunkRef> chunks) throws IOException {
+        digest.reset();
+        digest.update(data, 0, length);
+        String hash = toHex(digest.digest());
+        chunks.add(new ChunkRef(hash, length));
+
+        File file = chunkFile(chunkDir, hash);
+        if (file.exists() && file.length() == length) {
+            return 0;
+        }
+        File dir = file.getParentFile();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File tmp = new File(dir, hash + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(data, 0, length);
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            tmp.delete();
+            throw new IOException("无法写入块: " + file);
+        }
+        return length;
+    }
+
+    /**
+     * 减少块的引用计数，块文件留给 {@link #gc()} 删除
+     */
+    private void release(List<ChunkRef> chunks) {
+        for (ChunkRef ref : chunks) {
+            Integer count = refCounts.get(ref.hash);
+            if (count == null || count <= 1) {
+                refCounts.remove(ref.hash);
+                released.add(ref.hash);
+            } else {
+                refCounts.put(ref.hash, count - 1);
+            }
+        }
+    }
+
+    private void loadRefCounts() throws IOException {
+        if (refCounts != null) {
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        File[] files = booksDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(MANIFEST_SUFFIX)) {
+                    for (ChunkRef ref : readManifest(file)) {
+                        counts.merge(ref.hash, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        refCounts = counts;
+    }
+
+    private static File manifestOf(File bookFile) {
+        return new File(bookFile.getPath() + MANIFEST_SUFFIX);
+    }
+
+    private static File chunkFile(File chunkDir, String hash) {
+        return new File(new File(chunkDir, hash.substring(0, 2)), hash);
+    }
+
+    private static List<ChunkRef> readManifest(File manifest) throws IOException {
+        List<ChunkRef> chunks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    continue;
+                }
+                try {
+                    chunks.add(new ChunkRef(line.substring(0, space), Integer.parseInt(line.substring(space + 1))));
+                } catch (NumberFormatException e) {
+                    throw new IOException("密码本清单已损坏: " + manifest, e);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    private static class ChunkRef {
+        final String hash;
+        final int length;
+
+        ChunkRef(String hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 依次读取清单中的块，skip 时整块跳过不读取内容
+     */
+    private static class ChunkedInputStream extends InputStream {
+        private final File chunkDir;
+        private final List<ChunkRef> chunks;
+        private int index = 0;
+        private InputStream current;
+        private long remainingInChunk = 0;
+
+        ChunkedInputStream(File chunkDir, List<ChunkRef> chunks) {
+            this.chunkDir = chunkDir;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (remainingInChunk == 0) {
+                if (!nextChunk()) {
+                    return -1;
+                }
+            }
+            int n = current.read(b, off, (int) Math.min(len, remainingInChunk));
+            if (n == -1) {
+                throw new IOException("块文件长度与清单不一致");
+            }
+            remainingInChunk -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (remainingInChunk == 0) {
+                    // 整块跳过
+                    while (index < chunks.size() && chunks.get(index).length <= n - skipped) {
+                        skipped += chunks.get(index).length;
+                        index++;
+                    }
+                    if (skipped == n || !nextChunk()) {
+                        break;
+                    }
+                }
+                long s = current.skip(Math.min(n - skipped, remainingInChunk));
+                if (s <= 0) {
+                    throw new IOException("块文件长度与清单不一致");
+                }
+                remainingInChunk -= s;
+                skipped += s;
+            }
+            return skipped;
+        }
+
+        private boolean nextChunk() throws IOException {
+            closeCurrent();
+            if (index >= chunks.size()) {
+                return false;
+            }
+            ChunkRef ref = chunks.get(index++);
+            current = new FileInputStream(chunkFile(chunkDir, ref.hash));
+            remainingInChunk = ref.length;
+            return true;
+        }
+
+        private void closeCurrent() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeCurrent();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按表头解析 cmd 命令输出的表格
+ * <p>
+ * 表头中以两个以上空格分隔的文字作为列名，列的顺序和有哪些列都从表头得到，不依赖固定的字符位置。
+ * 不同系统版本的列宽不同，数据也不一定与表头对齐（中文 SSID 会让后面的列整体错位），
+ * 所以每行按空白切分：自由文本列（如 SSID，可能包含空格）左边的列从左往右取，右边的列从右往左取，剩下的就是自由文本列。
+ * 带括号的值（如 "-50(0:-52/1: -9)"）即使括号内有空格也作为一个值。
+ * <p>
+ * 逐行解析时只记录每列在原文中的起止位置，数字直接从原文解析，只有调用 {@link #getString} 时才创建字符串。
+ */
+public final class CmdTable {
+    private final String text;
+    private final String[] columns;
+    private final int freeColumn;
+    private final int[] starts;
+    private final int[] ends;
+    private int position;
+
+    private CmdTable(String text, String[] columns, int freeColumn, int position) {
+        this.text = text;
+        this.columns = columns;
+        this.freeColumn = freeColumn;
+        this.starts = new int[columns.length];
+        this.ends = new int[columns.length];
+        this.position = position;
+    }
+
+    /**
+     * 找到包含 freeColumn 列的第一行作为表头，之前的行（如 su 的提示信息）忽略
+     *
+     * @param output     命令输出
+     * @param freeColumn 可能包含空格的列名，不区分大小写
+     * @return 没有找到表头时返回没有数据行的表
+     */
+    public static CmdTable parse(String output, String freeColumn) {
+        if (output == null) {
+            output = "";
+        }
+        int lineStart = 0;
+        int length = output.length();
+        while (lineStart < length) {
+            int lineEnd = lineEnd(output, lineStart);
+            String[] columns = headerColumns(output, lineStart, trimEnd(output, lineStart, lineEnd));
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(freeColumn)) {
+                    return new CmdTable(output, columns, i, nextLine(output, lineEnd));
+                }
+            }
+            lineStart = nextLine(output, lineEnd);
+        }
+        return new CmdTable(output, new String[0], -1, length);
+    }
+
+    /**
+     * 列的序号，不区分大小写，没有这一列时返回-1
+     */
+    public int indexOf(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * 移动到下一个有效的数据行，列数不够的行（如 "No scan results"）跳过
+     *
+     * @return 没有更多数据行时返回 false
+     */
+    public boolean next() {
+        int length = text.length();
+        while (position < length) {
+            int lineStart = position;
+            int lineEnd = lineEnd(text, lineStart);
+            position = nextLine(text, lineEnd);
+            if (splitRow(lineStart, trimEnd(text, lineStart, lineEnd))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前行某一列的文字，列不存在时返回空字符串
+     */
+    public String getString(int column) {
+        if (column < 0 || column >= columns.length) {
+            return "";
+        }
+        return text.substring(starts[column], ends[column]);
+    }
+
+    /**
+     * 当前行某一列开头的整数（"-50(0:-52)" 得到 -50），列不存在或不是数字时返回 defaultValue
+     */
+    public int getInt(int column, int defaultValue) {
+        if (column < 0 || column >= columns.length) {
+            return defaultValue;
+        }
+        int i = starts[column];
+        int end = ends[column];
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i >= end || !isDigit(text.charAt(i))) {
+            return defaultValue;
+        }
+        long value = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            value = value * 10 + (text.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return defaultValue;
+            }
+            i++;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * 当前行某一列是否等于给定的文字，不创建字符串
+     */
+    public boolean equals(int column, String value) {
+        if (column < 0 || column >= columns.length) {
+            return false;
+        }
+        int length = ends[column] - starts[column];
+        return length == value.length() && text.regionMatches(starts[column], value, 0, length);
+    }
+
+    private boolean splitRow(int lineStart, int lineEnd) {
+        int left = lineStart;
+        for (int c = 0; c < freeColumn; c++) {
+            left = skipSpaces(left, lineEnd);
+            if (left >= lineEnd) {
+                return false;
+            }
+            starts[c] = left;
+            left = tokenEnd(left, lineEnd);
+            ends[c] = left;
+        }
+        int right = lineEnd;
+        for (int c = columns.length - 1; c > freeColumn; c--) {
+            while (right > left && text.charAt(right - 1) == ' ') {
+                right--;
+            }
+            if (right <= left) {
+                return false;
+            }
+            ends[c] = right;
+            right = tokenStart(left, right);
+            starts[c] = right;
+        }
+        int freeStart = skipSpaces(left, right);
+        int freeEnd = right;
+        while (freeEnd > freeStart && text.charAt(freeEnd - 1) == ' ') {
+            freeEnd--;
+        }
+        starts[freeColumn] = freeStart;
+        ends[freeColumn] = freeEnd;
+        return true;
+    }
+
+    private int tokenEnd(int i, int end) {
+        int depth = 0;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && depth > 0) {
+                depth--;
+            } else if (c == ' ' && depth == 0) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int tokenStart(int start, int i) {
+        int depth = 0;
+        while (i > start) {
+            char c = text.charAt(i - 1);
+            if (c == ')') {
+                depth++;
+            } else if (c == '(' && depth > 0) {
+                depth--;
+            } else if (c == ' ' && depth == 0) {
+                break;
+            }
+            i--;
+        }
+        return i;
+    }
+
+    private int skipSpaces(int i, int end) {
+        while (i < end && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static String[] headerColumns(String text, int start, int end) {
+        List<String> columns = new ArrayList<>();
+        int i = start;
+        while (i < end) {
+            while (i < end && text.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= end) {
+                break;
+            }
+            int columnStart = i;
+            // 列名内部可以有单个空格，如 "Network Id"
+            while (i < end && !(text.charAt(i) == ' ' && (i + 1 >= end || text.charAt(i + 1) == ' '))) {
+                i++;
+            }
+            columns.add(text.substring(columnStart, i));
+        }
+        return columns.toArray(new String[0]);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lineEnd(String text, int start) {
+        int end = text.indexOf('\n', start);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static int nextLine(String text, int lineEnd) {
+        return Math.min(lineEnd + 1, text.length());
+    }
+
+    private static int trimEnd(String text, int start, int end) {
+        while (end > start && (text.charAt(end - 1) == '\r' || text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,111 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析 cmd wifi list-networks 和 cmd wifi list-scan-results 的输出
+ */
+public final class CmdWifiParser {
+    private CmdWifiParser() {
+    }
+
+    /**
+     * 解析 cmd wifi list-networks 的输出，网络 ID 不是数字的行忽略
+     */
+    public static List<SavedNetwork> parseNetworks(String output) {
+        CmdTable table = CmdTable.parse(output, "SSID");
+        int idColumn = table.indexOf("Network Id");
+        int ssidColumn = table.indexOf("SSID");
+        int securityColumn = table.indexOf("Security type");
+        List<SavedNetwork> networks = new ArrayList<>();
+        while (table.next()) {
+            int networkId = table.getInt(idColumn, -1);
+            if (networkId < 0) {
+                continue;
+            }
+            networks.add(new SavedNetwork(networkId, table.getString(ssidColumn), table.getString(securityColumn)));
+        }
+        return networks;
+    }
+
+    /**
+     * 在 cmd wifi list-networks 的输出中查找网络 ID，只为匹配的行创建字符串
+     *
+     * @return 没有找到时返回-1
+     */
+    public static int findNetworkId(String output, String ssid) {
+        CmdTable table = CmdTable.parse(output, "SSID");
+        int idColumn = table.indexOf("Network Id");
+        int ssidColumn = table.indexOf("SSID");
+        while (table.next()) {
+            if (table.equals(ssidColumn, ssid)) {
+                int networkId = table.getInt(idColumn, -1);
+                if (networkId >= 0) {
+                    return networkId;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解析 cmd wifi list-scan-results 的输出，BSSID 或信号强度无效的行忽略
+     */
+    public static List<ScanRecord> parseScanResults(String output) {
+        CmdTable table = CmdTable.parse(output, "SSID");
+        int bssidColumn = table.indexOf("BSSID");
+        int frequencyColumn = table.indexOf("Frequency");
+        int rssiColumn = table.indexOf("RSSI");
+        int ssidColumn = table.indexOf("SSID");
+        int flagsColumn = table.indexOf("Flags");
+        List<ScanRecord> records = new ArrayList<>();
+        while (table.next()) {
+            int rssi = table.getInt(rssiColumn, Integer.MIN_VALUE);
+            String bssid = table.getString(bssidColumn);
+            if (rssi == Integer.MIN_VALUE || (bssidColumn >= 0 && bssid.length() != 17)) {
+                continue;
+            }
+            records.add(new ScanRecord(bssid, table.getInt(frequencyColumn, 0), rssi,
+                    table.getString(ssidColumn), table.getString(flagsColumn)));
+        }
+        return records;
+    }
+
+    /**
+     * 已保存的网络
+     */
+    public static class SavedNetwork {
+        public final int networkId;
+        public final String ssid;
+        public final String securityType;
+
+        public SavedNetwork(int networkId, String ssid, String securityType) {
+            this.networkId = networkId;
+            this.ssid = ssid;
+            this.securityType = securityType;
+        }
+    }
+
+    /**
+     * 一条扫描结果
+     */
+    public static class ScanRecord {
+        public final String bssid;
+        public final int frequency;
+        public final int rssi;
+        public final String ssid;
+        /**
+         * 能力标志，如 "[WPA2-PSK-CCMP][ESS]"
+         */
+        public final String flags;
+
+        public ScanRecord(String bssid, int frequency, int rssi, String ssid, String flags) {
+            this.bssid = bssid;
+            this.frequency = frequency;
+            this.rssi = rssi;
+            this.ssid = ssid;
+            this.flags = flags;
+        }
+    }
+}
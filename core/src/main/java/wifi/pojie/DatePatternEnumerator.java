@@ -0,0 +1,497 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按日期格式和数字模板枚举候选密码的虚拟字典
+ * <p>
+ * 格式中 yyyy/yy 表示年，MM/M 表示月，dd/d 表示日（两位的形式补零），# 表示任意一位数字，其他字符为字面量。
+ * 单引号内的字符都是字面量，两个单引号表示单引号本身，例如 'Mom'MMdd。
+ * 例如 yyyyMMdd、ddMMyyyy、yyMMdd、MMdd####、138########。
+ * <p>
+ * 每个格式只枚举范围内日期在格式字段上的不同取值，同一个候选密码不会重复出现：
+ * 含 yyyy 的格式按日序数（距1970-01-01的天数）直接换算为年月日，没有日时按月枚举，没有月和日时按年枚举；
+ * 不含 yyyy 的格式（例如 MMdd、yyMMdd）在不同年份会得到相同的取值，构造时先扫描范围得出不同取值的列表；
+ * 含不补零的 M/d 时不同日期可能得到相同的文本（1月11日和11月1日都是 111），列表再按日期部分的文本去重。
+ * 不含日期字段时只枚举数字。无效日期（例如2月30日）不会出现。
+ * 每个格式的数量 = 不同取值数量 × 10^(#的个数)，总数为各格式之和，按序号直接计算出对应的密码。
+ */
+public class DatePatternEnumerator implements DictionarySource {
+    private static final int TOKEN_YEAR4 = 0;
+    private static final int TOKEN_YEAR2 = 1;
+    private static final int TOKEN_MONTH2 = 2;
+    private static final int TOKEN_MONTH = 3;
+    private static final int TOKEN_DAY2 = 4;
+    private static final int TOKEN_DAY = 5;
+    private static final int TOKEN_DIGIT = 6;
+    private static final int TOKEN_LITERAL = 7;
+
+    private static final int UNIT_NONE = 0;
+    private static final int UNIT_YEAR = 1;
+    private static final int UNIT_MONTH = 2;
+    private static final int UNIT_DAY = 3;
+
+    // 不同取值列表中每个取值编码为 (年序号 * 13 + 月) * 32 + 日，没有的字段为0
+    private static final int KEY_MONTHS = 13;
+    private static final int KEY_DAYS = 32;
+    // 按文本去重时最多的取值数量，约2800年的日期
+    private static final int MAX_TEXT_KEYS = 1 << 20;
+
+    private final int startYear;
+    private final int startMonth;
+    private final int startDay;
+    private final long startEpochDay;
+    private final long days;
+    private final long months;
+    private final long years;
+    private final Format[] formats;
+    // 各格式序号区间的起点
+    private final long[] offsets;
+    private final long size;
+
+    /**
+     * @param startDate 起始日期，例如 19700101
+     * @param endDate   结束日期（包含），例如 20251231
+     * @param formats   日期格式或数字模板
+     */
+    public DatePatternEnumerator(int startDate, int endDate, List<String> formats) {
+        this.startYear = startDate / 10000;
+        this.startMonth = startDate / 100 % 100;
+        this.startDay = startDate % 100;
+        int endYear = endDate / 10000;
+        int endMonth = endDate / 100 % 100;
+        int endDay = endDate % 100;
+        if (!isValidDate(startYear, startMonth, startDay) || !isValidDate(endYear, endMonth, endDay)) {
+            throw new IllegalArgumentException("日期无效");
+        }
+        this.startEpochDay = toEpochDay(startYear, startMonth, startDay);
+        long endEpochDay = toEpochDay(endYear, endMonth, endDay);
+        if (endEpochDay < startEpochDay) {
+            throw new IllegalArgumentException("结束日期早于起始日期");
+        }
+        this.days = endEpochDay - startEpochDay + 1;
+        this.months = (endYear * 12L + endMonth) - (startYear * 12L + startMonth) + 1;
+        this.years = endYear - startYear + 1;
+
+        if (formats.isEmpty()) {
+            throw new IllegalArgumentException("没有任何格式");
+        }
+        this.formats = new Format[formats.size()];
+        this.offsets = new long[formats.size()];
+        long total = 0;
+        for (int i = 0; i < formats.size(); i++) {
+            Format format = new Format(formats.get(i));
+            this.formats[i] = format;
+            offsets[i] = total;
+            long dates;
+            if (!format.isInjective() || format.hasUnpadded) {
+                format.keys = distinctKeys(format, endYear, endMonth, endDay);
+                if (format.hasUnpadded) {
+                    format.keys = distinctTexts(format, format.keys);
+                }
+                dates = format.keys.length;
+            } else {
+                switch (format.unit) {
+                    case UNIT_DAY:
+                        dates = days;
+                        break;
+                    case UNIT_MONTH:
+                        dates = months;
+                        break;
+                    case UNIT_YEAR:
+                        dates = years;
+                        break;
+                    default:
+                        dates = 1;
+                }
+            }
+            format.size = multiply(dates, format.digitSpace);
+            try {
+                total = Math.addExact(total, format.size);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("候选空间过大");
+            }
+        }
+        this.size = total;
+    }
+
+    /**
+     * 解析 "起始日期-结束日期:格式1,格式2" 形式的描述，例如 "19800101-20251231:yyyyMMdd,ddMMyyyy,yyMMdd"
+     */
+    public static DatePatternEnumerator parse(String spec) {
+        int colon = spec.indexOf(':');
+        int dash = spec.indexOf('-');
+        if (colon < 0 || dash < 0 || dash > colon) {
+            throw new IllegalArgumentException("格式应为 起始日期-结束日期:格式1,格式2");
+        }
+        int start;
+        int end;
+        try {
+            start = Integer.parseInt(spec.substring(0, dash).trim());
+            end = Integer.parseInt(spec.substring(dash + 1, colon).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("日期应为8位数字，例如 20000101");
+        }
+        List<String> formats = new ArrayList<>();
+        for (String format : spec.substring(colon + 1).split(",")) {
+            if (!format.trim().isEmpty()) {
+                formats.add(format.trim());
+            }
+        }
+        return new DatePatternEnumerator(start, end, formats);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("序号超出范围: " + index);
+        }
+        int f = Arrays.binarySearch(offsets, index);
+        if (f < 0) {
+            f = -f - 2;
+        }
+        // 多个格式数量为0时 offsets 中有重复值，取最后一个
+        while (f + 1 < offsets.length && offsets[f + 1] <= index) {
+            f++;
+        }
+        Format format = formats[f];
+        long local = index - offsets[f];
+        long dateIndex = local / format.digitSpace;
+        long digits = local % format.digitSpace;
+
+        int year;
+        int month;
+        int day;
+        if (format.keys != null) {
+            return formatKey(format, format.keys[(int) dateIndex], digits);
+        }
+        switch (format.unit) {
+            case UNIT_DAY: {
+                int[] date = fromEpochDay(startEpochDay + dateIndex);
+                year = date[0];
+                month = date[1];
+                day = date[2];
+                break;
+            }
+            case UNIT_MONTH: {
+                long monthIndex = startYear * 12L + (startMonth - 1) + dateIndex;
+                year = (int) (monthIndex / 12);
+                month = (int) (monthIndex % 12) + 1;
+                day = 1;
+                break;
+            }
+            case UNIT_YEAR:
+                year = (int) (startYear + dateIndex);
+                month = 1;
+                day = 1;
+                break;
+            default:
+                year = startYear;
+                month = startMonth;
+                day = startDay;
+        }
+        return format.format(year, month, day, digits);
+    }
+
+    /**
+     * 扫描日期范围，得出格式字段上所有不同的取值，按年、月、日排序
+     */
+    private int[] distinctKeys(Format format, int endYear, int endMonth, int endDay) {
+        int yearKeys = format.hasYear4 ? endYear - startYear + 1 : format.hasYear2 ? 100 : 1;
+        boolean[] seen = new boolean[yearKeys * KEY_MONTHS * KEY_DAYS];
+        int count = 0;
+        for (int year = startYear; year <= endYear; year++) {
+            int yearKey = format.hasYear4 ? year - startYear : format.hasYear2 ? year % 100 : 0;
+            int firstMonth = year == startYear ? startMonth : 1;
+            int lastMonth = year == endYear ? endMonth : 12;
+            if (!format.hasMonth && !format.hasDay) {
+                firstMonth = lastMonth;
+            }
+            for (int month = firstMonth; month <= lastMonth; month++) {
+                int monthKey = format.hasMonth ? month : 0;
+                int firstDay = year == startYear && month == startMonth ? startDay : 1;
+                int lastDay = year == endYear && month == endMonth ? endDay : daysInMonth(year, month);
+                if (!format.hasDay) {
+                    firstDay = lastDay;
+                }
+                for (int day = firstDay; day <= lastDay; day++) {
+                    int key = (yearKey * KEY_MONTHS + monthKey) * KEY_DAYS + (format.hasDay ? day : 0);
+                    if (!seen[key]) {
+                        seen[key] = true;
+                        count++;
+                    }
+                }
+            }
+        }
+        int[] keys = new int[count];
+        int n = 0;
+        for (int key = 0; key < seen.length; key++) {
+            if (seen[key]) {
+                keys[n++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 去掉日期部分文本相同的取值，保留第一个
+     */
+    private int[] distinctTexts(Format format, int[] keys) {
+        if (keys.length > MAX_TEXT_KEYS) {
+            throw new IllegalArgumentException("含不补零的 M 或 d 时日期范围过大");
+        }
+        Set<String> texts = new HashSet<>(keys.length * 2);
+        int[] result = new int[keys.length];
+        int count = 0;
+        for (int key : keys) {
+            if (texts.add(formatKey(format, key, 0))) {
+                result[count++] = key;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private String formatKey(Format format, int key, long digits) {
+        int yearKey = key / (KEY_MONTHS * KEY_DAYS);
+        int year = format.hasYear4 ? startYear + yearKey : yearKey;
+        return format.format(year, key / KEY_DAYS % KEY_MONTHS, key % KEY_DAYS, digits);
+    }
+
+    /**
+     * 按格式格式化日期，格式中的 # 填0
+     */
+    public static String formatDate(String format, int year, int month, int day) {
+        return new Format(format).format(year, month, day, 0);
+    }
+
+    private static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("候选空间过大");
+        }
+    }
+
+    static boolean isValidDate(int year, int month, int day) {
+        return year >= 1 && year <= 9999 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 公历日期转换为距1970-01-01的天数
+     */
+    static long toEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * 距1970-01-01的天数转换为公历日期 {年, 月, 日}
+     */
+    static int[] fromEpochDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * 编译后的格式
+     */
+    private static class Format {
+        final int[] tokens;
+        final char[] literals;
+        final int unit;
+        final boolean hasYear4;
+        final boolean hasYear2;
+        final boolean hasMonth;
+        final boolean hasDay;
+        // 含不补零的 M 或 d
+        final boolean hasUnpadded;
+        final int digitCount;
+        final long digitSpace;
+        long size;
+        // 不同取值列表，按日序数直接计算时为 null
+        int[] keys;
+
+        Format(String pattern) {
+            List<Integer> tokenList = new ArrayList<>();
+            StringBuilder literalList = new StringBuilder();
+            int unit = UNIT_NONE;
+            int digitCount = 0;
+            int i = 0;
+            while (i < pattern.length()) {
+                char c = pattern.charAt(i);
+                if (c == '\'') {
+                    i = readQuoted(pattern, i, tokenList, literalList);
+                } else if (pattern.startsWith("yyyy", i)) {
+                    tokenList.add(TOKEN_YEAR4);
+                    unit = Math.max(unit, UNIT_YEAR);
+                    i += 4;
+                } else if (pattern.startsWith("yy", i)) {
+                    tokenList.add(TOKEN_YEAR2);
+                    unit = Math.max(unit, UNIT_YEAR);
+                    i += 2;
+                } else if (pattern.startsWith("MM", i)) {
+                    tokenList.add(TOKEN_MONTH2);
+                    unit = Math.max(unit, UNIT_MONTH);
+                    i += 2;
+                } else if (c == 'M') {
+                    tokenList.add(TOKEN_MONTH);
+                    unit = Math.max(unit, UNIT_MONTH);
+                    i++;
+                } else if (pattern.startsWith("dd", i)) {
+                    tokenList.add(TOKEN_DAY2);
+                    unit = UNIT_DAY;
+                    i += 2;
+                } else if (c == 'd') {
+                    tokenList.add(TOKEN_DAY);
+                    unit = UNIT_DAY;
+                    i++;
+                } else if (c == '#') {
+                    tokenList.add(TOKEN_DIGIT);
+                    digitCount++;
+                    i++;
+                } else {
+                    tokenList.add(TOKEN_LITERAL);
+                    literalList.append(c);
+                    i++;
+                }
+            }
+            if (tokenList.isEmpty()) {
+                throw new IllegalArgumentException("格式为空");
+            }
+            if (digitCount > 18) {
+                throw new IllegalArgumentException("数字位数过多: " + pattern);
+            }
+            this.tokens = new int[tokenList.size()];
+            for (int k = 0; k < tokens.length; k++) {
+                tokens[k] = tokenList.get(k);
+            }
+            this.literals = literalList.toString().toCharArray();
+            this.unit = unit;
+            this.hasYear4 = tokenList.contains(TOKEN_YEAR4);
+            this.hasYear2 = tokenList.contains(TOKEN_YEAR2);
+            this.hasMonth = tokenList.contains(TOKEN_MONTH2) || tokenList.contains(TOKEN_MONTH);
+            this.hasDay = tokenList.contains(TOKEN_DAY2) || tokenList.contains(TOKEN_DAY);
+            this.hasUnpadded = tokenList.contains(TOKEN_MONTH) || tokenList.contains(TOKEN_DAY);
+            this.digitCount = digitCount;
+            long space = 1;
+            for (int k = 0; k < digitCount; k++) {
+                space *= 10;
+            }
+            this.digitSpace = space;
+        }
+
+        /**
+         * 范围内不同的日期（或月、年）得到不同的取值，可以按日序数直接计算
+         */
+        boolean isInjective() {
+            return unit == UNIT_NONE || (hasYear4 && (hasMonth || !hasDay));
+        }
+
+        /**
+         * 读取从 start 开始的引号部分，返回引号结束后的位置
+         */
+        private static int readQuoted(String pattern, int start, List<Integer> tokenList, StringBuilder literalList) {
+            int i = start + 1;
+            if (i < pattern.length() && pattern.charAt(i) == '\'') {
+                // '' 表示单引号
+                tokenList.add(TOKEN_LITERAL);
+                literalList.append('\'');
+                return i + 1;
+            }
+            while (i < pattern.length()) {
+                char c = pattern.charAt(i++);
+                if (c != '\'') {
+                    tokenList.add(TOKEN_LITERAL);
+                    literalList.append(c);
+                } else if (i < pattern.length() && pattern.charAt(i) == '\'') {
+                    tokenList.add(TOKEN_LITERAL);
+                    literalList.append('\'');
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("引号没有闭合: " + pattern);
+        }
+
+        String format(int year, int month, int day, long digits) {
+            StringBuilder sb = new StringBuilder(tokens.length + 8);
+            int literal = 0;
+            // # 从左到右对应数字的高位到低位
+            long divisor = digitSpace / 10;
+            for (int token : tokens) {
+                switch (token) {
+                    case TOKEN_YEAR4:
+                        appendPadded(sb, year, 4);
+                        break;
+                    case TOKEN_YEAR2:
+                        appendPadded(sb, year % 100, 2);
+                        break;
+                    case TOKEN_MONTH2:
+                        appendPadded(sb, month, 2);
+                        break;
+                    case TOKEN_MONTH:
+                        sb.append(month);
+                        break;
+                    case TOKEN_DAY2:
+                        appendPadded(sb, day, 2);
+                        break;
+                    case TOKEN_DAY:
+                        sb.append(day);
+                        break;
+                    case TOKEN_DIGIT:
+                        sb.append((char) ('0' + digits / divisor % 10));
+                        divisor /= 10;
+                        break;
+                    default:
+                        sb.append(literals[literal++]);
+                }
+            }
+            return sb.toString();
+        }
+
+        private static void appendPadded(StringBuilder sb, int value, int width) {
+            String s = Integer.toString(value);
+            for (int k = s.length(); k < width; k++) {
+                sb.append('0');
+            }
+            sb.append(s);
+        }
+    }
+}
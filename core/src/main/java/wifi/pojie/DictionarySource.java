@@ -0,0 +1,33 @@
+package wifi.pojie;
+
+/**
+ * 可按序号随机访问的字典，破解过程只通过序号读取密码，因此可以是普通列表，也可以是按需计算的虚拟字典
+ */
+public interface DictionarySource {
+    /**
+     * 字典中的密码总数
+     */
+    long size();
+
+    /**
+     * 读取第 index 个密码（从0开始）
+     */
+    String get(long index);
+
+    /**
+     * 包装普通的密码数组
+     */
+    static DictionarySource of(String[] passwords) {
+        return new DictionarySource() {
+            @Override
+            public long size() {
+                return passwords.length;
+            }
+
+            @Override
+            public String get(long index) {
+                return passwords[(int) index];
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package wifi.pojie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 破解引擎使用的工作模式设置，启动时由 app 模块的 SettingsManager.getEngineSettings() 读取一次，运行期间不再查询设置
+ * <p>
+ * 各模式的取值与工作模式页面的选项一致，*Cmd 为执行命令的方式（0:root 1:Shizuku）。
+ */
+public final class EngineSettings {
+    private static final int VERSION = 2;
+
+    public final int readMode;
+    public final int readModeCmd;
+    public final int turnonMode;
+    public final int turnonModeCmd;
+    public final int connectMode;
+    public final int connectModeCmd;
+    public final int manageMode;
+    public final int manageModeCmd;
+    public final boolean showNotification;
+    /**
+     * 录制事件轨迹，见 {@link EventTrace}
+     */
+    public final boolean recordTrace;
+
+    public EngineSettings(int readMode, int readModeCmd, int turnonMode, int turnonModeCmd,
+                          int connectMode, int connectModeCmd, int manageMode, int manageModeCmd,
+                          boolean showNotification, boolean recordTrace) {
+        this.readMode = readMode;
+        this.readModeCmd = readModeCmd;
+        this.turnonMode = turnonMode;
+        this.turnonModeCmd = turnonModeCmd;
+        this.connectMode = connectMode;
+        this.connectModeCmd = connectModeCmd;
+        this.manageMode = manageMode;
+        this.manageModeCmd = manageModeCmd;
+        this.showNotification = showNotification;
+        this.recordTrace = recordTrace;
+    }
+
+    /**
+     * 序列化为字节数组，用于通过 Intent 传给服务
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(readMode);
+            out.writeByte(readModeCmd);
+            out.writeByte(turnonMode);
+            out.writeByte(turnonModeCmd);
+            out.writeByte(connectMode);
+            out.writeByte(connectModeCmd);
+            out.writeByte(manageMode);
+            out.writeByte(manageModeCmd);
+            out.writeBoolean(showNotification);
+            out.writeBoolean(recordTrace);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static EngineSettings fromBytes(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("不支持的设置版本: " + version);
+            }
+            return new EngineSettings(in.readByte(), in.readByte(), in.readByte(), in.readByte(),
+                    in.readByte(), in.readByte(), in.readByte(), in.readByte(), in.readBoolean(), in.readBoolean());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package wifi.pojie;
+
+/**
+ * 失败判定使用的计时器，真机上是引擎线程，回放轨迹时是按轨迹时间推进的虚拟时钟
+ */
+public interface EngineTimer {
+    /**
+     * 延迟执行 task，可以用同一个 task 调用 {@link #cancel} 取消
+     */
+    void postDelayed(Runnable task, long delayMillis);
+
+    void cancel(Runnable task);
+}
@@ -0,0 +1,224 @@
+package wifi.pojie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 连接过程事件轨迹的二进制格式
+ * <p>
+ * 文件头为 "WPTR"、1字节版本和8字节起始时间（毫秒，大端）；之后每条记录为：
+ * 与上一条的时间差（varint 毫秒）、1字节类型、内容长度（varint）和 UTF-8 内容。
+ * 写入中断时最后一条可能不完整，读取时按文件结束处理。
+ */
+public final class EventTrace {
+    /**
+     * 一行 logcat 日志内容
+     */
+    public static final int LOGCAT = 1;
+    /**
+     * wpa_supplicant 控制接口的一条消息，带级别前缀
+     */
+    public static final int SUPPLICANT = 2;
+    /**
+     * SUPPLICANT_STATE_CHANGED 广播：状态名，认证失败时后接 " auth_error"
+     */
+    public static final int SUPPLICANT_STATE = 3;
+    /**
+     * NETWORK_STATE_CHANGED 广播：NetworkInfo.State 名称
+     */
+    public static final int NETWORK_STATE = 4;
+    /**
+     * 开始一次尝试：密码
+     */
+    public static final int ATTEMPT = 5;
+    /**
+     * 尝试的结果，如 "auth_fail"、"timeout"
+     */
+    public static final int RESULT = 6;
+    /**
+     * 运行参数：readMode、failSign 等 key=value，空格分隔，在轨迹开头
+     */
+    public static final int CONFIG = 7;
+
+    public static final String AUTH_ERROR_SUFFIX = " auth_error";
+
+    private static final byte[] MAGIC = {'W', 'P', 'T', 'R'};
+    private static final int VERSION = 1;
+
+    private EventTrace() {
+    }
+
+    public static final class Entry {
+        public final int type;
+        /**
+         * 与轨迹起始时间相同的时钟
+         */
+        public final long timeMillis;
+        public final String text;
+
+        public Entry(int type, long timeMillis, String text) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return timeMillis + " " + typeName(type) + " " + text;
+        }
+    }
+
+    public static String typeName(int type) {
+        switch (type) {
+            case LOGCAT:
+                return "LOGCAT";
+            case SUPPLICANT:
+                return "SUPPLICANT";
+            case SUPPLICANT_STATE:
+                return "SUPPLICANT_STATE";
+            case NETWORK_STATE:
+                return "NETWORK_STATE";
+            case ATTEMPT:
+                return "ATTEMPT";
+            case RESULT:
+                return "RESULT";
+            case CONFIG:
+                return "CONFIG";
+            default:
+                return "TYPE_" + type;
+        }
+    }
+
+    /**
+     * 时间必须单调不减，早于上一条的时间按上一条记录
+     */
+    public static final class Writer implements Closeable, Flushable {
+        private final OutputStream out;
+        private long lastTime;
+
+        public Writer(OutputStream out, long startMillis) throws IOException {
+            this.out = new BufferedOutputStream(out, 8192);
+            this.lastTime = startMillis;
+            this.out.write(MAGIC);
+            this.out.write(VERSION);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.out.write((int) (startMillis >>> shift));
+            }
+        }
+
+        public void write(int type, long timeMillis, String text) throws IOException {
+            long delta = Math.max(0, timeMillis - lastTime);
+            lastTime += delta;
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(delta);
+            out.write(type);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private final long startMillis;
+        private long time;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new BufferedInputStream(in, 8192);
+            byte[] header = new byte[MAGIC.length + 1 + 8];
+            readFully(header);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header[i] != MAGIC[i]) {
+                    throw new IOException("不是事件轨迹文件");
+                }
+            }
+            if (header[MAGIC.length] != VERSION) {
+                throw new IOException("不支持的轨迹版本: " + header[MAGIC.length]);
+            }
+            long start = 0;
+            for (int i = MAGIC.length + 1; i < header.length; i++) {
+                start = (start << 8) | (header[i] & 0xFF);
+            }
+            this.startMillis = start;
+            this.time = start;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return 文件结束或最后一条不完整时返回 null
+         */
+        public Entry next() throws IOException {
+            try {
+                long delta = readVarint(true);
+                if (delta < 0) return null;
+                int type = in.read();
+                if (type < 0) return null;
+                int length = (int) readVarint(false);
+                byte[] bytes = new byte[length];
+                readFully(bytes);
+                time += delta;
+                return new Entry(type, time, new String(bytes, StandardCharsets.UTF_8));
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @param eofAllowed 第一个字节就遇到文件结束时返回 -1
+         */
+        private long readVarint(boolean eofAllowed) throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    if (eofAllowed && shift == 0) return -1;
+                    throw new EOFException();
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("无效的长度");
+        }
+
+        private void readFully(byte[] bytes) throws IOException {
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) throw new EOFException();
+                off += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
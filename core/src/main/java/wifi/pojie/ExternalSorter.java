@@ -0,0 +1,246 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 外部归并排序器，内存中只保留一段数据，超出内存预算时把排好序的分段写入临时目录，最后多路归并输出
+ * <p>
+ * 用法：逐行调用 {@link #add(String)}，然后调用 {@link #finish(File)} 输出结果，最后 {@link #close()} 清理临时文件
+ */
+public class ExternalSorter implements Closeable {
+    /**
+     * 默认内存预算 32MB
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+    /**
+     * 单次归并最多同时打开的分段数
+     */
+    private static final int MAX_FAN_IN = 64;
+    private static final int MIN_IO_BUFFER = 4 * 1024;
+    private static final int MAX_IO_BUFFER = 64 * 1024;
+
+    private final File tempDir;
+    private final long memoryBudget;
+    private final Comparator<String> comparator;
+    private final boolean distinct;
+    private final int ioBufferSize;
+
+    private final List<String> buffer = new ArrayList<>();
+    private long bufferBytes = 0;
+    private final List<File> runs = new ArrayList<>();
+    private boolean finished = false;
+
+    /**
+     * @param tempDir      临时分段文件存放目录，可以与其他排序器共用
+     * @param memoryBudget 内存预算（字节）
+     * @param comparator   排序规则
+     * @param distinct     是否去除比较结果相等的重复项
+     */
+    public ExternalSorter(File tempDir, long memoryBudget, Comparator<String> comparator, boolean distinct) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("内存预算必须大于0");
+        }
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+        this.comparator = comparator;
+        this.distinct = distinct;
+        this.ioBufferSize = (int) Math.max(MIN_IO_BUFFER, Math.min(MAX_IO_BUFFER, memoryBudget / (MAX_FAN_IN * 4L)));
+        if (!tempDir.exists()) {
+            tempDir.mkdirs();
+        }
+    }
+
+    /**
+     * 按自然顺序排序
+     */
+    public ExternalSorter(File tempDir, long memoryBudget, boolean distinct) {
+        this(tempDir, memoryBudget, Comparator.naturalOrder(), distinct);
+    }
+
+    /**
+     * 添加一行
+     */
+    public void add(String line) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("排序已结束");
+        }
+        buffer.add(line);
+        // 粗略估算 String 对象及列表槽位占用
+        bufferBytes += 56 + 2L * line.length();
+        if (bufferBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * 输出排序结果
+     *
+     * @param output 输出文件，每行一项
+     * @return 输出的行数
+     */
+    public long finish(File output) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("排序已结束");
+        }
+        finished = true;
+
+        if (runs.isEmpty()) {
+            // 数据量没有超过内存预算，直接输出
+            buffer.sort(comparator);
+            try (BufferedWriter writer = openWriter(output)) {
+                long count = writeSorted(buffer, writer);
+                buffer.clear();
+                return count;
+            }
+        }
+
+        spill();
+        while (runs.size() > MAX_FAN_IN) {
+            // 分段太多时分批归并，减少同时打开的文件数
+            // 归并成功之前分段仍记录在 runs 中，出错时由 close() 删除
+            List<File> batch = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            File merged = newRunFile();
+            runs.add(merged);
+            try (BufferedWriter writer = openWriter(merged)) {
+                merge(batch, writer);
+            }
+            runs.subList(0, MAX_FAN_IN).clear();
+            deleteAll(batch);
+        }
+        try (BufferedWriter writer = openWriter(output)) {
+            return merge(runs, writer);
+        }
+    }
+
+    /**
+     * 删除所有临时分段文件
+     */
+    @Override
+    public void close() {
+        buffer.clear();
+        deleteAll(runs);
+        runs.clear();
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        buffer.sort(comparator);
+        File run = newRunFile();
+        runs.add(run);
+        try (BufferedWriter writer = openWriter(run)) {
+            writeSorted(buffer, writer);
+        }
+        buffer.clear();
+        bufferBytes = 0;
+    }
+
+    private long writeSorted(List<String> sorted, BufferedWriter writer) throws IOException {
+        long count = 0;
+        String previous = null;
+        for (String line : sorted) {
+            if (distinct && previous != null && comparator.compare(previous, line) == 0) {
+                continue;
+            }
+            writer.write(line);
+            writer.write('\n');
+            previous = line;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 多路归并
+     */
+    private long merge(List<File> inputs, BufferedWriter writer) throws IOException {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>(inputs.size(),
+                (a, b) -> comparator.compare(a.current, b.current));
+        List<RunCursor> cursors = new ArrayList<>(inputs.size());
+        try {
+            for (File input : inputs) {
+                RunCursor cursor = new RunCursor(input, ioBufferSize);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+
+            long count = 0;
+            String previous = null;
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                String line = cursor.current;
+                if (!distinct || previous == null || comparator.compare(previous, line) != 0) {
+                    writer.write(line);
+                    writer.write('\n');
+                    previous = line;
+                    count++;
+                }
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            return count;
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * 新建分段文件，文件名由 {@link File#createTempFile} 保证唯一
+     */
+    private File newRunFile() throws IOException {
+        return File.createTempFile("sort_", ".run", tempDir);
+    }
+
+    private BufferedWriter openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), ioBufferSize);
+    }
+
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 已排序分段的读取游标
+     */
+    private static class RunCursor implements Closeable {
+        private final BufferedReader reader;
+        String current;
+
+        RunCursor(File file, int bufferSize) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), bufferSize);
+        }
+
+        boolean advance() throws IOException {
+            current = reader.readLine();
+            return current != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
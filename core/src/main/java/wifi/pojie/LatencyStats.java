@@ -0,0 +1,79 @@
+package wifi.pojie;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 延迟统计：记录事件从发生（或计划执行）到实际处理之间的毫秒数
+ * <p>
+ * 0~{@link #MAX_TRACKED_MILLIS} 毫秒按1毫秒分桶，更大的值计入最后一个桶，分位数不需要保存每个样本。
+ */
+public class LatencyStats {
+    public static final int MAX_TRACKED_MILLIS = 1000;
+
+    private final long[] buckets = new long[MAX_TRACKED_MILLIS + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    public synchronized void record(long latencyMillis) {
+        if (latencyMillis < 0) {
+            latencyMillis = 0;
+        }
+        buckets[(int) Math.min(latencyMillis, MAX_TRACKED_MILLIS)]++;
+        count++;
+        sum += latencyMillis;
+        if (latencyMillis > max) {
+            max = latencyMillis;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile 0~100
+     * @return 不超过该分位的最大延迟，超过 {@link #MAX_TRACKED_MILLIS} 时返回最大值；没有样本时返回0
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < MAX_TRACKED_MILLIS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * 用于输出到日志的摘要
+     */
+    public synchronized String summary() {
+        return String.format(Locale.ROOT, "%d次 平均%.1fms P50 %dms P99 %dms 最大%dms",
+                count, getMean(), getPercentile(50), getPercentile(99), max);
+    }
+}
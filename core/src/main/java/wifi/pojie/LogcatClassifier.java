@@ -0,0 +1,50 @@
+package wifi.pojie;
+
+import java.util.regex.Pattern;
+
+/**
+ * 把 wpa_supplicant 和 DhcpClient 的日志分类为连接过程中的事件
+ */
+public final class LogcatClassifier {
+    public static final int NONE = 0;
+    /**
+     * 四次握手失败，密码可能错误
+     */
+    public static final int AUTH_FAIL = 1;
+    /**
+     * DHCP 获取到地址，连接成功
+     */
+    public static final int SUCCESS = 2;
+    /**
+     * 发送 EAPOL-Key 2/4，开始一次握手
+     */
+    public static final int HANDSHAKE = 3;
+    /**
+     * 发送 EAPOL-Key 3/4 或 4/4，握手通过
+     */
+    public static final int HANDSHAKE_DONE = 4;
+
+    private static final Pattern HANDSHAKE_FAILED = Pattern.compile(".*WPA: 4-Way Handshake failed - pre-shared key may be incorrect.*");
+    private static final Pattern DHCP_ACK = Pattern.compile(".*Received packet: .* ACK: your new IP .*(?:[0-9]{1,3}\\.){3}[0-9]{1,3}.*");
+    private static final Pattern EAPOL_2_OF_4 = Pattern.compile(".*?:\\s+WPA:\\s+Sending\\s+EAPOL-Key\\s+2/4.*");
+    private static final Pattern EAPOL_3_OR_4_OF_4 = Pattern.compile(".*?:\\s+WPA:\\s+Sending\\s+EAPOL-Key\\s+[34]/4.*");
+
+    private LogcatClassifier() {
+    }
+
+    /**
+     * @return 事件类型，与连接无关的日志返回 {@link #NONE}
+     */
+    public static int classify(String line) {
+        if (HANDSHAKE_FAILED.matcher(line).matches()) {
+            return AUTH_FAIL;
+        } else if (DHCP_ACK.matcher(line).matches()) {
+            return SUCCESS;
+        } else if (EAPOL_2_OF_4.matcher(line).matches()) {
+            return HANDSHAKE;
+        } else if (EAPOL_3_OR_4_OF_4.matcher(line).matches()) {
+            return HANDSHAKE_DONE;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,95 @@
+package wifi.pojie;
+
+import java.util.function.Consumer;
+
+/**
+ * 从 logcat 日志或 wpa_supplicant 控制接口事件判断一次连接尝试的结果
+ * <p>
+ * 按失败判定方式（{@link RunConfig#failSign}）报告 "auth_fail"、"handshake_timeout" 或 "handshake_maximum"，
+ * 连接成功对所有方式都报告 "success"。所有方法和计时回调都应在同一个线程调用。
+ */
+public class LogcatFailureDetector {
+    private final EngineTimer timer;
+    private final int failSign;
+    private final int failSignTimeout;
+    private final int failSignCount;
+    private final Consumer<String> onResult;
+    private final Runnable handshakeTimeout;
+    private final SupplicantResultTracker supplicantTracker = new SupplicantResultTracker();
+
+    private int handshakeCount = 0;
+
+    public LogcatFailureDetector(EngineTimer timer, int failSign, int failSignTimeout, int failSignCount, Consumer<String> onResult) {
+        this.timer = timer;
+        this.failSign = failSign;
+        this.failSignTimeout = failSignTimeout;
+        this.failSignCount = failSignCount;
+        this.onResult = onResult;
+        this.handshakeTimeout = () -> {
+            if (failSign == RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT) {
+                onResult.accept("handshake_timeout");
+            }
+        };
+    }
+
+    /**
+     * 处理一行 logcat 日志的内容
+     */
+    public void onLogLine(String line) {
+        switch (LogcatClassifier.classify(line)) {
+            case LogcatClassifier.AUTH_FAIL:
+                timer.cancel(handshakeTimeout);
+                handshakeCount = 0;
+                // 认证失败只在按认证失败判定时报告
+                if (failSign == RunConfig.FAIL_SIGN_AUTH_FAIL) {
+                    onResult.accept("auth_fail");
+                }
+                break;
+            case LogcatClassifier.SUCCESS:
+                timer.cancel(handshakeTimeout);
+                handshakeCount = 0;
+                onResult.accept("success");
+                break;
+            case LogcatClassifier.HANDSHAKE:
+                // 首次握手时开始计时
+                if (failSign == RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT && handshakeCount == 0) {
+                    timer.postDelayed(handshakeTimeout, failSignTimeout);
+                }
+                if (failSign == RunConfig.FAIL_SIGN_HANDSHAKE_COUNT && handshakeCount == failSignCount) {
+                    onResult.accept("handshake_maximum");
+                }
+                handshakeCount++;
+                break;
+            case LogcatClassifier.HANDSHAKE_DONE:
+                timer.cancel(handshakeTimeout);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 处理一条控制接口事件
+     */
+    public void onSupplicantEvent(SupplicantEvent event) {
+        if (failSign == RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT && SupplicantResultTracker.isHandshakeStart(event)) {
+            timer.cancel(handshakeTimeout);
+            timer.postDelayed(handshakeTimeout, failSignTimeout);
+        }
+
+        String result = supplicantTracker.onEvent(event);
+        if (result == null) return;
+        timer.cancel(handshakeTimeout);
+        // 与 logcat 一致：认证失败只在按认证失败判定时报告，成功对所有方式都有效
+        if (failSign == RunConfig.FAIL_SIGN_AUTH_FAIL || "success".equals(result)) {
+            onResult.accept(result);
+        }
+    }
+
+    /**
+     * 取消握手计时
+     */
+    public void cancel() {
+        timer.cancel(handshakeTimeout);
+    }
+}
@@ -0,0 +1,271 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按掩码枚举全部候选密码的虚拟字典，不占用存储，按序号直接计算出对应的密码
+ * <p>
+ * 掩码语法：
+ * <ul>
+ *     <li>?l 小写字母，?u 大写字母，?d 数字，?s 特殊字符，?a 以上全部，?h 小写十六进制，?H 大写十六进制，?? 问号本身</li>
+ *     <li>[...] 自定义字符集，支持范围，例如 [0-9a-f]、[abc]，其中的 ] 和 - 可以用 \ 转义</li>
+ *     <li>{n} 或 {m,n} 紧跟在一个元素之后，表示该元素重复 n 次或 m 到 n 次，例如 ?d{8}、?d{4,6}</li>
+ *     <li>\ 转义下一个字符，其他字符都是字面量</li>
+ * </ul>
+ * 例如 "?d{8}" 表示所有8位数字，"abc?d{4}" 表示 abc 后接4位数字。
+ * <p>
+ * 枚举顺序：越靠后的元素变化越快；可变长度的元素先枚举较短的长度。
+ * 每个元素的取值空间大小固定，序号按混合进制分解即可得到每个元素的取值，{@link #get(long)} 与序号大小无关。
+ */
+public class MaskEnumerator implements DictionarySource {
+    private static final String HEX_LOWER = "0123456789abcdef";
+    private static final String HEX_UPPER = "0123456789ABCDEF";
+
+    private final String mask;
+    private final Element[] elements;
+    private final long size;
+    private final int maxLength;
+
+    public MaskEnumerator(String mask) {
+        this.mask = mask;
+        this.elements = parse(mask).toArray(new Element[0]);
+        if (elements.length == 0) {
+            throw new IllegalArgumentException("掩码为空");
+        }
+        long total = 1;
+        int length = 0;
+        for (Element element : elements) {
+            total = multiply(total, element.size);
+            length += element.maxCount;
+        }
+        this.size = total;
+        this.maxLength = length;
+    }
+
+    public String getMask() {
+        return mask;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("序号超出范围: " + index);
+        }
+        // 从最后一个元素开始按混合进制分解
+        char[] buffer = new char[maxLength];
+        int end = maxLength;
+        for (int e = elements.length - 1; e >= 0; e--) {
+            Element element = elements[e];
+            long local = index % element.size;
+            index /= element.size;
+            end = element.decode(local, buffer, end);
+        }
+        return new String(buffer, end, maxLength - end);
+    }
+
+    private static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("掩码的候选空间过大");
+        }
+    }
+
+    private static long add(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("掩码的候选空间过大");
+        }
+    }
+
+    private static List<Element> parse(String mask) {
+        List<Element> elements = new ArrayList<>();
+        int i = 0;
+        while (i < mask.length()) {
+            char c = mask.charAt(i);
+            char[] charset;
+            if (c == '?') {
+                if (i + 1 >= mask.length()) {
+                    throw new IllegalArgumentException("掩码以 ? 结尾");
+                }
+                charset = builtinCharset(mask.charAt(i + 1));
+                i += 2;
+            } else if (c == '[') {
+                int close = findCharsetEnd(mask, i + 1);
+                if (close < 0) {
+                    throw new IllegalArgumentException("自定义字符集缺少 ]");
+                }
+                charset = customCharset(mask.substring(i + 1, close));
+                i = close + 1;
+            } else if (c == '\\') {
+                if (i + 1 >= mask.length()) {
+                    throw new IllegalArgumentException("掩码以 \\ 结尾");
+                }
+                charset = new char[]{mask.charAt(i + 1)};
+                i += 2;
+            } else {
+                charset = new char[]{c};
+                i++;
+            }
+
+            int minCount = 1;
+            int maxCount = 1;
+            if (i < mask.length() && mask.charAt(i) == '{') {
+                int close = mask.indexOf('}', i + 1);
+                if (close < 0) {
+                    throw new IllegalArgumentException("长度范围缺少 }");
+                }
+                String range = mask.substring(i + 1, close);
+                int comma = range.indexOf(',');
+                try {
+                    if (comma < 0) {
+                        minCount = maxCount = Integer.parseInt(range.trim());
+                    } else {
+                        minCount = Integer.parseInt(range.substring(0, comma).trim());
+                        maxCount = Integer.parseInt(range.substring(comma + 1).trim());
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("长度范围无效: {" + range + "}");
+                }
+                if (minCount < 0 || maxCount < minCount || maxCount > 64) {
+                    throw new IllegalArgumentException("长度范围无效: {" + range + "}");
+                }
+                i = close + 1;
+            }
+            elements.add(new Element(charset, minCount, maxCount));
+        }
+        return elements;
+    }
+
+    /**
+     * 自定义字符集的结束位置，跳过转义的 \]
+     *
+     * @return 没有结束的 ] 时返回 -1
+     */
+    private static int findCharsetEnd(String mask, int start) {
+        for (int i = start; i < mask.length(); i++) {
+            char c = mask.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static char[] builtinCharset(char name) {
+        switch (name) {
+            case 'l':
+                return PasswordGenerator.LOWERCASE_LETTERS.toCharArray();
+            case 'u':
+                return PasswordGenerator.UPPERCASE_LETTERS.toCharArray();
+            case 'd':
+                return PasswordGenerator.DIGITS.toCharArray();
+            case 's':
+                return PasswordGenerator.SPECIAL_CHARACTERS.toCharArray();
+            case 'a':
+                return (PasswordGenerator.LOWERCASE_LETTERS + PasswordGenerator.UPPERCASE_LETTERS
+                        + PasswordGenerator.DIGITS + PasswordGenerator.SPECIAL_CHARACTERS).toCharArray();
+            case 'h':
+                return HEX_LOWER.toCharArray();
+            case 'H':
+                return HEX_UPPER.toCharArray();
+            case '?':
+                return new char[]{'?'};
+            default:
+                throw new IllegalArgumentException("未知的字符集: ?" + name);
+        }
+    }
+
+    private static char[] customCharset(String spec) {
+        Set<Character> chars = new LinkedHashSet<>();
+        int i = 0;
+        while (i < spec.length()) {
+            char c = spec.charAt(i);
+            if (c == '\\' && i + 1 < spec.length()) {
+                chars.add(spec.charAt(i + 1));
+                i += 2;
+            } else if (i + 2 < spec.length() && spec.charAt(i + 1) == '-') {
+                char end = spec.charAt(i + 2);
+                if (end < c) {
+                    throw new IllegalArgumentException("字符范围无效: " + c + "-" + end);
+                }
+                for (char x = c; x <= end; x++) {
+                    chars.add(x);
+                }
+                i += 3;
+            } else {
+                chars.add(c);
+                i++;
+            }
+        }
+        if (chars.isEmpty()) {
+            throw new IllegalArgumentException("自定义字符集为空");
+        }
+        char[] result = new char[chars.size()];
+        int n = 0;
+        for (char c : chars) {
+            result[n++] = c;
+        }
+        return result;
+    }
+
+    /**
+     * 掩码中的一个元素：字符集重复 minCount 到 maxCount 次
+     */
+    private static class Element {
+        final char[] charset;
+        final int minCount;
+        final int maxCount;
+        // 每种长度的取值数量，以及全部长度的总数
+        final long[] countsByLength;
+        final long size;
+
+        Element(char[] charset, int minCount, int maxCount) {
+            this.charset = charset;
+            this.minCount = minCount;
+            this.maxCount = maxCount;
+            this.countsByLength = new long[maxCount - minCount + 1];
+            long total = 0;
+            for (int length = minCount; length <= maxCount; length++) {
+                long count = 1;
+                for (int k = 0; k < length; k++) {
+                    count = multiply(count, charset.length);
+                }
+                countsByLength[length - minCount] = count;
+                total = add(total, count);
+            }
+            this.size = total;
+        }
+
+        /**
+         * 把元素内的序号写入 buffer 中 end 之前的位置，返回新的起始位置
+         */
+        int decode(long local, char[] buffer, int end) {
+            int length = minCount;
+            for (long count : countsByLength) {
+                if (local < count) {
+                    break;
+                }
+                local -= count;
+                length++;
+            }
+            int radix = charset.length;
+            for (int k = 0; k < length; k++) {
+                buffer[--end] = charset[(int) (local % radix)];
+                local /= radix;
+            }
+            return end;
+        }
+    }
+}
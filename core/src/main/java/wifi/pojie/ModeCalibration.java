@@ -0,0 +1,364 @@
+package wifi.pojie;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * 工作模式测速：对每个连接方式和读取方式的组合，用几个故意错误的密码连接测试热点，
+ * 记录从发出连接请求到收到失败判定的时间，推荐每次都能判定失败、中位数最小的组合
+ * <p>
+ * 组合依次运行，每个组合新建一个 {@link WifiBackend}，尝试流程复用 {@link AttemptLoop}。
+ * 超时、出错或错误的密码连接成功的组合不推荐。
+ */
+public class ModeCalibration {
+    private static final String[] CONNECT_MODE_NAMES = {"API 28", "API 29+", "命令行"};
+    private static final String[] READ_MODE_NAMES = {"系统API", "命令行", "控制接口"};
+    private static final String[] CMD_MODE_NAMES = {"Root", "Shizuku"};
+    private static final String PASSWORD_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    /**
+     * 一个工作模式组合，取值与工作模式页面的选项一致
+     */
+    public static final class Candidate {
+        public final int connectMode;
+        public final int readMode;
+        /**
+         * 命令行方式使用的执行方式（0:root 1:Shizuku），不使用命令行时不起作用
+         */
+        public final int cmdMode;
+
+        public Candidate(int connectMode, int readMode, int cmdMode) {
+            this.connectMode = connectMode;
+            this.readMode = readMode;
+            this.cmdMode = cmdMode;
+        }
+
+        public boolean usesCommand() {
+            return connectMode == 2 || readMode == 1 || readMode == 2;
+        }
+
+        public String getName() {
+            return "连接 " + CONNECT_MODE_NAMES[connectMode] + " / 读取 " + READ_MODE_NAMES[readMode]
+                    + (usesCommand() ? " (" + CMD_MODE_NAMES[cmdMode] + ")" : "");
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+
+    /**
+     * 一个组合的测速结果
+     */
+    public static final class Result {
+        public final Candidate candidate;
+        private final List<Long> signalMillis = new ArrayList<>();
+        private int attempts;
+        private int timeouts;
+        private String error;
+
+        Result(Candidate candidate) {
+            this.candidate = candidate;
+        }
+
+        public synchronized int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * 收到失败判定的次数
+         */
+        public synchronized int getSignalCount() {
+            return signalMillis.size();
+        }
+
+        public synchronized int getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return 没有出错时返回 null
+         */
+        public synchronized String getError() {
+            return error;
+        }
+
+        /**
+         * 每次尝试都收到了失败判定
+         */
+        public synchronized boolean isUsable() {
+            return error == null && attempts > 0 && signalMillis.size() == attempts;
+        }
+
+        public long getMedian() {
+            return getPercentile(50);
+        }
+
+        public long getP95() {
+            return getPercentile(95);
+        }
+
+        /**
+         * 失败判定耗时的分位数（最近秩）
+         *
+         * @param percentile 0~100
+         * @return 没有收到失败判定时返回 -1
+         */
+        public synchronized long getPercentile(double percentile) {
+            if (signalMillis.isEmpty()) {
+                return -1;
+            }
+            List<Long> sorted = new ArrayList<>(signalMillis);
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(sorted.size() * Math.min(100, Math.max(0, percentile)) / 100);
+            return sorted.get(Math.max(1, rank) - 1);
+        }
+
+        synchronized void record(String result, long millis) {
+            attempts++;
+            if (isFailureSignal(result)) {
+                signalMillis.add(millis);
+            } else if ("timeout".equals(result)) {
+                timeouts++;
+            }
+        }
+
+        synchronized void fail(String message) {
+            if (error == null) {
+                error = message != null ? message : "未知错误";
+            }
+        }
+
+        public synchronized String summary() {
+            if (error != null) {
+                return getName() + "：出错 " + error;
+            }
+            if (signalMillis.isEmpty()) {
+                return getName() + "：" + attempts + " 次尝试都没有判定结果";
+            }
+            return String.format(Locale.ROOT, "%s：中位数 %dms P95 %dms，判定 %d/%d 次%s", getName(),
+                    getMedian(), getP95(), signalMillis.size(), attempts, timeouts > 0 ? "，超时 " + timeouts + " 次" : "");
+        }
+
+        private String getName() {
+            return candidate.getName();
+        }
+    }
+
+    public interface BackendFactory {
+        /**
+         * 为组合创建连接后端，测速结束后由测速流程销毁
+         *
+         * @throws RuntimeException 该组合无法使用
+         */
+        WifiBackend create(Candidate candidate);
+    }
+
+    public interface Listener {
+        /**
+         * 开始测试第 index 个组合（从0开始）
+         */
+        void onCandidateStart(int index, Candidate candidate);
+
+        /**
+         * 一次尝试结束
+         */
+        void onAttemptResult(Candidate candidate, String result, long millis);
+
+        /**
+         * 全部组合测试完毕，被停止时不回调
+         *
+         * @param best 推荐的组合，没有可用的组合时为 null
+         */
+        void onFinished(List<Result> results, Result best);
+    }
+
+    private final BackendFactory factory;
+    private final List<Candidate> candidates;
+    private final String ssid;
+    private final int attemptsPerCandidate;
+    private final int timeoutMillis;
+    private final Listener listener;
+    private final LongSupplier clock;
+    private final Random random;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final List<Result> results = new ArrayList<>();
+    private volatile boolean isStopped = false;
+    private WifiBackend backend;
+    private AttemptLoop loop;
+
+    /**
+     * @param attemptsPerCandidate 每个组合的尝试次数
+     * @param timeoutMillis        每次尝试的超时时间，应与正式运行时一致
+     */
+    public ModeCalibration(BackendFactory factory, List<Candidate> candidates, String ssid, int attemptsPerCandidate,
+                           int timeoutMillis, Listener listener) {
+        this(factory, candidates, ssid, attemptsPerCandidate, timeoutMillis, listener, System::currentTimeMillis, new SecureRandom());
+    }
+
+    ModeCalibration(BackendFactory factory, List<Candidate> candidates, String ssid, int attemptsPerCandidate,
+                    int timeoutMillis, Listener listener, LongSupplier clock, Random random) {
+        this.factory = factory;
+        this.candidates = new ArrayList<>(candidates);
+        this.ssid = ssid;
+        this.attemptsPerCandidate = attemptsPerCandidate;
+        this.timeoutMillis = timeoutMillis;
+        this.listener = listener;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * 失败判定的结果；"timeout" 是引擎自己的超时，不算
+     */
+    public static boolean isFailureSignal(String result) {
+        return "auth_fail".equals(result) || "handshake_timeout".equals(result)
+                || "handshake_maximum".equals(result) || "unavailable".equals(result);
+    }
+
+    /**
+     * 在可用的组合中选择中位数最小的，相同时比较 P95
+     *
+     * @return 没有可用的组合时返回 null
+     */
+    public static Result recommend(List<Result> results) {
+        Result best = null;
+        for (Result result : results) {
+            if (!result.isUsable()) continue;
+            if (best == null || result.getMedian() < best.getMedian()
+                    || (result.getMedian() == best.getMedian() && result.getP95() < best.getP95())) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 在工作线程中依次测试所有组合
+     */
+    public void start() {
+        submit(() -> runCandidate(0));
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executorService.submit(task);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+    }
+
+    private void runCandidate(int index) {
+        if (isStopped) return;
+        if (index >= candidates.size()) {
+            isStopped = true;
+            executorService.shutdown();
+            listener.onFinished(new ArrayList<>(results), recommend(results));
+            return;
+        }
+        Candidate candidate = candidates.get(index);
+        Result result = new Result(candidate);
+        results.add(result);
+        listener.onCandidateStart(index, candidate);
+
+        try {
+            backend = factory.create(candidate);
+        } catch (RuntimeException e) {
+            result.fail(e.getMessage());
+            runCandidate(index + 1);
+            return;
+        }
+        long[] attemptStart = new long[1];
+        loop = new AttemptLoop(backend, DictionarySource.of(wrongPasswords()), ssid, timeoutMillis, new AttemptLoop.Listener() {
+            @Override
+            public void onAttempt(int attemptIndex, String password) {
+                attemptStart[0] = clock.getAsLong();
+            }
+
+            @Override
+            public void onResult(int attemptIndex, String password, String attemptResult) {
+                long millis = clock.getAsLong() - attemptStart[0];
+                result.record(attemptResult, millis);
+                listener.onAttemptResult(candidate, attemptResult, millis);
+            }
+
+            @Override
+            public void onAdvance(int nextIndex) {
+            }
+
+            @Override
+            public void onFinished(String password) {
+                if (password != null) {
+                    result.fail("错误的密码连接成功了");
+                }
+                submit(() -> finishCandidate(index));
+            }
+
+            @Override
+            public void onError(String message) {
+                result.fail(message);
+                submit(() -> finishCandidate(index));
+            }
+        });
+        loop.start(0);
+    }
+
+    private void finishCandidate(int index) {
+        destroyBackend();
+        runCandidate(index + 1);
+    }
+
+    private void destroyBackend() {
+        if (loop != null) {
+            loop.stop();
+            loop = null;
+        }
+        if (backend != null) {
+            try {
+                backend.destroy();
+            } catch (RuntimeException e) {
+                // 测速结束后不再使用
+            }
+            backend = null;
+        }
+    }
+
+    /**
+     * 12位随机字母数字，不可能是测试热点的密码
+     */
+    private String[] wrongPasswords() {
+        String[] passwords = new String[attemptsPerCandidate];
+        char[] buffer = new char[12];
+        for (int i = 0; i < passwords.length; i++) {
+            for (int j = 0; j < buffer.length; j++) {
+                buffer[j] = PASSWORD_CHARS.charAt(random.nextInt(PASSWORD_CHARS.length()));
+            }
+            passwords[i] = new String(buffer);
+        }
+        return passwords;
+    }
+
+    /**
+     * 停止测速并销毁当前的后端，之后不再回调 {@link Listener#onFinished}
+     */
+    public void stop() {
+        if (isStopped) return;
+        isStopped = true;
+        executorService.submit(this::destroyBackend);
+        executorService.shutdown();
+    }
+
+    public boolean isStopped() {
+        return isStopped;
+    }
+}
@@ -0,0 +1,518 @@
+package wifi.pojie;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分页读取密码本文件的数据源
+ * <p>
+ * 打开时在后台扫描文件，每 {@link #PAGE_SIZE} 行记录一次字节偏移；读取时按页加载，最近使用的页保存在 LRU 缓存中。
+ * 扫描和读页在不同的线程中进行，已扫描到的页不需要等整个文件扫描完就能加载。
+ * 内存占用只与缓存页数有关，与密码本大小无关。所有回调都通过构造时传入的 callbackExecutor 执行（一般是主线程）。
+ * <p>
+ * 不需要界面回调时可以用 {@link #openBlocking()} 和 {@link #readLine} 在当前线程同步读取，
+ * 或者通过 {@link #asDictionary()} 作为破解字典使用，这时不会启动后台线程。
+ * <p>
+ * 建立索引时记录密码本的版本（见 {@link ChunkStore#getVersion}），读页前后都会比较。
+ * 密码本被合并、去重或替换后，后台读取会清空缓存、重建索引并回调 {@link Listener#onFileChanged}；
+ * 同步读取直接抛出异常，因为读到一半的字典已经与开始时不同。
+ * <p>
+ * 与 {@link PasswordCodec#readTxt} 一致，每行去除首尾空白，空行跳过。
+ */
+public class PagedPasswordSource implements Closeable {
+    public static final int PAGE_SIZE = 256;
+    private static final int MAX_CACHED_PAGES = 16;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final int SEARCH_BATCH = 64;
+    private static final long SEARCH_BATCH_NANOS = 100_000_000L;
+
+    private final File file;
+    private final Executor callbackExecutor;
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+
+    // 每页第一行的字节偏移
+    private long[] pageOffsets = new long[64];
+    private volatile int lineCount = 0;
+    private volatile boolean indexed = false;
+    // 建立索引时密码本的版本
+    private volatile String version;
+    // 每次重建索引加一，之前开始读取的页不再放入缓存
+    private final AtomicInteger indexGeneration = new AtomicInteger();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    // open 传入的回调，搜索时发现密码本被改写也用它通知
+    private volatile Listener listener;
+
+    private final Map<Integer, String[]> pageCache = new LinkedHashMap<Integer, String[]>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public PagedPasswordSource(File file, Executor callbackExecutor) {
+        this.file = file;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * 在后台建立行索引，扫描过程中会多次回调进度，已扫描的部分立即可以读取
+     */
+    public void open(Listener listener) {
+        this.listener = listener;
+        indexExecutor.execute(() -> {
+            try {
+                buildIndex(listener);
+            } catch (IOException e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+            }
+        });
+    }
+
+    /**
+     * 在当前线程扫描整个文件建立行索引
+     *
+     * @return 行数
+     */
+    public int openBlocking() throws IOException {
+        buildIndex(null);
+        return lineCount;
+    }
+
+    /**
+     * 当前已索引的行数
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 是否已扫描完整个文件
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * 读取一行，所在页未加载时返回null，并在后台加载该页，加载完成后回调 {@link Listener#onPageLoaded}；
+     * 发现密码本已被改写时重建索引
+     */
+    public String getLine(int index, Listener listener) {
+        if (index < 0 || index >= lineCount) {
+            return null;
+        }
+        int page = index / PAGE_SIZE;
+        synchronized (pageCache) {
+            String[] lines = pageCache.get(page);
+            if (lines != null && index % PAGE_SIZE < lines.length) {
+                return lines[index % PAGE_SIZE];
+            }
+            if (!loadingPages.add(page)) {
+                return null;
+            }
+        }
+        int generation = indexGeneration.get();
+        pageExecutor.execute(() -> {
+            try {
+                String[] lines = readPage(page);
+                synchronized (pageCache) {
+                    loadingPages.remove(page);
+                    if (indexGeneration.get() != generation) {
+                        // 读取期间索引已重建，按旧偏移读到的内容作废
+                        return;
+                    }
+                    pageCache.put(page, lines);
+                }
+                callbackExecutor.execute(() -> listener.onPageLoaded(page * PAGE_SIZE, lines.length));
+            } catch (StaleIndexException e) {
+                synchronized (pageCache) {
+                    loadingPages.remove(page);
+                }
+                reload(listener);
+            } catch (IOException e) {
+                synchronized (pageCache) {
+                    loadingPages.remove(page);
+                }
+                callbackExecutor.execute(() -> listener.onError(e));
+            }
+        });
+        return null;
+    }
+
+    /**
+     * 同步读取一行，所在页不在缓存中时在当前线程加载
+     *
+     * @throws IOException 读取失败，或密码本在建立索引之后已被改写
+     */
+    public String readLine(int index) throws IOException {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + index);
+        }
+        int page = index / PAGE_SIZE;
+        String[] lines;
+        synchronized (pageCache) {
+            lines = pageCache.get(page);
+        }
+        if (lines == null || index % PAGE_SIZE >= lines.length) {
+            lines = readPage(page);
+            synchronized (pageCache) {
+                pageCache.put(page, lines);
+            }
+        }
+        return lines[index % PAGE_SIZE];
+    }
+
+    /**
+     * 作为字典按序号读取密码，需要先调用 {@link #openBlocking()}
+     * <p>
+     * 顺序读取时每 {@link #PAGE_SIZE} 个密码读一次文件，内存中只保留缓存的页。
+     * 读取失败时抛出 {@link IllegalStateException}，破解流程会按出错停止。
+     */
+    public DictionarySource asDictionary() {
+        return new DictionarySource() {
+            @Override
+            public long size() {
+                return lineCount;
+            }
+
+            @Override
+            public String get(long index) {
+                try {
+                    return readLine((int) index);
+                } catch (IOException e) {
+                    throw new IllegalStateException("读取密码本失败: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 增量搜索包含 query 的密码，匹配结果分批回调；再次调用或调用 {@link #cancelSearch()} 会取消上一次搜索
+     * <p>
+     * 行号按搜索时的文件内容计算。密码本已被改写时照常搜索新内容，同时重建索引并回调 {@link Listener#onFileChanged}；
+     * 搜索过程中被改写时不回调 {@link SearchListener#onSearchFinished}。
+     */
+    public void search(String query, SearchListener listener) {
+        int generation = searchGeneration.incrementAndGet();
+        searchExecutor.execute(() -> {
+            String searchVersion;
+            try {
+                searchVersion = ChunkStore.getVersion(file);
+            } catch (IOException e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+                return;
+            }
+            Listener indexListener = this.listener;
+            if (indexListener != null && !Objects.equals(searchVersion, version)) {
+                reload(indexListener);
+            }
+            List<Integer> indexes = new ArrayList<>();
+            List<String> lines = new ArrayList<>();
+            long[] lastFlush = {System.nanoTime()};
+            int[] total = {0};
+            try {
+                int[] lineIndex = {0};
+                scanLines(0, Integer.MAX_VALUE, line -> {
+                    if (searchGeneration.get() != generation) {
+                        return false;
+                    }
+                    if (line.contains(query)) {
+                        indexes.add(lineIndex[0]);
+                        lines.add(line);
+                        total[0]++;
+                        long now = System.nanoTime();
+                        if (indexes.size() >= SEARCH_BATCH || now - lastFlush[0] >= SEARCH_BATCH_NANOS) {
+                            flushMatches(generation, indexes, lines, listener);
+                            lastFlush[0] = now;
+                        }
+                    }
+                    lineIndex[0]++;
+                    return true;
+                });
+                if (!Objects.equals(searchVersion, ChunkStore.getVersion(file))) {
+                    // 搜索过程中被改写，结果的行号不可靠，由重建索引后的下一次搜索取代
+                    if (indexListener != null) {
+                        reload(indexListener);
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+                return;
+            }
+            flushMatches(generation, indexes, lines, listener);
+            callbackExecutor.execute(() -> {
+                if (searchGeneration.get() == generation) {
+                    listener.onSearchFinished(total[0]);
+                }
+            });
+        });
+    }
+
+    public void cancelSearch() {
+        searchGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        cancelSearch();
+        indexExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
+        searchExecutor.shutdownNow();
+        synchronized (pageCache) {
+            pageCache.clear();
+        }
+    }
+
+    private void flushMatches(int generation, List<Integer> indexes, List<String> lines, SearchListener listener) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Integer> batchIndexes = new ArrayList<>(indexes);
+        List<String> batchLines = new ArrayList<>(lines);
+        indexes.clear();
+        lines.clear();
+        callbackExecutor.execute(() -> {
+            if (searchGeneration.get() == generation) {
+                listener.onMatches(batchIndexes, batchLines);
+            }
+        });
+    }
+
+    /**
+     * 密码本在建立索引之后是否已被改写
+     */
+    private boolean isStale() throws IOException {
+        return !Objects.equals(version, ChunkStore.getVersion(file));
+    }
+
+    /**
+     * 在后台清空缓存并重建索引，正在重建时不重复提交
+     */
+    private void reload(Listener listener) {
+        if (closed || !reloading.compareAndSet(false, true)) {
+            return;
+        }
+        indexExecutor.execute(() -> {
+            try {
+                synchronized (pageCache) {
+                    indexGeneration.incrementAndGet();
+                    pageCache.clear();
+                    indexed = false;
+                    lineCount = 0;
+                }
+                callbackExecutor.execute(listener::onFileChanged);
+                buildIndex(listener);
+            } catch (IOException e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+            } finally {
+                reloading.set(false);
+            }
+        });
+    }
+
+    /**
+     * @param listener 为 null 时不回调进度
+     */
+    private void buildIndex(Listener listener) throws IOException {
+        // 先记录版本再读取，读取期间被改写时下一次读页会发现版本不同
+        version = ChunkStore.getVersion(file);
+        byte[] buffer = new byte[READ_BUFFER];
+        long offset = 0;
+        long lineStart = 0;
+        boolean lineHasContent = false;
+        int count = 0;
+        long lastReport = System.nanoTime();
+
+        try (InputStream in = ChunkStore.openBook(file)) {
+            int len;
+            while (!closed && (len = in.read(buffer)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    int b = buffer[i] & 0xFF;
+                    if (b == '\n') {
+                        if (lineHasContent) {
+                            count = addLine(count, lineStart);
+                        }
+                        lineStart = offset + i + 1;
+                        lineHasContent = false;
+                    } else if (b > ' ') {
+                        lineHasContent = true;
+                    }
+                }
+                offset += len;
+
+                long now = System.nanoTime();
+                if (listener != null && now - lastReport >= SEARCH_BATCH_NANOS) {
+                    lastReport = now;
+                    int snapshot = count;
+                    callbackExecutor.execute(() -> listener.onIndexProgress(snapshot, false));
+                }
+            }
+        }
+        if (lineHasContent) {
+            count = addLine(count, lineStart);
+        }
+        indexed = true;
+        if (listener != null) {
+            int finalCount = count;
+            callbackExecutor.execute(() -> listener.onIndexProgress(finalCount, true));
+        }
+    }
+
+    private int addLine(int count, long lineStart) {
+        if (count % PAGE_SIZE == 0) {
+            int page = count / PAGE_SIZE;
+            synchronized (this) {
+                if (page >= pageOffsets.length) {
+                    pageOffsets = Arrays.copyOf(pageOffsets, pageOffsets.length * 2);
+                }
+                pageOffsets[page] = lineStart;
+            }
+        }
+        count++;
+        lineCount = count;
+        return count;
+    }
+
+    private String[] readPage(int page) throws IOException {
+        if (isStale()) {
+            throw new StaleIndexException();
+        }
+        List<String> lines = new ArrayList<>(PAGE_SIZE);
+        scanLines(page, PAGE_SIZE, line -> {
+            lines.add(line);
+            return true;
+        });
+        // 读取过程中被改写时内容可能错位
+        if (isStale()) {
+            throw new StaleIndexException();
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * 从指定页开始按行读取，最多读取 maxLines 行，handler 返回false时停止
+     */
+    private void scanLines(int startPage, int maxLines, LineVisitor visitor) throws IOException {
+        long start;
+        synchronized (this) {
+            start = startPage == 0 ? 0 : pageOffsets[startPage];
+        }
+        byte[] buffer = new byte[READ_BUFFER];
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        int emitted = 0;
+
+        try (InputStream in = ChunkStore.openBook(file)) {
+            skipFully(in, start);
+            int len;
+            while (!closed && (len = in.read(buffer)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        String text = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+                        lineLength = 0;
+                        if (!text.isEmpty()) {
+                            if (!visitor.visit(text) || ++emitted >= maxLines) {
+                                return;
+                            }
+                        }
+                    } else {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+            if (lineLength > 0) {
+                String text = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+                if (!text.isEmpty()) {
+                    visitor.visit(text);
+                }
+            }
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new StaleIndexException();
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * 密码本在建立索引之后已被改写，按原来的偏移读取会错位
+     */
+    private static class StaleIndexException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleIndexException() {
+            super("密码本文件已被修改");
+        }
+    }
+
+    private interface LineVisitor {
+        boolean visit(String line);
+    }
+
+    public interface Listener {
+        /**
+         * 索引进度
+         *
+         * @param lineCount 已索引的行数
+         * @param finished  是否扫描完毕
+         */
+        void onIndexProgress(int lineCount, boolean finished);
+
+        /**
+         * 页加载完成
+         */
+        void onPageLoaded(int firstLine, int count);
+
+        /**
+         * 密码本已被改写，缓存已清空，接着从头重建索引并回调进度，之前的行号不再有效
+         */
+        void onFileChanged();
+
+        void onError(IOException e);
+    }
+
+    public interface SearchListener {
+        /**
+         * 一批匹配结果
+         *
+         * @param lineIndexes 匹配行的行号
+         * @param lines       匹配行的内容
+         */
+        void onMatches(List<Integer> lineIndexes, List<String> lines);
+
+        void onSearchFinished(int total);
+
+        void onError(IOException e);
+    }
+}
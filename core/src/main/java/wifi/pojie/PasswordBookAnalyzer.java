@@ -0,0 +1,139 @@
+package wifi.pojie;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 统计整个密码本的强度分布、长度分布和不能作为 WPA 口令的条目数量
+ * <p>
+ * 调用线程顺序读取密码本，每 {@link #BATCH_SIZE} 个密码打包交给工作线程；
+ * 每个工作线程累加到自己的 {@link Report}，结束后合并，统计过程不需要同步。
+ */
+public class PasswordBookAnalyzer {
+    private static final int BATCH_SIZE = 8192;
+    private static final String[] END = new String[0];
+
+    private final int threads;
+
+    /**
+     * @param threads 工作线程数，小于1时使用CPU核心数
+     */
+    public PasswordBookAnalyzer(int threads) {
+        this.threads = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    public Report analyze(PasswordBookIndex.PasswordSource source) throws IOException {
+        BlockingQueue<String[]> batches = new ArrayBlockingQueue<>(threads * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Report>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> runWorker(batches)));
+            }
+
+            String[][] batch = {new String[BATCH_SIZE]};
+            int[] size = {0};
+            source.forEachPassword(password -> {
+                batch[0][size[0]++] = password;
+                if (size[0] == BATCH_SIZE) {
+                    put(batches, batch[0]);
+                    batch[0] = new String[BATCH_SIZE];
+                    size[0] = 0;
+                }
+            });
+            if (size[0] > 0) {
+                put(batches, Arrays.copyOf(batch[0], size[0]));
+            }
+            // 读取出错时不会走到这里，工作线程由 shutdownNow 中断
+            for (int i = 0; i < threads; i++) {
+                put(batches, END);
+            }
+
+            Report total = new Report();
+            for (Future<Report> future : futures) {
+                total.merge(future.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("密码本分析被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("密码本分析失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void put(BlockingQueue<String[]> batches, String[] batch) throws InterruptedIOException {
+        try {
+            batches.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("密码本分析被中断");
+        }
+    }
+
+    private static Report runWorker(BlockingQueue<String[]> batches) throws InterruptedException {
+        Report report = new Report();
+        while (true) {
+            String[] batch = batches.take();
+            if (batch == END) {
+                return report;
+            }
+            for (String password : batch) {
+                report.add(password);
+            }
+        }
+    }
+
+    /**
+     * 分析结果
+     */
+    public static class Report {
+        /**
+         * 长度分布的最大长度，更长的密码计入最后一项
+         */
+        public static final int MAX_LENGTH = 64;
+
+        private long total;
+        // 下标为强度 0-5
+        private final long[] strengthCounts = new long[6];
+        // 下标为长度 0-MAX_LENGTH
+        private final long[] lengthCounts = new long[MAX_LENGTH + 1];
+        private long invalidWpaCount;
+
+        void add(String password) {
+            total++;
+            strengthCounts[PasswordStrength.evaluate(password)]++;
+            lengthCounts[Math.min(password.length(), MAX_LENGTH)]++;
+            if (!PasswordStrength.isValidWpaPassphrase(password)) {
+                invalidWpaCount++;
+            }
+        }
+
+        void merge(Report other) {
+            total += other.total;
+            for (int i = 0; i < strengthCounts.length; i++) {
+                strengthCounts[i] += other.strengthCounts[i];
+            }
+            for (int i = 0; i < lengthCounts.length; i++) {
+                lengthCounts[i] += other.lengthCounts[i];
+            }
+            invalidWpaCount += other.invalidWpaCount;
+        }
+
+        public long getTotal() { return total; }
+        public long getStrengthCount(int strength) { return strengthCounts[strength]; }
+        public long getLengthCount(int length) { return lengthCounts[Math.min(length, MAX_LENGTH)]; }
+        public long getInvalidWpaCount() { return invalidWpaCount; }
+    }
+}
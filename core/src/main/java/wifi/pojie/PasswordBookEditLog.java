@@ -0,0 +1,456 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 密码本增量编辑日志
+ * <p>
+ * 每个密码本文件旁边有一个只追加的日志文件，每行一条记录："+密码" 表示追加，"-行号:密码" 表示删除一处出现。
+ * 行号是原密码本中的第几个密码（跳过空行，从0开始），为空表示删除追加的密码中的一处。
+ * 同一密码出现多次时只删除记录的那一处，与编辑器中显示的结果一致。
+ * 读取时把日志叠加到密码本上，日志过长时合并回密码本文件。
+ * <p>
+ * 合并过程：
+ * <ol>
+ *     <li>把当前日志改名为 .compacting，之后的编辑写入新日志</li>
+ *     <li>把密码本 + .compacting 写入 .tmp</li>
+ *     <li>把 .compacting 改名为 .applied（提交点）</li>
+ *     <li>把 .tmp 改名为密码本文件，删除 .applied</li>
+ * </ol>
+ * 每一步都是原子的改名，任意一步崩溃后都可以由 {@link #recover()} 恢复，密码本不会被截断，日志也不会被重复应用。
+ */
+public class PasswordBookEditLog {
+    /**
+     * 默认合并阈值（日志记录数）
+     */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 4096;
+
+    private static final char OP_ADD = '+';
+    private static final char OP_DELETE = '-';
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final File bookFile;
+    private final File logFile;
+    private final File compactingFile;
+    private final File appliedFile;
+    private final File tmpFile;
+    private final int compactThreshold;
+
+    private final Object appendLock = new Object();
+    private final Object compactLock = new Object();
+    private int pendingRecords = -1;
+
+    public PasswordBookEditLog(File bookFile) {
+        this(bookFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public PasswordBookEditLog(File bookFile, int compactThreshold) {
+        this.bookFile = bookFile;
+        this.logFile = new File(bookFile.getPath() + ".log");
+        this.compactingFile = new File(bookFile.getPath() + ".log.compacting");
+        this.appliedFile = new File(bookFile.getPath() + ".log.applied");
+        this.tmpFile = new File(bookFile.getPath() + ".tmp");
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * 密码本是否有未合并的编辑
+     */
+    public static boolean hasPendingEdits(File bookFile) {
+        return new File(bookFile.getPath() + ".log").exists()
+                || new File(bookFile.getPath() + ".log.compacting").exists()
+                || new File(bookFile.getPath() + ".log.applied").exists();
+    }
+
+    /**
+     * 删除日志及合并过程中的临时文件
+     */
+    public static void deleteLogFiles(File bookFile) {
+        new File(bookFile.getPath() + ".log").delete();
+        new File(bookFile.getPath() + ".log.compacting").delete();
+        new File(bookFile.getPath() + ".log.applied").delete();
+        new File(bookFile.getPath() + ".tmp").delete();
+    }
+
+    /**
+     * 恢复上次中断的合并
+     */
+    public void recover() throws IOException {
+        synchronized (compactLock) {
+            if (appliedFile.exists()) {
+                // 已经提交，完成剩余的改名
+                if (tmpFile.exists() && !replace(tmpFile, bookFile)) {
+                    throw new IOException("无法替换密码本文件: " + bookFile);
+                }
+                appliedFile.delete();
+            } else if (tmpFile.exists()) {
+                // 没有提交，临时文件作废，.compacting 仍然是有效日志
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * 追加编辑记录
+     *
+     * @param added   新增的密码
+     * @param removed 删除的密码
+     */
+    public void append(List<String> added, List<Deletion> removed) throws IOException {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        for (Deletion deletion : removed) {
+            records.append(OP_DELETE);
+            if (deletion.line >= 0) {
+                records.append(deletion.line);
+            }
+            records.append(':').append(deletion.password).append('\n');
+        }
+        for (String password : added) {
+            records.append(OP_ADD).append(password).append('\n');
+        }
+        byte[] bytes = records.toString().getBytes(StandardCharsets.UTF_8);
+
+        synchronized (appendLock) {
+            int existing = getPendingRecords();
+            try (FileOutputStream fos = new FileOutputStream(logFile, true)) {
+                fos.write(bytes);
+                fos.getFD().sync();
+            }
+            pendingRecords = existing + added.size() + removed.size();
+        }
+    }
+
+    /**
+     * 未合并的日志记录数
+     */
+    public int getPendingRecords() throws IOException {
+        synchronized (appendLock) {
+            if (pendingRecords < 0) {
+                int[] count = {0};
+                forEachRecord(compactingFile, (op, line, password) -> count[0]++);
+                forEachRecord(logFile, (op, line, password) -> count[0]++);
+                pendingRecords = count[0];
+            }
+            return pendingRecords;
+        }
+    }
+
+    /**
+     * 是否需要合并
+     */
+    public boolean needsCompaction() throws IOException {
+        return getPendingRecords() >= compactThreshold;
+    }
+
+    /**
+     * 逐个读取叠加日志后的密码
+     */
+    public void forEachPassword(PasswordSetOperations.LineHandler handler) throws IOException {
+        synchronized (compactLock) {
+            forEachPassword(loadOverlay(), handler);
+        }
+    }
+
+    /**
+     * 读取未合并的编辑
+     */
+    public Overlay readOverlay() throws IOException {
+        synchronized (compactLock) {
+            return loadOverlay();
+        }
+    }
+
+    /**
+     * 把日志叠加到已读取的密码列表上
+     */
+    public void applyTo(List<String> passwords) throws IOException {
+        Overlay overlay;
+        synchronized (compactLock) {
+            overlay = loadOverlay();
+        }
+        Filter filter = new Filter(overlay);
+        List<String> kept = new ArrayList<>(passwords.size());
+        for (String password : passwords) {
+            if (filter.accept(password)) {
+                kept.add(password);
+            }
+        }
+        passwords.clear();
+        passwords.addAll(kept);
+        passwords.addAll(filter.remainingAdded());
+    }
+
+    /**
+     * 把日志合并回密码本文件
+     *
+     * @return 合并后的密码数量，没有需要合并的内容时返回-1
+     */
+    public long compact() throws IOException {
+        synchronized (compactLock) {
+            recover();
+            synchronized (appendLock) {
+                if (!compactingFile.exists()) {
+                    if (!logFile.exists()) {
+                        return -1;
+                    }
+                    if (!logFile.renameTo(compactingFile)) {
+                        throw new IOException("无法冻结编辑日志: " + logFile);
+                    }
+                }
+            }
+
+            Overlay overlay = new Overlay();
+            forEachRecord(compactingFile, overlay::apply);
+            long[] count = {0};
+            try (FileOutputStream fos = new FileOutputStream(tmpFile);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8), IO_BUFFER)) {
+                forEachPassword(overlay, password -> {
+                    writer.write(password);
+                    writer.write('\n');
+                    count[0]++;
+                });
+                writer.flush();
+                fos.getFD().sync();
+            }
+
+            if (!compactingFile.renameTo(appliedFile)) {
+                tmpFile.delete();
+                throw new IOException("无法提交编辑日志: " + compactingFile);
+            }
+            if (!replace(tmpFile, bookFile)) {
+                throw new IOException("无法替换密码本文件: " + bookFile);
+            }
+            appliedFile.delete();
+
+            synchronized (appendLock) {
+                pendingRecords = -1;
+            }
+            return count[0];
+        }
+    }
+
+    /**
+     * 用新文件整体替换密码本内容，之前的编辑日志作废
+     */
+    public void replaceBook(File source) throws IOException {
+        synchronized (compactLock) {
+            synchronized (appendLock) {
+                if (!replace(source, bookFile)) {
+                    throw new IOException("无法替换密码本文件: " + bookFile);
+                }
+                logFile.delete();
+                compactingFile.delete();
+                appliedFile.delete();
+                tmpFile.delete();
+                pendingRecords = 0;
+            }
+        }
+    }
+
+    /**
+     * 在合并锁内对密码本文件执行整体操作，期间不会发生合并或替换
+     */
+    public void withBookLocked(BookAction action) throws IOException {
+        synchronized (compactLock) {
+            recover();
+            action.run();
+        }
+    }
+
+    private void forEachPassword(Overlay overlay, PasswordSetOperations.LineHandler handler) throws IOException {
+        Filter filter = new Filter(overlay);
+        PasswordSetOperations.forEachPassword(bookFile, password -> {
+            if (filter.accept(password)) {
+                handler.accept(password);
+            }
+        });
+        for (String password : filter.remainingAdded()) {
+            handler.accept(password);
+        }
+    }
+
+    private Overlay loadOverlay() throws IOException {
+        Overlay overlay = new Overlay();
+        forEachRecord(compactingFile, overlay::apply);
+        forEachRecord(logFile, overlay::apply);
+        return overlay;
+    }
+
+    /**
+     * 读取日志记录，忽略崩溃时写了一半的最后一行和格式不正确的行
+     */
+    private static void forEachRecord(File file, RecordHandler handler) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), IO_BUFFER)) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                if (line.length() > 1) {
+                    char op = line.charAt(0);
+                    if (op == OP_ADD) {
+                        handler.accept(op, -1, line.substring(1));
+                    } else if (op == OP_DELETE) {
+                        acceptDeletion(line, handler);
+                    }
+                }
+                line.setLength(0);
+            }
+        }
+    }
+
+    private static void acceptDeletion(StringBuilder record, RecordHandler handler) throws IOException {
+        int separator = record.indexOf(":");
+        if (separator < 1 || separator == record.length() - 1 || separator > 20) {
+            return;
+        }
+        long line = -1;
+        if (separator > 1) {
+            try {
+                line = Long.parseLong(record.substring(1, separator));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (line < 0) {
+                return;
+            }
+        }
+        handler.accept(OP_DELETE, line, record.substring(separator + 1));
+    }
+
+    private static boolean replace(File source, File target) {
+        if (source.renameTo(target)) {
+            return true;
+        }
+        // 部分文件系统不支持覆盖式改名
+        return target.delete() && source.renameTo(target);
+    }
+
+    /**
+     * 一条删除记录
+     */
+    public static final class Deletion {
+        /**
+         * 原密码本中的行号（跳过空行，从0开始），-1 表示删除追加的密码
+         */
+        public final long line;
+        public final String password;
+
+        public Deletion(long line, String password) {
+            this.line = line;
+            this.password = password;
+        }
+    }
+
+    /**
+     * 日志叠加状态：从原密码本删除的行，以及追加到末尾的密码
+     */
+    public static class Overlay {
+        final Map<Long, String> deletedLines = new HashMap<>();
+        // 追加的密码中已没有、需要从原密码本删除的次数
+        final Map<String, Integer> deletedCounts = new HashMap<>();
+        final List<String> added = new ArrayList<>();
+
+        /**
+         * 原密码本中已删除的行：行号 -> 密码
+         */
+        public Map<Long, String> getDeletedLines() { return deletedLines; }
+        public List<String> getAdded() { return added; }
+
+        void apply(char op, long line, String password) {
+            if (op == OP_ADD) {
+                added.add(password);
+            } else if (line >= 0) {
+                deletedLines.putIfAbsent(line, password);
+            } else if (!added.remove(password)) {
+                // 追加的密码已合并进原密码本
+                deletedCounts.merge(password, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * 按顺序过滤原密码本的密码
+     * <p>
+     * 删除记录中的行号与密码不符时（编辑器打开后密码本被合并过），改为删除该密码之后的第一处出现；
+     * 原密码本中找不到的删除作用于追加的密码。
+     */
+    private static class Filter {
+        private final Overlay overlay;
+        private final Map<String, Integer> pending;
+        private long line = 0;
+
+        Filter(Overlay overlay) {
+            this.overlay = overlay;
+            this.pending = new HashMap<>(overlay.deletedCounts);
+        }
+
+        boolean accept(String password) {
+            String deleted = overlay.deletedLines.get(line++);
+            if (deleted != null) {
+                if (deleted.equals(password)) {
+                    return false;
+                }
+                pending.merge(deleted, 1, Integer::sum);
+            }
+            Integer count = pending.get(password);
+            if (count == null) {
+                return true;
+            }
+            if (count == 1) {
+                pending.remove(password);
+            } else {
+                pending.put(password, count - 1);
+            }
+            return false;
+        }
+
+        /**
+         * 原密码本读取完毕后，去掉剩余删除的追加密码
+         */
+        List<String> remainingAdded() {
+            for (Map.Entry<Long, String> entry : overlay.deletedLines.entrySet()) {
+                if (entry.getKey() >= line) {
+                    pending.merge(entry.getValue(), 1, Integer::sum);
+                }
+            }
+            List<String> result = new ArrayList<>(overlay.added);
+            for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    if (!result.remove(entry.getKey())) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    public interface BookAction {
+        void run() throws IOException;
+    }
+
+    private interface RecordHandler {
+        void accept(char op, long line, String password) throws IOException;
+    }
+}
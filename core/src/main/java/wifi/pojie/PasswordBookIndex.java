@@ -0,0 +1,466 @@
+package wifi.pojie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 全部密码本的密码索引，用于查询"哪些密码本包含这个密码"
+ * <p>
+ * 每个密码本对应一个 .idx 文件，内容是该密码本所有密码的64位哈希，排序后按大端 long 存储，查询时内存映射后二分查找。
+ * 重复的密码保留重复的哈希，删除其中一处后仍能查到。
+ * 增量编辑记录在 .delta 文件中（每条记录为 1 字节操作 + 8 字节哈希 + 4 字节编辑后该密码的出现次数），重建索引时清空。
+ * 记录的是编辑后的次数而不是变化量，建立索引期间的编辑重复应用也不影响结果。
+ * 64位哈希冲突概率可以忽略，查询结果视为精确结果。
+ */
+public class PasswordBookIndex {
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String DELTA_SUFFIX = ".delta";
+    private static final byte OP_ADD = 1;
+    private static final byte OP_DELETE = 0;
+    private static final int DELTA_RECORD_SIZE = 13;
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final File indexDir;
+    private final File tempDir;
+    private final long memoryBudget;
+
+    private final Map<String, LongBuffer> segments = new HashMap<>();
+    // 每个密码本未并入索引的增量编辑：哈希 -> 出现次数
+    private final Map<String, Map<Long, Integer>> deltas = new HashMap<>();
+    private boolean loaded = false;
+
+    public PasswordBookIndex(File indexDir, File tempDir, long memoryBudget) {
+        this.indexDir = indexDir;
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+        if (!indexDir.exists()) {
+            indexDir.mkdirs();
+        }
+        if (!tempDir.exists()) {
+            tempDir.mkdirs();
+        }
+    }
+
+    /**
+     * 密码本是否已建立索引
+     */
+    public synchronized boolean isIndexed(String bookId) throws IOException {
+        ensureLoaded();
+        return segments.containsKey(bookId);
+    }
+
+    /**
+     * 为密码本建立（或重建）索引
+     * <p>
+     * 建立期间记录的增量编辑会保留，已经包含在 source 中的编辑重复应用也不影响结果
+     */
+    public void indexBook(String bookId, PasswordSource source) throws IOException {
+        File deltaFile = new File(indexDir, bookId + DELTA_SUFFIX);
+        long mark;
+        synchronized (this) {
+            ensureLoaded();
+            mark = deltaFile.length() / DELTA_RECORD_SIZE * DELTA_RECORD_SIZE;
+        }
+
+        // 构建过程不持有锁，查询不受影响
+        File built = new File(indexDir, bookId + INDEX_SUFFIX + ".tmp");
+        try {
+            buildSegment(source, built);
+        } catch (IOException e) {
+            built.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            File target = new File(indexDir, bookId + INDEX_SUFFIX);
+            if (!built.renameTo(target) && !(target.delete() && built.renameTo(target))) {
+                built.delete();
+                throw new IOException("无法写入索引文件: " + target);
+            }
+            segments.put(bookId, mapSegment(target));
+
+            // 只保留建立期间追加的增量编辑
+            Map<Long, Integer> delta = new HashMap<>();
+            File remaining = new File(indexDir, bookId + DELTA_SUFFIX + ".tmp");
+            try (DataOutputStream out = openOutput(remaining)) {
+                readDelta(deltaFile, mark, (op, hash, count) -> {
+                    writeRecord(out, op, hash, count);
+                    delta.put(hash, count);
+                });
+            } catch (IOException e) {
+                // 增量文件损坏，只丢失建立期间的编辑
+                delta.clear();
+            }
+            if (delta.isEmpty()) {
+                remaining.delete();
+                deltaFile.delete();
+                deltas.remove(bookId);
+            } else {
+                if (!remaining.renameTo(deltaFile) && !(deltaFile.delete() && remaining.renameTo(deltaFile))) {
+                    remaining.delete();
+                    throw new IOException("无法写入索引增量文件: " + deltaFile);
+                }
+                deltas.put(bookId, delta);
+            }
+        }
+    }
+
+    /**
+     * 记录密码本的增量编辑，每个删除只删除该密码的一处出现
+     */
+    public synchronized void applyEdits(String bookId, List<String> added, List<String> removed) throws IOException {
+        ensureLoaded();
+        Map<Long, Integer> delta = deltas.get(bookId);
+        if (delta == null) {
+            delta = new HashMap<>();
+            deltas.put(bookId, delta);
+        }
+        LongBuffer segment = segments.get(bookId);
+        File deltaFile = new File(indexDir, bookId + DELTA_SUFFIX);
+        truncateToRecords(deltaFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(deltaFile, true), IO_BUFFER))) {
+            for (String password : removed) {
+                long hash = hash(password);
+                int count = Math.max(0, getCount(segment, delta, hash) - 1);
+                writeRecord(out, OP_DELETE, hash, count);
+                delta.put(hash, count);
+            }
+            for (String password : added) {
+                long hash = hash(password);
+                int count = getCount(segment, delta, hash) + 1;
+                writeRecord(out, OP_ADD, hash, count);
+                delta.put(hash, count);
+            }
+        }
+    }
+
+    /**
+     * 删除密码本的索引
+     */
+    public synchronized void removeBook(String bookId) {
+        segments.remove(bookId);
+        deltas.remove(bookId);
+        new File(indexDir, bookId + INDEX_SUFFIX).delete();
+        new File(indexDir, bookId + DELTA_SUFFIX).delete();
+    }
+
+    /**
+     * 查询包含该密码的密码本ID
+     */
+    public synchronized List<String> findBooks(String password) throws IOException {
+        ensureLoaded();
+        long hash = hash(password);
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, LongBuffer> entry : segments.entrySet()) {
+            if (containsHash(entry.getKey(), entry.getValue(), hash)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否有任一密码本包含该密码
+     */
+    public synchronized boolean contains(String password) throws IOException {
+        ensureLoaded();
+        long hash = hash(password);
+        for (Map.Entry<String, LongBuffer> entry : segments.entrySet()) {
+            if (containsHash(entry.getKey(), entry.getValue(), hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsHash(String bookId, LongBuffer segment, long hash) {
+        Map<Long, Integer> delta = deltas.get(bookId);
+        if (delta != null) {
+            Integer count = delta.get(hash);
+            if (count != null) {
+                return count > 0;
+            }
+        }
+        int index = lowerBound(segment, hash);
+        return index < segment.limit() && segment.get(index) == hash;
+    }
+
+    /**
+     * 密码本中该哈希的出现次数，增量编辑优先
+     */
+    private static int getCount(LongBuffer segment, Map<Long, Integer> delta, long hash) {
+        Integer count = delta.get(hash);
+        if (count != null) {
+            return count;
+        }
+        if (segment == null) {
+            return 0;
+        }
+        int n = 0;
+        for (int i = lowerBound(segment, hash); i < segment.limit() && segment.get(i) == hash; i++) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 第一个不小于 hash 的位置
+     */
+    private static int lowerBound(LongBuffer segment, long hash) {
+        int low = 0;
+        int high = segment.limit();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.get(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 首次使用时映射所有索引文件并读取增量编辑
+     */
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        File[] files = indexDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(INDEX_SUFFIX)) {
+                    segments.put(name.substring(0, name.length() - INDEX_SUFFIX.length()), mapSegment(file));
+                } else if (name.endsWith(".tmp")) {
+                    file.delete();
+                }
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(DELTA_SUFFIX)) {
+                    String bookId = name.substring(0, name.length() - DELTA_SUFFIX.length());
+                    try {
+                        truncateToRecords(file);
+                        deltas.put(bookId, readDelta(file));
+                    } catch (IOException e) {
+                        // 增量文件损坏，删除索引等待重建
+                        removeBook(bookId);
+                    }
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    private static Map<Long, Integer> readDelta(File file) throws IOException {
+        Map<Long, Integer> delta = new HashMap<>();
+        readDelta(file, 0, (op, hash, count) -> delta.put(hash, count));
+        return delta;
+    }
+
+    /**
+     * 截掉崩溃时写了一半的最后一条记录，之后追加的记录才能对齐
+     */
+    private static void truncateToRecords(File file) throws IOException {
+        long length = file.length();
+        if (length % DELTA_RECORD_SIZE == 0) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length / DELTA_RECORD_SIZE * DELTA_RECORD_SIZE);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte op, long hash, int count) throws IOException {
+        out.writeByte(op);
+        out.writeLong(hash);
+        out.writeInt(count);
+    }
+
+    private static void readDelta(File file, long offset, DeltaHandler handler) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (FileInputStream fis = new FileInputStream(file)) {
+            fis.getChannel().position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
+            while (true) {
+                byte op;
+                long hash;
+                int count;
+                try {
+                    op = in.readByte();
+                    hash = in.readLong();
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    // 崩溃时写了一半的最后一条记录直接忽略
+                    break;
+                }
+                if ((op != OP_ADD && op != OP_DELETE) || count < 0) {
+                    throw new IOException("索引增量文件损坏: " + file);
+                }
+                handler.accept(op, hash, count);
+            }
+        }
+    }
+
+    private static LongBuffer mapSegment(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size() / 8 * 8).asLongBuffer();
+        }
+    }
+
+    /**
+     * 计算密码本所有密码的哈希，外部排序后写入 output
+     */
+    private void buildSegment(PasswordSource source, File output) throws IOException {
+        int chunkSize = (int) Math.max(1024, Math.min(Integer.MAX_VALUE - 8, memoryBudget / 8));
+        long[] chunk = new long[Math.min(chunkSize, 1 << 16)];
+        int[] size = {0};
+        List<File> runs = new ArrayList<>();
+        long[][] holder = {chunk};
+        try {
+            source.forEachPassword(password -> {
+                if (size[0] == holder[0].length) {
+                    if (holder[0].length < chunkSize) {
+                        holder[0] = Arrays.copyOf(holder[0], (int) Math.min(chunkSize, holder[0].length * 2L));
+                    } else {
+                        runs.add(writeRun(holder[0], size[0]));
+                        size[0] = 0;
+                    }
+                }
+                holder[0][size[0]++] = hash(password);
+            });
+            if (runs.isEmpty()) {
+                Arrays.sort(holder[0], 0, size[0]);
+                try (DataOutputStream out = openOutput(output)) {
+                    for (int i = 0; i < size[0]; i++) {
+                        out.writeLong(holder[0][i]);
+                    }
+                }
+                return;
+            }
+            if (size[0] > 0) {
+                runs.add(writeRun(holder[0], size[0]));
+            }
+            holder[0] = null;
+            mergeRuns(runs, output);
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    private File writeRun(long[] values, int size) throws IOException {
+        Arrays.sort(values, 0, size);
+        File run = File.createTempFile("index", ".run", tempDir);
+        try (DataOutputStream out = openOutput(run)) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(values[i]);
+            }
+        }
+        return run;
+    }
+
+    private static void mergeRuns(List<File> runs, File output) throws IOException {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>(runs.size(), (a, b) -> Long.compare(a.current, b.current));
+        List<RunCursor> cursors = new ArrayList<>();
+        try (DataOutputStream out = openOutput(output)) {
+            for (File run : runs) {
+                RunCursor cursor = new RunCursor(run);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                out.writeLong(cursor.current);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static DataOutputStream openOutput(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER));
+    }
+
+    /**
+     * 密码的64位哈希（FNV-1a 加 MurmurHash3 的 fmix64 混合）
+     */
+    public static long hash(String password) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < password.length(); i++) {
+            h ^= password.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 密码本内容来源，例如 {@link PasswordBookEditLog#forEachPassword}
+     */
+    public interface PasswordSource {
+        void forEachPassword(PasswordSetOperations.LineHandler handler) throws IOException;
+    }
+
+    private interface DeltaHandler {
+        void accept(byte op, long hash, int count) throws IOException;
+    }
+
+    private static class RunCursor implements Closeable {
+        private final DataInputStream in;
+        long current;
+
+        RunCursor(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                current = in.readLong();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
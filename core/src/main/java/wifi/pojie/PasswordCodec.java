@@ -0,0 +1,138 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 密码本导入导出使用的文本、CSV 和 ZIP 格式
+ * <p>
+ * 文本格式每行一个密码，只按 \n 分行，每行去除首尾空白，空行跳过；CSV 只取第一列，导出时带 password 表头。
+ * 读取时边读边解码，不把整个文件拼成一个字符串。
+ */
+public final class PasswordCodec {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PasswordCodec() {
+    }
+
+    /**
+     * 读取文本格式的密码列表
+     */
+    public static List<String> readTxt(InputStream in) throws IOException {
+        List<String> passwords = new ArrayList<>();
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        int len;
+        while ((len = reader.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < len; i++) {
+                if (buffer[i] == '\n') {
+                    line.append(buffer, start, i - start);
+                    addTrimmed(passwords, line);
+                    line.setLength(0);
+                    start = i + 1;
+                }
+            }
+            line.append(buffer, start, len - start);
+        }
+        addTrimmed(passwords, line);
+        return passwords;
+    }
+
+    private static void addTrimmed(List<String> passwords, CharSequence line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start < end) {
+            passwords.add(line.subSequence(start, end).toString());
+        }
+    }
+
+    /**
+     * 读取 CSV 的第一列
+     */
+    public static List<String> readCsv(InputStream in) throws IOException {
+        List<String> passwords = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comma = line.indexOf(',');
+            String password = (comma < 0 ? line : line.substring(0, comma)).trim();
+            if (!password.isEmpty()) {
+                passwords.add(password);
+            }
+        }
+        return passwords;
+    }
+
+    public static void writeTxt(OutputStream out, List<String> passwords) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        for (String password : passwords) {
+            writer.write(password);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public static void writeCsv(OutputStream out, List<String> passwords) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("password\n");
+        for (String password : passwords) {
+            writer.write(password);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * 逐个读取 ZIP 中的密码本，名称为去掉扩展名的文件名
+     */
+    public static void readZip(InputStream in, BiConsumer<String, List<String>> onBook) throws IOException {
+        ZipInputStream zis = new ZipInputStream(in, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                String fileName = entry.getName();
+                int dot = fileName.lastIndexOf('.');
+                String name = dot < 0 ? fileName : fileName.substring(0, dot);
+                // readTxt 读到条目末尾为止，不关闭流
+                onBook.accept(name, readTxt(zis));
+            }
+            zis.closeEntry();
+        }
+    }
+
+    /**
+     * 写入一个名为 name.txt 的条目
+     */
+    public static void writeZipEntry(ZipOutputStream zos, String name, List<String> passwords) throws IOException {
+        zos.putNextEntry(new ZipEntry(name + ".txt"));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8), BUFFER_SIZE);
+        for (String password : passwords) {
+            writer.write(password);
+            writer.write('\n');
+        }
+        writer.flush();
+        zos.closeEntry();
+    }
+}
@@ -1,8 +1,9 @@
 package wifi.pojie;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -10,10 +11,10 @@ import java.util.Random;
  * 密码生成器，用于生成各种类型的密码
  */
 public class PasswordGenerator {
-    private static final String LOWERCASE_LETTERS = "abcdefghijklmnopqrstuvwxyz";
-    private static final String UPPERCASE_LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String DIGITS = "0123456789";
-    private static final String SPECIAL_CHARACTERS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+    static final String LOWERCASE_LETTERS = "abcdefghijklmnopqrstuvwxyz";
+    static final String UPPERCASE_LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    static final String DIGITS = "0123456789";
+    static final String SPECIAL_CHARACTERS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
     private static final String ALL_CHARACTERS = LOWERCASE_LETTERS + UPPERCASE_LETTERS + DIGITS + SPECIAL_CHARACTERS;
     
     private final Random random;
@@ -38,41 +39,11 @@ public class PasswordGenerator {
             throw new IllegalArgumentException("密码长度必须大于0");
         }
         
-        // 构建字符集
-        StringBuilder charset = new StringBuilder();
-        if (includeLowercase) charset.append(LOWERCASE_LETTERS);
-        if (includeUppercase) charset.append(UPPERCASE_LETTERS);
-        if (includeDigits) charset.append(DIGITS);
-        if (includeSpecial) charset.append(SPECIAL_CHARACTERS);
-        
-        if (charset.length() == 0) {
-            throw new IllegalArgumentException("至少需要选择一种字符类型");
-        }
-        
-        // 确保密码包含至少一种选中的字符类型
-        StringBuilder password = new StringBuilder(length);
-        
-        // 先生成每种类型的至少一个字符
-        if (includeLowercase) {
-            password.append(LOWERCASE_LETTERS.charAt(random.nextInt(LOWERCASE_LETTERS.length())));
-        }
-        if (includeUppercase) {
-            password.append(UPPERCASE_LETTERS.charAt(random.nextInt(UPPERCASE_LETTERS.length())));
-        }
-        if (includeDigits) {
-            password.append(DIGITS.charAt(random.nextInt(DIGITS.length())));
-        }
-        if (includeSpecial) {
-            password.append(SPECIAL_CHARACTERS.charAt(random.nextInt(SPECIAL_CHARACTERS.length())));
-        }
-        
-        // 填充剩余长度
-        for (int i = password.length(); i < length; i++) {
-            password.append(charset.charAt(random.nextInt(charset.length())));
-        }
-        
-        // 打乱密码字符顺序，增加随机性
-        return shuffleString(password.toString());
+        // 先生成每种类型的至少一个字符，再从全部字符中填充剩余长度，最后打乱顺序
+        char[] password = new char[length];
+        new BulkPasswordGenerator(length, length, includeLowercase, includeUppercase, includeDigits, includeSpecial)
+                .fill(password, length, random);
+        return new String(password);
     }
     
     /**
@@ -88,10 +59,13 @@ public class PasswordGenerator {
     public List<String> generateMultiplePasswords(int count, int length, boolean includeLowercase, 
                                                  boolean includeUppercase, boolean includeDigits, 
                                                  boolean includeSpecial) {
-        List<String> passwords = new ArrayList<>();
+        BulkPasswordGenerator generator = new BulkPasswordGenerator(length, length, includeLowercase,
+                includeUppercase, includeDigits, includeSpecial);
+        List<String> passwords = new ArrayList<>(count);
+        char[] buffer = new char[length];
         for (int i = 0; i < count; i++) {
-            passwords.add(generatePassword(length, includeLowercase, includeUppercase, 
-                                           includeDigits, includeSpecial));
+            generator.fill(buffer, length, random);
+            passwords.add(new String(buffer));
         }
         return passwords;
     }
@@ -138,16 +112,21 @@ public class PasswordGenerator {
      * @return 打乱后的字符串
      */
     private String shuffleString(String input) {
-        List<Character> characters = new ArrayList<>();
-        for (char c : input.toCharArray()) {
-            characters.add(c);
-        }
-        Collections.shuffle(characters, random);
-        StringBuilder result = new StringBuilder();
-        for (char c : characters) {
-            result.append(c);
+        char[] characters = input.toCharArray();
+        shuffle(characters, characters.length, random);
+        return new String(characters);
+    }
+    
+    /**
+     * 原地打乱数组前 length 个字符（Fisher–Yates）
+     */
+    static void shuffle(char[] characters, int length, Random random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char tmp = characters[i];
+            characters[i] = characters[j];
+            characters[j] = tmp;
         }
-        return result.toString();
     }
     
     /**
@@ -156,35 +135,7 @@ public class PasswordGenerator {
      * @return 密码强度（1-5，5为最强）
      */
     public int evaluatePasswordStrength(String password) {
-        if (password == null || password.isEmpty()) {
-            return 0;
-        }
-        
-        int strength = 0;
-        
-        // 长度评分
-        if (password.length() >= 8) strength++;
-        if (password.length() >= 12) strength++;
-        if (password.length() >= 16) strength++;
-        
-        // 字符类型评分
-        boolean hasLower = !password.matches("^[^a-z]*$");
-        boolean hasUpper = !password.matches("^[^A-Z]*$");
-        boolean hasDigit = !password.matches("^[^0-9]*$");
-        boolean hasSpecial = !password.matches("^[a-zA-Z0-9]*$");
-        
-        if (hasLower) strength++;
-        if (hasUpper) strength++;
-        if (hasDigit) strength++;
-        if (hasSpecial) strength++;
-        
-        // 去重评分（简单检查重复字符）
-        if (password.chars().distinct().count() >= password.length() * 0.8) {
-            strength++;
-        }
-        
-        // 限制强度在1-5之间
-        return Math.max(1, Math.min(5, strength));
+        return PasswordStrength.evaluate(password);
     }
     
     /**
@@ -227,7 +178,7 @@ public class PasswordGenerator {
         
         // 添加生日部分（如果提供）
         if (birthYear != null && birthMonth != null && birthDay != null) {
-            String birthPart = String.format("%02d%02d%02d", birthYear % 100, birthMonth, birthDay);
+            String birthPart = DatePatternEnumerator.formatDate("yyMMdd", birthYear, birthMonth, birthDay);
             password.append(birthPart);
         } else {
             // 否则添加更多随机字符
@@ -244,6 +195,18 @@ public class PasswordGenerator {
         return shuffleString(password.toString());
     }
     
+    /**
+     * 按日期格式和数字模板枚举全部模式密码，与 {@link #generatePatternPassword} 的随机生成不同，结果是确定的，
+     * 总数精确，可以按序号随机访问，直接作为字典使用
+     * @param startDate 起始日期，例如 19800101
+     * @param endDate 结束日期（包含），例如 20251231
+     * @param formats 日期格式或数字模板，例如 yyyyMMdd、ddMMyyyy、yyMMdd、138########
+     * @return 模式密码字典
+     */
+    public DatePatternEnumerator enumeratePatternPasswords(int startDate, int endDate, List<String> formats) {
+        return new DatePatternEnumerator(startDate, endDate, formats);
+    }
+    
     /**
      * 批量生成符合特定规则的密码列表
      * @param count 密码数量
@@ -258,16 +221,37 @@ public class PasswordGenerator {
     public List<String> generatePasswordList(int count, int minLength, int maxLength, 
                                             boolean includeLowercase, boolean includeUppercase, 
                                             boolean includeDigits, boolean includeSpecial) {
-        List<String> passwords = new ArrayList<>();
+        BulkPasswordGenerator generator = new BulkPasswordGenerator(minLength, maxLength, includeLowercase,
+                includeUppercase, includeDigits, includeSpecial);
+        List<String> passwords = new ArrayList<>(count);
+        char[] buffer = new char[maxLength];
         
         for (int i = 0; i < count; i++) {
             // 在minLength和maxLength之间随机选择长度
             int length = minLength + random.nextInt(maxLength - minLength + 1);
-            String password = generatePassword(length, includeLowercase, includeUppercase, 
-                                             includeDigits, includeSpecial);
-            passwords.add(password);
+            generator.fill(buffer, length, random);
+            passwords.add(new String(buffer, 0, length));
         }
         
         return passwords;
     }
+    
+    /**
+     * 批量生成密码直接写入文件，不在内存中保存密码列表，适合生成大量密码
+     * @param output 输出文件
+     * @param count 密码数量
+     * @param minLength 最小长度
+     * @param maxLength 最大长度
+     * @param includeLowercase 是否包含小写字母
+     * @param includeUppercase 是否包含大写字母
+     * @param includeDigits 是否包含数字
+     * @param includeSpecial 是否包含特殊字符
+     * @return 写入的密码数量
+     */
+    public long generatePasswordsToFile(File output, long count, int minLength, int maxLength,
+                                        boolean includeLowercase, boolean includeUppercase,
+                                        boolean includeDigits, boolean includeSpecial) throws IOException {
+        return new BulkPasswordGenerator(minLength, maxLength, includeLowercase, includeUppercase,
+                includeDigits, includeSpecial).generate(output, count, 0);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 密码变换规则，语法与 hashcat 规则的常用子集一致
+ * <p>
+ * 每行一条规则，由若干操作依次组成（操作之间可以有空格），以 # 开头的行是注释。
+ * 操作的参数可以是空格，例如 "$ " 表示末尾追加空格，因此行尾的空白不会去除：
+ * <ul>
+ *     <li>: 不变</li>
+ *     <li>l 全部小写，u 全部大写，c 首字母大写其余小写，C 首字母小写其余大写，t 大小写互换，TN 第N位大小写互换</li>
+ *     <li>$X 末尾追加字符X，^X 开头插入字符X</li>
+ *     <li>sXY 把所有X替换为Y</li>
+ *     <li>d 重复一遍，r 反转</li>
+ *     <li>'N 截断为前N个字符，[ 删除第一个字符，] 删除最后一个字符</li>
+ * </ul>
+ * 位置N用 0-9、A-Z 表示 0 到 35。例如 "c $2 $0 $2 $4" 表示首字母大写并追加 2024，"sa@ so0" 表示 leet 替换。
+ * <p>
+ * 规则编译为操作码数组，应用时在可复用的 char 缓冲区上原地执行，每个结果只分配一次字符串。
+ */
+public class PasswordRules {
+    private static final int OP_NOOP = 0;
+    private static final int OP_LOWER = 1;
+    private static final int OP_UPPER = 2;
+    private static final int OP_CAPITALIZE = 3;
+    private static final int OP_INVERT_CAPITALIZE = 4;
+    private static final int OP_TOGGLE = 5;
+    private static final int OP_TOGGLE_AT = 6;
+    private static final int OP_APPEND = 7;
+    private static final int OP_PREPEND = 8;
+    private static final int OP_SUBSTITUTE = 9;
+    private static final int OP_DUPLICATE = 10;
+    private static final int OP_REVERSE = 11;
+    private static final int OP_TRUNCATE = 12;
+    private static final int OP_DELETE_FIRST = 13;
+    private static final int OP_DELETE_LAST = 14;
+
+    // 每条规则编译为 [操作码, 参数1, 参数2] 的序列
+    private final int[][] rules;
+
+    private PasswordRules(int[][] rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 解析规则文本，每行一条
+     *
+     * @throws IllegalArgumentException 规则语法错误
+     */
+    public static PasswordRules parse(String text) {
+        List<int[]> rules = new ArrayList<>();
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = stripLine(lines[i]);
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(compile(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第" + (i + 1) + "行规则无效: " + e.getMessage());
+            }
+        }
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("没有任何规则");
+        }
+        return new PasswordRules(rules.toArray(new int[0][]));
+    }
+
+    /**
+     * 规则数量
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * 对单词应用第 rule 条规则
+     */
+    public String apply(String word, int rule) {
+        Workspace workspace = new Workspace();
+        return apply(word, rule, workspace);
+    }
+
+    /**
+     * 使用可复用的缓冲区对单词应用第 rule 条规则
+     */
+    String apply(String word, int rule, Workspace workspace) {
+        int[] ops = rules[rule];
+        int length = word.length();
+        char[] buffer = workspace.ensure(length);
+        word.getChars(0, length, buffer, 0);
+
+        for (int i = 0; i < ops.length; i += 3) {
+            int op = ops[i];
+            int a = ops[i + 1];
+            int b = ops[i + 2];
+            switch (op) {
+                case OP_NOOP:
+                    break;
+                case OP_LOWER:
+                    for (int k = 0; k < length; k++) {
+                        buffer[k] = Character.toLowerCase(buffer[k]);
+                    }
+                    break;
+                case OP_UPPER:
+                    for (int k = 0; k < length; k++) {
+                        buffer[k] = Character.toUpperCase(buffer[k]);
+                    }
+                    break;
+                case OP_CAPITALIZE:
+                case OP_INVERT_CAPITALIZE:
+                    for (int k = 0; k < length; k++) {
+                        boolean upper = (k == 0) == (op == OP_CAPITALIZE);
+                        buffer[k] = upper ? Character.toUpperCase(buffer[k]) : Character.toLowerCase(buffer[k]);
+                    }
+                    break;
+                case OP_TOGGLE:
+                    for (int k = 0; k < length; k++) {
+                        buffer[k] = toggle(buffer[k]);
+                    }
+                    break;
+                case OP_TOGGLE_AT:
+                    if (a < length) {
+                        buffer[a] = toggle(buffer[a]);
+                    }
+                    break;
+                case OP_APPEND:
+                    buffer = workspace.ensure(length + 1);
+                    buffer[length++] = (char) a;
+                    break;
+                case OP_PREPEND:
+                    buffer = workspace.ensure(length + 1);
+                    System.arraycopy(buffer, 0, buffer, 1, length);
+                    buffer[0] = (char) a;
+                    length++;
+                    break;
+                case OP_SUBSTITUTE:
+                    for (int k = 0; k < length; k++) {
+                        if (buffer[k] == a) {
+                            buffer[k] = (char) b;
+                        }
+                    }
+                    break;
+                case OP_DUPLICATE:
+                    buffer = workspace.ensure(length * 2);
+                    System.arraycopy(buffer, 0, buffer, length, length);
+                    length *= 2;
+                    break;
+                case OP_REVERSE:
+                    for (int k = 0, j = length - 1; k < j; k++, j--) {
+                        char tmp = buffer[k];
+                        buffer[k] = buffer[j];
+                        buffer[j] = tmp;
+                    }
+                    break;
+                case OP_TRUNCATE:
+                    length = Math.min(length, a);
+                    break;
+                case OP_DELETE_FIRST:
+                    if (length > 0) {
+                        System.arraycopy(buffer, 1, buffer, 0, --length);
+                    }
+                    break;
+                case OP_DELETE_LAST:
+                    if (length > 0) {
+                        length--;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("未知操作码: " + op);
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * 去掉行首空白和行尾的 \r，行尾的空格可能是参数
+     */
+    private static String stripLine(String line) {
+        int start = 0;
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        // 只有空白的行视为空行
+        int last = end;
+        while (last > start && Character.isWhitespace(line.charAt(last - 1))) {
+            last--;
+        }
+        return last == start ? "" : line.substring(start, end);
+    }
+
+    private static char toggle(char c) {
+        if (Character.isUpperCase(c)) {
+            return Character.toLowerCase(c);
+        }
+        if (Character.isLowerCase(c)) {
+            return Character.toUpperCase(c);
+        }
+        return c;
+    }
+
+    private static int[] compile(String rule) {
+        int[] ops = new int[rule.length() * 3];
+        int count = 0;
+        int i = 0;
+        while (i < rule.length()) {
+            char c = rule.charAt(i++);
+            int op;
+            int a = 0;
+            int b = 0;
+            switch (c) {
+                case ' ':
+                case '\t':
+                    continue;
+                case ':':
+                    op = OP_NOOP;
+                    break;
+                case 'l':
+                    op = OP_LOWER;
+                    break;
+                case 'u':
+                    op = OP_UPPER;
+                    break;
+                case 'c':
+                    op = OP_CAPITALIZE;
+                    break;
+                case 'C':
+                    op = OP_INVERT_CAPITALIZE;
+                    break;
+                case 't':
+                    op = OP_TOGGLE;
+                    break;
+                case 'T':
+                    op = OP_TOGGLE_AT;
+                    a = position(rule, i++);
+                    break;
+                case '$':
+                    op = OP_APPEND;
+                    a = argument(rule, i++);
+                    break;
+                case '^':
+                    op = OP_PREPEND;
+                    a = argument(rule, i++);
+                    break;
+                case 's':
+                    op = OP_SUBSTITUTE;
+                    a = argument(rule, i++);
+                    b = argument(rule, i++);
+                    break;
+                case 'd':
+                    op = OP_DUPLICATE;
+                    break;
+                case 'r':
+                    op = OP_REVERSE;
+                    break;
+                case '\'':
+                    op = OP_TRUNCATE;
+                    a = position(rule, i++);
+                    break;
+                case '[':
+                    op = OP_DELETE_FIRST;
+                    break;
+                case ']':
+                    op = OP_DELETE_LAST;
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知操作 " + c);
+            }
+            ops[count++] = op;
+            ops[count++] = a;
+            ops[count++] = b;
+        }
+        return Arrays.copyOf(ops, count);
+    }
+
+    private static char argument(String rule, int index) {
+        if (index >= rule.length()) {
+            throw new IllegalArgumentException("操作缺少参数");
+        }
+        return rule.charAt(index);
+    }
+
+    private static int position(String rule, int index) {
+        char c = argument(rule, index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("位置参数无效: " + c);
+    }
+
+    /**
+     * 应用规则时复用的缓冲区，非线程安全，每个线程使用自己的实例
+     */
+    static class Workspace {
+        private char[] buffer = new char[64];
+
+        char[] ensure(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 密码本集合运算（并集、交集、差集、去重），基于 {@link ExternalSorter}，内存占用只取决于内存预算，与密码本大小无关
+ * <p>
+ * 所有运算都保留密码在源密码本中第一次出现的顺序，字典的优先级顺序不会被打乱
+ */
+public class PasswordSetOperations {
+    /**
+     * 序号前缀宽度，固定宽度的十进制序号按字符串排序即为按序号排序
+     */
+    private static final int INDEX_WIDTH = 19;
+    private static final int IO_BUFFER = 64 * 1024;
+
+    /**
+     * 按密码排序，密码相同按序号排序
+     */
+    private static final Comparator<String> BY_PASSWORD_THEN_INDEX = (a, b) -> {
+        int result = comparePasswordPart(a, b);
+        return result != 0 ? result : a.compareTo(b);
+    };
+
+    private final File tempDir;
+    private final long memoryBudget;
+
+    /**
+     * @param tempDir 临时文件的上级目录，每次运算在其中新建自己的临时目录，可以与其他实例共用
+     */
+    public PasswordSetOperations(File tempDir, long memoryBudget) {
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * 并集：按输入顺序合并所有密码本，重复的密码只保留第一次出现
+     *
+     * @return 输出的密码数量
+     */
+    public long union(List<File> inputs, File output) throws IOException {
+        try (Operation operation = new Operation()) {
+            return union(operation, inputs, output);
+        }
+    }
+
+    private long union(Operation operation, List<File> inputs, File output) throws IOException {
+        File sortedByPassword = operation.newTempFile();
+        File firstOccurrences = operation.newTempFile();
+        try (ExternalSorter sorter = operation.newSorter(BY_PASSWORD_THEN_INDEX, false)) {
+            long[] index = {0};
+            for (File input : inputs) {
+                forEachPassword(input, password -> sorter.add(indexed(index[0]++, password)));
+            }
+            sorter.finish(sortedByPassword);
+        }
+        try (ExternalSorter sorter = operation.newSorter(Comparator.naturalOrder(), false)) {
+            String[] previous = {null};
+            forEachLine(sortedByPassword, record -> {
+                if (previous[0] == null || comparePasswordPart(previous[0], record) != 0) {
+                    sorter.add(record);
+                    previous[0] = record;
+                }
+            });
+            sorter.finish(firstOccurrences);
+        }
+        return stripIndex(firstOccurrences, output);
+    }
+
+    /**
+     * 去重：重复的密码只保留第一次出现
+     *
+     * @return 输出的密码数量
+     */
+    public long deduplicate(File input, File output) throws IOException {
+        List<File> inputs = new ArrayList<>();
+        inputs.add(input);
+        return union(inputs, output);
+    }
+
+    /**
+     * 交集：保留 base 中同时出现在所有 others 中的密码
+     *
+     * @return 输出的密码数量
+     */
+    public long intersection(File base, List<File> others, File output) throws IOException {
+        if (others.isEmpty()) {
+            return deduplicate(base, output);
+        }
+        try (Operation operation = new Operation()) {
+            File set = sortedDistinct(operation, others.get(0));
+            for (int i = 1; i < others.size(); i++) {
+                File next = sortedDistinct(operation, others.get(i));
+                File joined = operation.newTempFile();
+                intersectSorted(set, next, joined);
+                next.delete();
+                set.delete();
+                set = joined;
+            }
+            return filter(operation, base, set, true, output);
+        }
+    }
+
+    /**
+     * 差集：保留 base 中不出现在任何 others 中的密码
+     *
+     * @return 输出的密码数量
+     */
+    public long difference(File base, List<File> others, File output) throws IOException {
+        try (Operation operation = new Operation()) {
+            File set = operation.newTempFile();
+            try (ExternalSorter sorter = operation.newSorter(Comparator.naturalOrder(), true)) {
+                for (File other : others) {
+                    forEachPassword(other, sorter::add);
+                }
+                sorter.finish(set);
+            }
+            return filter(operation, base, set, false, output);
+        }
+    }
+
+    /**
+     * 用已排序去重的集合文件过滤 base，结果保持 base 中的顺序并去重
+     */
+    private long filter(Operation operation, File base, File sortedSet, boolean keepIfPresent, File output) throws IOException {
+        File sortedByPassword = operation.newTempFile();
+        File kept = operation.newTempFile();
+        try (ExternalSorter sorter = operation.newSorter(BY_PASSWORD_THEN_INDEX, false)) {
+            long[] index = {0};
+            forEachPassword(base, password -> sorter.add(indexed(index[0]++, password)));
+            sorter.finish(sortedByPassword);
+        }
+
+        try (ExternalSorter sorter = operation.newSorter(Comparator.naturalOrder(), false);
+             BufferedReader records = openReader(sortedByPassword);
+             BufferedReader set = openReader(sortedSet)) {
+            String member = set.readLine();
+            String previous = null;
+            String record;
+            while ((record = records.readLine()) != null) {
+                if (previous != null && comparePasswordPart(previous, record) == 0) {
+                    continue;
+                }
+                previous = record;
+                String password = record.substring(INDEX_WIDTH + 1);
+                while (member != null && member.compareTo(password) < 0) {
+                    member = set.readLine();
+                }
+                boolean present = member != null && member.equals(password);
+                if (present == keepIfPresent) {
+                    sorter.add(record);
+                }
+            }
+            sorter.finish(kept);
+        }
+        return stripIndex(kept, output);
+    }
+
+    private File sortedDistinct(Operation operation, File input) throws IOException {
+        File sorted = operation.newTempFile();
+        try (ExternalSorter sorter = operation.newSorter(Comparator.naturalOrder(), true)) {
+            forEachPassword(input, sorter::add);
+            sorter.finish(sorted);
+        }
+        return sorted;
+    }
+
+    /**
+     * 两个已排序去重文件求交集
+     */
+    private static void intersectSorted(File a, File b, File output) throws IOException {
+        try (BufferedReader readerA = openReader(a);
+             BufferedReader readerB = openReader(b);
+             BufferedWriter writer = openWriter(output)) {
+            String lineA = readerA.readLine();
+            String lineB = readerB.readLine();
+            while (lineA != null && lineB != null) {
+                int cmp = lineA.compareTo(lineB);
+                if (cmp == 0) {
+                    writer.write(lineA);
+                    writer.write('\n');
+                    lineA = readerA.readLine();
+                    lineB = readerB.readLine();
+                } else if (cmp < 0) {
+                    lineA = readerA.readLine();
+                } else {
+                    lineB = readerB.readLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * 去掉序号前缀，输出密码
+     */
+    private static long stripIndex(File records, File output) throws IOException {
+        long[] count = {0};
+        try (BufferedWriter writer = openWriter(output)) {
+            forEachLine(records, record -> {
+                writer.write(record, INDEX_WIDTH + 1, record.length() - INDEX_WIDTH - 1);
+                writer.write('\n');
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * 生成 "定宽序号\t密码" 格式的记录
+     */
+    static String indexed(long index, String password) {
+        char[] chars = new char[INDEX_WIDTH + 1 + password.length()];
+        for (int i = INDEX_WIDTH - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + index % 10);
+            index /= 10;
+        }
+        chars[INDEX_WIDTH] = '\t';
+        password.getChars(0, password.length(), chars, INDEX_WIDTH + 1);
+        return new String(chars);
+    }
+
+    /**
+     * 比较两条记录的密码部分，不产生子串
+     */
+    private static int comparePasswordPart(String a, String b) {
+        int lenA = a.length();
+        int lenB = b.length();
+        int i = INDEX_WIDTH + 1;
+        int limit = Math.min(lenA, lenB);
+        for (; i < limit; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return lenA - lenB;
+    }
+
+    /**
+     * 逐个读取密码本中的密码（去除首尾空白，跳过空行）
+     */
+    public static void forEachPassword(File file, LineHandler handler) throws IOException {
+        forEachLine(file, line -> {
+            String password = line.trim();
+            if (!password.isEmpty()) {
+                handler.accept(password);
+            }
+        });
+    }
+
+    private static void forEachLine(File file, LineHandler handler) throws IOException {
+        if (!ChunkStore.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                handler.accept(line);
+            }
+        }
+    }
+
+    private static BufferedReader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(ChunkStore.openBook(file), StandardCharsets.UTF_8), IO_BUFFER);
+    }
+
+    private static BufferedWriter openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), IO_BUFFER);
+    }
+
+    /**
+     * 一次运算的临时目录，中间文件和排序分段都在其中，结束时（包括出错）整个删除。
+     * 每次运算的目录都是新建的，同时进行的运算不会覆盖彼此的文件。
+     */
+    private class Operation implements Closeable {
+        private final File workDir;
+
+        Operation() throws IOException {
+            if (!tempDir.isDirectory() && !tempDir.mkdirs() && !tempDir.isDirectory()) {
+                throw new IOException("无法创建临时目录: " + tempDir);
+            }
+            workDir = Files.createTempDirectory(tempDir.toPath(), "setop_").toFile();
+        }
+
+        File newTempFile() throws IOException {
+            return File.createTempFile("setop_", ".tmp", workDir);
+        }
+
+        ExternalSorter newSorter(Comparator<String> comparator, boolean distinct) {
+            return new ExternalSorter(workDir, memoryBudget, comparator, distinct);
+        }
+
+        @Override
+        public void close() {
+            File[] files = workDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            workDir.delete();
+        }
+    }
+
+    @FunctionalInterface
+    public interface LineHandler {
+        void accept(String line) throws IOException;
+    }
+}
@@ -0,0 +1,118 @@
+package wifi.pojie;
+
+/**
+ * 密码强度评分，一次遍历同时统计长度、字符类型和重复字符，不使用正则，也不分配对象
+ * <p>
+ * 评分规则与原来的实现相同：长度达到 8/12/16 各加1分，包含小写、大写、数字、其他字符各加1分，
+ * 不重复字符数不少于长度的80%加1分，结果限制在1-5之间，空密码为0。
+ */
+public final class PasswordStrength {
+    /**
+     * WPA 口令的最短和最长长度（8-63个可打印ASCII字符），64位十六进制为PSK本身
+     */
+    public static final int WPA_MIN_LENGTH = 8;
+    public static final int WPA_MAX_LENGTH = 63;
+    private static final int WPA_PSK_HEX_LENGTH = 64;
+
+    private PasswordStrength() {
+    }
+
+    /**
+     * 评估密码强度
+     *
+     * @return 密码强度（1-5，5为最强），空密码返回0
+     */
+    public static int evaluate(CharSequence password) {
+        if (password == null) {
+            return 0;
+        }
+        int length = password.length();
+        if (length == 0) {
+            return 0;
+        }
+
+        boolean hasLower = false;
+        boolean hasUpper = false;
+        boolean hasDigit = false;
+        boolean hasSpecial = false;
+        // ASCII字符用两个64位掩码去重，其他字符向前查找
+        long seenLow = 0;
+        long seenHigh = 0;
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                hasLower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                hasUpper = true;
+            } else if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else {
+                hasSpecial = true;
+            }
+
+            if (c < 64) {
+                long bit = 1L << c;
+                if ((seenLow & bit) == 0) {
+                    seenLow |= bit;
+                    distinct++;
+                }
+            } else if (c < 128) {
+                long bit = 1L << (c - 64);
+                if ((seenHigh & bit) == 0) {
+                    seenHigh |= bit;
+                    distinct++;
+                }
+            } else if (indexOf(password, c, i) < 0) {
+                distinct++;
+            }
+        }
+
+        int strength = 0;
+        if (length >= 8) strength++;
+        if (length >= 12) strength++;
+        if (length >= 16) strength++;
+        if (hasLower) strength++;
+        if (hasUpper) strength++;
+        if (hasDigit) strength++;
+        if (hasSpecial) strength++;
+        if (distinct >= length * 0.8) strength++;
+        return Math.max(1, Math.min(5, strength));
+    }
+
+    /**
+     * 是否可以作为 WPA/WPA2 口令：8-63个可打印ASCII字符，或64位十六进制
+     */
+    public static boolean isValidWpaPassphrase(CharSequence password) {
+        int length = password.length();
+        if (length == WPA_PSK_HEX_LENGTH) {
+            for (int i = 0; i < length; i++) {
+                char c = password.charAt(i);
+                boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+                if (!hex) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (length < WPA_MIN_LENGTH || length > WPA_MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            if (c < 0x20 || c > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, char c, int end) {
+        for (int i = 0; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
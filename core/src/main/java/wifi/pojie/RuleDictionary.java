@@ -0,0 +1,38 @@
+package wifi.pojie;
+
+/**
+ * 对基础字典中的每个单词依次应用每条变换规则的虚拟字典，不展开到文件
+ * <p>
+ * 总数为 单词数 × 规则数；第 index 项是第 index / 规则数 个单词应用第 index % 规则数 条规则的结果，
+ * 同一个单词的所有变换连续出现，可以从任意序号恢复。不同规则可能得到相同结果，总数按未去重计算。
+ */
+public class RuleDictionary implements DictionarySource {
+    private final DictionarySource base;
+    private final PasswordRules rules;
+    private final long size;
+    private final PasswordRules.Workspace workspace = new PasswordRules.Workspace();
+
+    public RuleDictionary(DictionarySource base, PasswordRules rules) {
+        this.base = base;
+        this.rules = rules;
+        try {
+            this.size = Math.multiplyExact(base.size(), rules.size());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("变换后的候选空间过大");
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized String get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("序号超出范围: " + index);
+        }
+        int ruleCount = rules.size();
+        return rules.apply(base.get(index / ruleCount), (int) (index % ruleCount), workspace);
+    }
+}
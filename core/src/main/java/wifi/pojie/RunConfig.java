@@ -0,0 +1,298 @@
+package wifi.pojie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * 一次破解任务的运行参数，由 {@link Builder} 创建并在创建时校验，之后不可修改
+ * <p>
+ * 字典来源三选一：密码列表、掩码或日期模式，可以再叠加变换规则。
+ */
+public final class RunConfig {
+    /**
+     * 失败判定方式：认证失败、握手超时、握手次数超限
+     */
+    public static final int FAIL_SIGN_AUTH_FAIL = 0;
+    public static final int FAIL_SIGN_HANDSHAKE_TIMEOUT = 1;
+    public static final int FAIL_SIGN_HANDSHAKE_COUNT = 2;
+
+    private static final int VERSION = 1;
+
+    public final String ssid;
+    // 以下三项只有一项非空
+    private final String[] dictionary;
+    public final String mask;
+    public final String datePattern;
+    public final String rules;
+    public final int timeoutMillis;
+    public final int startLine;
+    public final int failSign;
+    public final int failSignTimeout;
+    public final int failSignCount;
+    /**
+     * 字典内容的指纹，用于把断点进度绑定到字典内容，见 {@link #computeFingerprint}
+     */
+    public final long fingerprint;
+
+    private RunConfig(Builder builder) {
+        this.ssid = builder.ssid;
+        this.dictionary = builder.dictionary;
+        this.mask = builder.mask;
+        this.datePattern = builder.datePattern;
+        this.rules = builder.rules;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.startLine = builder.startLine;
+        this.failSign = builder.failSign;
+        this.failSignTimeout = builder.failSignTimeout;
+        this.failSignCount = builder.failSignCount;
+        this.fingerprint = computeFingerprint(builder.dictionaryHash);
+    }
+
+    /**
+     * 密码列表的指纹是每个密码加换行的 UTF-8 编码的 xxHash64，即与每行一个密码的文本文件的哈希相同；
+     * 掩码和日期模式按模式文本计算，再叠加变换规则。起始行、超时等运行参数不影响指纹。
+     *
+     * @param dictionaryHash 读取密码列表时已经输入过全部密码的哈希，为 null 时在这里计算
+     */
+    private long computeFingerprint(XxHash64 dictionaryHash) {
+        if (mask == null && datePattern == null && rules == null) {
+            return dictionaryHash != null ? dictionaryHash.getValue() : hashPasswords(dictionary);
+        }
+        XxHash64 hash = new XxHash64();
+        if (mask != null) {
+            hash.updateUtf8("mask\n" + mask + "\n");
+        } else if (datePattern != null) {
+            // 日期模式改为按不同取值枚举后序号含义变了，换标记使之前的进度失效
+            hash.updateUtf8("date2\n" + datePattern + "\n");
+        } else {
+            long passwords = dictionaryHash != null ? dictionaryHash.getValue() : hashPasswords(dictionary);
+            hash.updateUtf8("list\n" + Long.toHexString(passwords) + "\n");
+        }
+        if (rules != null) {
+            hash.updateUtf8("rules\n" + rules);
+        }
+        return hash.getValue();
+    }
+
+    private static long hashPasswords(String[] passwords) {
+        XxHash64 hash = new XxHash64();
+        for (String password : passwords) {
+            addPassword(hash, password);
+        }
+        return hash.getValue();
+    }
+
+    private static void addPassword(XxHash64 hash, String password) {
+        hash.updateUtf8(password);
+        hash.update((byte) '\n');
+    }
+
+    /**
+     * 指纹的文本形式，16位十六进制
+     */
+    public String getFingerprintHex() {
+        return String.format(Locale.ROOT, "%016x", fingerprint);
+    }
+
+    /**
+     * 创建字典：设置了掩码或日期模式时使用对应的虚拟字典，否则使用密码列表；设置了变换规则时再对每个密码应用规则
+     *
+     * @throws IllegalArgumentException 掩码、日期模式或规则无效
+     */
+    public DictionarySource createDictionary() {
+        DictionarySource source;
+        if (mask != null) {
+            source = new MaskEnumerator(mask);
+        } else if (datePattern != null) {
+            source = DatePatternEnumerator.parse(datePattern);
+        } else {
+            source = DictionarySource.of(dictionary);
+        }
+        if (rules != null) {
+            source = new RuleDictionary(source, PasswordRules.parse(rules));
+        }
+        return source;
+    }
+
+    /**
+     * 序列化为字节数组，用于通过 Intent 传给服务
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(dictionary != null ? dictionary.length * 12 + 64 : 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(ssid);
+            writeOptional(out, mask);
+            writeOptional(out, datePattern);
+            writeOptional(out, rules);
+            out.writeInt(timeoutMillis);
+            out.writeInt(startLine);
+            out.writeByte(failSign);
+            out.writeInt(failSignTimeout);
+            out.writeInt(failSignCount);
+            if (dictionary == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(dictionary.length);
+                for (String password : dictionary) {
+                    out.writeUTF(password);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException 数据损坏或参数无效
+     */
+    public static RunConfig fromBytes(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("不支持的运行参数版本: " + version);
+            }
+            Builder builder = new Builder(in.readUTF())
+                    .setMask(readOptional(in))
+                    .setDatePattern(readOptional(in))
+                    .setRules(readOptional(in))
+                    .setTimeoutMillis(in.readInt())
+                    .setStartLine(in.readInt())
+                    .setFailSign(in.readByte(), in.readInt(), in.readInt());
+            int count = in.readInt();
+            if (count >= 0) {
+                // 边读边计算指纹，不需要再遍历一次字典
+                String[] dictionary = new String[count];
+                XxHash64 hash = new XxHash64();
+                for (int i = 0; i < count; i++) {
+                    dictionary[i] = in.readUTF();
+                    addPassword(hash, dictionary[i]);
+                }
+                builder.setDictionary(dictionary);
+                builder.dictionaryHash = hash;
+            }
+            return builder.build();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("运行参数无效: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static class Builder {
+        private final String ssid;
+        private String[] dictionary;
+        private String mask;
+        private String datePattern;
+        private String rules;
+        private int timeoutMillis;
+        private int startLine = 1;
+        private int failSign = FAIL_SIGN_AUTH_FAIL;
+        private int failSignTimeout;
+        private int failSignCount;
+        // 已经输入了 dictionary 全部密码的哈希
+        private XxHash64 dictionaryHash;
+
+        public Builder(String ssid) {
+            this.ssid = ssid;
+        }
+
+        public Builder setDictionary(String[] dictionary) {
+            this.dictionary = dictionary;
+            this.dictionaryHash = null;
+            return this;
+        }
+
+        public Builder setMask(String mask) {
+            this.mask = mask;
+            return this;
+        }
+
+        public Builder setDatePattern(String datePattern) {
+            this.datePattern = datePattern;
+            return this;
+        }
+
+        public Builder setRules(String rules) {
+            this.rules = rules;
+            return this;
+        }
+
+        public Builder setTimeoutMillis(int timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param startLine 从第几个密码开始尝试，从1开始
+         */
+        public Builder setStartLine(int startLine) {
+            this.startLine = startLine;
+            return this;
+        }
+
+        public Builder setFailSign(int failSign, int failSignTimeout, int failSignCount) {
+            this.failSign = failSign;
+            this.failSignTimeout = failSignTimeout;
+            this.failSignCount = failSignCount;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException 参数无效
+         */
+        public RunConfig build() {
+            if (ssid == null || ssid.isEmpty()) {
+                throw new IllegalArgumentException("wifi名称为空");
+            }
+            mask = emptyToNull(mask);
+            datePattern = emptyToNull(datePattern);
+            rules = rules == null || rules.trim().isEmpty() ? null : rules;
+            if (mask != null) {
+                dictionary = null;
+                datePattern = null;
+            } else if (datePattern != null) {
+                dictionary = null;
+            } else if (dictionary == null) {
+                dictionary = new String[0];
+            }
+            if (timeoutMillis <= 0) {
+                throw new IllegalArgumentException("尝试时间必须大于0");
+            }
+            if (startLine < 1) {
+                throw new IllegalArgumentException("起始行必须从1开始");
+            }
+            if (failSign < FAIL_SIGN_AUTH_FAIL || failSign > FAIL_SIGN_HANDSHAKE_COUNT) {
+                throw new IllegalArgumentException("未知的失败判定方式: " + failSign);
+            }
+            if (failSign == FAIL_SIGN_HANDSHAKE_TIMEOUT && failSignTimeout <= 0) {
+                throw new IllegalArgumentException("握手超时时间必须大于0");
+            }
+            if (failSign == FAIL_SIGN_HANDSHAKE_COUNT && failSignCount <= 0) {
+                throw new IllegalArgumentException("握手次数必须大于0");
+            }
+            RunConfig config = new RunConfig(this);
+            // 提前检查掩码、日期模式和规则的语法
+            config.createDictionary();
+            return config;
+        }
+
+        private static String emptyToNull(String value) {
+            return value == null || value.isEmpty() ? null : value;
+        }
+    }
+}
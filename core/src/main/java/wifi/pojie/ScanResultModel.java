@@ -0,0 +1,156 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以接入点为键的扫描结果模型，新的扫描结果合并到已有条目中，而不是清空重建
+ * <p>
+ * 接入点以 BSSID 为键（没有 BSSID 时以 SSID 为键），信号强度做指数平滑，避免列表随每次扫描的抖动反复重排；
+ * 连续 {@link #MAX_MISSED_SCANS} 次扫描都没有出现的接入点才会移除。
+ * 同名的多个接入点合并为一个网络，信号强度取最强的接入点。
+ */
+public class ScanResultModel {
+    /**
+     * 新测量值在平滑后信号强度中的权重
+     */
+    private static final float RSSI_WEIGHT = 0.5f;
+    private static final int MAX_MISSED_SCANS = 3;
+
+    private final Map<String, AccessPoint> accessPoints = new HashMap<>();
+    private List<Network> networks = Collections.emptyList();
+
+    /**
+     * 合并一次扫描的结果
+     *
+     * @param observations 本次扫描到的接入点
+     * @param now          扫描时间（毫秒）
+     * @return 合并后的网络列表是否有变化
+     */
+    public synchronized boolean merge(List<Observation> observations, long now) {
+        for (AccessPoint accessPoint : accessPoints.values()) {
+            accessPoint.missedScans++;
+        }
+        for (Observation observation : observations) {
+            if (observation.ssid == null || observation.ssid.isEmpty()) {
+                continue;
+            }
+            String key = observation.bssid != null && !observation.bssid.isEmpty()
+                    ? observation.bssid : "ssid:" + observation.ssid;
+            AccessPoint accessPoint = accessPoints.get(key);
+            if (accessPoint == null) {
+                accessPoint = new AccessPoint(observation.ssid, observation.rssi);
+                accessPoints.put(key, accessPoint);
+            } else {
+                accessPoint.ssid = observation.ssid;
+                accessPoint.rssi += (observation.rssi - accessPoint.rssi) * RSSI_WEIGHT;
+            }
+            accessPoint.missedScans = 0;
+            accessPoint.lastSeenMillis = now;
+        }
+        Iterator<AccessPoint> iterator = accessPoints.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().missedScans >= MAX_MISSED_SCANS) {
+                iterator.remove();
+            }
+        }
+
+        List<Network> updated = buildNetworks();
+        if (updated.equals(networks)) {
+            return false;
+        }
+        networks = updated;
+        return true;
+    }
+
+    /**
+     * 当前的网络列表，按信号强度从强到弱排序，返回的列表不可修改
+     */
+    public synchronized List<Network> getNetworks() {
+        return networks;
+    }
+
+    public synchronized void clear() {
+        accessPoints.clear();
+        networks = Collections.emptyList();
+    }
+
+    private List<Network> buildNetworks() {
+        Map<String, Network> bySsid = new HashMap<>();
+        for (AccessPoint accessPoint : accessPoints.values()) {
+            int rssi = Math.round(accessPoint.rssi);
+            Network existing = bySsid.get(accessPoint.ssid);
+            if (existing == null) {
+                bySsid.put(accessPoint.ssid, new Network(accessPoint.ssid, rssi, accessPoint.lastSeenMillis, 1));
+            } else {
+                bySsid.put(accessPoint.ssid, new Network(accessPoint.ssid, Math.max(existing.rssi, rssi),
+                        Math.max(existing.lastSeenMillis, accessPoint.lastSeenMillis), existing.accessPointCount + 1));
+            }
+        }
+        List<Network> result = new ArrayList<>(bySsid.values());
+        result.sort((a, b) -> a.rssi != b.rssi ? Integer.compare(b.rssi, a.rssi) : a.ssid.compareTo(b.ssid));
+        return Collections.unmodifiableList(result);
+    }
+
+    private static class AccessPoint {
+        String ssid;
+        float rssi;
+        long lastSeenMillis;
+        int missedScans;
+
+        AccessPoint(String ssid, int rssi) {
+            this.ssid = ssid;
+            this.rssi = rssi;
+        }
+    }
+
+    /**
+     * 一次扫描中的一个接入点
+     */
+    public static class Observation {
+        public final String ssid;
+        public final String bssid;
+        public final int rssi;
+
+        public Observation(String ssid, String bssid, int rssi) {
+            this.ssid = ssid;
+            this.bssid = bssid;
+            this.rssi = rssi;
+        }
+    }
+
+    /**
+     * 合并后的网络（同名接入点合并）
+     */
+    public static class Network {
+        public final String ssid;
+        public final int rssi;
+        public final long lastSeenMillis;
+        public final int accessPointCount;
+
+        public Network(String ssid, int rssi, long lastSeenMillis, int accessPointCount) {
+            this.ssid = ssid;
+            this.rssi = rssi;
+            this.lastSeenMillis = lastSeenMillis;
+            this.accessPointCount = accessPointCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Network)) return false;
+            Network network = (Network) o;
+            return rssi == network.rssi && lastSeenMillis == network.lastSeenMillis
+                    && accessPointCount == network.accessPointCount && ssid.equals(network.ssid);
+        }
+
+        @Override
+        public int hashCode() {
+            return (ssid.hashCode() * 31 + rssi) * 31 + accessPointCount;
+        }
+    }
+}
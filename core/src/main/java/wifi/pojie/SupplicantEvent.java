@@ -0,0 +1,102 @@
+package wifi.pojie;
+
+/**
+ * wpa_supplicant 控制接口发给监听者的一条消息，如 {@code <3>CTRL-EVENT-CONNECTED - Connection to ... completed}
+ */
+public final class SupplicantEvent {
+    public static final String CONNECTED = "CTRL-EVENT-CONNECTED";
+    public static final String DISCONNECTED = "CTRL-EVENT-DISCONNECTED";
+    public static final String SSID_TEMP_DISABLED = "CTRL-EVENT-SSID-TEMP-DISABLED";
+
+    /**
+     * 消息级别，即尖括号中的数字
+     */
+    public final int level;
+    /**
+     * 去掉级别前缀后的内容
+     */
+    public final String text;
+
+    private SupplicantEvent(int level, String text) {
+        this.level = level;
+        this.text = text;
+    }
+
+    /**
+     * 解析一行消息，行首可以有 wpa_cli 的提示符和回车
+     *
+     * @return 不是 {@code <级别>内容} 格式时返回 null
+     */
+    public static SupplicantEvent parse(String line) {
+        int start = line.indexOf('<');
+        while (start >= 0) {
+            int i = start + 1;
+            int level = 0;
+            while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                level = level * 10 + line.charAt(i) - '0';
+                i++;
+            }
+            if (i > start + 1 && i < line.length() && line.charAt(i) == '>') {
+                int end = line.length();
+                while (end > i + 1 && (line.charAt(end - 1) == '\r' || line.charAt(end - 1) == '\n' || line.charAt(end - 1) == ' ')) {
+                    end--;
+                }
+                return new SupplicantEvent(level, line.substring(i + 1, end));
+            }
+            start = line.indexOf('<', start + 1);
+        }
+        return null;
+    }
+
+    /**
+     * 是否是指定名称的事件，如 {@link #CONNECTED}
+     */
+    public boolean is(String name) {
+        return text.startsWith(name) && (text.length() == name.length() || text.charAt(name.length()) == ' ');
+    }
+
+    /**
+     * 读取 key=value 形式的参数，值可以用双引号括起来
+     *
+     * @return 没有该参数时返回 null
+     */
+    public String getParam(String key) {
+        int from = 0;
+        while (true) {
+            int index = text.indexOf(key + "=", from);
+            if (index < 0) {
+                return null;
+            }
+            if (index == 0 || text.charAt(index - 1) == ' ' || text.charAt(index - 1) == '[') {
+                int valueStart = index + key.length() + 1;
+                if (valueStart < text.length() && text.charAt(valueStart) == '"') {
+                    int close = text.indexOf('"', valueStart + 1);
+                    return text.substring(valueStart + 1, close < 0 ? text.length() : close);
+                }
+                int valueEnd = valueStart;
+                while (valueEnd < text.length() && text.charAt(valueEnd) != ' ' && text.charAt(valueEnd) != ']') {
+                    valueEnd++;
+                }
+                return text.substring(valueStart, valueEnd);
+            }
+            from = index + 1;
+        }
+    }
+
+    public int getIntParam(String key, int defaultValue) {
+        String value = getParam(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<" + level + ">" + text;
+    }
+}
@@ -0,0 +1,57 @@
+package wifi.pojie;
+
+/**
+ * 把 wpa_supplicant 事件转换为一次连接尝试的结果
+ * <p>
+ * 密码错误时 supplicant 会先后发出 SSID-TEMP-DISABLED（reason=WRONG_KEY）和 DISCONNECTED（reason=15），
+ * 同一次尝试只报告第一个结果，直到下一次开始关联。
+ */
+public class SupplicantResultTracker {
+    /**
+     * 802.11 断开原因：四次握手超时，通常是 PSK 不匹配
+     */
+    public static final int REASON_4WAY_HANDSHAKE_TIMEOUT = 15;
+
+    private boolean reported = false;
+
+    /**
+     * @return "success"、"auth_fail"，不是结果事件时返回 null
+     */
+    public String onEvent(SupplicantEvent event) {
+        if (isAttemptStart(event)) {
+            reported = false;
+            return null;
+        }
+        String result = null;
+        if (event.is(SupplicantEvent.CONNECTED)) {
+            result = "success";
+        } else if (event.is(SupplicantEvent.SSID_TEMP_DISABLED)) {
+            if ("WRONG_KEY".equals(event.getParam("reason"))) {
+                result = "auth_fail";
+            }
+        } else if (event.is(SupplicantEvent.DISCONNECTED)) {
+            if (event.getIntParam("reason", -1) == REASON_4WAY_HANDSHAKE_TIMEOUT) {
+                result = "auth_fail";
+            }
+        }
+        if (result == null || reported) {
+            return null;
+        }
+        reported = true;
+        return result;
+    }
+
+    /**
+     * 开始新的一次关联
+     */
+    public static boolean isAttemptStart(SupplicantEvent event) {
+        return event.text.startsWith("Trying to associate with") || event.text.startsWith("SME: Trying to authenticate with");
+    }
+
+    /**
+     * 关联完成，开始四次握手
+     */
+    public static boolean isHandshakeStart(SupplicantEvent event) {
+        return event.text.startsWith("Associated with");
+    }
+}
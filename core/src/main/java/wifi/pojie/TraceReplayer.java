@@ -0,0 +1,196 @@
+package wifi.pojie;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 把录制的事件轨迹按原始时间重新喂给失败判定逻辑，用于离线复现设备上的时序和调整判定参数
+ * <p>
+ * 使用按轨迹时间推进的虚拟时钟实现 {@link EngineTimer}：每条记录之前先执行到期的计时任务，
+ * 所以握手超时等判断和在设备上一样按轨迹时间触发，与回放速度无关。
+ * 所有事件和计时任务都在调用 {@link #replay} 的线程执行。
+ */
+public class TraceReplayer implements EngineTimer {
+    private final double speed;
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private long now;
+    private long sequence = 0;
+
+    private static final class Timer implements Comparable<Timer> {
+        final Runnable task;
+        final long dueTime;
+        final long sequence;
+
+        Timer(Runnable task, long dueTime, long sequence) {
+            this.task = task;
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            if (dueTime != other.dueTime) return Long.compare(dueTime, other.dueTime);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * @param speed 回放倍速，1为原速，不大于0时不等待
+     */
+    public TraceReplayer(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * 当前的轨迹时间
+     */
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        timers.add(new Timer(task, now + Math.max(0, delayMillis), sequence++));
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        timers.removeIf(timer -> timer.task == task);
+    }
+
+    /**
+     * 依次回放轨迹中的全部记录，最后执行剩余的计时任务
+     *
+     * @param onEntry 处理一条记录，可以调用 {@link #postDelayed} 设置计时
+     */
+    public void replay(EventTrace.Reader reader, Consumer<EventTrace.Entry> onEntry) throws IOException, InterruptedException {
+        now = reader.getStartMillis();
+        EventTrace.Entry entry;
+        while ((entry = reader.next()) != null) {
+            advanceTo(entry.timeMillis);
+            onEntry.accept(entry);
+        }
+        advanceTo(Long.MAX_VALUE);
+    }
+
+    private void advanceTo(long time) throws InterruptedException {
+        while (!timers.isEmpty() && timers.peek().dueTime <= time) {
+            Timer timer = timers.poll();
+            sleepUntil(timer.dueTime);
+            timer.task.run();
+        }
+        if (time != Long.MAX_VALUE) {
+            sleepUntil(time);
+        }
+    }
+
+    private void sleepUntil(long time) throws InterruptedException {
+        if (time > now && speed > 0) {
+            Thread.sleep((long) ((time - now) / speed));
+        }
+        now = Math.max(now, time);
+    }
+
+    /**
+     * 用失败判定逻辑重新判断轨迹中的每次尝试，返回按顺序排列的结果
+     * <p>
+     * 每条 ATTEMPT 记录开始一次新的判定，与设备上一样只取每次尝试的第一个结果，
+     * 并忽略开始后 {@link WifiBackend#STALE_AUTH_FAIL_MILLIS} 内的 auth_fail；到下一次尝试时仍没有结果记为 "timeout"。
+     * 轨迹中记录的 RESULT 不参与判定，用于和回放结果比较。
+     *
+     * @param readMode 0:广播 1:logcat 2:wpa_supplicant 控制接口
+     */
+    public List<String> replayAttempts(EventTrace.Reader reader, int readMode, int failSign, int failSignTimeout, int failSignCount)
+            throws IOException, InterruptedException {
+        List<String> results = new ArrayList<>();
+        String[] current = new String[1];
+        boolean[] started = new boolean[1];
+        long[] attemptStart = new long[1];
+        Consumer<String> onResult = result -> {
+            if (!started[0] || current[0] != null) return;
+            if (now - attemptStart[0] < WifiBackend.STALE_AUTH_FAIL_MILLIS && "auth_fail".equals(result)) return;
+            current[0] = result;
+        };
+        LogcatFailureDetector logcat = new LogcatFailureDetector(this, failSign, failSignTimeout, failSignCount, onResult);
+        BroadcastFailureDetector broadcast = new BroadcastFailureDetector(this,
+                failSign == RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT ? failSignTimeout : -1, onResult);
+
+        replay(reader, entry -> {
+            switch (entry.type) {
+                case EventTrace.ATTEMPT:
+                    if (started[0]) results.add(current[0] != null ? current[0] : "timeout");
+                    started[0] = true;
+                    attemptStart[0] = entry.timeMillis;
+                    current[0] = null;
+                    break;
+                case EventTrace.LOGCAT:
+                    if (readMode == 1) logcat.onLogLine(entry.text);
+                    break;
+                case EventTrace.SUPPLICANT:
+                    if (readMode == 2) {
+                        SupplicantEvent event = SupplicantEvent.parse(entry.text);
+                        if (event != null) logcat.onSupplicantEvent(event);
+                    }
+                    break;
+                case EventTrace.SUPPLICANT_STATE:
+                    if (readMode == 0) {
+                        boolean authError = entry.text.endsWith(EventTrace.AUTH_ERROR_SUFFIX);
+                        String state = authError
+                                ? entry.text.substring(0, entry.text.length() - EventTrace.AUTH_ERROR_SUFFIX.length())
+                                : entry.text;
+                        broadcast.onSupplicantState(state, authError);
+                    }
+                    break;
+                case EventTrace.NETWORK_STATE:
+                    if (readMode == 0) broadcast.onNetworkState(entry.text);
+                    break;
+                default:
+                    break;
+            }
+        });
+        if (started[0]) results.add(current[0] != null ? current[0] : "timeout");
+        return results;
+    }
+
+    /**
+     * 离线回放从设备导出的轨迹文件，比较设备上的结果和按指定参数重新判定的结果：
+     * {@code TraceReplayer <轨迹文件> <readMode> <failSign> <failSignTimeout> <failSignCount> [倍速]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 5) {
+            System.err.println("用法: TraceReplayer <轨迹文件> <readMode> <failSign> <failSignTimeout> <failSignCount> [倍速]");
+            System.exit(2);
+        }
+        int readMode = Integer.parseInt(args[1]);
+        int failSign = Integer.parseInt(args[2]);
+        int failSignTimeout = Integer.parseInt(args[3]);
+        int failSignCount = Integer.parseInt(args[4]);
+        double speed = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+
+        List<String> recorded = new ArrayList<>();
+        try (EventTrace.Reader reader = new EventTrace.Reader(new FileInputStream(args[0]))) {
+            EventTrace.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (entry.type == EventTrace.CONFIG) System.out.println("设备参数: " + entry.text);
+                if (entry.type == EventTrace.RESULT) recorded.add(entry.text);
+            }
+        }
+
+        List<String> replayed;
+        try (EventTrace.Reader reader = new EventTrace.Reader(new FileInputStream(args[0]))) {
+            replayed = new TraceReplayer(speed).replayAttempts(reader, readMode, failSign, failSignTimeout, failSignCount);
+        }
+        int differences = 0;
+        for (int i = 0; i < Math.max(recorded.size(), replayed.size()); i++) {
+            String device = i < recorded.size() ? recorded.get(i) : "-";
+            String replay = i < replayed.size() ? replayed.get(i) : "-";
+            if (!device.equals(replay)) differences++;
+            System.out.println((i + 1) + "\t" + device + "\t" + replay + (device.equals(replay) ? "" : "\t*"));
+        }
+        System.out.println("共 " + replayed.size() + " 次尝试，" + differences + " 次结果不同");
+    }
+}
@@ -0,0 +1,36 @@
+package wifi.pojie;
+
+import java.util.function.Consumer;
+
+/**
+ * 破解流程用到的 WiFi 操作：连接、忘记网络、查询网络ID和结果事件
+ * <p>
+ * 真机上由 app 模块的 ConnectWifi 实现，测试时可以换成模拟实现，不需要手机和路由器就能跑完整的尝试流程。
+ */
+public interface WifiBackend {
+    /**
+     * 开始连接后这段时间内收到的 auth_fail 是上一次尝试遗留的事件，忽略
+     */
+    int STALE_AUTH_FAIL_MILLIS = 3000;
+
+    /**
+     * 用指定密码连接，结果通过 onResult 回调一次："success"、"auth_fail"、"timeout" 等
+     *
+     * @throws RuntimeException 连接请求无法发出
+     */
+    void connect(String ssid, String password, int timeout, Consumer<String> onResult);
+
+    /**
+     * 忘记已保存的网络
+     *
+     * @throws RuntimeException 命令执行失败或没有权限
+     */
+    void forgetWifiName(String ssid);
+
+    /**
+     * @return 已保存网络的ID，没有保存时返回 -1
+     */
+    int getWifiId(String ssid);
+
+    void destroy();
+}
@@ -0,0 +1,184 @@
+package wifi.pojie;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内共享的扫描结果缓存，以及遵守系统扫描频率限制的扫描调度
+ * <p>
+ * 前台应用每2分钟最多发起4次扫描，超出的 startScan 会直接失败并返回旧结果。
+ * 这里记录最近发起扫描的时间，预算用完时不再发起扫描，而是在预算恢复的时刻自动补一次，期间直接使用缓存的结果。
+ * 扫描结果合并到同一个 {@link ScanResultModel} 中，关闭选择界面后仍然保留，再次打开时立即显示。
+ */
+public class WifiScanCache {
+    public static final int SCAN_BUDGET = 4;
+    public static final long SCAN_WINDOW_MILLIS = 2 * 60 * 1000;
+
+    private static final WifiScanCache instance = new WifiScanCache(System::currentTimeMillis);
+
+    private final ScanResultModel model = new ScanResultModel();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 最近发起扫描的时间，最多保留 SCAN_BUDGET 个
+    private final ArrayDeque<Long> recentScans = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "WifiScanCache");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Scanner scanner;
+    private ScheduledFuture<?> pendingScan;
+    private volatile long lastUpdateMillis = 0;
+    private final LongSupplier clock;
+
+    /**
+     * @param clock 预算恢复后自动补扫描时取当前时间，其他方法的时间由调用方传入
+     */
+    WifiScanCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static WifiScanCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * 设置发起扫描的方式，扫描结果通过 {@link #onScanResults} 送回
+     */
+    public synchronized void setScanner(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 缓存的网络列表，按信号强度排序，不会阻塞
+     */
+    public List<ScanResultModel.Network> getNetworks() {
+        return model.getNetworks();
+    }
+
+    /**
+     * 最近一次收到扫描结果的时间，从未收到时为0
+     */
+    public long getLastUpdateMillis() {
+        return lastUpdateMillis;
+    }
+
+    /**
+     * 缓存的结果距离现在的时间，从未收到过结果时返回 Long.MAX_VALUE
+     */
+    public long getAgeMillis(long now) {
+        long last = lastUpdateMillis;
+        return last == 0 ? Long.MAX_VALUE : Math.max(0, now - last);
+    }
+
+    /**
+     * 某个网络最后一次出现在扫描结果中距离现在的时间
+     */
+    public static long getAgeMillis(ScanResultModel.Network network, long now) {
+        return Math.max(0, now - network.lastSeenMillis);
+    }
+
+    /**
+     * 合并一次扫描结果并通知监听者
+     */
+    public void onScanResults(List<ScanResultModel.Observation> observations, long now) {
+        lastUpdateMillis = now;
+        model.merge(observations, now);
+        List<ScanResultModel.Network> networks = model.getNetworks();
+        for (Listener listener : listeners) {
+            listener.onNetworksUpdated(networks);
+        }
+    }
+
+    /**
+     * 请求刷新：预算允许时立即发起扫描，否则安排在预算恢复时扫描，不会阻塞
+     *
+     * @return 立即发起扫描时返回0，否则返回距离自动扫描的毫秒数；没有设置扫描方式或发起失败时返回-1
+     */
+    public synchronized long requestScan(long now) {
+        if (scanner == null) {
+            return -1;
+        }
+        long wait = getScanDelay(now);
+        if (wait == 0) {
+            return startScan(now) ? 0 : -1;
+        }
+        if (pendingScan == null || pendingScan.isDone()) {
+            pendingScan = scheduler.schedule(this::runPendingScan, wait, TimeUnit.MILLISECONDS);
+        }
+        return wait;
+    }
+
+    /**
+     * 缓存的结果超过 maxAgeMillis 时才请求刷新
+     */
+    public long requestScanIfStale(long now, long maxAgeMillis) {
+        if (getAgeMillis(now) <= maxAgeMillis) {
+            return 0;
+        }
+        return requestScan(now);
+    }
+
+    /**
+     * 距离下一次可以发起扫描的毫秒数，0表示现在就可以
+     */
+    public synchronized long getScanDelay(long now) {
+        while (!recentScans.isEmpty() && now - recentScans.peekFirst() >= SCAN_WINDOW_MILLIS) {
+            recentScans.pollFirst();
+        }
+        if (recentScans.size() < SCAN_BUDGET) {
+            return 0;
+        }
+        return recentScans.peekFirst() + SCAN_WINDOW_MILLIS - now;
+    }
+
+    private synchronized void runPendingScan() {
+        pendingScan = null;
+        long now = clock.getAsLong();
+        if (scanner != null && getScanDelay(now) == 0) {
+            startScan(now);
+        }
+    }
+
+    private boolean startScan(long now) {
+        recentScans.addLast(now);
+        if (!scanner.startScan()) {
+            // 没能发起的扫描不占用预算
+            recentScans.pollLast();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 发起扫描的方式
+     */
+    public interface Scanner {
+        /**
+         * 发起一次扫描，不等待结果
+         *
+         * @return 是否成功发起
+         */
+        boolean startScan();
+    }
+
+    public interface Listener {
+        /**
+         * 收到新的扫描结果，可能在任意线程调用
+         */
+        void onNetworksUpdated(List<ScanResultModel.Network> networks);
+    }
+}
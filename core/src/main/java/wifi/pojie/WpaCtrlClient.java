@@ -0,0 +1,116 @@
+package wifi.pojie;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * wpa_supplicant 控制接口的监听端
+ * <p>
+ * 控制接口是文本协议：发送 ATTACH 收到 OK 后，supplicant 会把之后的事件以 {@code <级别>内容} 的形式推送过来。
+ * 这里每条消息占一行，可以直接连接控制接口的转发流，也可以读取交互模式 wpa_cli 的输出（wpa_cli 自己会 ATTACH，不需要调用 {@link #attach()}）。
+ */
+public class WpaCtrlClient implements Closeable {
+    // wpa_cli 连不上控制接口或连接断开时的提示，之后它只会不停重试，不会再有事件
+    private static final String[] CONNECTION_ERRORS = {"Could not connect to wpa_supplicant", "Connection to wpa_supplicant lost"};
+
+    private final BufferedReader reader;
+    private final Writer writer;
+    // ATTACH 等待回复期间收到的事件
+    private final ArrayDeque<SupplicantEvent> pending = new ArrayDeque<>();
+
+    /**
+     * @param out 发送命令的流，只读取事件时可以为 null
+     */
+    public WpaCtrlClient(InputStream in, OutputStream out) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.writer = out == null ? null : new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 注册为事件监听者
+     *
+     * @throws IOException supplicant 拒绝或连接断开
+     */
+    public void attach() throws IOException {
+        String reply = request("ATTACH");
+        if (!"OK".equals(reply)) {
+            throw new IOException("ATTACH 失败: " + reply);
+        }
+    }
+
+    public void detach() throws IOException {
+        request("DETACH");
+    }
+
+    /**
+     * 发送命令并等待回复，期间收到的事件留给 {@link #nextEvent()}
+     */
+    public String request(String command) throws IOException {
+        if (writer == null) {
+            throw new IllegalStateException("没有可写的连接");
+        }
+        writer.write(command);
+        writer.write('\n');
+        writer.flush();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            SupplicantEvent event = SupplicantEvent.parse(line);
+            if (event != null) {
+                pending.add(event);
+            } else if (!line.trim().isEmpty()) {
+                return line.trim();
+            }
+        }
+        throw new IOException("连接已关闭");
+    }
+
+    /**
+     * 阻塞读取下一条事件，不是事件格式的行（命令回复、wpa_cli 提示信息）跳过
+     *
+     * @return 连接关闭时返回 null
+     * @throws IOException wpa_cli 提示连不上 supplicant
+     */
+    public SupplicantEvent nextEvent() throws IOException {
+        if (!pending.isEmpty()) {
+            return pending.poll();
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            SupplicantEvent event = SupplicantEvent.parse(line);
+            if (event != null) {
+                return event;
+            }
+            checkConnectionError(line);
+        }
+        return null;
+    }
+
+    private static void checkConnectionError(String line) throws IOException {
+        // 交互模式的输出行带有 "> " 提示符前缀
+        String text = line.startsWith("> ") ? line.substring(2).trim() : line.trim();
+        for (String error : CONNECTION_ERRORS) {
+            if (text.startsWith(error)) {
+                throw new IOException(text);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package wifi.pojie;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 流式 xxHash64，输入可以分多次提供，结果与一次性计算整段数据相同
+ * <p>
+ * 字符串按 UTF-8 编码输入，ASCII 字符直接写入内部缓冲区，不创建临时字节数组。
+ */
+public final class XxHash64 {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private final byte[] buffer = new byte[32];
+    private final ByteBuffer bufferView = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    private int buffered;
+    // 已经处理的完整32字节块的总长度
+    private long processedLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    public void reset() {
+        v1 = seed + P1 + P2;
+        v2 = seed + P2;
+        v3 = seed;
+        v4 = seed - P1;
+        buffered = 0;
+        processedLength = 0;
+    }
+
+    public void update(byte b) {
+        buffer[buffered++] = b;
+        if (buffered == 32) {
+            processBuffer();
+        }
+    }
+
+    public void update(byte[] data, int off, int len) {
+        int end = off + len;
+        if (buffered > 0) {
+            int n = Math.min(32 - buffered, len);
+            System.arraycopy(data, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            if (buffered < 32) {
+                return;
+            }
+            processBuffer();
+        }
+        if (end - off >= 32) {
+            ByteBuffer view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            while (end - off >= 32) {
+                v1 = round(v1, view.getLong(off));
+                v2 = round(v2, view.getLong(off + 8));
+                v3 = round(v3, view.getLong(off + 16));
+                v4 = round(v4, view.getLong(off + 24));
+                off += 32;
+                processedLength += 32;
+            }
+        }
+        System.arraycopy(data, off, buffer, 0, end - off);
+        buffered = end - off;
+    }
+
+    /**
+     * 输入字符串的 UTF-8 编码，未配对的代理字符按 '?' 处理，与 String.getBytes 一致
+     */
+    public void updateUtf8(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                update((byte) c);
+            } else if (c < 0x800) {
+                update((byte) (0xC0 | (c >> 6)));
+                update((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                update((byte) (0xF0 | (codePoint >> 18)));
+                update((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                update((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                update((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                update((byte) '?');
+            } else {
+                update((byte) (0xE0 | (c >> 12)));
+                update((byte) (0x80 | ((c >> 6) & 0x3F)));
+                update((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void processBuffer() {
+        v1 = round(v1, bufferView.getLong(0));
+        v2 = round(v2, bufferView.getLong(8));
+        v3 = round(v3, bufferView.getLong(16));
+        v4 = round(v4, bufferView.getLong(24));
+        buffered = 0;
+        processedLength += 32;
+    }
+
+    /**
+     * 当前已输入数据的哈希值，之后还可以继续输入
+     */
+    public long getValue() {
+        long totalLength = processedLength + buffered;
+        long h;
+        if (totalLength >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += totalLength;
+
+        int i = 0;
+        while (i + 8 <= buffered) {
+            h ^= round(0, bufferView.getLong(i));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+            i += 8;
+        }
+        if (i + 4 <= buffered) {
+            h ^= (bufferView.getInt(i) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            i += 4;
+        }
+        while (i < buffered) {
+            h ^= (buffer[i] & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            i++;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * P1 + P4;
+    }
+}
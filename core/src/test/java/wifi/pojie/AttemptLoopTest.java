@@ -0,0 +1,152 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用 {@link SimulatedWifi} 跑完整的尝试循环，检查结果、网络清理和故障处理
+ */
+public class AttemptLoopTest {
+
+    private static final String SSID = "Guest WiFi";
+
+    private static DictionarySource numbers(int count) {
+        return new DictionarySource() {
+            @Override
+            public long size() {
+                return count;
+            }
+
+            @Override
+            public String get(long index) {
+                return String.format("%08d", index);
+            }
+        };
+    }
+
+    /**
+     * 运行到结束，记录最终结果
+     */
+    private static class Run implements AttemptLoop.Listener {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean finished;
+        volatile String password;
+        volatile String error;
+        volatile int lastAdvance = -1;
+
+        Run(SimulatedWifi wifi, int size, int startIndex) throws InterruptedException {
+            AttemptLoop loop = new AttemptLoop(wifi, numbers(size), SSID, 15000, this);
+            loop.start(startIndex);
+            assertTrue("loop did not finish", done.await(10, TimeUnit.SECONDS));
+            assertTrue(loop.isStopped());
+            wifi.destroy();
+        }
+
+        @Override
+        public void onAttempt(int index, String password) {
+        }
+
+        @Override
+        public void onResult(int index, String password, String result) {
+        }
+
+        @Override
+        public void onAdvance(int nextIndex) {
+            lastAdvance = nextIndex;
+        }
+
+        @Override
+        public void onFinished(String password) {
+            this.finished = true;
+            this.password = password;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String message) {
+            this.error = message;
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void findsPassword() throws InterruptedException {
+        SimulatedWifi wifi = new SimulatedWifi.Builder("00000500").build();
+        Run run = new Run(wifi, 1000, 0);
+        assertTrue(run.finished);
+        assertEquals("00000500", run.password);
+        assertEquals(501, wifi.getConnectCount());
+        // 每次失败都忘记了网络，只剩连接成功的那个
+        assertEquals(500, wifi.getForgetCount());
+        assertEquals(0, wifi.getDuplicateCount());
+        assertNotEquals(-1, wifi.getWifiId(SSID));
+        assertEquals(500 * 3000L + 3000L, wifi.getSimulatedMillis());
+    }
+
+    @Test
+    public void exhaustedFromStartIndex() throws InterruptedException {
+        SimulatedWifi wifi = new SimulatedWifi.Builder("00000500").build();
+        Run run = new Run(wifi, 1000, 600);
+        assertTrue(run.finished);
+        assertNull(run.password);
+        assertEquals(400, wifi.getConnectCount());
+        assertEquals(1000, run.lastAdvance);
+        assertEquals(-1, wifi.getWifiId(SSID));
+    }
+
+    @Test
+    public void failureModesAreDeterministic() throws InterruptedException {
+        List<String> first = null;
+        for (int i = 0; i < 2; i++) {
+            SimulatedWifi wifi = new SimulatedWifi.Builder("00000300")
+                    .seed(7)
+                    .failLatency(SimulatedWifi.Latency.logNormal(2500, 0.6))
+                    .dropRate(0.1)
+                    .unavailableRate(0.05)
+                    .build();
+            Run run = new Run(wifi, 1000, 0);
+            // 丢失事件和 unavailable 都按失败处理，不影响找到正确密码
+            assertEquals("00000300", run.password);
+            List<String> results = wifi.getResults();
+            assertEquals(301, results.size());
+            assertTrue(results.contains("timeout"));
+            assertTrue(results.contains("unavailable"));
+            if (first == null) {
+                first = results;
+            } else {
+                assertEquals(first, results);
+            }
+        }
+    }
+
+    @Test
+    public void falseNegativeSkipsPassword() throws InterruptedException {
+        SimulatedWifi wifi = new SimulatedWifi.Builder("00000005").falseNegativeRate(1).build();
+        Run run = new Run(wifi, 10, 0);
+        assertTrue(run.finished);
+        assertNull(run.password);
+        assertEquals("auth_fail", wifi.getResults().get(5));
+    }
+
+    @Test
+    public void forgetFailureStopsLoop() throws InterruptedException {
+        SimulatedWifi wifi = new SimulatedWifi.Builder("00000005").forgetFailureRate(1).build();
+        Run run = new Run(wifi, 10, 0);
+        assertFalse(run.finished);
+        assertEquals("forget fail", run.error);
+        assertEquals(1, wifi.getConnectCount());
+    }
+
+    @Test
+    public void connectFailureStopsLoop() throws InterruptedException {
+        SimulatedWifi wifi = new SimulatedWifi.Builder("00000005").connectFailureRate(1).build();
+        Run run = new Run(wifi, 10, 0);
+        assertEquals("connect fail", run.error);
+        assertEquals(-1, run.lastAdvance);
+    }
+}
@@ -0,0 +1,100 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 二进制 logcat 读取测试，样例 resources/logcat/supplicant_events.bin 包含 v1、v3、v4 三种头部格式的日志
+ */
+public class BinaryLogcatReaderTest {
+
+    private static byte[] load(String name) throws IOException {
+        try (InputStream in = BinaryLogcatReaderTest.class.getClassLoader().getResourceAsStream("logcat/" + name)) {
+            assertNotNull("missing fixture " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static BinaryLogcatReader supplicantReader(byte[] data) {
+        return new BinaryLogcatReader(new ByteArrayInputStream(data), BinaryLogcatReader.PRIORITY_DEBUG,
+                "WifiService", "wpa_supplicant", "DhcpClient");
+    }
+
+    @Test
+    public void filtersByTagAndPriority() throws IOException {
+        BinaryLogcatReader reader = supplicantReader(load("supplicant_events.bin"));
+
+        assertTrue(reader.next());
+        assertEquals("wpa_supplicant", reader.getTag());
+        assertEquals(BinaryLogcatReader.PRIORITY_DEBUG, reader.getPriority());
+        assertEquals("wlan0: Trying to associate with SSID 'TP-LINK_8A2C'", reader.getMessage());
+        assertEquals(1234, reader.getPid());
+        assertEquals(1240, reader.getTid());
+
+        // 跳过 verbose 级别的日志
+        assertTrue(reader.next());
+        assertEquals("wlan0: WPA: Sending EAPOL-Key 2/4", reader.getMessage());
+        assertEquals(1760000001005L, reader.getTimeMillis());
+
+        // 跳过 WifiServiceImpl，末尾的换行去掉
+        assertTrue(reader.next());
+        assertEquals(BinaryLogcatReader.PRIORITY_INFO, reader.getPriority());
+        assertEquals("wlan0: WPA: 4-Way Handshake failed - pre-shared key may be incorrect", reader.getMessage());
+
+        assertTrue(reader.next());
+        assertEquals("DhcpClient", reader.getTag());
+        assertTrue(reader.getMessage().contains("ACK: your new IP /192.168.1.23"));
+
+        // v1 头部
+        assertTrue(reader.next());
+        assertEquals("WifiService", reader.getTag());
+        assertEquals(BinaryLogcatReader.PRIORITY_WARN, reader.getPriority());
+        assertEquals("网络已断开", reader.getMessage());
+
+        assertFalse(reader.next());
+        assertEquals(8, reader.getReadCount());
+        assertEquals(5, reader.getMatchedCount());
+    }
+
+    @Test
+    public void noTagFilter() throws IOException {
+        BinaryLogcatReader reader = new BinaryLogcatReader(new ByteArrayInputStream(load("supplicant_events.bin")),
+                BinaryLogcatReader.PRIORITY_VERBOSE);
+        int count = 0;
+        while (reader.next()) {
+            count++;
+            if (count == 1) {
+                assertEquals("ActivityManager", reader.getTag());
+            }
+        }
+        assertEquals(8, count);
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        assertFalse(supplicantReader(new byte[0]).next());
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedEntry() throws IOException {
+        byte[] data = load("supplicant_events.bin");
+        BinaryLogcatReader reader = supplicantReader(Arrays.copyOf(data, data.length - 3));
+        while (reader.next()) {
+            reader.getMessage();
+        }
+    }
+}
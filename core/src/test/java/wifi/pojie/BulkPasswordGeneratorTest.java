@@ -0,0 +1,48 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量生成的写出流程
+ */
+public class BulkPasswordGeneratorTest {
+
+    @Test
+    public void writesRequestedCount() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkPasswordGenerator generator = new BulkPasswordGenerator(8, 12, true, true, true, false);
+        assertEquals(50_000, generator.generate(out, 50_000, 4));
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(50_000, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.length() >= 8 && line.length() <= 12);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void workerFailureIsRethrown() {
+        AtomicLong calls = new AtomicLong();
+        BulkPasswordGenerator generator = new BulkPasswordGenerator(8, 12, true, true, true, false) {
+            @Override
+            void fill(char[] buffer, int length, Random random) {
+                if (calls.incrementAndGet() == 30_000) {
+                    throw new IllegalStateException("boom");
+                }
+                super.fill(buffer, length, random);
+            }
+        };
+        try {
+            generator.generate(new ByteArrayOutputStream(), 200_000, 4);
+            fail();
+        } catch (IOException e) {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+}
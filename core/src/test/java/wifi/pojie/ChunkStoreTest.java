@@ -0,0 +1,251 @@
+package wifi.pojie;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分块存储的去重、引用计数和读取
+ */
+public class ChunkStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File booksDir;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        booksDir = folder.newFolder("books");
+        // 约2MB，切分为几十个块
+        content = randomBook(new Random(5), 200_000);
+    }
+
+    private static byte[] randomBook(Random random, int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            int length = 8 + random.nextInt(5);
+            for (int k = 0; k < length; k++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File writeBook(String name, byte[] data) throws IOException {
+        File file = new File(booksDir, name);
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readBook(File file) throws IOException {
+        try (InputStream in = ChunkStore.openBook(file)) {
+            return readAll(in);
+        }
+    }
+
+    private static List<String> manifestHashes(File book) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        for (String line : Files.readAllLines(new File(book.getPath() + ChunkStore.MANIFEST_SUFFIX).toPath())) {
+            hashes.add(line.substring(0, line.indexOf(' ')));
+        }
+        return hashes;
+    }
+
+    @Test
+    public void storedBookReadsBackUnchanged() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File book = writeBook("a.txt", content);
+        assertEquals(content.length, store.storeBook(book));
+        assertFalse(book.exists());
+        assertTrue(ChunkStore.exists(book));
+        assertTrue(manifestHashes(book).size() > 10);
+        assertArrayEquals(content, readBook(book));
+        assertEquals(content.length, store.getStoredBytes());
+        // 没有普通文件时不做任何事
+        assertEquals(-1, store.storeBook(book));
+    }
+
+    @Test
+    public void identicalBooksShareChunks() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        store.storeBook(writeBook("a.txt", content));
+        long stored = store.getStoredBytes();
+
+        // 第二次导入相同内容只增加清单，不写入新块
+        File copy = writeBook("b.txt", content);
+        assertEquals(0, store.storeBook(copy));
+        assertEquals(stored, store.getStoredBytes());
+        assertArrayEquals(content, readBook(copy));
+    }
+
+    @Test
+    public void localEditChangesOnlyNearbyChunks() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File original = writeBook("a.txt", content);
+        store.storeBook(original);
+        List<String> before = manifestHashes(original);
+
+        // 在中间插入一行
+        int middle = content.length / 2;
+        while (content[middle - 1] != '\n') {
+            middle++;
+        }
+        byte[] inserted = "inserted-password\n".getBytes(StandardCharsets.UTF_8);
+        byte[] edited = new byte[content.length + inserted.length];
+        System.arraycopy(content, 0, edited, 0, middle);
+        System.arraycopy(inserted, 0, edited, middle, inserted.length);
+        System.arraycopy(content, middle, edited, middle + inserted.length, content.length - middle);
+
+        File editedBook = writeBook("b.txt", edited);
+        long written = store.storeBook(editedBook);
+        List<String> after = manifestHashes(editedBook);
+
+        Set<String> changed = new HashSet<>(after);
+        changed.removeAll(before);
+        assertTrue("变化的块数: " + changed.size(), changed.size() <= 2);
+        // 新写入的字节只有变化的块，存储只增加一小部分
+        assertTrue(written > 0);
+        assertTrue("写入 " + written + " 字节", written < content.length / 5);
+        assertEquals(content.length + written, store.getStoredBytes());
+        assertArrayEquals(edited, readBook(editedBook));
+    }
+
+    @Test
+    public void gcDeletesOnlyUnreferencedChunks() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File a = writeBook("a.txt", content);
+        store.storeBook(a);
+        byte[] other = randomBook(new Random(6), 20_000);
+        File b = writeBook("b.txt", other);
+        store.storeBook(b);
+        File copy = writeBook("c.txt", content);
+        store.storeBook(copy);
+        long bothStored = store.getStoredBytes();
+
+        // a 的块仍被 c 引用
+        store.deleteBook(a);
+        assertEquals(0, store.gc());
+        assertEquals(bothStored, store.getStoredBytes());
+        assertArrayEquals(content, readBook(copy));
+
+        // b 的块已无引用，但本实例刚释放，可能仍在读取，留到下次启动
+        store.deleteBook(b);
+        assertFalse(ChunkStore.exists(b));
+        assertEquals(0, store.gc());
+
+        // 新实例的维护删除 b 的块，存储降到只剩 c
+        ChunkStore restarted = new ChunkStore(booksDir);
+        assertTrue(restarted.gc() > 0);
+        assertEquals(content.length, restarted.getStoredBytes());
+        assertArrayEquals(content, readBook(copy));
+    }
+
+    @Test
+    public void openStreamSurvivesRelease() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File a = writeBook("a.txt", content);
+        store.storeBook(a);
+        try (InputStream in = ChunkStore.openBook(a)) {
+            store.deleteBook(a);
+            store.gc();
+            assertArrayEquals(content, readAll(in));
+        }
+    }
+
+    @Test
+    public void skipAndReadRoundTrip() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File a = writeBook("a.txt", content);
+        store.storeBook(a);
+
+        Random random = new Random(9);
+        for (int trial = 0; trial < 50; trial++) {
+            try (InputStream in = ChunkStore.openBook(a)) {
+                long position = 0;
+                while (position < content.length) {
+                    // 交替跳过（有时跨越多个块）和读取
+                    long skip = random.nextInt(4) == 0 ? random.nextInt(300_000) : random.nextInt(100);
+                    long skipped = in.skip(skip);
+                    assertEquals(Math.min(skip, content.length - position), skipped);
+                    position += skipped;
+
+                    byte[] buffer = new byte[random.nextInt(5000) + 1];
+                    int read = in.read(buffer);
+                    if (position >= content.length) {
+                        assertEquals(-1, read);
+                        break;
+                    }
+                    assertTrue(read > 0);
+                    assertArrayEquals(Arrays.copyOfRange(content, (int) position, (int) position + read),
+                            Arrays.copyOf(buffer, read));
+                    position += read;
+                }
+            }
+        }
+
+        // 单字节读取
+        try (InputStream in = ChunkStore.openBook(a)) {
+            assertEquals(content.length - 1, in.skip(content.length - 1));
+            assertEquals(content[content.length - 1] & 0xFF, in.read());
+            assertEquals(-1, in.read());
+            assertEquals(0, in.skip(10));
+        }
+    }
+
+    @Test
+    public void interruptedStoreDoesNotLeakReferences() throws IOException {
+        ChunkStore store = new ChunkStore(booksDir);
+        File a = writeBook("a.txt", content);
+        // 清单的临时文件路径被目录占用，写入块之后写清单失败
+        File blocker = new File(booksDir, "a.txt" + ChunkStore.MANIFEST_SUFFIX + ".tmp");
+        assertTrue(blocker.mkdir());
+        try {
+            store.storeBook(a);
+            fail("写入清单应当失败");
+        } catch (IOException expected) {
+        }
+        assertTrue(a.exists());
+        assertArrayEquals(content, readBook(a));
+
+        // 已写入的块没有被引用，gc 可以立即删除
+        assertTrue(store.getStoredBytes() > 0);
+        assertTrue(store.gc() > 0);
+        assertEquals(0, store.getStoredBytes());
+
+        // 重试成功后引用计数正确，删除后块都能被回收
+        assertTrue(blocker.delete());
+        store.storeBook(a);
+        assertEquals(content.length, store.getStoredBytes());
+        store.deleteBook(a);
+        assertTrue(new ChunkStore(booksDir).gc() > 0);
+        assertEquals(0, new ChunkStore(booksDir).getStoredBytes());
+    }
+}
@@ -0,0 +1,138 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * cmd wifi 输出解析测试，样例在 resources/cmd_wifi 下，按各系统版本 WifiShellCommand 的输出格式
+ */
+public class CmdWifiParserTest {
+
+    private static String load(String name) throws IOException {
+        try (InputStream in = CmdWifiParserTest.class.getClassLoader().getResourceAsStream("cmd_wifi/" + name)) {
+            assertNotNull("missing fixture " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void listNetworks_android11() throws IOException {
+        List<CmdWifiParser.SavedNetwork> networks = CmdWifiParser.parseNetworks(load("android11_list_networks.txt"));
+        assertEquals(4, networks.size());
+        assertEquals(0, networks.get(0).networkId);
+        assertEquals("ChinaNet-5G7x", networks.get(0).ssid);
+        assertEquals("wpa2-psk", networks.get(0).securityType);
+        assertEquals(3, networks.get(2).networkId);
+        assertEquals("Guest WiFi", networks.get(2).ssid);
+        assertEquals("open", networks.get(2).securityType);
+        assertEquals("wpa3-sae", networks.get(3).securityType);
+    }
+
+    @Test
+    public void listNetworks_android13_crlfAndWideSsid() throws IOException {
+        List<CmdWifiParser.SavedNetwork> networks = CmdWifiParser.parseNetworks(load("android13_list_networks.txt"));
+        assertEquals(4, networks.size());
+        assertEquals("办公室网络", networks.get(0).ssid);
+        assertEquals("My Home Network 2.4G", networks.get(1).ssid);
+        assertEquals(12, networks.get(2).networkId);
+        assertEquals("owe", networks.get(2).securityType);
+        // 32个字符的 SSID 与安全类型之间只有一个空格
+        assertEquals(104, networks.get(3).networkId);
+        assertEquals("ABCDEFGHIJKLMNOPQRSTUVWXYZ012345", networks.get(3).ssid);
+        assertEquals("wpa2-psk", networks.get(3).securityType);
+    }
+
+    @Test
+    public void listNetworks_noNetworks() throws IOException {
+        assertTrue(CmdWifiParser.parseNetworks(load("su_list_networks_empty.txt")).isEmpty());
+        assertTrue(CmdWifiParser.parseNetworks("").isEmpty());
+        assertTrue(CmdWifiParser.parseNetworks(null).isEmpty());
+    }
+
+    @Test
+    public void findNetworkId() throws IOException {
+        String output = load("android13_list_networks.txt");
+        assertEquals(5, CmdWifiParser.findNetworkId(output, "My Home Network 2.4G"));
+        assertEquals(2, CmdWifiParser.findNetworkId(output, "办公室网络"));
+        assertEquals(-1, CmdWifiParser.findNetworkId(output, "My Home"));
+        assertEquals(-1, CmdWifiParser.findNetworkId(load("su_list_networks_empty.txt"), "No"));
+    }
+
+    @Test
+    public void listScanResults_android11() throws IOException {
+        List<CmdWifiParser.ScanRecord> records = CmdWifiParser.parseScanResults(load("android11_list_scan_results.txt"));
+        assertEquals(3, records.size());
+        CmdWifiParser.ScanRecord first = records.get(0);
+        assertEquals("d4:ee:07:12:34:56", first.bssid);
+        assertEquals(2437, first.frequency);
+        assertEquals(-48, first.rssi);
+        assertEquals("TP-LINK_8A2C", first.ssid);
+        assertEquals("[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS][WPS]", first.flags);
+        assertEquals("Guest WiFi", records.get(1).ssid);
+        assertEquals(5745, records.get(1).frequency);
+        // 隐藏网络的 SSID 为空
+        assertEquals("", records.get(2).ssid);
+        assertEquals(-85, records.get(2).rssi);
+        assertEquals("[WPA2-PSK-CCMP][ESS]", records.get(2).flags);
+    }
+
+    @Test
+    public void listScanResults_android12_radioChains() throws IOException {
+        List<CmdWifiParser.ScanRecord> records = CmdWifiParser.parseScanResults(load("android12_list_scan_results.txt"));
+        assertEquals(3, records.size());
+        assertEquals(-52, records.get(0).rssi);
+        assertEquals(5180, records.get(0).frequency);
+        // 天线信号强度中有空格："-9(0: -9/1:-12)"
+        assertEquals(-9, records.get(1).rssi);
+        assertEquals("a4:50:46:01:02:04", records.get(1).bssid);
+        assertEquals("CMCC-ABCD", records.get(1).ssid);
+        assertEquals("My Home Network 2.4G", records.get(2).ssid);
+        assertEquals("[WPA-PSK-TKIP][WPA2-PSK-CCMP][ESS]", records.get(2).flags);
+    }
+
+    @Test
+    public void listScanResults_android13() throws IOException {
+        List<CmdWifiParser.ScanRecord> records = CmdWifiParser.parseScanResults(load("android13_list_scan_results.txt"));
+        assertEquals(3, records.size());
+        assertEquals("办公室网络", records.get(0).ssid);
+        assertEquals(-61, records.get(0).rssi);
+        assertEquals("[RSN-PSK-CCMP][ESS]", records.get(0).flags);
+        // 超过32个字符的 SSID 被截断
+        assertEquals("ABCDEFGHIJKLMNOPQRSTUVWXYZ012345", records.get(1).ssid);
+        assertEquals("Airport Free", records.get(2).ssid);
+        assertEquals("[ESS][PASSPOINT]", records.get(2).flags);
+        assertEquals(-70, records.get(2).rssi);
+    }
+
+    @Test
+    public void listScanResults_noResults() throws IOException {
+        assertTrue(CmdWifiParser.parseScanResults(load("su_list_scan_results_empty.txt")).isEmpty());
+    }
+
+    @Test
+    public void cmdTable_columnsFromHeader() {
+        CmdTable table = CmdTable.parse("noise line\nA  Long Name   SSID   Z\n1  x   hello world   9\n", "SSID");
+        assertEquals(4, table.getColumnCount());
+        assertEquals(1, table.indexOf("long name"));
+        assertTrue(table.next());
+        assertEquals(1, table.getInt(0, -1));
+        assertEquals("x", table.getString(1));
+        assertEquals("hello world", table.getString(2));
+        assertEquals(9, table.getInt(3, -1));
+        assertEquals(-1, table.getInt(1, -1));
+        assertFalse(table.next());
+    }
+}
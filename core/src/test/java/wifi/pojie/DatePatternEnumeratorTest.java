@@ -0,0 +1,72 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 日期模式枚举的候选数量等于不同密码的数量
+ */
+public class DatePatternEnumeratorTest {
+
+    private static Set<String> distinct(DatePatternEnumerator enumerator) {
+        Set<String> values = new HashSet<>();
+        for (long i = 0; i < enumerator.size(); i++) {
+            values.add(enumerator.get(i));
+        }
+        return values;
+    }
+
+    /**
+     * 每个格式单独检查，不同格式之间可能得到相同的密码（例如 MMdd 和 ddMM 的 0101）
+     */
+    private static void assertNoDuplicates(String range, String... formats) {
+        for (String format : formats) {
+            DatePatternEnumerator enumerator = DatePatternEnumerator.parse(range + ":" + format);
+            assertEquals(format, enumerator.size(), distinct(enumerator).size());
+        }
+    }
+
+    @Test
+    public void sizeEqualsDistinctCount() {
+        DatePatternEnumerator monthDay = DatePatternEnumerator.parse("20200101-20231231:MMdd");
+        assertEquals(366, monthDay.size());
+        assertEquals(366, distinct(monthDay).size());
+
+        assertNoDuplicates("20200101-20231231", "MMdd", "ddMM", "Md", "d");
+        assertNoDuplicates("19800101-20251231", "MMdd##");
+        assertNoDuplicates("18500301-20251231", "yyMMdd", "yyMM", "yy", "ddMMyy");
+        assertNoDuplicates("19990101-20011231", "yyyyMMdd", "yyyyMM", "yyyy", "yyyydd", "yyyy'-'d");
+        assertNoDuplicates("20210315-20210410", "MMdd", "dd", "M");
+    }
+
+    @Test
+    public void partialRangeKeepsOnlyDatesInRange() {
+        DatePatternEnumerator enumerator = DatePatternEnumerator.parse("20211230-20220102:MMdd");
+        assertEquals(new HashSet<>(Arrays.asList("1230", "1231", "0101", "0102")), distinct(enumerator));
+        // 按月、日排序
+        assertEquals("0101", enumerator.get(0));
+
+        // 2月29日只在闰年出现
+        assertEquals(365, DatePatternEnumerator.parse("20210101-20231231:MMdd").size());
+        assertEquals(100, DatePatternEnumerator.parse("19000101-21991231:yy").size());
+    }
+
+    @Test
+    public void quotedTextIsLiteral() {
+        DatePatternEnumerator enumerator = DatePatternEnumerator.parse("20240305-20240305:'Mad'MMdd,'I''m'yy,''d");
+        assertEquals(3, enumerator.size());
+        assertEquals("Mad0305", enumerator.get(0));
+        assertEquals("I'm24", enumerator.get(1));
+        assertEquals("'5", enumerator.get(2));
+        try {
+            DatePatternEnumerator.parse("20240305-20240305:'MMdd");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * xxHash64、字典指纹和按指纹保存的断点进度
+ */
+public class DictionaryFingerprintTest {
+
+    private static long xxHash(byte[] data) {
+        XxHash64 hash = new XxHash64();
+        hash.update(data, 0, data.length);
+        return hash.getValue();
+    }
+
+    private static RunConfig config(String... passwords) {
+        return new RunConfig.Builder("Guest WiFi").setTimeoutMillis(8000).setDictionary(passwords).build();
+    }
+
+    @Test
+    public void xxHash64KnownValues() {
+        assertEquals(0xEF46DB3751D8E999L, xxHash(new byte[0]));
+        assertEquals(0xD24EC4F1A98C6E5BL, xxHash("a".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x44BC2CF5AD770999L, xxHash("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0xFBCEA83C8A378BF1L, xxHash("Nobody inspects the spammish repetition".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void streamingMatchesOneShot() {
+        Random random = new Random(7);
+        byte[] data = new byte[1000];
+        random.nextBytes(data);
+        for (int length : new int[]{0, 1, 3, 4, 8, 31, 32, 33, 63, 64, 100, 1000}) {
+            long expected = xxHash(Arrays.copyOf(data, length));
+            XxHash64 hash = new XxHash64();
+            int off = 0;
+            while (off < length) {
+                int n = Math.min(length - off, random.nextInt(40));
+                if (n == 1) {
+                    hash.update(data[off]);
+                } else {
+                    hash.update(data, off, n);
+                }
+                off += n;
+            }
+            assertEquals("length " + length, expected, hash.getValue());
+        }
+
+        String text = "密码ü😀abc\uD800x";
+        XxHash64 hash = new XxHash64();
+        hash.updateUtf8(text);
+        assertEquals(xxHash(text.getBytes(StandardCharsets.UTF_8)), hash.getValue());
+    }
+
+    @Test
+    public void listFingerprintIsHashOfTextFile() throws IOException {
+        String[] passwords = {"12345678", "密码password", "qwertyui"};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PasswordCodec.writeTxt(out, Arrays.asList(passwords));
+        assertEquals(xxHash(out.toByteArray()), config(passwords).fingerprint);
+    }
+
+    @Test
+    public void fingerprintFollowsContentNotRunParameters() throws IOException {
+        RunConfig config = config("12345678", "87654321");
+        RunConfig restored = RunConfig.fromBytes(config.toBytes());
+        assertEquals(config.fingerprint, restored.fingerprint);
+        assertEquals(16, config.getFingerprintHex().length());
+
+        RunConfig otherStart = new RunConfig.Builder("Other").setTimeoutMillis(3000).setStartLine(2)
+                .setDictionary(new String[]{"12345678", "87654321"}).build();
+        assertEquals(config.fingerprint, otherStart.fingerprint);
+
+        // 顺序、内容和分行变化都会改变指纹
+        assertNotEquals(config.fingerprint, config("87654321", "12345678").fingerprint);
+        assertNotEquals(config.fingerprint, config("12345678", "87654322").fingerprint);
+        assertNotEquals(config.fingerprint, config("1234567887654321").fingerprint);
+
+        RunConfig withRules = new RunConfig.Builder("Guest WiFi").setTimeoutMillis(8000)
+                .setDictionary(new String[]{"12345678", "87654321"}).setRules("u").build();
+        assertNotEquals(config.fingerprint, withRules.fingerprint);
+        assertEquals(withRules.fingerprint, RunConfig.fromBytes(withRules.toBytes()).fingerprint);
+
+        RunConfig mask = new RunConfig.Builder("Guest WiFi").setTimeoutMillis(8000).setMask("?d?d?d?d?d?d?d?d").build();
+        assertEquals(mask.fingerprint, RunConfig.fromBytes(mask.toBytes()).fingerprint);
+        assertNotEquals(mask.fingerprint, new RunConfig.Builder("Guest WiFi").setTimeoutMillis(8000)
+                .setMask("?d?d?d?d?d?d?d?d?d").build().fingerprint);
+    }
+
+    @Test
+    public void checkpointsKeyedByFingerprint() {
+        String json = Checkpoints.put(null, "aaaa", 120, 1000, 1);
+        json = Checkpoints.put(json, "bbbb", 7, 50, 2);
+        assertEquals(120, Checkpoints.find(json, "aaaa", 1000));
+        assertEquals(7, Checkpoints.find(json, "bbbb", 50));
+        assertEquals(-1, Checkpoints.find(json, "cccc", 1000));
+        // 总数不一致视为不同的字典
+        assertEquals(-1, Checkpoints.find(json, "aaaa", 999));
+
+        json = Checkpoints.put(json, "aaaa", 121, 1000, 3);
+        assertEquals(121, Checkpoints.find(json, "aaaa", 1000));
+
+        json = Checkpoints.remove(json, "aaaa");
+        assertEquals(-1, Checkpoints.find(json, "aaaa", 1000));
+        assertEquals(7, Checkpoints.find(json, "bbbb", 50));
+        assertNull(Checkpoints.remove(json, "bbbb"));
+
+        assertEquals(-1, Checkpoints.find("{\"progress\"", "aaaa", 1000));
+        // 旧版本的进度格式没有指纹
+        assertEquals(-1, Checkpoints.find("{\"currentTryIndex\":5,\"totalPasswords\":10}", "aaaa", 10));
+    }
+
+    @Test
+    public void oldestCheckpointEvicted() {
+        String json = null;
+        for (int i = 0; i < Checkpoints.MAX_CHECKPOINTS + 2; i++) {
+            json = Checkpoints.put(json, "fp" + i, i, 100, 1000 + i);
+        }
+        assertEquals(-1, Checkpoints.find(json, "fp0", 100));
+        assertEquals(-1, Checkpoints.find(json, "fp1", 100));
+        for (int i = 2; i < Checkpoints.MAX_CHECKPOINTS + 2; i++) {
+            assertEquals(i, Checkpoints.find(json, "fp" + i, 100));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package wifi.pojie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 外部排序的分段写出、多轮归并和临时文件清理
+ */
+public class ExternalSorterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> randomLines(int count) {
+        Random random = new Random(11);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(Integer.toString(random.nextInt(count / 2)));
+        }
+        return lines;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void inMemory() throws IOException {
+        List<String> lines = randomLines(100);
+        File out = new File(folder.getRoot(), "out.txt");
+        try (ExternalSorter sorter = new ExternalSorter(folder.newFolder(), 1 << 20, false)) {
+            for (String line : lines) {
+                sorter.add(line);
+            }
+            assertEquals(lines.size(), sorter.finish(out));
+        }
+        List<String> expected = new ArrayList<>(lines);
+        Collections.sort(expected);
+        assertEquals(expected, read(out));
+    }
+
+    @Test
+    public void multiPassMerge() throws IOException {
+        // 预算为1字节时每行一个分段，远超单次归并的分段数上限
+        List<String> lines = randomLines(1000);
+        File tempDir = folder.newFolder();
+        File out = new File(folder.getRoot(), "out.txt");
+        try (ExternalSorter sorter = new ExternalSorter(tempDir, 1, true)) {
+            for (String line : lines) {
+                sorter.add(line);
+            }
+            assertEquals(1000, tempDir.list().length);
+            long count = sorter.finish(out);
+            assertEquals(new TreeSet<>(lines).size(), count);
+        }
+        assertEquals(new ArrayList<>(new TreeSet<>(lines)), read(out));
+        assertArrayEquals(new String[0], tempDir.list());
+    }
+
+    @Test
+    public void customComparator() throws IOException {
+        File out = new File(folder.getRoot(), "out.txt");
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        try (ExternalSorter sorter = new ExternalSorter(folder.newFolder(), 1, byLength, true)) {
+            for (String line : new String[]{"ccc", "a", "bb", "d", "eee"}) {
+                sorter.add(line);
+            }
+            // 比较结果相等的只保留一个
+            assertEquals(3, sorter.finish(out));
+        }
+        assertEquals(3, read(out).size());
+        assertEquals(1, read(out).get(0).length());
+        assertEquals(3, read(out).get(2).length());
+    }
+
+    @Test
+    public void tempFilesRemovedOnError() throws IOException {
+        File tempDir = folder.newFolder();
+        boolean[] failing = {false};
+        Comparator<String> comparator = (a, b) -> {
+            if (failing[0]) {
+                throw new IllegalStateException("比较失败");
+            }
+            return a.compareTo(b);
+        };
+        try (ExternalSorter sorter = new ExternalSorter(tempDir, 1, comparator, false)) {
+            for (String line : randomLines(200)) {
+                sorter.add(line);
+            }
+            failing[0] = true;
+            sorter.finish(new File(folder.getRoot(), "out.txt"));
+            fail("归并时比较应当失败");
+        } catch (IllegalStateException expected) {
+        }
+        assertArrayEquals(new String[0], tempDir.list());
+    }
+
+    @Test
+    public void sortersShareTempDir() throws IOException {
+        File tempDir = folder.newFolder();
+        File outA = new File(folder.getRoot(), "a.txt");
+        File outB = new File(folder.getRoot(), "b.txt");
+        try (ExternalSorter a = new ExternalSorter(tempDir, 1, false);
+             ExternalSorter b = new ExternalSorter(tempDir, 1, false)) {
+            for (int i = 0; i < 100; i++) {
+                a.add("a" + (99 - i));
+                b.add("b" + (99 - i));
+            }
+            a.finish(outA);
+            b.finish(outB);
+        }
+        for (String line : read(outA)) {
+            assertTrue(line.startsWith("a"));
+        }
+        for (String line : read(outB)) {
+            assertTrue(line.startsWith("b"));
+        }
+        assertEquals(100, read(outA).size());
+        assertEquals(100, read(outB).size());
+    }
+}
@@ -0,0 +1,100 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 延迟统计的分位数、最大值和重置
+ */
+public class LatencyStatsTest {
+
+    @Test
+    public void empty() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMax());
+        assertEquals(0, stats.getMean(), 0);
+        assertEquals(0, stats.getPercentile(50));
+        assertEquals(0, stats.getPercentile(100));
+        assertEquals("0次 平均0.0ms P50 0ms P99 0ms 最大0ms", stats.summary());
+    }
+
+    @Test
+    public void singleSample() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(7);
+        assertEquals(1, stats.getCount());
+        assertEquals(7, stats.getMax());
+        assertEquals(7, stats.getMean(), 0);
+        assertEquals(7, stats.getPercentile(0));
+        assertEquals(7, stats.getPercentile(50));
+        assertEquals(7, stats.getPercentile(100));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyStats stats = new LatencyStats();
+        // 倒序记录，结果与顺序无关
+        for (int i = 100; i >= 1; i--) {
+            stats.record(i);
+        }
+        assertEquals(100, stats.getCount());
+        assertEquals(50.5, stats.getMean(), 1e-9);
+        assertEquals(1, stats.getPercentile(0));
+        assertEquals(1, stats.getPercentile(1));
+        assertEquals(50, stats.getPercentile(50));
+        assertEquals(51, stats.getPercentile(50.5));
+        assertEquals(99, stats.getPercentile(99));
+        assertEquals(100, stats.getPercentile(100));
+        // 超出范围的分位按边界处理
+        assertEquals(1, stats.getPercentile(-5));
+        assertEquals(100, stats.getPercentile(150));
+        assertEquals("100次 平均50.5ms P50 50ms P99 99ms 最大100ms", stats.summary());
+    }
+
+    @Test
+    public void beyondTrackedRange() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < 98; i++) {
+            stats.record(2);
+        }
+        stats.record(LatencyStats.MAX_TRACKED_MILLIS);
+        stats.record(5000);
+        assertEquals(5000, stats.getMax());
+        assertEquals(2, stats.getPercentile(98));
+        // 落在最后一个桶的分位返回最大值
+        assertEquals(5000, stats.getPercentile(99));
+        assertEquals(5000, stats.getPercentile(100));
+    }
+
+    @Test
+    public void negativeLatencyCountsAsZero() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(-3);
+        assertEquals(0, stats.getMax());
+        assertEquals(0, stats.getMean(), 0);
+        assertEquals(0, stats.getPercentile(100));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < 10; i++) {
+            stats.record(200 + i);
+        }
+        stats.record(3000);
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMax());
+        assertEquals(0, stats.getMean(), 0);
+        assertEquals(0, stats.getPercentile(50));
+
+        // 重置前的样本不影响之后的统计
+        stats.record(4);
+        assertEquals(1, stats.getCount());
+        assertEquals(4, stats.getMax());
+        assertEquals(4, stats.getPercentile(50));
+        assertEquals(4, stats.getPercentile(100));
+    }
+}
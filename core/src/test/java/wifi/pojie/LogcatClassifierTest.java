@@ -0,0 +1,30 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * logcat 日志分类测试，样例取自 wpa_supplicant 和 DhcpClient 的实际输出
+ */
+public class LogcatClassifierTest {
+
+    @Test
+    public void classifiesConnectionEvents() {
+        assertEquals(LogcatClassifier.AUTH_FAIL, LogcatClassifier.classify(
+                "wlan0: WPA: 4-Way Handshake failed - pre-shared key may be incorrect"));
+        assertEquals(LogcatClassifier.SUCCESS, LogcatClassifier.classify(
+                "Received packet: 02:00:00:00:00:00 ACK: your new IP /192.168.1.23, netmask /255.255.255.0"));
+        assertEquals(LogcatClassifier.HANDSHAKE, LogcatClassifier.classify(
+                "wlan0: WPA: Sending EAPOL-Key 2/4"));
+        assertEquals(LogcatClassifier.HANDSHAKE_DONE, LogcatClassifier.classify(
+                "wlan0: WPA: Sending EAPOL-Key 4/4"));
+    }
+
+    @Test
+    public void ignoresUnrelatedLines() {
+        assertEquals(LogcatClassifier.NONE, LogcatClassifier.classify("wlan0: CTRL-EVENT-SCAN-STARTED "));
+        assertEquals(LogcatClassifier.NONE, LogcatClassifier.classify("WPA: Sending EAPOL-Key 2/4"));
+        assertEquals(LogcatClassifier.NONE, LogcatClassifier.classify(""));
+    }
+}
@@ -0,0 +1,161 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 掩码解析和按序号解码
+ */
+public class MaskEnumeratorTest {
+
+    private static void assertInvalid(String mask, String message) {
+        try {
+            new MaskEnumerator(mask);
+            fail("应当解析失败: " + mask);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static List<String> all(MaskEnumerator enumerator) {
+        List<String> values = new ArrayList<>();
+        for (long i = 0; i < enumerator.size(); i++) {
+            values.add(enumerator.get(i));
+        }
+        return values;
+    }
+
+    /**
+     * 按定义逐个展开：每个元素先短后长，同一长度内靠左的字符变化最慢，靠后的元素变化最快
+     */
+    private static List<String> bruteForce(List<String[]> charsets, int[] minCounts, int[] maxCounts) {
+        List<String> result = Collections.singletonList("");
+        for (int e = 0; e < charsets.size(); e++) {
+            List<String> elementValues = new ArrayList<>();
+            for (int length = minCounts[e]; length <= maxCounts[e]; length++) {
+                List<String> values = Collections.singletonList("");
+                for (int k = 0; k < length; k++) {
+                    List<String> next = new ArrayList<>();
+                    for (String prefix : values) {
+                        for (String c : charsets.get(e)) {
+                            next.add(prefix + c);
+                        }
+                    }
+                    values = next;
+                }
+                elementValues.addAll(values);
+            }
+            List<String> next = new ArrayList<>();
+            for (String prefix : result) {
+                for (String value : elementValues) {
+                    next.add(prefix + value);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    @Test
+    public void fixedLengthDigits() {
+        MaskEnumerator digits = new MaskEnumerator("?d{8}");
+        assertEquals(100_000_000L, digits.size());
+        assertEquals("00000000", digits.get(0));
+        assertEquals("00000001", digits.get(1));
+        assertEquals("12345678", digits.get(12_345_678));
+        assertEquals("99999999", digits.get(digits.size() - 1));
+
+        MaskEnumerator prefixed = new MaskEnumerator("abc?d{4}");
+        assertEquals(10_000, prefixed.size());
+        assertEquals("abc0000", prefixed.get(0));
+        assertEquals("abc9999", prefixed.get(prefixed.size() - 1));
+    }
+
+    @Test
+    public void variableLengthShorterFirst() {
+        MaskEnumerator enumerator = new MaskEnumerator("?d{2,3}");
+        assertEquals(100 + 1000, enumerator.size());
+        assertEquals("00", enumerator.get(0));
+        assertEquals("99", enumerator.get(99));
+        assertEquals("000", enumerator.get(100));
+        assertEquals("999", enumerator.get(enumerator.size() - 1));
+
+        // 长度可以为0
+        MaskEnumerator optional = new MaskEnumerator("x?d{0,1}");
+        assertEquals(Arrays.asList("x", "x0", "x1", "x2", "x3", "x4", "x5", "x6", "x7", "x8", "x9"), all(optional));
+    }
+
+    @Test
+    public void customCharsetsAndEscapes() {
+        MaskEnumerator hex = new MaskEnumerator("[0-9a-f]");
+        assertEquals(16, hex.size());
+        assertEquals(Arrays.asList("0123456789abcdef".split("")), all(hex));
+
+        // 重复的字符只算一次，\ 转义 ] 和 -
+        MaskEnumerator custom = new MaskEnumerator("[aba\\]\\-]");
+        assertEquals(Arrays.asList("a", "b", "]", "-"), all(custom));
+
+        MaskEnumerator escaped = new MaskEnumerator("\\?\\[\\{?d");
+        assertEquals(10, escaped.size());
+        assertEquals("?[{0", escaped.get(0));
+
+        MaskEnumerator question = new MaskEnumerator("??{2}?h");
+        assertEquals(16, question.size());
+        assertEquals("??f", question.get(15));
+        assertEquals("F", new MaskEnumerator("?H").get(15));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        MaskEnumerator enumerator = new MaskEnumerator("[ab]{1,2}-?d[xyz]{0,2}");
+        List<String> expected = bruteForce(
+                Arrays.asList(new String[]{"a", "b"}, new String[]{"-"}, "0123456789".split(""), new String[]{"x", "y", "z"}),
+                new int[]{1, 1, 1, 0}, new int[]{2, 1, 1, 2});
+        assertEquals(expected.size(), enumerator.size());
+        assertEquals(expected, all(enumerator));
+    }
+
+    @Test
+    public void outOfRange() {
+        MaskEnumerator enumerator = new MaskEnumerator("?d");
+        for (long index : new long[]{-1, 10, Long.MAX_VALUE}) {
+            try {
+                enumerator.get(index);
+                fail("序号 " + index + " 应当越界");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void overflow() {
+        // 单个元素的一种长度超出范围
+        assertInvalid("?d{19}", "掩码的候选空间过大");
+        // 元素之间相乘超出范围
+        assertInvalid("?d{10}?d{10}", "掩码的候选空间过大");
+        // 每种长度都不超出范围，但所有长度相加超出
+        assertInvalid("[0-4]{0,27}", "掩码的候选空间过大");
+        assertEquals(7_450_580_596_923_828_125L, new MaskEnumerator("[0-4]{27}").size());
+    }
+
+    @Test
+    public void malformedMasks() {
+        assertInvalid("", "掩码为空");
+        assertInvalid("abc?", "掩码以 ? 结尾");
+        assertInvalid("abc\\", "掩码以 \\ 结尾");
+        assertInvalid("?x", "未知的字符集: ?x");
+        assertInvalid("[abc", "自定义字符集缺少 ]");
+        assertInvalid("[]", "自定义字符集为空");
+        assertInvalid("[z-a]", "字符范围无效: z-a");
+        assertInvalid("?d{3", "长度范围缺少 }");
+        assertInvalid("?d{5,3}", "长度范围无效: {5,3}");
+        assertInvalid("?d{x}", "长度范围无效: {x}");
+        assertInvalid("?d{65}", "长度范围无效: {65}");
+    }
+}
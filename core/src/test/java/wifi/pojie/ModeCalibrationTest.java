@@ -0,0 +1,147 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用 {@link SimulatedWifi} 模拟不同组合的失败判定耗时，检查统计和推荐结果
+ */
+public class ModeCalibrationTest {
+    private static final ModeCalibration.Candidate BROADCAST = new ModeCalibration.Candidate(0, 0, 0);
+    private static final ModeCalibration.Candidate LOGCAT = new ModeCalibration.Candidate(0, 1, 0);
+    private static final ModeCalibration.Candidate CTRL = new ModeCalibration.Candidate(2, 2, 1);
+    private static final ModeCalibration.Candidate BROKEN = new ModeCalibration.Candidate(1, 0, 0);
+
+    private static class Run implements ModeCalibration.Listener {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<ModeCalibration.Candidate> started = new ArrayList<>();
+        volatile List<ModeCalibration.Result> results;
+        volatile ModeCalibration.Result best;
+
+        @Override
+        public void onCandidateStart(int index, ModeCalibration.Candidate candidate) {
+            started.add(candidate);
+        }
+
+        @Override
+        public void onAttemptResult(ModeCalibration.Candidate candidate, String result, long millis) {
+        }
+
+        @Override
+        public void onFinished(List<ModeCalibration.Result> results, ModeCalibration.Result best) {
+            this.results = results;
+            this.best = best;
+            done.countDown();
+        }
+    }
+
+    /**
+     * 每次连接都把虚拟时钟推进该组合的失败耗时，结果立即回调
+     */
+    private static Run calibrate(List<ModeCalibration.Candidate> candidates, int attempts) throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        Run run = new Run();
+        ModeCalibration calibration = new ModeCalibration(candidate -> {
+            if (candidate == BROKEN) throw new RuntimeException("系统不支持");
+            long failMillis = candidate == BROADCAST ? 4000 : candidate == LOGCAT ? 2500 : 1200;
+            SimulatedWifi wifi = new SimulatedWifi.Builder("never").failLatency(SimulatedWifi.Latency.fixed(failMillis))
+                    .dropRate(candidate == CTRL ? 0.5 : 0).build();
+            return new WifiBackend() {
+                @Override
+                public void connect(String ssid, String password, int timeout, java.util.function.Consumer<String> onResult) {
+                    wifi.connect(ssid, password, timeout, result -> {
+                        clock.addAndGet("timeout".equals(result) ? timeout : failMillis);
+                        onResult.accept(result);
+                    });
+                }
+
+                @Override
+                public void forgetWifiName(String ssid) {
+                    wifi.forgetWifiName(ssid);
+                }
+
+                @Override
+                public int getWifiId(String ssid) {
+                    return wifi.getWifiId(ssid);
+                }
+
+                @Override
+                public void destroy() {
+                    wifi.destroy();
+                }
+            };
+        }, candidates, "Test AP", attempts, 15000, run, clock::get, new Random(1));
+        calibration.start();
+        assertTrue("calibration did not finish", run.done.await(10, TimeUnit.SECONDS));
+        assertTrue(calibration.isStopped());
+        return run;
+    }
+
+    @Test
+    public void recommendsFastestCombinationThatAlwaysSignals() throws InterruptedException {
+        Run run = calibrate(Arrays.asList(BROADCAST, BROKEN, LOGCAT, CTRL), 6);
+
+        assertEquals(Arrays.asList(BROADCAST, BROKEN, LOGCAT, CTRL), run.started);
+        assertEquals(4, run.results.size());
+
+        ModeCalibration.Result broadcast = run.results.get(0);
+        assertTrue(broadcast.isUsable());
+        assertEquals(6, broadcast.getSignalCount());
+        assertEquals(4000, broadcast.getMedian());
+        assertEquals(4000, broadcast.getP95());
+
+        ModeCalibration.Result broken = run.results.get(1);
+        assertFalse(broken.isUsable());
+        assertEquals("系统不支持", broken.getError());
+
+        // 控制接口的判定最快，但有一半尝试超时，不推荐
+        ModeCalibration.Result ctrl = run.results.get(3);
+        assertTrue(ctrl.getTimeouts() > 0);
+        assertFalse(ctrl.isUsable());
+        assertEquals(1200, ctrl.getMedian());
+
+        assertSame(LOGCAT, run.best.candidate);
+        assertEquals(2500, run.best.getMedian());
+    }
+
+    @Test
+    public void wrongPasswordSucceedingIsAnError() throws InterruptedException {
+        // 模拟的热点密码恰好是随机生成的第一个密码
+        Random random = new Random(1);
+        String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+        StringBuilder first = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            first.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        Run run = new Run();
+        new ModeCalibration(candidate -> new SimulatedWifi.Builder(first.toString()).build(),
+                Arrays.asList(BROADCAST), "Test AP", 3, 15000, run, System::currentTimeMillis, new Random(1)).start();
+        assertTrue(run.done.await(10, TimeUnit.SECONDS));
+
+        assertEquals("错误的密码连接成功了", run.results.get(0).getError());
+        assertNull(run.best);
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        ModeCalibration.Result result = new ModeCalibration.Result(BROADCAST);
+        assertEquals(-1, result.getMedian());
+        for (long millis : new long[]{900, 100, 500, 300, 700, 200, 400, 600, 800, 1000}) {
+            result.record("auth_fail", millis);
+        }
+        result.record("timeout", 15000);
+        assertEquals(500, result.getMedian());
+        assertEquals(1000, result.getP95());
+        assertEquals(11, result.getAttempts());
+        assertFalse(result.isUsable());
+    }
+}
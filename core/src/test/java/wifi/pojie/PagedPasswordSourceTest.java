@@ -0,0 +1,378 @@
+package wifi.pojie;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分页读取密码本：行索引、页缓存、搜索和密码本被改写后的重建
+ */
+public class PagedPasswordSourceTest {
+    private static final int PAGE = PagedPasswordSource.PAGE_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<PagedPasswordSource> sources = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (PagedPasswordSource source : sources) {
+            source.close();
+        }
+    }
+
+    private File book(int lines) throws IOException {
+        File file = folder.newFile();
+        writeBook(file, "pw", lines);
+        return file;
+    }
+
+    private static void writeBook(File file, String prefix, int lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append(prefix).append(i).append(i % 7 == 0 ? "\r\n\n  \n" : "\n");
+        }
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 回调在后台线程中直接执行
+     */
+    private PagedPasswordSource source(File file) {
+        PagedPasswordSource source = new PagedPasswordSource(file, Runnable::run);
+        sources.add(source);
+        return source;
+    }
+
+    /**
+     * 把回调记录为事件，测试线程按顺序等待
+     */
+    private static class RecordingListener implements PagedPasswordSource.Listener {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onIndexProgress(int lineCount, boolean finished) {
+            if (finished) {
+                events.add("indexed " + lineCount);
+            }
+        }
+
+        @Override
+        public void onPageLoaded(int firstLine, int count) {
+            events.add("page " + firstLine + " " + count);
+        }
+
+        @Override
+        public void onFileChanged() {
+            events.add("changed");
+        }
+
+        @Override
+        public void onError(IOException e) {
+            events.add("error " + e.getMessage());
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull("等待回调超时", event);
+            return event;
+        }
+    }
+
+    private static class RecordingSearch implements PagedPasswordSource.SearchListener {
+        final List<List<Integer>> batches = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+        final List<String> lines = new ArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile int total = -1;
+
+        @Override
+        public synchronized void onMatches(List<Integer> lineIndexes, List<String> lines) {
+            batches.add(lineIndexes);
+            indexes.addAll(lineIndexes);
+            this.lines.addAll(lines);
+        }
+
+        @Override
+        public void onSearchFinished(int total) {
+            this.total = total;
+            finished.countDown();
+        }
+
+        @Override
+        public void onError(IOException e) {
+            fail("搜索失败: " + e.getMessage());
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("等待搜索完成超时", finished.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 读取一行，所在页未缓存时等待后台加载
+     */
+    private static String load(PagedPasswordSource source, int index, RecordingListener listener) throws InterruptedException {
+        String line = source.getLine(index, listener);
+        if (line == null) {
+            assertEquals("page " + (index / PAGE * PAGE) + " " + Math.min(PAGE, source.getLineCount() - index / PAGE * PAGE),
+                    listener.next());
+            line = source.getLine(index, listener);
+        }
+        return line;
+    }
+
+    @Test
+    public void dictionaryReadsFromFile() throws IOException {
+        int lines = PAGE * 3 + 5;
+        PagedPasswordSource source = source(book(lines));
+        assertEquals(lines, source.openBlocking());
+        assertTrue(source.isIndexed());
+
+        DictionarySource dictionary = source.asDictionary();
+        assertEquals(lines, dictionary.size());
+        for (int i = 0; i < lines; i++) {
+            assertEquals("pw" + i, dictionary.get(i));
+        }
+        // 跨页随机读取
+        assertEquals("pw" + PAGE, dictionary.get(PAGE));
+        assertEquals("pw0", dictionary.get(0));
+        assertEquals("pw" + (lines - 1), dictionary.get(lines - 1));
+    }
+
+    @Test
+    public void ruleDictionaryOverPagedBook() throws IOException {
+        PagedPasswordSource source = source(book(600));
+        source.openBlocking();
+        RuleDictionary dictionary = new RuleDictionary(source.asDictionary(), PasswordRules.parse(":\n$!"));
+        assertEquals(1200, dictionary.size());
+        assertEquals("pw599!", dictionary.get(1199));
+        assertEquals("pw300", dictionary.get(600));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readBeyondEnd() throws IOException {
+        PagedPasswordSource source = source(book(3));
+        source.openBlocking();
+        source.readLine(3);
+    }
+
+    @Test
+    public void indexSkipsBlankLinesAndTrims() throws Exception {
+        File file = folder.newFile();
+        // 多字节字符、首尾空白、CRLF，最后一行没有换行
+        Files.write(file.toPath(), "\n  密码一 \r\n\t\n\npw2\r\n   \nlast".getBytes(StandardCharsets.UTF_8));
+        PagedPasswordSource source = source(file);
+        RecordingListener listener = new RecordingListener();
+        source.open(listener);
+        assertEquals("indexed 3", listener.next());
+        assertTrue(source.isIndexed());
+        assertEquals(3, source.getLineCount());
+        assertEquals("密码一", load(source, 0, listener));
+        assertEquals("pw2", source.getLine(1, listener));
+        assertEquals("last", source.getLine(2, listener));
+        assertNull(source.getLine(3, listener));
+        assertNull(source.getLine(-1, listener));
+    }
+
+    @Test
+    public void pagesLoadOnDemandAndEvictLeastRecentlyUsed() throws Exception {
+        int lines = PAGE * 20 + 10;
+        PagedPasswordSource source = source(book(lines));
+        RecordingListener listener = new RecordingListener();
+        source.open(listener);
+        assertEquals("indexed " + lines, listener.next());
+
+        // 每页只加载一次，同一页的其他行直接命中缓存
+        for (int page = 0; page <= 16; page++) {
+            assertEquals("pw" + page * PAGE, load(source, page * PAGE, listener));
+            assertEquals("pw" + (page * PAGE + PAGE - 1), source.getLine(page * PAGE + PAGE - 1, listener));
+        }
+        // 缓存16页，最早使用的第0页已被淘汰
+        assertNull(source.getLine(0, listener));
+        assertEquals("page 0 " + PAGE, listener.next());
+        assertEquals("pw0", source.getLine(0, listener));
+
+        // 重新加载第0页淘汰了第1页；访问第2页后，下一次淘汰第3页
+        assertEquals("pw" + 2 * PAGE, source.getLine(2 * PAGE, listener));
+        assertEquals("pw" + 20 * PAGE, load(source, 20 * PAGE, listener));
+        assertEquals("pw" + 2 * PAGE, source.getLine(2 * PAGE, listener));
+        assertNull(source.getLine(3 * PAGE, listener));
+        assertEquals("page " + 3 * PAGE + " " + PAGE, listener.next());
+        assertNull(source.getLine(PAGE, listener));
+        assertEquals("page " + PAGE + " " + PAGE, listener.next());
+
+        // 最后一页不满
+        assertEquals("pw" + (lines - 1), source.getLine(lines - 1, listener));
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    public void searchDeliversMatchesInBatches() throws Exception {
+        int lines = 1000;
+        PagedPasswordSource source = source(book(lines));
+        source.openBlocking();
+
+        RecordingSearch all = new RecordingSearch();
+        source.search("pw", all);
+        all.await();
+        assertEquals(lines, all.total);
+        assertTrue(all.batches.size() >= lines / 64);
+        for (List<Integer> batch : all.batches) {
+            assertTrue("每批最多64项: " + batch.size(), batch.size() <= 64);
+        }
+        for (int i = 0; i < lines; i++) {
+            assertEquals(i, (int) all.indexes.get(i));
+            assertEquals("pw" + i, all.lines.get(i));
+        }
+
+        RecordingSearch some = new RecordingSearch();
+        source.search("pw99", some);
+        some.await();
+        List<Integer> expected = new ArrayList<>();
+        expected.add(99);
+        for (int i = 990; i < 1000; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, some.indexes);
+        assertEquals(expected.size(), some.total);
+
+        RecordingSearch none = new RecordingSearch();
+        source.search("nothing", none);
+        none.await();
+        assertEquals(0, none.total);
+        assertTrue(none.batches.isEmpty());
+    }
+
+    @Test
+    public void cancelledSearchStopsDelivering() throws Exception {
+        PagedPasswordSource source = source(book(5000));
+        source.openBlocking();
+
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        RecordingSearch first = new RecordingSearch() {
+            @Override
+            public synchronized void onMatches(List<Integer> lineIndexes, List<String> lines) {
+                super.onMatches(lineIndexes, lines);
+                firstBatch.countDown();
+                // 回调在搜索线程中执行，等测试线程取消后再继续扫描
+                try {
+                    cancelled.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        source.search("pw", first);
+        assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+        source.cancelSearch();
+        cancelled.countDown();
+
+        // 搜索在单线程中依次执行，下一次搜索完成时上一次已经结束
+        RecordingSearch next = new RecordingSearch();
+        source.search("pw4999", next);
+        next.await();
+        assertEquals(1, next.total);
+
+        assertEquals(1, first.batches.size());
+        assertEquals(1, first.finished.getCount());
+    }
+
+    @Test
+    public void rebuildsIndexAfterFileChanged() throws Exception {
+        File file = book(PAGE * 4);
+        PagedPasswordSource source = source(file);
+        RecordingListener listener = new RecordingListener();
+        source.open(listener);
+        assertEquals("indexed " + PAGE * 4, listener.next());
+        assertEquals("pw0", load(source, 0, listener));
+
+        // 合并或去重后内容变短，按旧偏移读取会错位或越过文件末尾
+        writeBook(file, "new", PAGE + 3);
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+        assertNull(source.getLine(3 * PAGE, listener));
+        assertEquals("changed", listener.next());
+        assertEquals("indexed " + (PAGE + 3), listener.next());
+        assertEquals(PAGE + 3, source.getLineCount());
+
+        // 旧内容已从缓存中清除
+        assertEquals("new0", load(source, 0, listener));
+        assertEquals("new" + (PAGE + 2), load(source, PAGE + 2, listener));
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    public void searchNoticesChangedFile() throws Exception {
+        File file = book(100);
+        PagedPasswordSource source = source(file);
+        RecordingListener listener = new RecordingListener();
+        source.open(listener);
+        assertEquals("indexed 100", listener.next());
+
+        writeBook(file, "new", 50);
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+        RecordingSearch search = new RecordingSearch();
+        source.search("new4", search);
+        search.await();
+        // 行号按新内容计算
+        List<Integer> expected = new ArrayList<>();
+        expected.add(4);
+        for (int i = 40; i < 50; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, search.indexes);
+        assertEquals("changed", listener.next());
+        assertEquals("indexed 50", listener.next());
+    }
+
+    @Test
+    public void blockingReadFailsAfterFileChanged() throws IOException {
+        File file = book(PAGE * 2);
+        PagedPasswordSource source = source(file);
+        source.openBlocking();
+        assertEquals("pw0", source.readLine(0));
+
+        writeBook(file, "new", PAGE * 2);
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+        try {
+            source.asDictionary().get(PAGE);
+            fail("字典内容已改变，应当读取失败");
+        } catch (IllegalStateException e) {
+            assertEquals("读取密码本失败: 密码本文件已被修改", e.getMessage());
+        }
+    }
+
+    @Test
+    public void storingChunksKeepsIndex() throws Exception {
+        File booksDir = folder.newFolder("books");
+        File file = new File(booksDir, "a.txt");
+        writeBook(file, "pw", PAGE * 3);
+        PagedPasswordSource source = source(file);
+        RecordingListener listener = new RecordingListener();
+        source.open(listener);
+        assertEquals("indexed " + PAGE * 3, listener.next());
+        assertEquals("pw0", load(source, 0, listener));
+
+        // 转为分块存储不改变内容，不需要重建索引
+        new ChunkStore(booksDir).storeBook(file);
+        assertFalse(file.exists());
+        assertEquals("pw" + (2 * PAGE + 1), load(source, 2 * PAGE + 1, listener));
+        assertTrue(listener.events.isEmpty());
+    }
+}
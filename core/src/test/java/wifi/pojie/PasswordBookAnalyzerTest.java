@@ -0,0 +1,120 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 密码本分析的强度分布、长度分布和无效 WPA 口令统计
+ */
+public class PasswordBookAnalyzerTest {
+
+    private static PasswordBookIndex.PasswordSource source(List<String> passwords) {
+        return handler -> {
+            for (String password : passwords) {
+                handler.accept(password);
+            }
+        };
+    }
+
+    @Test
+    public void histogramsAndInvalidCount() throws IOException {
+        List<String> passwords = Arrays.asList(
+                "aaaa",                                        // 强度1，长度4，过短
+                "1234567",                                     // 强度2，长度7，过短
+                "12345678",                                    // 强度3
+                "abcdefgh1",                                   // 强度4
+                "Password1!",                                  // 强度5
+                "wifi密码2024",                                 // 强度5，非ASCII
+                PasswordStrengthTest.repeat('x', 63),          // 最长的口令
+                PasswordStrengthTest.repeat('x', 64),          // 64位但不是十六进制
+                PasswordStrengthTest.repeat('a', 64),          // 64位十六进制 PSK
+                PasswordStrengthTest.repeat('y', 100));        // 计入最后一项长度
+        PasswordBookAnalyzer.Report report = new PasswordBookAnalyzer(2).analyze(source(passwords));
+
+        assertEquals(10, report.getTotal());
+        long strengthSum = 0;
+        for (int strength = 0; strength <= 5; strength++) {
+            long expected = 0;
+            for (String password : passwords) {
+                if (PasswordStrength.evaluate(password) == strength) {
+                    expected++;
+                }
+            }
+            assertEquals("强度" + strength, expected, report.getStrengthCount(strength));
+            strengthSum += report.getStrengthCount(strength);
+        }
+        assertEquals(10, strengthSum);
+        assertEquals(1, report.getStrengthCount(1));
+        assertEquals(2, report.getStrengthCount(5));
+
+        assertEquals(1, report.getLengthCount(4));
+        assertEquals(1, report.getLengthCount(7));
+        assertEquals(1, report.getLengthCount(8));
+        assertEquals(1, report.getLengthCount(9));
+        assertEquals(2, report.getLengthCount(10));
+        assertEquals(1, report.getLengthCount(63));
+        // 64位和更长的都计入最后一项
+        assertEquals(3, report.getLengthCount(PasswordBookAnalyzer.Report.MAX_LENGTH));
+        assertEquals(3, report.getLengthCount(100));
+        assertEquals(0, report.getLengthCount(0));
+
+        // 过短2个、非ASCII 1个、64位非十六进制1个、过长1个
+        assertEquals(5, report.getInvalidWpaCount());
+    }
+
+    @Test
+    public void threadCountDoesNotChangeResult() throws IOException {
+        // 跨越多个批次，最后一批不满
+        Random random = new Random(8);
+        List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder password = new StringBuilder();
+            int length = random.nextInt(70);
+            for (int k = 0; k < length; k++) {
+                password.append((char) (0x20 + random.nextInt(0x70)));
+            }
+            passwords.add(password.toString());
+        }
+        PasswordBookAnalyzer.Report single = new PasswordBookAnalyzer(1).analyze(source(passwords));
+        PasswordBookAnalyzer.Report parallel = new PasswordBookAnalyzer(4).analyze(source(passwords));
+
+        assertEquals(passwords.size(), single.getTotal());
+        assertEquals(single.getTotal(), parallel.getTotal());
+        assertEquals(single.getInvalidWpaCount(), parallel.getInvalidWpaCount());
+        for (int strength = 0; strength <= 5; strength++) {
+            assertEquals(single.getStrengthCount(strength), parallel.getStrengthCount(strength));
+        }
+        for (int length = 0; length <= PasswordBookAnalyzer.Report.MAX_LENGTH; length++) {
+            assertEquals(single.getLengthCount(length), parallel.getLengthCount(length));
+        }
+    }
+
+    @Test
+    public void emptyBook() throws IOException {
+        PasswordBookAnalyzer.Report report = new PasswordBookAnalyzer(0).analyze(source(new ArrayList<>()));
+        assertEquals(0, report.getTotal());
+        assertEquals(0, report.getInvalidWpaCount());
+    }
+
+    @Test(timeout = 10_000)
+    public void readErrorIsRethrown() {
+        try {
+            new PasswordBookAnalyzer(2).analyze(handler -> {
+                for (int i = 0; i < 100_000; i++) {
+                    handler.accept("password" + i);
+                }
+                throw new IOException("读取失败");
+            });
+            fail("读取错误应当抛出");
+        } catch (IOException e) {
+            assertEquals("读取失败", e.getMessage());
+        }
+    }
+}
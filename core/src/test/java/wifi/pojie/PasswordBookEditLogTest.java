@@ -0,0 +1,65 @@
+package wifi.pojie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 编辑日志叠加和合并的结果与编辑器中显示的一致
+ */
+public class PasswordBookEditLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File book(String... passwords) throws IOException {
+        File file = folder.newFile("book.txt");
+        Files.write(file.toPath(), (String.join("\n", passwords) + "\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> read(PasswordBookEditLog log) throws IOException {
+        List<String> passwords = new ArrayList<>();
+        log.forEachPassword(passwords::add);
+        return passwords;
+    }
+
+    @Test
+    public void deletesOnlyTheRecordedDuplicate() throws IOException {
+        File file = book("abc", "x", "abc", "y");
+        PasswordBookEditLog log = new PasswordBookEditLog(file);
+        log.append(Collections.singletonList("abc"),
+                Collections.singletonList(new PasswordBookEditLog.Deletion(2, "abc")));
+        assertEquals(Arrays.asList("abc", "x", "y", "abc"), read(log));
+
+        // 删除已保存的新增，只删除一处
+        log.append(Collections.emptyList(), Collections.singletonList(new PasswordBookEditLog.Deletion(-1, "abc")));
+        assertEquals(Arrays.asList("abc", "x", "y"), read(log));
+
+        List<String> loaded = new ArrayList<>(Arrays.asList("abc", "x", "abc", "y"));
+        log.applyTo(loaded);
+        assertEquals(Arrays.asList("abc", "x", "y"), loaded);
+
+        assertEquals(3, log.compact());
+        assertEquals(Arrays.asList("abc", "x", "y"), read(log));
+    }
+
+    @Test
+    public void staleLineDeletesNextOccurrence() throws IOException {
+        File file = book("a", "b", "c", "b");
+        PasswordBookEditLog log = new PasswordBookEditLog(file);
+        // 行号1记录时是 "c"，与当前密码本不符，改为删除之后的第一个 "c"
+        log.append(Collections.emptyList(), Collections.singletonList(new PasswordBookEditLog.Deletion(1, "c")));
+        assertEquals(Arrays.asList("a", "b", "b"), read(log));
+    }
+}
@@ -0,0 +1,81 @@
+package wifi.pojie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 密码索引的增量编辑
+ */
+public class PasswordBookIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PasswordBookIndex newIndex() {
+        return new PasswordBookIndex(new File(folder.getRoot(), "index"), new File(folder.getRoot(), "tmp"), 1 << 20);
+    }
+
+    private static PasswordBookIndex.PasswordSource source(String... passwords) {
+        List<String> list = Arrays.asList(passwords);
+        return handler -> {
+            for (String password : list) {
+                handler.accept(password);
+            }
+        };
+    }
+
+    @Test
+    public void deletingOneDuplicateKeepsPassword() throws IOException {
+        PasswordBookIndex index = newIndex();
+        index.indexBook("a", source("abc", "x", "abc"));
+        index.applyEdits("a", Collections.emptyList(), Collections.singletonList("abc"));
+        assertTrue(index.contains("abc"));
+        index.applyEdits("a", Collections.emptyList(), Collections.singletonList("abc"));
+        assertFalse(index.contains("abc"));
+        index.applyEdits("a", Collections.singletonList("abc"), Collections.emptyList());
+        assertEquals(Collections.singletonList("a"), index.findBooks("abc"));
+
+        // 重新加载后结果相同
+        assertTrue(newIndex().contains("abc"));
+        assertTrue(newIndex().contains("x"));
+    }
+
+    @Test
+    public void tornDeltaRecordIsTruncated() throws IOException {
+        PasswordBookIndex index = newIndex();
+        index.indexBook("a", source("abc"));
+        index.applyEdits("a", Collections.emptyList(), Collections.singletonList("abc"));
+        File delta = new File(folder.getRoot(), "index/a.delta");
+        try (FileOutputStream out = new FileOutputStream(delta, true)) {
+            out.write(new byte[]{1, 2, 3, 4, 5});
+        }
+
+        PasswordBookIndex reloaded = newIndex();
+        assertFalse(reloaded.contains("abc"));
+        reloaded.applyEdits("a", Collections.singletonList("new"), Collections.emptyList());
+        assertTrue(newIndex().contains("new"));
+        assertFalse(newIndex().contains("abc"));
+    }
+
+    @Test
+    public void corruptDeltaDropsIndex() throws IOException {
+        PasswordBookIndex index = newIndex();
+        index.indexBook("a", source("abc"));
+        File delta = new File(folder.getRoot(), "index/a.delta");
+        try (FileOutputStream out = new FileOutputStream(delta)) {
+            out.write(new byte[]{7, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1});
+        }
+        PasswordBookIndex reloaded = newIndex();
+        assertFalse(reloaded.isIndexed("a"));
+        assertFalse(delta.exists());
+    }
+}
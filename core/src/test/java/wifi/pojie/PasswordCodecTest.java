@@ -0,0 +1,68 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 密码本导入导出格式测试
+ */
+public class PasswordCodecTest {
+
+    private static ByteArrayInputStream utf8(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void txtTrimsAndSkipsBlankLines() throws IOException {
+        List<String> passwords = PasswordCodec.readTxt(utf8("  12345678 \r\n\n\t\nabc def\r\nlast"));
+        assertEquals(Arrays.asList("12345678", "abc def", "last"), passwords);
+        assertTrue(PasswordCodec.readTxt(utf8("")).isEmpty());
+    }
+
+    @Test
+    public void csvFirstColumn() throws IOException {
+        List<String> passwords = PasswordCodec.readCsv(utf8("password,note\n p1 ,x\n,skipped\nonly\n"));
+        assertEquals(Arrays.asList("password", "p1", "only"), passwords);
+    }
+
+    @Test
+    public void csvRoundTrip() throws IOException {
+        List<String> passwords = Arrays.asList("a1", "b2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PasswordCodec.writeCsv(out, passwords);
+        assertEquals("password\na1\nb2\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void zipRoundTripKeepsMultibyteCharacters() throws IOException {
+        // 足够长，多字节字符会跨越读取缓冲区的边界
+        List<String> first = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            first.add("密码" + i + "ü");
+        }
+        List<String> second = Arrays.asList("12345678", "qwertyui");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            PasswordCodec.writeZipEntry(zos, "常用", first);
+            PasswordCodec.writeZipEntry(zos, "digits.v2", second);
+        }
+
+        Map<String, List<String>> books = new LinkedHashMap<>();
+        PasswordCodec.readZip(new ByteArrayInputStream(out.toByteArray()), books::put);
+        assertEquals(Arrays.asList("常用", "digits.v2"), new ArrayList<>(books.keySet()));
+        assertEquals(first, books.get("常用"));
+        assertEquals(second, books.get("digits.v2"));
+    }
+}
@@ -0,0 +1,113 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 变换规则的解析和应用
+ */
+public class PasswordRulesTest {
+
+    private static String apply(String rule, String word) {
+        return PasswordRules.parse(rule).apply(word, 0);
+    }
+
+    private static void assertInvalid(String text, String message) {
+        try {
+            PasswordRules.parse(text);
+            fail("应当解析失败: " + text);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    @Test
+    public void eachOperation() {
+        assertEquals("PassWord", apply(":", "PassWord"));
+        assertEquals("password", apply("l", "PassWord"));
+        assertEquals("PASSWORD", apply("u", "PassWord"));
+        assertEquals("Password", apply("c", "pASSWORD"));
+        assertEquals("pASSWORD", apply("C", "Password"));
+        assertEquals("pASSwORD", apply("t", "PassWord"));
+        assertEquals("pAssWord", apply("T0 T1", "PassWord"));
+        assertEquals("abc1", apply("$1", "abc"));
+        assertEquals("!abc", apply("^!", "abc"));
+        assertEquals("p@ss", apply("sa@", "pass"));
+        assertEquals("abcabc", apply("d", "abc"));
+        assertEquals("cba", apply("r", "abc"));
+        assertEquals("ab", apply("'2", "abc"));
+        assertEquals("bc", apply("[", "abc"));
+        assertEquals("ab", apply("]", "abc"));
+        // 空单词上删除字符不出错
+        assertEquals("", apply("[ ]", ""));
+    }
+
+    @Test
+    public void operationsApplyInOrder() {
+        assertEquals("Admin2024", apply("c $2 $0 $2 $4", "admin"));
+        assertEquals("p@ssw0rd", apply("sa@ so0", "password"));
+        // 操作之间可以没有空格
+        assertEquals("Admin2024", apply("c$2$0$2$4", "admin"));
+        assertEquals("drowssap", apply("^! r '8", "password"));
+    }
+
+    @Test
+    public void spaceArguments() {
+        // 行尾的空格是 $ 的参数
+        assertEquals("abc ", apply("$ ", "abc"));
+        assertEquals(" abc", apply("^ ", "abc"));
+        assertEquals("a b", apply("s_ ", "a_b"));
+        // Windows 换行的 \r 不算参数
+        assertEquals("abc ", PasswordRules.parse("$ \r\n:").apply("abc", 0));
+    }
+
+    @Test
+    public void commentsAndBlankLines() {
+        PasswordRules rules = PasswordRules.parse("# 注释\n\n  \nu\n  # 缩进的注释\n$1\n");
+        assertEquals(2, rules.size());
+        assertEquals("ABC", rules.apply("abc", 0));
+        assertEquals("abc1", rules.apply("abc", 1));
+    }
+
+    @Test
+    public void positionsAboveNine() {
+        String word = "abcdefghijklmnopqrstuvwxyz0123456789";
+        assertEquals("abcdefghijKlmnopqrstuvwxyz0123456789", apply("TA", word));
+        assertEquals("abcdefghijklmnopqrstuvwxyz01234567", apply("'Y", word));
+        assertEquals(word.substring(0, 35), apply("'Z", word));
+        // 超出长度的位置不改变单词
+        assertEquals("abc", apply("TZ", "abc"));
+    }
+
+    @Test
+    public void errorsNameTheLine() {
+        assertInvalid(":\nx", "第2行规则无效: 未知操作 x");
+        assertInvalid("# 注释\nu\n$", "第3行规则无效: 操作缺少参数");
+        assertInvalid("s1", "第1行规则无效: 操作缺少参数");
+        assertInvalid("Ta", "第1行规则无效: 位置参数无效: a");
+        assertInvalid("'!", "第1行规则无效: 位置参数无效: !");
+        assertInvalid("# 只有注释\n\n", "没有任何规则");
+    }
+
+    @Test
+    public void workspaceGrows() {
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longWord.append((char) ('a' + i % 26));
+        }
+        String word = longWord.toString();
+        PasswordRules rules = PasswordRules.parse("d\n^!\nd d\n:");
+        PasswordRules.Workspace workspace = new PasswordRules.Workspace();
+        assertEquals(word + word, rules.apply(word, 0, workspace));
+        assertEquals("!" + word, rules.apply(word, 1, workspace));
+        assertEquals(word + word + word + word, rules.apply(word, 2, workspace));
+        // 复用变大后的缓冲区，短单词不受之前内容影响
+        assertEquals("ab", rules.apply("ab", 3, workspace));
+        assertEquals("abab", rules.apply("ab", 0, workspace));
+
+        // 默认缓冲区为64，在边界上插入
+        String edge = word.substring(0, 64);
+        assertEquals("!" + edge, rules.apply(edge, 1, new PasswordRules.Workspace()));
+    }
+}
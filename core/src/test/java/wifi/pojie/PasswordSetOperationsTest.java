@@ -0,0 +1,173 @@
+package wifi.pojie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * 集合运算的结果与内存中的参考实现一致，并保留第一次出现的顺序
+ */
+public class PasswordSetOperationsTest {
+    /**
+     * 每添加一行就写出一个分段，几百行就超过单次归并的分段数上限
+     */
+    private static final long TINY_BUDGET = 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File book(List<String> passwords) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), (String.join("\n", passwords) + "\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> randomPasswords(Random random, int count, int range) {
+        List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            passwords.add("pw" + random.nextInt(range));
+        }
+        return passwords;
+    }
+
+    private static List<String> firstOccurrences(List<String> passwords) {
+        return new ArrayList<>(new LinkedHashSet<>(passwords));
+    }
+
+    @Test
+    public void smallExample() throws IOException {
+        File a = book(Arrays.asList("c", "a", " b ", "", "a", "d", "c"));
+        File b = book(Arrays.asList("d", "x", "a", "x"));
+        File out = new File(folder.getRoot(), "out.txt");
+        PasswordSetOperations operations = new PasswordSetOperations(folder.newFolder(), 1 << 20);
+
+        assertEquals(4, operations.deduplicate(a, out));
+        assertEquals(Arrays.asList("c", "a", "b", "d"), read(out));
+
+        assertEquals(5, operations.union(Arrays.asList(a, b), out));
+        assertEquals(Arrays.asList("c", "a", "b", "d", "x"), read(out));
+
+        assertEquals(2, operations.intersection(a, Collections.singletonList(b), out));
+        assertEquals(Arrays.asList("a", "d"), read(out));
+
+        assertEquals(2, operations.difference(a, Collections.singletonList(b), out));
+        assertEquals(Arrays.asList("c", "b"), read(out));
+    }
+
+    @Test
+    public void multiPassMergeMatchesReference() throws IOException {
+        Random random = new Random(7);
+        List<String> a = randomPasswords(random, 300, 120);
+        List<String> b = randomPasswords(random, 250, 120);
+        List<String> c = randomPasswords(random, 200, 120);
+        File fileA = book(a);
+        File fileB = book(b);
+        File fileC = book(c);
+        File out = new File(folder.getRoot(), "out.txt");
+        File tempDir = folder.newFolder();
+        PasswordSetOperations operations = new PasswordSetOperations(tempDir, TINY_BUDGET);
+
+        List<String> all = new ArrayList<>(a);
+        all.addAll(b);
+        all.addAll(c);
+        assertEquals(firstOccurrences(all).size(), operations.union(Arrays.asList(fileA, fileB, fileC), out));
+        assertEquals(firstOccurrences(all), read(out));
+
+        operations.deduplicate(fileA, out);
+        assertEquals(firstOccurrences(a), read(out));
+
+        List<String> expected = new ArrayList<>();
+        for (String password : firstOccurrences(a)) {
+            if (b.contains(password) && c.contains(password)) {
+                expected.add(password);
+            }
+        }
+        operations.intersection(fileA, Arrays.asList(fileB, fileC), out);
+        assertEquals(expected, read(out));
+
+        expected.clear();
+        for (String password : firstOccurrences(a)) {
+            if (!b.contains(password) && !c.contains(password)) {
+                expected.add(password);
+            }
+        }
+        operations.difference(fileA, Arrays.asList(fileB, fileC), out);
+        assertEquals(expected, read(out));
+
+        assertArrayEquals(new String[0], tempDir.list());
+    }
+
+    @Test
+    public void tempFilesRemovedOnError() throws IOException {
+        File tempDir = folder.newFolder();
+        PasswordSetOperations operations = new PasswordSetOperations(tempDir, TINY_BUDGET);
+        File a = book(randomPasswords(new Random(1), 100, 50));
+        // 第一个密码本已经写出分段之后，读取目录失败
+        File unreadable = folder.newFolder();
+        try {
+            operations.union(Arrays.asList(a, unreadable), new File(folder.getRoot(), "out.txt"));
+            fail("读取目录应当失败");
+        } catch (IOException expected) {
+        }
+        try {
+            operations.difference(a, Collections.singletonList(unreadable), new File(folder.getRoot(), "out.txt"));
+            fail("读取目录应当失败");
+        } catch (IOException expected) {
+        }
+        assertArrayEquals(new String[0], tempDir.list());
+    }
+
+    @Test
+    public void concurrentOperationsShareTempDir() throws Exception {
+        File tempDir = folder.newFolder();
+        List<String> a = randomPasswords(new Random(2), 200, 80);
+        List<String> b = randomPasswords(new Random(3), 200, 80);
+        File fileA = book(a);
+        File fileB = book(b);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                File input = i % 2 == 0 ? fileA : fileB;
+                File out = new File(folder.getRoot(), "out" + i + ".txt");
+                // 每个任务使用自己的实例，临时目录相同
+                results.add(executor.submit(() -> {
+                    new PasswordSetOperations(tempDir, TINY_BUDGET).deduplicate(input, out);
+                    return read(out);
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(firstOccurrences(i % 2 == 0 ? a : b), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertArrayEquals(new String[0], tempDir.list());
+    }
+
+    @Test
+    public void indexedRecordsSortByIndex() {
+        assertTrue(PasswordSetOperations.indexed(9, "x").compareTo(PasswordSetOperations.indexed(10, "x")) < 0);
+        assertEquals("0000000000000000042\tpw", PasswordSetOperations.indexed(42, "pw"));
+    }
+}
@@ -0,0 +1,120 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 一次遍历的强度评分与原来基于正则的实现结果相同
+ */
+public class PasswordStrengthTest {
+
+    /**
+     * 原 PasswordGenerator.evaluatePasswordStrength 的实现，作为参照
+     */
+    private static int regexStrength(String password) {
+        if (password == null || password.isEmpty()) {
+            return 0;
+        }
+
+        int strength = 0;
+
+        if (password.length() >= 8) strength++;
+        if (password.length() >= 12) strength++;
+        if (password.length() >= 16) strength++;
+
+        boolean hasLower = !password.matches("^[^a-z]*$");
+        boolean hasUpper = !password.matches("^[^A-Z]*$");
+        boolean hasDigit = !password.matches("^[^0-9]*$");
+        boolean hasSpecial = !password.matches("^[a-zA-Z0-9]*$");
+
+        if (hasLower) strength++;
+        if (hasUpper) strength++;
+        if (hasDigit) strength++;
+        if (hasSpecial) strength++;
+
+        if (password.chars().distinct().count() >= password.length() * 0.8) {
+            strength++;
+        }
+
+        return Math.max(1, Math.min(5, strength));
+    }
+
+    /**
+     * 固定的样例：边界长度、各种字符组合、重复字符恰好在80%附近、非ASCII和控制字符
+     */
+    private static List<String> corpus() {
+        List<String> corpus = new ArrayList<>(Arrays.asList(
+                "a", "A", "1", "!", " ", "aaaaaaaa", "12345678", "1234567", "abcdefgh", "ABCDEFGH",
+                "password", "Password", "Password1", "Password1!", "P@ssw0rd", "correcthorsebatterystaple",
+                "abcdefghijk", "abcdefghijkl", "abcdefghijklmno", "abcdefghijklmnop",
+                // 10个字符中8个不同，恰好80%；7个不同时不满足
+                "abcdefghaa", "abcdefgaaa",
+                "aaaaaaaaaaaaaaaa", "Aa1!Aa1!Aa1!Aa1!", "密码密码密码密码", "wifi密码2024", "пароль123",
+                "tab\there", "line\nbreak", "\u0000\u0001\u0002", "~`@#$%^&*()_+-=[]{}|;:',.<>/?",
+                "😀😀emoji", "Zz9~éééé",
+                "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"));
+
+        // 固定种子的随机样例，字符取自各类字符、64-127之间的ASCII和非ASCII，容易产生重复
+        Random random = new Random(35);
+        String pool = "aAzZ09!~ @[`{\u007f\u0080é中😀\t";
+        for (int i = 0; i < 20_000; i++) {
+            int length = random.nextInt(24);
+            StringBuilder password = new StringBuilder();
+            for (int k = 0; k < length; k++) {
+                if (random.nextBoolean()) {
+                    password.append(pool.charAt(random.nextInt(pool.length())));
+                } else {
+                    password.append((char) (0x20 + random.nextInt(0x5f)));
+                }
+            }
+            corpus.add(password.toString());
+        }
+        return corpus;
+    }
+
+    @Test
+    public void matchesRegexImplementation() {
+        for (String password : corpus()) {
+            assertEquals(password, regexStrength(password), PasswordStrength.evaluate(password));
+        }
+    }
+
+    @Test
+    public void knownScores() {
+        assertEquals(0, PasswordStrength.evaluate(null));
+        assertEquals(0, PasswordStrength.evaluate(""));
+        assertEquals(1, PasswordStrength.evaluate("aaaa"));
+        // 长度8 + 数字 + 不重复
+        assertEquals(3, PasswordStrength.evaluate("12345678"));
+        assertEquals(5, PasswordStrength.evaluate("Password1!"));
+        assertEquals(new PasswordGenerator().evaluatePasswordStrength("P@ssw0rd"), PasswordStrength.evaluate("P@ssw0rd"));
+    }
+
+    @Test
+    public void wpaPassphrases() {
+        assertFalse(PasswordStrength.isValidWpaPassphrase("1234567"));
+        assertTrue(PasswordStrength.isValidWpaPassphrase("12345678"));
+        assertTrue(PasswordStrength.isValidWpaPassphrase("with space ~"));
+        assertTrue(PasswordStrength.isValidWpaPassphrase(repeat('x', 63)));
+        assertFalse(PasswordStrength.isValidWpaPassphrase(repeat('x', 65)));
+        // 64个字符只能是十六进制的 PSK
+        assertTrue(PasswordStrength.isValidWpaPassphrase(repeat('a', 32) + repeat('F', 32)));
+        assertFalse(PasswordStrength.isValidWpaPassphrase(repeat('g', 64)));
+        // 非ASCII和控制字符
+        assertFalse(PasswordStrength.isValidWpaPassphrase("wifi密码2024"));
+        assertFalse(PasswordStrength.isValidWpaPassphrase("tab\tpassword"));
+        assertFalse(PasswordStrength.isValidWpaPassphrase("delete\u007fchar"));
+    }
+
+    static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
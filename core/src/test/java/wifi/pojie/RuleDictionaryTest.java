@@ -0,0 +1,64 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 规则字典的序号按 单词 × 规则 展开
+ */
+public class RuleDictionaryTest {
+
+    private static RuleDictionary dictionary() {
+        return new RuleDictionary(DictionarySource.of(new String[]{"abc", "xyz", "pass"}),
+                PasswordRules.parse(":\nu\n$1"));
+    }
+
+    @Test
+    public void indexMapsToWordAndRule() {
+        RuleDictionary dictionary = dictionary();
+        assertEquals(9, dictionary.size());
+        String[] expected = {"abc", "ABC", "abc1", "xyz", "XYZ", "xyz1", "pass", "PASS", "pass1"};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("index " + i, expected[i], dictionary.get(i));
+        }
+        // 单词边界前后
+        assertEquals("abc1", dictionary.get(2));
+        assertEquals("xyz", dictionary.get(3));
+        assertEquals("pass1", dictionary.get(dictionary.size() - 1));
+    }
+
+    @Test
+    public void outOfRange() {
+        RuleDictionary dictionary = dictionary();
+        for (long index : new long[]{-1, dictionary.size(), Long.MAX_VALUE}) {
+            try {
+                dictionary.get(index);
+                fail("序号 " + index + " 应当越界");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void emptyBase() {
+        RuleDictionary dictionary = new RuleDictionary(DictionarySource.of(new String[0]), PasswordRules.parse("u"));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    public void largeIndexes() {
+        // 虚拟字典作为基础字典，序号超过 int 范围
+        DictionarySource base = new MaskEnumerator("?d{10}");
+        RuleDictionary dictionary = new RuleDictionary(base, PasswordRules.parse(":\n$!"));
+        assertEquals(20_000_000_000L, dictionary.size());
+        assertEquals("9999999999!", dictionary.get(dictionary.size() - 1));
+        assertEquals("9999999999", dictionary.get(dictionary.size() - 2));
+        assertEquals(base.get(3_000_000_000L) + "!", dictionary.get(6_000_000_001L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overflowingSize() {
+        new RuleDictionary(new MaskEnumerator("?d{18}"), PasswordRules.parse(":\nu\nl\nc\nd\nr\nt\n$1\n$2\n$3"));
+    }
+}
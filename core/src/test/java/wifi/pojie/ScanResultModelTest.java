@@ -0,0 +1,153 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 扫描结果的合并、信号平滑、同名合并和过期移除
+ */
+public class ScanResultModelTest {
+
+    private static ScanResultModel.Observation ap(String ssid, String bssid, int rssi) {
+        return new ScanResultModel.Observation(ssid, bssid, rssi);
+    }
+
+    private static ScanResultModel.Network find(ScanResultModel model, String ssid) {
+        for (ScanResultModel.Network network : model.getNetworks()) {
+            if (network.ssid.equals(ssid)) {
+                return network;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void sortedByRssiThenSsid() {
+        ScanResultModel model = new ScanResultModel();
+        assertTrue(model.merge(Arrays.asList(
+                ap("weak", "00:00:00:00:00:01", -80),
+                ap("b", "00:00:00:00:00:02", -50),
+                ap("a", "00:00:00:00:00:03", -50),
+                ap("strong", "00:00:00:00:00:04", -30)), 1000));
+        List<ScanResultModel.Network> networks = model.getNetworks();
+        assertEquals(4, networks.size());
+        assertEquals("strong", networks.get(0).ssid);
+        assertEquals("a", networks.get(1).ssid);
+        assertEquals("b", networks.get(2).ssid);
+        assertEquals("weak", networks.get(3).ssid);
+        assertEquals(1000, networks.get(0).lastSeenMillis);
+        try {
+            networks.clear();
+            fail("列表应当不可修改");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void rssiIsSmoothed() {
+        ScanResultModel model = new ScanResultModel();
+        String bssid = "00:00:00:00:00:01";
+        model.merge(Collections.singletonList(ap("home", bssid, -80)), 1);
+        assertEquals(-80, find(model, "home").rssi);
+        // 新测量值占一半权重
+        model.merge(Collections.singletonList(ap("home", bssid, -40)), 2);
+        assertEquals(-60, find(model, "home").rssi);
+        model.merge(Collections.singletonList(ap("home", bssid, -40)), 3);
+        assertEquals(-50, find(model, "home").rssi);
+
+        // 单次测量值的强弱颠倒时，平滑后的顺序不变
+        String other = "00:00:00:00:00:02";
+        model.merge(Arrays.asList(ap("home", bssid, -50), ap("office", other, -60)), 4);
+        model.merge(Arrays.asList(ap("home", bssid, -58), ap("office", other, -52)), 5);
+        assertEquals(-54, find(model, "home").rssi);
+        assertEquals(-56, find(model, "office").rssi);
+        assertEquals("home", model.getNetworks().get(0).ssid);
+    }
+
+    @Test
+    public void unchangedScanReportsNoChange() {
+        ScanResultModel model = new ScanResultModel();
+        List<ScanResultModel.Observation> scan = Collections.singletonList(ap("home", "00:00:00:00:00:01", -60));
+        assertTrue(model.merge(scan, 1));
+        assertFalse(model.merge(scan, 1));
+        // 时间变化也算变化，界面需要更新“多久前出现”
+        assertTrue(model.merge(scan, 2));
+    }
+
+    @Test
+    public void accessPointsWithSameSsidAreMerged() {
+        ScanResultModel model = new ScanResultModel();
+        model.merge(Arrays.asList(
+                ap("mesh", "00:00:00:00:00:01", -70),
+                ap("mesh", "00:00:00:00:00:02", -45),
+                ap("mesh", "00:00:00:00:00:03", -90),
+                ap("other", "00:00:00:00:00:04", -50)), 10);
+        assertEquals(2, model.getNetworks().size());
+        ScanResultModel.Network mesh = model.getNetworks().get(0);
+        assertEquals("mesh", mesh.ssid);
+        assertEquals(3, mesh.accessPointCount);
+        // 信号取最强的接入点
+        assertEquals(-45, mesh.rssi);
+
+        // 最后出现时间取最近的接入点
+        model.merge(Collections.singletonList(ap("mesh", "00:00:00:00:00:03", -90)), 20);
+        assertEquals(20, find(model, "mesh").lastSeenMillis);
+        assertEquals(3, find(model, "mesh").accessPointCount);
+    }
+
+    @Test
+    public void keyedBySsidWithoutBssid() {
+        ScanResultModel model = new ScanResultModel();
+        model.merge(Arrays.asList(ap("cmd", null, -80), ap("cmd", "", -60)), 1);
+        // 没有 BSSID 的两条结果是同一个接入点
+        assertEquals(1, find(model, "cmd").accessPointCount);
+        assertEquals(-70, find(model, "cmd").rssi);
+    }
+
+    @Test
+    public void hiddenNetworksAreSkipped() {
+        ScanResultModel model = new ScanResultModel();
+        assertFalse(model.merge(Arrays.asList(ap("", "00:00:00:00:00:01", -40), ap(null, "00:00:00:00:00:02", -40)), 1));
+        assertTrue(model.getNetworks().isEmpty());
+    }
+
+    @Test
+    public void renamedAccessPointMovesToNewSsid() {
+        ScanResultModel model = new ScanResultModel();
+        model.merge(Collections.singletonList(ap("old", "00:00:00:00:00:01", -50)), 1);
+        model.merge(Collections.singletonList(ap("new", "00:00:00:00:00:01", -50)), 2);
+        assertNull(find(model, "old"));
+        assertEquals(1, find(model, "new").accessPointCount);
+    }
+
+    @Test
+    public void removedAfterThreeMissedScans() {
+        ScanResultModel model = new ScanResultModel();
+        ScanResultModel.Observation stays = ap("stays", "00:00:00:00:00:01", -50);
+        model.merge(Arrays.asList(stays, ap("leaves", "00:00:00:00:00:02", -60)), 1);
+
+        // 漏掉一两次扫描仍保留，保持原来的最后出现时间
+        model.merge(Collections.singletonList(stays), 2);
+        model.merge(Collections.singletonList(stays), 3);
+        assertEquals(1, find(model, "leaves").lastSeenMillis);
+        // 重新出现后计数清零
+        model.merge(Arrays.asList(stays, ap("leaves", "00:00:00:00:00:02", -60)), 4);
+        model.merge(Collections.singletonList(stays), 5);
+        model.merge(Collections.singletonList(stays), 6);
+        assertNotNull(find(model, "leaves"));
+        assertTrue(model.merge(Collections.singletonList(stays), 7));
+        assertNull(find(model, "leaves"));
+        assertEquals(1, model.getNetworks().size());
+
+        // 一个空扫描结果不会清空列表
+        model.merge(Collections.emptyList(), 8);
+        assertEquals(1, model.getNetworks().size());
+        model.clear();
+        assertTrue(model.getNetworks().isEmpty());
+    }
+}
@@ -0,0 +1,302 @@
+package wifi.pojie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 模拟的 WiFi 后端，在 JVM 上代替 ConnectWifi 驱动 {@link AttemptLoop}
+ * <p>
+ * 只有 correctPassword 能连接成功，每次尝试的延迟和故障按固定种子随机抽取，同样的配置和字典每次运行的结果序列相同。
+ * 延迟是模拟时间（毫秒），实际等待时间为模拟时间乘以 timeScale，timeScale 为 0 时立即回调，测出的就是引擎本身的开销。
+ * 结果在独立的线程回调，和真机上的引擎线程一样。
+ */
+public class SimulatedWifi implements WifiBackend {
+
+    /**
+     * 模拟延迟的分布，返回毫秒
+     */
+    public interface Latency {
+        long sample(Random random);
+
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /**
+         * 对数正态分布，真机上认证失败的耗时大多集中在中位数附近，偶尔有很长的尾巴
+         */
+        static Latency logNormal(long medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    public static final class Builder {
+        private final String correctPassword;
+        private long seed = 1;
+        private double timeScale = 0;
+        private Latency successLatency = Latency.fixed(3000);
+        private Latency failLatency = Latency.fixed(3000);
+        private Latency forgetLatency = Latency.fixed(0);
+        private double dropRate = 0;
+        private double unavailableRate = 0;
+        private double falseNegativeRate = 0;
+        private double connectFailureRate = 0;
+        private double forgetFailureRate = 0;
+
+        public Builder(String correctPassword) {
+            this.correctPassword = correctPassword;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * 实际等待时间与模拟时间的比例，0 表示不等待
+         */
+        public Builder timeScale(double timeScale) {
+            this.timeScale = timeScale;
+            return this;
+        }
+
+        public Builder successLatency(Latency latency) {
+            this.successLatency = latency;
+            return this;
+        }
+
+        /**
+         * 密码错误和 unavailable 结果的延迟
+         */
+        public Builder failLatency(Latency latency) {
+            this.failLatency = latency;
+            return this;
+        }
+
+        public Builder forgetLatency(Latency latency) {
+            this.forgetLatency = latency;
+            return this;
+        }
+
+        /**
+         * 没有任何结果事件、只能等到超时的比例
+         */
+        public Builder dropRate(double rate) {
+            this.dropRate = rate;
+            return this;
+        }
+
+        /**
+         * 回调 "unavailable" 的比例，对应 API29 连接方式的 onUnavailable
+         */
+        public Builder unavailableRate(double rate) {
+            this.unavailableRate = rate;
+            return this;
+        }
+
+        /**
+         * 正确密码被误判为认证失败的比例
+         */
+        public Builder falseNegativeRate(double rate) {
+            this.falseNegativeRate = rate;
+            return this;
+        }
+
+        /**
+         * 连接请求直接抛出异常的比例
+         */
+        public Builder connectFailureRate(double rate) {
+            this.connectFailureRate = rate;
+            return this;
+        }
+
+        /**
+         * 忘记网络抛出异常的比例
+         */
+        public Builder forgetFailureRate(double rate) {
+            this.forgetFailureRate = rate;
+            return this;
+        }
+
+        public SimulatedWifi build() {
+            return new SimulatedWifi(this);
+        }
+    }
+
+    private final String correctPassword;
+    private final double timeScale;
+    private final Latency successLatency;
+    private final Latency failLatency;
+    private final Latency forgetLatency;
+    private final double dropRate;
+    private final double unavailableRate;
+    private final double falseNegativeRate;
+    private final double connectFailureRate;
+    private final double forgetFailureRate;
+
+    private final Random random;
+    private final ScheduledExecutorService events = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SimulatedWifi");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Integer> savedNetworks = new HashMap<>();
+    private final List<String> results = new ArrayList<>();
+    private volatile boolean isDestroyed = false;
+    private int nextNetworkId = 0;
+    // 每次连接加一，之前尝试的结果不再回调
+    private int generation = 0;
+    private int connectCount = 0;
+    private int forgetCount = 0;
+    private int duplicateCount = 0;
+    private long simulatedMillis = 0;
+
+    private SimulatedWifi(Builder builder) {
+        this.correctPassword = builder.correctPassword;
+        this.timeScale = builder.timeScale;
+        this.successLatency = builder.successLatency;
+        this.failLatency = builder.failLatency;
+        this.forgetLatency = builder.forgetLatency;
+        this.dropRate = builder.dropRate;
+        this.unavailableRate = builder.unavailableRate;
+        this.falseNegativeRate = builder.falseNegativeRate;
+        this.connectFailureRate = builder.connectFailureRate;
+        this.forgetFailureRate = builder.forgetFailureRate;
+        this.random = new Random(builder.seed);
+    }
+
+    @Override
+    public synchronized void connect(String ssid, String password, int timeout, Consumer<String> onResult) {
+        if (isDestroyed) {
+            return;
+        }
+        connectCount++;
+        // 每次尝试抽取的随机数个数固定，故障比例的改变不会打乱后面尝试的抽样
+        double failure = random.nextDouble();
+        double outcome = random.nextDouble();
+        double falseNegative = random.nextDouble();
+        if (failure < connectFailureRate) {
+            results.add("connect_fail");
+            throw new RuntimeException("connect fail");
+        }
+        if (savedNetworks.containsKey(ssid)) {
+            // 上一次失败的网络没有忘记
+            duplicateCount++;
+        } else {
+            savedNetworks.put(ssid, nextNetworkId++);
+        }
+
+        long successDelay = successLatency.sample(random);
+        long failDelay = failLatency.sample(random);
+        String result;
+        long delay;
+        if (outcome < dropRate) {
+            result = "timeout";
+            delay = timeout;
+        } else if (outcome < dropRate + unavailableRate) {
+            result = "unavailable";
+            delay = failDelay;
+        } else if (password.equals(correctPassword) && falseNegative >= falseNegativeRate) {
+            result = "success";
+            delay = successDelay;
+        } else {
+            result = "auth_fail";
+            delay = failDelay;
+        }
+        if (delay >= timeout) {
+            // 超过超时时间的结果由超时代替
+            result = "timeout";
+            delay = timeout;
+        }
+        delay = Math.max(0, delay);
+        simulatedMillis += delay;
+        results.add(result);
+
+        int current = ++generation;
+        String finalResult = result;
+        events.schedule(() -> {
+            synchronized (this) {
+                if (isDestroyed || current != generation) {
+                    return;
+                }
+            }
+            onResult.accept(finalResult);
+        }, Math.round(delay * timeScale * 1000), TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public void forgetWifiName(String ssid) {
+        long delay;
+        synchronized (this) {
+            forgetCount++;
+            double failure = random.nextDouble();
+            delay = forgetLatency.sample(random);
+            simulatedMillis += delay;
+            if (failure < forgetFailureRate) {
+                throw new RuntimeException("forget fail");
+            }
+            savedNetworks.remove(ssid);
+        }
+        // 真机上忘记网络是同步执行命令，会阻塞尝试循环
+        long waitMicros = Math.round(delay * timeScale * 1000);
+        if (waitMicros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(waitMicros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public synchronized int getWifiId(String ssid) {
+        Integer id = savedNetworks.get(ssid);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public void destroy() {
+        isDestroyed = true;
+        events.shutdownNow();
+    }
+
+    public synchronized int getConnectCount() {
+        return connectCount;
+    }
+
+    public synchronized int getForgetCount() {
+        return forgetCount;
+    }
+
+    /**
+     * 连接时同名网络仍处于保存状态的次数，正常流程应为 0
+     */
+    public synchronized int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * 所有尝试的模拟耗时之和，即真机上大约需要的时间
+     */
+    public synchronized long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    /**
+     * 按顺序排列的每次尝试的结果
+     */
+    public synchronized List<String> getResults() {
+        return new ArrayList<>(results);
+    }
+}
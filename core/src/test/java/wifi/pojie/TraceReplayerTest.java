@@ -0,0 +1,115 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 事件轨迹格式和离线回放测试
+ */
+public class TraceReplayerTest {
+    private static final long START = 1_000_000L;
+
+    private static byte[] trace(Object... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (EventTrace.Writer writer = new EventTrace.Writer(out, START)) {
+            for (int i = 0; i < entries.length; i += 3) {
+                writer.write((Integer) entries[i], START + (Long) entries[i + 1], (String) entries[i + 2]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static EventTrace.Reader reader(byte[] data) throws IOException {
+        return new EventTrace.Reader(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void roundTripKeepsTimeAndText() throws IOException {
+        byte[] data = trace(
+                EventTrace.ATTEMPT, 0L, "密码12345678",
+                EventTrace.LOGCAT, 200_000L, "wlan0: WPA: 4-Way Handshake failed",
+                EventTrace.RESULT, 200_000L, "auth_fail");
+        List<EventTrace.Entry> entries = new ArrayList<>();
+        try (EventTrace.Reader reader = reader(data)) {
+            assertEquals(START, reader.getStartMillis());
+            EventTrace.Entry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        assertEquals(3, entries.size());
+        assertEquals(EventTrace.ATTEMPT, entries.get(0).type);
+        assertEquals("密码12345678", entries.get(0).text);
+        assertEquals(START + 200_000L, entries.get(1).timeMillis);
+        assertEquals("auth_fail", entries.get(2).text);
+    }
+
+    @Test
+    public void truncatedLastEntryIsIgnored() throws IOException {
+        byte[] data = trace(
+                EventTrace.ATTEMPT, 0L, "12345678",
+                EventTrace.RESULT, 10L, "success");
+        try (EventTrace.Reader reader = reader(Arrays.copyOf(data, data.length - 3))) {
+            assertEquals("12345678", reader.next().text);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        reader("12345678\n87654321\n".getBytes());
+    }
+
+    @Test
+    public void handshakeTimeoutFiresAtTraceTime() throws Exception {
+        // 第一次只有握手没有结果，第二次在超时之前握手完成
+        byte[] data = trace(
+                EventTrace.ATTEMPT, 0L, "11111111",
+                EventTrace.LOGCAT, 3_500L, "wlan0: WPA: Sending EAPOL-Key 2/4",
+                EventTrace.ATTEMPT, 9_000L, "22222222",
+                EventTrace.LOGCAT, 9_500L, "wlan0: WPA: Sending EAPOL-Key 2/4",
+                EventTrace.LOGCAT, 9_700L, "wlan0: WPA: Sending EAPOL-Key 4/4",
+                EventTrace.LOGCAT, 10_000L, "Received packet: 02:00:00:00:00:00 ACK: your new IP /192.168.1.23, netmask /255.255.255.0");
+
+        assertEquals(Arrays.asList("handshake_timeout", "success"),
+                new TraceReplayer(0).replayAttempts(reader(data), 1, RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT, 2_000, 3));
+        // 超时比两次尝试的间隔还长时，第一次的计时在第二次尝试中触发，与设备上的行为一致
+        assertEquals(Arrays.asList("timeout", "handshake_timeout"),
+                new TraceReplayer(0).replayAttempts(reader(data), 1, RunConfig.FAIL_SIGN_HANDSHAKE_TIMEOUT, 6_000, 3));
+    }
+
+    @Test
+    public void broadcastAuthErrorIgnoredRightAfterAttemptStart() throws Exception {
+        byte[] data = trace(
+                EventTrace.ATTEMPT, 0L, "11111111",
+                EventTrace.SUPPLICANT_STATE, 500L, "DISCONNECTED" + EventTrace.AUTH_ERROR_SUFFIX,
+                EventTrace.SUPPLICANT_STATE, 4_000L, "FOUR_WAY_HANDSHAKE",
+                EventTrace.SUPPLICANT_STATE, 5_000L, "DISCONNECTED" + EventTrace.AUTH_ERROR_SUFFIX,
+                EventTrace.ATTEMPT, 6_000L, "22222222",
+                EventTrace.SUPPLICANT_STATE, 9_500L, "FOUR_WAY_HANDSHAKE",
+                EventTrace.NETWORK_STATE, 10_000L, "CONNECTED");
+
+        assertEquals(Arrays.asList("auth_fail", "success"),
+                new TraceReplayer(0).replayAttempts(reader(data), 0, RunConfig.FAIL_SIGN_AUTH_FAIL, 0, 0));
+    }
+
+    @Test
+    public void replayWaitsAccordingToSpeed() throws Exception {
+        byte[] data = trace(
+                EventTrace.ATTEMPT, 0L, "11111111",
+                EventTrace.RESULT, 400L, "auth_fail");
+        long begin = System.nanoTime();
+        new TraceReplayer(4).replay(reader(data), entry -> {
+        });
+        long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 90);
+    }
+}
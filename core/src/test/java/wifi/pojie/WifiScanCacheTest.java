@@ -0,0 +1,155 @@
+package wifi.pojie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 扫描频率预算、自动补扫描和缓存新旧判断，时间由测试控制
+ */
+public class WifiScanCacheTest {
+    private static final long WINDOW = WifiScanCache.SCAN_WINDOW_MILLIS;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger scans = new AtomicInteger();
+    private final AtomicBoolean scanSucceeds = new AtomicBoolean(true);
+    private WifiScanCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new WifiScanCache(clock::get);
+        cache.setScanner(() -> {
+            scans.incrementAndGet();
+            return scanSucceeds.get();
+        });
+    }
+
+    private static List<ScanResultModel.Observation> scan(String ssid) {
+        return Collections.singletonList(new ScanResultModel.Observation(ssid, "00:00:00:00:00:01", -50));
+    }
+
+    private void awaitScans(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scans.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, scans.get());
+    }
+
+    @Test
+    public void fourScansPerWindow() {
+        for (int i = 0; i < WifiScanCache.SCAN_BUDGET; i++) {
+            assertEquals(0, cache.getScanDelay(i * 1000));
+            assertEquals(0, cache.requestScan(i * 1000));
+        }
+        assertEquals(4, scans.get());
+
+        // 预算用完，等到第一次扫描滑出窗口
+        assertEquals(WINDOW - 10_000, cache.getScanDelay(10_000));
+        assertEquals(1, cache.getScanDelay(WINDOW - 1));
+        assertEquals(0, cache.getScanDelay(WINDOW));
+        // 窗口滑动后只恢复一次的预算
+        assertEquals(0, cache.requestScan(WINDOW));
+        assertEquals(5, scans.get());
+        assertEquals(1000, cache.getScanDelay(WINDOW));
+    }
+
+    @Test
+    public void failedScanDoesNotUseBudget() {
+        scanSucceeds.set(false);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(-1, cache.requestScan(i));
+        }
+        assertEquals(0, cache.getScanDelay(10));
+        scanSucceeds.set(true);
+        assertEquals(0, cache.requestScan(10));
+    }
+
+    @Test
+    public void noScanner() {
+        WifiScanCache empty = new WifiScanCache(clock::get);
+        assertEquals(-1, empty.requestScan(0));
+        assertEquals(0, empty.getScanDelay(0));
+    }
+
+    @Test
+    public void deferredScanRunsWhenBudgetRecovers() throws InterruptedException {
+        for (int i = 0; i < WifiScanCache.SCAN_BUDGET; i++) {
+            cache.requestScan(i);
+        }
+        // 时钟由测试控制，等待时间按 WINDOW 计算，实际只等 50ms
+        clock.set(WINDOW);
+        assertEquals(50, cache.requestScan(WINDOW - 50));
+        // 已安排的补扫描不重复安排
+        assertEquals(40, cache.requestScan(WINDOW - 40));
+        awaitScans(5);
+        Thread.sleep(200);
+        assertEquals(5, scans.get());
+    }
+
+    @Test
+    public void deferredScanRechecksBudget() throws InterruptedException {
+        for (int i = 0; i < WifiScanCache.SCAN_BUDGET; i++) {
+            cache.requestScan(i);
+        }
+        // 到点时按时钟预算仍未恢复，不发起扫描
+        clock.set(WINDOW - 1000);
+        assertEquals(20, cache.requestScan(WINDOW - 20));
+        Thread.sleep(200);
+        assertEquals(4, scans.get());
+        // 之前的补扫描已结束，可以重新安排
+        clock.set(WINDOW);
+        assertEquals(20, cache.requestScan(WINDOW - 20));
+        awaitScans(5);
+    }
+
+    @Test
+    public void freshnessDecidesWhetherToScan() {
+        assertEquals(0, cache.getLastUpdateMillis());
+        assertEquals(Long.MAX_VALUE, cache.getAgeMillis(0));
+        // 从未收到结果时总是扫描
+        assertEquals(0, cache.requestScanIfStale(0, 60_000));
+        assertEquals(1, scans.get());
+
+        cache.onScanResults(scan("home"), 10_000);
+        assertEquals(10_000, cache.getLastUpdateMillis());
+        assertEquals(5_000, cache.getAgeMillis(15_000));
+        // 时钟回拨时年龄不为负
+        assertEquals(0, cache.getAgeMillis(9_000));
+
+        // 不超过 maxAge 时直接用缓存
+        assertEquals(0, cache.requestScanIfStale(70_000, 60_000));
+        assertEquals(1, scans.get());
+        // 超过后发起扫描
+        assertEquals(0, cache.requestScanIfStale(70_001, 60_000));
+        assertEquals(2, scans.get());
+
+        ScanResultModel.Network home = cache.getNetworks().get(0);
+        assertEquals(20_000, WifiScanCache.getAgeMillis(home, 30_000));
+        assertEquals(0, WifiScanCache.getAgeMillis(home, 0));
+    }
+
+    @Test
+    public void listenersReceiveMergedNetworks() {
+        List<List<ScanResultModel.Network>> updates = new ArrayList<>();
+        WifiScanCache.Listener listener = updates::add;
+        cache.addListener(listener);
+        cache.onScanResults(scan("home"), 1);
+        assertEquals(1, updates.size());
+        assertEquals("home", updates.get(0).get(0).ssid);
+        assertSame(cache.getNetworks(), updates.get(0));
+
+        cache.removeListener(listener);
+        cache.onScanResults(scan("home"), 2);
+        assertEquals(1, updates.size());
+        assertEquals(2, cache.getNetworks().get(0).lastSeenMillis);
+    }
+}
@@ -0,0 +1,148 @@
+package wifi.pojie;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * wpa_supplicant 控制接口测试，用管道模拟控制接口连接，回放 resources/wpa_ctrl 下录制的事件
+ */
+public class WpaCtrlClientTest {
+
+    private static InputStream open(String name) {
+        InputStream in = WpaCtrlClientTest.class.getClassLoader().getResourceAsStream("wpa_ctrl/" + name);
+        assertNotNull("missing fixture " + name, in);
+        return in;
+    }
+
+    /**
+     * 模拟的 supplicant：收到 ATTACH 后回复 OK，然后回放事件并关闭连接
+     */
+    private static WpaCtrlClient connect(String fixture) throws IOException {
+        PipedOutputStream toClient = new PipedOutputStream();
+        PipedInputStream clientIn = new PipedInputStream(toClient, 64 * 1024);
+        PipedInputStream serverIn = new PipedInputStream(64 * 1024);
+        PipedOutputStream clientOut = new PipedOutputStream(serverIn);
+        Thread supplicant = new Thread(() -> {
+            try (BufferedReader commands = new BufferedReader(new InputStreamReader(serverIn, StandardCharsets.UTF_8));
+                 OutputStream out = toClient;
+                 InputStream events = open(fixture)) {
+                String command = commands.readLine();
+                // 回复之前先推送一条事件，客户端应当保留它
+                out.write("<3>CTRL-EVENT-SCAN-STARTED \n".getBytes(StandardCharsets.UTF_8));
+                out.write(("ATTACH".equals(command) ? "OK\n" : "FAIL\n").getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = events.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        supplicant.setDaemon(true);
+        supplicant.start();
+        return new WpaCtrlClient(clientIn, clientOut);
+    }
+
+    private static List<String> replay(WpaCtrlClient client) throws IOException {
+        SupplicantResultTracker tracker = new SupplicantResultTracker();
+        List<String> results = new ArrayList<>();
+        SupplicantEvent event;
+        while ((event = client.nextEvent()) != null) {
+            String result = tracker.onEvent(event);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void wrongKeyReportedOnce() throws IOException {
+        try (WpaCtrlClient client = connect("wrong_key.txt")) {
+            client.attach();
+            SupplicantEvent first = client.nextEvent();
+            assertTrue(first.is("CTRL-EVENT-SCAN-STARTED"));
+            List<String> results = replay(client);
+            // DISCONNECTED reason=15 和 SSID-TEMP-DISABLED 属于同一次尝试
+            assertEquals(1, results.size());
+            assertEquals("auth_fail", results.get(0));
+        }
+    }
+
+    @Test
+    public void connected() throws IOException {
+        try (WpaCtrlClient client = connect("connected.txt")) {
+            client.attach();
+            List<String> results = replay(client);
+            assertEquals(1, results.size());
+            assertEquals("success", results.get(0));
+        }
+    }
+
+    @Test
+    public void wpaCliInteractiveOutput() throws IOException {
+        try (WpaCtrlClient client = new WpaCtrlClient(open("wpa_cli_interactive.txt"), null)) {
+            SupplicantEvent event = client.nextEvent();
+            assertEquals(3, event.level);
+            assertTrue(event.is("CTRL-EVENT-SCAN-STARTED"));
+            event = client.nextEvent();
+            assertTrue(SupplicantResultTracker.isAttemptStart(event));
+            event = client.nextEvent();
+            assertTrue(event.is(SupplicantEvent.SSID_TEMP_DISABLED));
+            assertEquals("Guest WiFi", event.getParam("ssid"));
+            assertEquals(2, event.getIntParam("auth_failures", -1));
+            assertEquals("WRONG_KEY", event.getParam("reason"));
+            assertNull(client.nextEvent());
+        }
+    }
+
+    @Test
+    public void wpaCliConnectionError() throws IOException {
+        String output = "Selected interface 'wlan0'\n\nInteractive mode\n\n"
+                + "> <3>CTRL-EVENT-SCAN-STARTED \n"
+                + "> Connection to wpa_supplicant lost - trying to reconnect\n";
+        try (WpaCtrlClient client = new WpaCtrlClient(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)), null)) {
+            assertTrue(client.nextEvent().is("CTRL-EVENT-SCAN-STARTED"));
+            try {
+                client.nextEvent();
+                fail("连接断开应当报错");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Connection to wpa_supplicant lost"));
+            }
+        }
+    }
+
+    @Test
+    public void eventParams() {
+        SupplicantEvent event = SupplicantEvent.parse("<3>CTRL-EVENT-CONNECTED - Connection to d4:ee:07:12:34:56 completed [id=7 id_str=]");
+        assertNotNull(event);
+        assertTrue(event.is(SupplicantEvent.CONNECTED));
+        assertFalse(event.is("CTRL-EVENT-CONNECT"));
+        assertEquals(7, event.getIntParam("id", -1));
+        assertEquals("", event.getParam("id_str"));
+        assertNull(event.getParam("reason"));
+        assertNull(SupplicantEvent.parse("OK"));
+        assertNull(SupplicantEvent.parse("Selected interface 'wlan0'"));
+    }
+
+    @Test(expected = IOException.class)
+    public void attachRejected() throws IOException {
+        WpaCtrlClient client = new WpaCtrlClient(new ByteArrayInputStream("FAIL\n".getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayOutputStream());
+        client.attach();
+    }
+}